@@ -98,7 +98,8 @@ public class Store {
 
   /**
    * The current use of this function is to determine whether a FeatureRow is subscribed to a
-   * Featureset.
+   * Featureset. To match many feature sets against the same subscriptions, compile them once with
+   * {@link SubscriptionMatcher} instead.
    *
    * @param subscriptions List of Subscriptions available in Store
    * @param projectName Project name used for matching Subscription's Project
@@ -107,43 +108,11 @@ public class Store {
    */
   public static boolean isSubscribedToFeatureSet(
       List<Subscription> subscriptions, String projectName, String featureSetName) {
-    // Case 1: Highest priority check, to exclude all matching subscriptions with excluded flag =
-    // true
-    for (Subscription sub : subscriptions) {
-      // If configuration missing, fail
-      if (sub.getProject().isEmpty() || sub.getName().isEmpty()) {
-        throw new IllegalArgumentException(
-            String.format("Subscription is missing arguments: %s", sub.toString()));
-      }
-      // Match feature set name to pattern
-      Pattern patternName = getNamePattern(sub);
-      Pattern patternProject = getProjectPattern(sub);
-      // SubCase: Project name and feature set name matches and excluded flag is true
-      if (patternProject.matcher(projectName).matches()
-          && patternName.matcher(featureSetName).matches()
-          && sub.getExclude()) {
-        return false;
-      }
-    }
-    // Case 2: Featureset is not excluded, check if it is included in the current subscriptions
-    // filteredSubscriptions only contain subscriptions with excluded flag = false
-    List<Subscription> filteredSubscriptions =
-        subscriptions.stream().filter(sub -> !sub.getExclude()).collect(Collectors.toList());
-
-    for (Subscription filteredSub : filteredSubscriptions) {
-      // Match feature set name to pattern
-      Pattern patternName = getNamePattern(filteredSub);
-      Pattern patternProject = getProjectPattern(filteredSub);
-      // SubCase: Project name and feature set name matches
-      if (patternProject.matcher(projectName).matches()
-          && patternName.matcher(featureSetName).matches()) {
-        return true;
-      }
-    }
-    return false;
+    return new SubscriptionMatcher(subscriptions)
+        .isSubscribedToFeatureSet(projectName, featureSetName);
   }
 
-  private static Pattern getProjectPattern(Subscription subscription) {
+  static Pattern getProjectPattern(Subscription subscription) {
     String subProject = subscription.getProject();
     if (!subscription.getProject().contains(".*")) {
       subProject = subProject.replace("*", ".*");
@@ -152,7 +121,7 @@ public class Store {
     return Pattern.compile(subProject);
   }
 
-  private static Pattern getNamePattern(Subscription subscription) {
+  static Pattern getNamePattern(Subscription subscription) {
     String subName = subscription.getName();
     if (!subscription.getProject().contains(".*")) {
       subName = subName.replace("*", ".*");
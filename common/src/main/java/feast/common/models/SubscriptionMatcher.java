@@ -0,0 +1,84 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.common.models;
+
+import feast.proto.core.StoreProto.Store.Subscription;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Subscriptions of a store compiled into the patterns of their project and feature set names, to
+ * match feature sets against the same subscriptions without compiling them again. Matches feature
+ * sets as {@link Store#isSubscribedToFeatureSet(List, String, String)}.
+ */
+public class SubscriptionMatcher implements Serializable {
+  // Project and feature set name patterns of the subscriptions excluding feature sets.
+  private final List<Pattern[]> exclusions = new ArrayList<>();
+  // Project and feature set name patterns of the subscriptions including feature sets.
+  private final List<Pattern[]> inclusions = new ArrayList<>();
+
+  /**
+   * Compile the given subscriptions.
+   *
+   * @param subscriptions List of Subscriptions available in Store
+   * @throws IllegalArgumentException if a subscription is missing its project or name.
+   */
+  public SubscriptionMatcher(List<Subscription> subscriptions) {
+    for (Subscription sub : subscriptions) {
+      // If configuration missing, fail
+      if (sub.getProject().isEmpty() || sub.getName().isEmpty()) {
+        throw new IllegalArgumentException(
+            String.format("Subscription is missing arguments: %s", sub.toString()));
+      }
+      Pattern[] patterns = {Store.getProjectPattern(sub), Store.getNamePattern(sub)};
+      if (sub.getExclude()) {
+        exclusions.add(patterns);
+      } else {
+        inclusions.add(patterns);
+      }
+    }
+  }
+
+  /**
+   * Determine whether a feature set is subscribed to, ie. it matches no subscription with the
+   * excluded flag and at least one subscription without it.
+   *
+   * @param projectName Project name used for matching Subscription's Project
+   * @param featureSetName Featureset name used for matching Subscription's Featureset
+   * @return boolean flag to signify if the Featureset is subscribed to
+   */
+  public boolean isSubscribedToFeatureSet(String projectName, String featureSetName) {
+    for (Pattern[] patterns : exclusions) {
+      if (matches(patterns, projectName, featureSetName)) {
+        return false;
+      }
+    }
+    for (Pattern[] patterns : inclusions) {
+      if (matches(patterns, projectName, featureSetName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean matches(Pattern[] patterns, String projectName, String featureSetName) {
+    return patterns[0].matcher(projectName).matches()
+        && patterns[1].matcher(featureSetName).matches();
+  }
+}
@@ -92,4 +92,18 @@ public class StoreTest {
     assertThat(actual2, equalTo(expected2));
     assertThat(actual3, equalTo(expected3));
   }
+
+  @Test
+  public void shouldMatchFeatureSetsWithCompiledSubscriptions() {
+    SubscriptionMatcher matcher = new SubscriptionMatcher(allSubscriptions.subList(1, 4));
+
+    assertThat(matcher.isSubscribedToFeatureSet("project1", "fs_1"), equalTo(false));
+    assertThat(matcher.isSubscribedToFeatureSet("project1", "fs_2"), equalTo(true));
+    assertThat(matcher.isSubscribedToFeatureSet("project2", "fs_1"), equalTo(true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowIfSubscriptionIsMissingArguments() {
+    new SubscriptionMatcher(allSubscriptions);
+  }
 }
@@ -21,8 +21,7 @@ import static feast.ingestion.utils.StoreUtil.getFeatureSink;
 import com.google.protobuf.InvalidProtocolBufferException;
 import feast.common.models.FeatureSetReference;
 import feast.ingestion.options.ImportOptions;
-import feast.ingestion.transform.FeatureRowToStoreAllocator;
-import feast.ingestion.transform.ProcessAndValidateFeatureRows;
+import feast.ingestion.transform.ProcessValidateAndAllocateFeatureRows;
 import feast.ingestion.transform.ReadFromSource;
 import feast.ingestion.transform.metrics.WriteFailureMetricsTransform;
 import feast.ingestion.transform.metrics.WriteInflightMetricsTransform;
@@ -122,31 +121,23 @@ public class ImportJob {
                 .setFailureTag(DEADLETTER_OUT)
                 .build());
 
-    // Step 3. Process and validate incoming FeatureRows
-    PCollectionTuple validatedRows =
-        convertedFeatureRows
-            .get(FEATURE_ROW_OUT)
-            .apply(
-                ProcessAndValidateFeatureRows.newBuilder()
-                    .setDefaultProject(options.getDefaultFeastProject())
-                    .setFeatureSetSpecs(globalSpecView)
-                    .setSuccessTag(FEATURE_ROW_OUT)
-                    .setFailureTag(DEADLETTER_OUT)
-                    .build());
-
     Map<Store, TupleTag<FeatureRow>> storeTags =
         stores.stream()
             .map(s -> Pair.of(s, new TupleTag<FeatureRow>()))
             .collect(Collectors.toMap(Pair::getLeft, Pair::getRight));
 
-    // Step 4. Allocate validated rows to stores by store subscription
+    // Step 3 and 4. Process and validate incoming FeatureRows, and allocate validated rows to
+    // stores by store subscription in a single fused stage
     PCollectionTuple storeAllocatedRows =
-        validatedRows
+        convertedFeatureRows
             .get(FEATURE_ROW_OUT)
             .apply(
-                FeatureRowToStoreAllocator.newBuilder()
+                ProcessValidateAndAllocateFeatureRows.newBuilder()
+                    .setDefaultProject(options.getDefaultFeastProject())
+                    .setFeatureSetSpecs(globalSpecView)
                     .setStores(stores)
                     .setStoreTags(storeTags)
+                    .setFailureTag(DEADLETTER_OUT)
                     .build());
 
     PCollectionList<FeatureSetReference> sinkReadiness = PCollectionList.empty(pipeline);
@@ -176,7 +167,7 @@ public class ImportJob {
             .get(DEADLETTER_OUT)
             .apply("WriteFailedElements_ReadFromSource", deadletterSink.write());
 
-        validatedRows
+        storeAllocatedRows
             .get(DEADLETTER_OUT)
             .apply("WriteFailedElements_ValidateRows", deadletterSink.write());
 
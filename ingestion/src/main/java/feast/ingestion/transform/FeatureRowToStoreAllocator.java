@@ -16,10 +16,8 @@
  */
 package feast.ingestion.transform;
 
-import static feast.ingestion.utils.SpecUtil.parseFeatureSetReference;
-
 import com.google.auto.value.AutoValue;
-import feast.common.models.Store;
+import feast.ingestion.transform.fn.StoreRouter;
 import feast.proto.core.StoreProto;
 import feast.proto.types.FeatureRowProto;
 import java.util.List;
@@ -32,14 +30,14 @@ import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
-import org.apache.commons.lang3.tuple.Pair;
 
 /**
  * For each incoming {@link FeatureRowProto.FeatureRow} allocator choose only stores that
  * subscripted to its project and featureSet names.
  *
  * <p>Return PCollectionTuple with one {@link TupleTag} per {@link StoreProto.Store}. Tags must be
- * generated in advance.
+ * generated in advance. Subscriptions are compiled by a {@link StoreRouter} when the transform is
+ * expanded.
  */
 @AutoValue
 public abstract class FeatureRowToStoreAllocator
@@ -64,22 +62,17 @@ public abstract class FeatureRowToStoreAllocator
 
   @Override
   public PCollectionTuple expand(PCollection<FeatureRowProto.FeatureRow> input) {
+    StoreRouter storeRouter = new StoreRouter(getStores(), getStoreTags());
     return input.apply(
         "AssignRowToStore",
         ParDo.of(
                 new DoFn<FeatureRowProto.FeatureRow, FeatureRowProto.FeatureRow>() {
                   @ProcessElement
                   public void process(ProcessContext c, @Element FeatureRowProto.FeatureRow row) {
-                    Pair<String, String> projectAndSetNames =
-                        parseFeatureSetReference(row.getFeatureSet());
-                    getStores().stream()
-                        .filter(
-                            s ->
-                                Store.isSubscribedToFeatureSet(
-                                    s.getSubscriptionsList(),
-                                    projectAndSetNames.getLeft(),
-                                    projectAndSetNames.getRight()))
-                        .forEach(s -> c.output(getStoreTags().get(s), row));
+                    for (TupleTag<FeatureRowProto.FeatureRow> storeTag :
+                        storeRouter.route(row.getFeatureSet())) {
+                      c.output(storeTag, row);
+                    }
                   }
                 })
             .withOutputTags(
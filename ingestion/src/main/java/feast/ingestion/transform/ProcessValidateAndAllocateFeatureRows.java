@@ -0,0 +1,103 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform;
+
+import com.google.auto.value.AutoValue;
+import feast.ingestion.transform.fn.ProcessValidateAndAllocateDoFn;
+import feast.ingestion.transform.fn.StoreRouter;
+import feast.proto.core.FeatureSetProto;
+import feast.proto.core.StoreProto;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.writer.FailedElement;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+
+/**
+ * Fused equivalent of {@link ProcessAndValidateFeatureRows} followed by {@link
+ * FeatureRowToStoreAllocator}, which processes, validates and allocates each {@link FeatureRow} to
+ * stores in a single {@link ProcessValidateAndAllocateDoFn}, so that rows are neither rebuilt nor
+ * encoded between stages on runners which do not fuse them.
+ *
+ * <p>Return PCollectionTuple with one {@link TupleTag} per {@link StoreProto.Store}, and the
+ * failure tag with the rows that failed validation.
+ */
+@AutoValue
+public abstract class ProcessValidateAndAllocateFeatureRows
+    extends PTransform<PCollection<FeatureRow>, PCollectionTuple> {
+
+  public abstract PCollectionView<Map<String, Iterable<FeatureSetProto.FeatureSetSpec>>>
+      getFeatureSetSpecs();
+
+  public abstract String getDefaultProject();
+
+  public abstract List<StoreProto.Store> getStores();
+
+  public abstract Map<StoreProto.Store, TupleTag<FeatureRow>> getStoreTags();
+
+  public abstract TupleTag<FailedElement> getFailureTag();
+
+  public static Builder newBuilder() {
+    return new AutoValue_ProcessValidateAndAllocateFeatureRows.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setFeatureSetSpecs(
+        PCollectionView<Map<String, Iterable<FeatureSetProto.FeatureSetSpec>>> featureSets);
+
+    public abstract Builder setDefaultProject(String defaultProject);
+
+    public abstract Builder setStores(List<StoreProto.Store> stores);
+
+    public abstract Builder setStoreTags(Map<StoreProto.Store, TupleTag<FeatureRow>> storeTags);
+
+    public abstract Builder setFailureTag(TupleTag<FailedElement> failureTag);
+
+    public abstract ProcessValidateAndAllocateFeatureRows build();
+  }
+
+  @Override
+  public PCollectionTuple expand(PCollection<FeatureRow> input) {
+    return input.apply(
+        "ProcessValidateAndAllocateFeatureRows",
+        ParDo.of(
+                ProcessValidateAndAllocateDoFn.newBuilder()
+                    .setDefaultProject(getDefaultProject())
+                    .setFeatureSets(getFeatureSetSpecs())
+                    .setStoreRouter(new StoreRouter(getStores(), getStoreTags()))
+                    .setFailureTag(getFailureTag())
+                    .build())
+            .withSideInputs(getFeatureSetSpecs())
+            .withOutputTags(
+                getStoreTags().get(getStores().get(0)),
+                TupleTagList.of(
+                        getStores().stream()
+                            .skip(1)
+                            .map(getStoreTags()::get)
+                            .collect(Collectors.<TupleTag<?>>toList()))
+                    .and(getFailureTag())));
+  }
+}
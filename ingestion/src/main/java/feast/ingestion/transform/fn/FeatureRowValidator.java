@@ -0,0 +1,132 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import com.google.common.collect.Iterators;
+import feast.ingestion.values.FeatureSet;
+import feast.ingestion.values.Field;
+import feast.proto.core.FeatureSetProto;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto;
+import feast.proto.types.ValueProto.Value.ValCase;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates {@link FeatureRow}s against the latest spec of their feature set in the feature set
+ * specs side input.
+ *
+ * <p>The {@link FeatureSet} compiled from the latest spec of each feature set is cached by feature
+ * set reference, and compiled again when the version of the latest spec changes. The latest specs
+ * are resolved once per side input. A validator is not thread safe, and is meant to be held by a
+ * DoFn instance.
+ */
+public class FeatureRowValidator {
+  private final Map<String, FeatureSet> featureSets = new HashMap<>();
+  // Side input the latest specs were resolved from, and the latest specs by reference.
+  private Map<String, Iterable<FeatureSetProto.FeatureSetSpec>> featureSetSpecs;
+  private Map<String, FeatureSetProto.FeatureSetSpec> latestSpecs;
+
+  /**
+   * Get the latest spec of a feature set.
+   *
+   * @param sideInput feature set specs side input, with the history of specs by reference.
+   * @param featureSetRef reference of the feature set.
+   * @return latest spec of the feature set, or null if the side input has no spec for it.
+   */
+  public FeatureSetProto.FeatureSetSpec getLatestSpec(
+      Map<String, Iterable<FeatureSetProto.FeatureSetSpec>> sideInput, String featureSetRef) {
+    if (sideInput != featureSetSpecs) {
+      featureSetSpecs = sideInput;
+      latestSpecs = new HashMap<>();
+    }
+    FeatureSetProto.FeatureSetSpec latestSpec = latestSpecs.get(featureSetRef);
+    if (latestSpec == null) {
+      Iterable<FeatureSetProto.FeatureSetSpec> specs = sideInput.get(featureSetRef);
+      if (specs == null) {
+        return null;
+      }
+      latestSpec = Iterators.getLast(specs.iterator());
+      latestSpecs.put(featureSetRef, latestSpec);
+    }
+    return latestSpec;
+  }
+
+  /**
+   * Get the feature set compiled from the latest spec of a feature set.
+   *
+   * @param featureSetRef reference of the feature set.
+   * @param latestSpec latest spec of the feature set, from {@link #getLatestSpec(Map, String)}.
+   */
+  public FeatureSet getFeatureSet(String featureSetRef, FeatureSetProto.FeatureSetSpec latestSpec) {
+    FeatureSet featureSet = featureSets.get(featureSetRef);
+    if (featureSet == null || featureSet.getVersion() != latestSpec.getVersion()) {
+      featureSet = new FeatureSet(latestSpec);
+      featureSets.put(featureSetRef, featureSet);
+    }
+    return featureSet;
+  }
+
+  /**
+   * Validate the fields of a feature row in a single pass. Fields that are not in the feature set
+   * and fields identical to a previous field are dropped.
+   *
+   * @param featureSet feature set of the feature row.
+   * @param rowFields fields of the feature row.
+   * @return fields to keep, the given list itself if no field is dropped.
+   * @throws IllegalArgumentException if the value of a field does not match the type of the field
+   *     in the feature set.
+   */
+  public static List<FieldProto.Field> validateFields(
+      FeatureSet featureSet, List<FieldProto.Field> rowFields) {
+    boolean[] seen = new boolean[featureSet.getFieldCount()];
+    // fields to keep, only copied once a field is dropped
+    List<FieldProto.Field> fields = null;
+    for (int i = 0; i < rowFields.size(); i++) {
+      FieldProto.Field field = rowFields.get(i);
+      int fieldIndex = featureSet.getFieldIndex(field.getName());
+      boolean keep = fieldIndex >= 0;
+      if (keep) {
+        Field fieldSpec = featureSet.getField(fieldIndex);
+        // If value is set in the FeatureRow, make sure the value type matches
+        // that defined in FeatureSetSpec
+        int actualTypeFieldNumber = field.getValue().getValCase().getNumber();
+        if (actualTypeFieldNumber != ValCase.VAL_NOT_SET.getNumber()
+            && actualTypeFieldNumber != fieldSpec.getType().getNumber()) {
+          throw new IllegalArgumentException(
+              String.format(
+                  "FeatureRow contains field '%s' with invalid type '%s'. Feast expects the field"
+                      + " type to match that in FeatureSet '%s'. Please check the FeatureRow data.",
+                  field.getName(), field.getValue().getValCase(), fieldSpec.getType()));
+        }
+        // only a field with the same name as a previous field can be a duplicate
+        if (seen[fieldIndex]) {
+          keep = !(fields == null ? rowFields.subList(0, i) : fields).contains(field);
+        }
+        seen[fieldIndex] = true;
+      }
+      if (!keep && fields == null) {
+        fields = new ArrayList<>(rowFields.subList(0, i));
+      } else if (keep && fields != null) {
+        fields.add(field);
+      }
+    }
+    return fields == null ? rowFields : fields;
+  }
+}
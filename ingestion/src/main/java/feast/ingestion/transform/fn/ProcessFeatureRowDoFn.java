@@ -30,19 +30,28 @@ public class ProcessFeatureRowDoFn extends DoFn<FeatureRow, FeatureRow> {
   @ProcessElement
   public void processElement(ProcessContext context) {
     FeatureRow featureRow = context.element();
-    String featureSetId = stripVersion(featureRow.getFeatureSet());
-    featureSetId = applyDefaultProject(featureSetId);
-    featureRow = featureRow.toBuilder().setFeatureSet(featureSetId).build();
+    String featureSetId = getFeatureSetReference(featureRow.getFeatureSet(), defaultProject);
+    if (!featureSetId.equals(featureRow.getFeatureSet())) {
+      featureRow = featureRow.toBuilder().setFeatureSet(featureSetId).build();
+    }
     context.output(featureRow);
   }
 
+  /**
+   * Get the feature set reference of a feature row, without version and with the default project if
+   * the feature set reference of the row has no project.
+   */
+  public static String getFeatureSetReference(String featureSetId, String defaultProject) {
+    return applyDefaultProject(stripVersion(featureSetId), defaultProject);
+  }
+
   // For backward compatibility. Will be deprecated eventually.
-  private String stripVersion(String featureSetId) {
+  private static String stripVersion(String featureSetId) {
     String[] split = featureSetId.split(":");
     return split[0];
   }
 
-  private String applyDefaultProject(String featureSetId) {
+  private static String applyDefaultProject(String featureSetId, String defaultProject) {
     String[] split = featureSetId.split("/");
     if (split.length == 1) {
       return defaultProject + "/" + featureSetId;
@@ -0,0 +1,132 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import com.google.auto.value.AutoValue;
+import feast.ingestion.values.FeatureSet;
+import feast.proto.core.FeatureSetProto;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto;
+import feast.storage.api.writer.FailedElement;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes, validates and allocates {@link FeatureRow}s to stores in a single pass, as {@link
+ * ProcessFeatureRowDoFn}, {@link ValidateFeatureRowDoFn} and the store allocation would in turn.
+ *
+ * <p>A row is rebuilt at most once, only if its feature set reference is normalized or fields are
+ * dropped, and is output directly to the tags of the stores subscribed to its feature set, routed
+ * by a {@link StoreRouter}.
+ */
+@AutoValue
+public abstract class ProcessValidateAndAllocateDoFn extends DoFn<FeatureRow, FeatureRow> {
+  private static final Logger log = LoggerFactory.getLogger(ProcessValidateAndAllocateDoFn.class);
+
+  public abstract String getDefaultProject();
+
+  public abstract PCollectionView<Map<String, Iterable<FeatureSetProto.FeatureSetSpec>>>
+      getFeatureSets();
+
+  public abstract StoreRouter getStoreRouter();
+
+  public abstract TupleTag<FailedElement> getFailureTag();
+
+  public static Builder newBuilder() {
+    return new AutoValue_ProcessValidateAndAllocateDoFn.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setDefaultProject(String defaultProject);
+
+    public abstract Builder setFeatureSets(
+        PCollectionView<Map<String, Iterable<FeatureSetProto.FeatureSetSpec>>> featureSets);
+
+    public abstract Builder setStoreRouter(StoreRouter storeRouter);
+
+    public abstract Builder setFailureTag(TupleTag<FailedElement> failureTag);
+
+    public abstract ProcessValidateAndAllocateDoFn build();
+  }
+
+  private transient FeatureRowValidator validator;
+
+  @Setup
+  public void setup() {
+    validator = new FeatureRowValidator();
+  }
+
+  @ProcessElement
+  public void processElement(ProcessContext context) {
+    FeatureRow featureRow = context.element();
+    String featureSetRef =
+        ProcessFeatureRowDoFn.getFeatureSetReference(
+            featureRow.getFeatureSet(), getDefaultProject());
+    FeatureSetProto.FeatureSetSpec latestSpec =
+        validator.getLatestSpec(context.sideInput(getFeatureSets()), featureSetRef);
+    if (latestSpec == null) {
+      log.warn(
+          String.format(
+              "FeatureRow contains invalid featureSetReference %s."
+                  + " Please check that the feature rows are being published"
+                  + " to the correct topic on the feature stream.",
+              featureSetRef));
+      return;
+    }
+
+    FeatureSet featureSet = validator.getFeatureSet(featureSetRef, latestSpec);
+    List<FieldProto.Field> fields;
+    try {
+      fields = FeatureRowValidator.validateFields(featureSet, featureRow.getFieldsList());
+    } catch (IllegalArgumentException e) {
+      context.output(
+          getFailureTag(),
+          FailedElement.newBuilder()
+              .setTransformName("ValidateFeatureRow")
+              .setJobName(context.getPipelineOptions().getJobName())
+              .setPayload(featureRow.toString())
+              .setErrorMessage(e.getMessage())
+              .setProjectName(latestSpec.getProject())
+              .setFeatureSetName(latestSpec.getName())
+              .build());
+      return;
+    }
+
+    List<TupleTag<FeatureRow>> storeTags = getStoreRouter().route(featureSetRef);
+    if (storeTags.isEmpty()) {
+      return;
+    }
+    boolean fieldsDropped = fields != featureRow.getFieldsList();
+    if (fieldsDropped || !featureSetRef.equals(featureRow.getFeatureSet())) {
+      FeatureRow.Builder builder = featureRow.toBuilder().setFeatureSet(featureSetRef);
+      if (fieldsDropped) {
+        builder.clearFields().addAllFields(fields);
+      }
+      featureRow = builder.build();
+    }
+    for (TupleTag<FeatureRow> storeTag : storeTags) {
+      context.output(storeTag, featureRow);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import static feast.ingestion.utils.SpecUtil.parseFeatureSetReference;
+
+import feast.common.models.SubscriptionMatcher;
+import feast.proto.core.StoreProto;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Routes {@link FeatureRow}s to the tags of the stores subscribed to their feature set.
+ *
+ * <p>The subscriptions of the stores are compiled on construction, ie. at pipeline construction,
+ * and the store tags of each feature set reference are memoized in a bounded LRU cache, so that
+ * routing a row is a single lookup. The cache is not thread safe, and is created for each
+ * deserialized instance, ie. for each DoFn instance.
+ */
+public class StoreRouter implements Serializable {
+  // Max. no. of feature set references to memoize the store tags of.
+  private static final int MAX_MEMOIZED_FEATURE_SETS = 10000;
+
+  private final List<SubscriptionMatcher> matchers = new ArrayList<>();
+  private final List<TupleTag<FeatureRow>> storeTags = new ArrayList<>();
+  private transient Map<String, List<TupleTag<FeatureRow>>> memo;
+
+  /**
+   * Compile the subscriptions of the given stores.
+   *
+   * @param stores stores to route rows to.
+   * @param storeTags tag of each store.
+   * @throws IllegalArgumentException if a subscription of a store is missing its project or name.
+   */
+  public StoreRouter(
+      List<StoreProto.Store> stores, Map<StoreProto.Store, TupleTag<FeatureRow>> storeTags) {
+    for (StoreProto.Store store : stores) {
+      this.matchers.add(new SubscriptionMatcher(store.getSubscriptionsList()));
+      this.storeTags.add(storeTags.get(store));
+    }
+  }
+
+  /**
+   * Get the tags of the stores subscribed to a feature set.
+   *
+   * @param featureSetRef reference of the feature set, eg. "project/feature_set".
+   * @return tags of the subscribed stores in store order, empty if no store is subscribed.
+   */
+  public List<TupleTag<FeatureRow>> route(String featureSetRef) {
+    if (memo == null) {
+      memo =
+          new LinkedHashMap<String, List<TupleTag<FeatureRow>>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<String, List<TupleTag<FeatureRow>>> eldest) {
+              return size() > MAX_MEMOIZED_FEATURE_SETS;
+            }
+          };
+    }
+    List<TupleTag<FeatureRow>> tags = memo.get(featureSetRef);
+    if (tags == null) {
+      tags = match(featureSetRef);
+      memo.put(featureSetRef, tags);
+    }
+    return tags;
+  }
+
+  private List<TupleTag<FeatureRow>> match(String featureSetRef) {
+    Pair<String, String> projectAndSetNames = parseFeatureSetReference(featureSetRef);
+    List<TupleTag<FeatureRow>> tags = new ArrayList<>();
+    for (int i = 0; i < matchers.size(); i++) {
+      if (matchers
+          .get(i)
+          .isSubscribedToFeatureSet(projectAndSetNames.getLeft(), projectAndSetNames.getRight())) {
+        tags.add(storeTags.get(i));
+      }
+    }
+    return Collections.unmodifiableList(tags);
+  }
+}
@@ -17,15 +17,11 @@
 package feast.ingestion.transform.fn;
 
 import com.google.auto.value.AutoValue;
-import com.google.common.collect.Iterators;
 import feast.ingestion.values.FeatureSet;
-import feast.ingestion.values.Field;
 import feast.proto.core.FeatureSetProto;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.proto.types.FieldProto;
-import feast.proto.types.ValueProto.Value.ValCase;
 import feast.storage.api.writer.FailedElement;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.apache.beam.sdk.transforms.DoFn;
@@ -62,13 +58,19 @@ public abstract class ValidateFeatureRowDoFn extends DoFn<FeatureRow, FeatureRow
     public abstract ValidateFeatureRowDoFn build();
   }
 
+  private transient FeatureRowValidator validator;
+
+  @Setup
+  public void setup() {
+    validator = new FeatureRowValidator();
+  }
+
   @ProcessElement
   public void processElement(ProcessContext context) {
-    String error = null;
     FeatureRow featureRow = context.element();
-    Iterable<FeatureSetProto.FeatureSetSpec> featureSetSpecs =
-        context.sideInput(getFeatureSets()).get(featureRow.getFeatureSet());
-    if (featureSetSpecs == null) {
+    FeatureSetProto.FeatureSetSpec latestSpec =
+        validator.getLatestSpec(context.sideInput(getFeatureSets()), featureRow.getFeatureSet());
+    if (latestSpec == null) {
       log.warn(
           String.format(
               "FeatureRow contains invalid featureSetReference %s."
@@ -78,51 +80,27 @@ public abstract class ValidateFeatureRowDoFn extends DoFn<FeatureRow, FeatureRow
       return;
     }
 
-    List<FieldProto.Field> fields = new ArrayList<>();
-
-    FeatureSetProto.FeatureSetSpec latestSpec = Iterators.getLast(featureSetSpecs.iterator());
-    FeatureSet featureSet = new FeatureSet(latestSpec);
-
-    for (FieldProto.Field field : featureRow.getFieldsList()) {
-      Field fieldSpec = featureSet.getField(field.getName());
-      if (fieldSpec == null) {
-        // skip
-        continue;
-      }
-      // If value is set in the FeatureRow, make sure the value type matches
-      // that defined in FeatureSetSpec
-      if (!field.getValue().getValCase().equals(ValCase.VAL_NOT_SET)) {
-        int expectedTypeFieldNumber = fieldSpec.getType().getNumber();
-        int actualTypeFieldNumber = field.getValue().getValCase().getNumber();
-        if (expectedTypeFieldNumber != actualTypeFieldNumber) {
-          error =
-              String.format(
-                  "FeatureRow contains field '%s' with invalid type '%s'. Feast expects the field type to match that in FeatureSet '%s'. Please check the FeatureRow data.",
-                  field.getName(), field.getValue().getValCase(), fieldSpec.getType());
-          break;
-        }
-      }
-      if (!fields.contains(field)) {
-        fields.add(field);
-      }
-    }
-
-    if (error != null) {
-      FailedElement.Builder failedElement =
+    FeatureSet featureSet = validator.getFeatureSet(featureRow.getFeatureSet(), latestSpec);
+    List<FieldProto.Field> fields;
+    try {
+      fields = FeatureRowValidator.validateFields(featureSet, featureRow.getFieldsList());
+    } catch (IllegalArgumentException e) {
+      context.output(
+          getFailureTag(),
           FailedElement.newBuilder()
               .setTransformName("ValidateFeatureRow")
               .setJobName(context.getPipelineOptions().getJobName())
               .setPayload(featureRow.toString())
-              .setErrorMessage(error);
-      if (featureSetSpecs != null) {
-        FeatureSetProto.FeatureSetSpec spec = Iterators.getLast(featureSetSpecs.iterator());
-        failedElement =
-            failedElement.setProjectName(spec.getProject()).setFeatureSetName(spec.getName());
-      }
-      context.output(getFailureTag(), failedElement.build());
-    } else {
+              .setErrorMessage(e.getMessage())
+              .setProjectName(latestSpec.getProject())
+              .setFeatureSetName(latestSpec.getName())
+              .build());
+      return;
+    }
+
+    if (fields != featureRow.getFieldsList()) {
       featureRow = featureRow.toBuilder().clearFields().addAllFields(fields).build();
-      context.output(getSuccessTag(), featureRow);
     }
+    context.output(getSuccessTag(), featureRow);
   }
 }
@@ -0,0 +1,437 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.DoubleCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+
+/**
+ * Mergeable sketch of the distribution of double values, with their min, max, mean and count.
+ *
+ * <p>Up to {@link #MAX_EXACT_VALUES} values are kept as is, so that the percentiles of small
+ * distributions are exact and identical to those of {@link Percentile}. Beyond that, values are
+ * counted in the logarithmic buckets of a DDSketch with a relative accuracy of {@link
+ * #RELATIVE_ACCURACY}, so that the size of the sketch stays bounded regardless of the no. of
+ * values: at most {@link #MAX_BUCKETS} buckets per sign, collapsing the buckets of the smallest
+ * magnitudes into one if exceeded.
+ *
+ * <p>Non finite values are included in the min, max and mean, as with {@link
+ * java.util.DoubleSummaryStatistics}, but not in the percentiles. The mean is computed from the sum
+ * of the values with Kahan summation, as in {@link java.util.DoubleSummaryStatistics}, so that it
+ * stays accurate for many values of different magnitudes.
+ *
+ * <p>Sketches are encoded by {@link DistributionSketchCoder}, with their exact values or the counts
+ * of their buckets only.
+ */
+public class DistributionSketch implements Serializable {
+  public static final int MAX_EXACT_VALUES = 1024;
+  public static final double RELATIVE_ACCURACY = 0.01;
+  public static final int MAX_BUCKETS = 2048;
+
+  private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+  private static final double LOG_GAMMA = Math.log(GAMMA);
+  // Values of smaller magnitude are counted as zero once values are counted in buckets.
+  private static final double MIN_INDEXED_VALUE = 1e-9;
+
+  private long count;
+  // Compensated sum of the values, and the naive sum to get the sum of infinite values right.
+  private double sum;
+  private double sumCompensation;
+  private double simpleSum;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  // Finite values kept as is, or null once values are counted in buckets.
+  private double[] values = new double[8];
+  private int valueCount;
+
+  // Buckets of the positive values and of the magnitude of the negative values.
+  private Buckets positiveBuckets;
+  private Buckets negativeBuckets;
+  private long zeroCount;
+
+  /** Add a value to the sketch. */
+  public void add(double value) {
+    count++;
+    addToSum(value);
+    simpleSum += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+    if (!Double.isFinite(value)) {
+      return;
+    }
+    if (values == null) {
+      addToBuckets(value, 1);
+      return;
+    }
+    if (valueCount == values.length) {
+      if (valueCount >= MAX_EXACT_VALUES) {
+        convertToBuckets();
+        addToBuckets(value, 1);
+        return;
+      }
+      values = Arrays.copyOf(values, Math.min(valueCount * 2, MAX_EXACT_VALUES));
+    }
+    values[valueCount++] = value;
+  }
+
+  /** Merge another sketch into this sketch. */
+  public void merge(DistributionSketch other) {
+    count += other.count;
+    addToSum(other.sum);
+    addToSum(-other.sumCompensation);
+    simpleSum += other.simpleSum;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    int mergedValueCount = valueCount + other.valueCount;
+    if (values != null && other.values != null && mergedValueCount <= MAX_EXACT_VALUES) {
+      if (mergedValueCount > values.length) {
+        values = Arrays.copyOf(values, mergedValueCount);
+      }
+      System.arraycopy(other.values, 0, values, valueCount, other.valueCount);
+      valueCount = mergedValueCount;
+      return;
+    }
+    if (values != null) {
+      convertToBuckets();
+    }
+    if (other.values != null) {
+      for (int i = 0; i < other.valueCount; i++) {
+        addToBuckets(other.values[i], 1);
+      }
+    } else {
+      positiveBuckets.addAll(other.positiveBuckets);
+      negativeBuckets.addAll(other.negativeBuckets);
+      zeroCount += other.zeroCount;
+    }
+  }
+
+  /**
+   * Merge another sketch into this sketch, with each of its values shifted by the given amount.
+   * Values the other sketch counts in buckets are shifted within its relative accuracy.
+   */
+  public void merge(DistributionSketch other, double shift) {
+    merge(shift == 0 ? other : other.shift(shift));
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /** Get the min of the values, positive infinity if there is no value. */
+  public double getMin() {
+    return min;
+  }
+
+  /** Get the max of the values, negative infinity if there is no value. */
+  public double getMax() {
+    return max;
+  }
+
+  /** Get the mean of the values, NaN if there is no value. */
+  public double getMean() {
+    if (count == 0) {
+      return Double.NaN;
+    }
+    double total = sum - sumCompensation;
+    if (Double.isNaN(total) && Double.isInfinite(simpleSum)) {
+      // the compensated sum is NaN if the values are infinite of the same sign
+      return simpleSum / count;
+    }
+    return total / count;
+  }
+
+  /**
+   * Get percentiles of the finite values, exact if the sketch keeps all values as is, else within
+   * the relative accuracy of the sketch.
+   *
+   * @param percentiles percentiles to get, between 0 and 100.
+   * @return value of each percentile, or null if there is no finite value.
+   */
+  public double[] getPercentiles(double... percentiles) {
+    double[] results = new double[percentiles.length];
+    if (values != null) {
+      if (valueCount == 0) {
+        return null;
+      }
+      // the data is copied once, and partially sorted by the evaluation of each percentile
+      Percentile percentile = new Percentile();
+      percentile.setData(values, 0, valueCount);
+      for (int i = 0; i < percentiles.length; i++) {
+        results[i] = percentile.evaluate(percentiles[i]);
+      }
+      return results;
+    }
+
+    long negativeCount = negativeBuckets.getTotal();
+    long bucketedCount = negativeCount + zeroCount + positiveBuckets.getTotal();
+    for (int i = 0; i < percentiles.length; i++) {
+      long rank = (long) (percentiles[i] / 100 * (bucketedCount - 1));
+      double value;
+      if (rank < negativeCount) {
+        // negative values in ascending order are their magnitudes in descending order
+        value = -getBucketValue(negativeBuckets.getIndexOfRank(negativeCount - 1 - rank));
+      } else if (rank < negativeCount + zeroCount) {
+        value = 0;
+      } else {
+        value = getBucketValue(positiveBuckets.getIndexOfRank(rank - negativeCount - zeroCount));
+      }
+      results[i] = Math.max(min, Math.min(max, value));
+    }
+    return results;
+  }
+
+  /** Add a value to the sum with Kahan summation, keeping the low-order bits lost in the sum. */
+  private void addToSum(double value) {
+    double compensatedValue = value - sumCompensation;
+    double newSum = sum + compensatedValue;
+    sumCompensation = (newSum - sum) - compensatedValue;
+    sum = newSum;
+  }
+
+  /** Copy the sketch with each value shifted by the given amount. */
+  private DistributionSketch shift(double shift) {
+    DistributionSketch shifted = new DistributionSketch();
+    shifted.count = count;
+    shifted.sum = sum;
+    shifted.sumCompensation = sumCompensation;
+    shifted.addToSum(shift * count);
+    shifted.simpleSum = simpleSum + shift * count;
+    shifted.min = min + shift;
+    shifted.max = max + shift;
+    if (values != null) {
+      shifted.values = new double[values.length];
+      for (int i = 0; i < valueCount; i++) {
+        shifted.values[i] = values[i] + shift;
+      }
+      shifted.valueCount = valueCount;
+      return shifted;
+    }
+    shifted.convertToBuckets();
+    shifted.addShiftedBuckets(positiveBuckets, 1, shift);
+    shifted.addShiftedBuckets(negativeBuckets, -1, shift);
+    if (zeroCount > 0) {
+      shifted.addToBuckets(shift, zeroCount);
+    }
+    return shifted;
+  }
+
+  private void addShiftedBuckets(Buckets buckets, int sign, double shift) {
+    if (buckets.counts == null) {
+      return;
+    }
+    for (int i = 0; i < buckets.counts.length; i++) {
+      if (buckets.counts[i] > 0) {
+        addToBuckets(sign * getBucketValue(buckets.offset + i) + shift, buckets.counts[i]);
+      }
+    }
+  }
+
+  private void convertToBuckets() {
+    positiveBuckets = new Buckets();
+    negativeBuckets = new Buckets();
+    for (int i = 0; i < valueCount; i++) {
+      addToBuckets(values[i], 1);
+    }
+    values = null;
+    valueCount = 0;
+  }
+
+  private void addToBuckets(double value, long n) {
+    if (value > MIN_INDEXED_VALUE) {
+      positiveBuckets.add(getBucketIndex(value), n);
+    } else if (value < -MIN_INDEXED_VALUE) {
+      negativeBuckets.add(getBucketIndex(-value), n);
+    } else {
+      zeroCount += n;
+    }
+  }
+
+  /** Get the index of the bucket of a positive value, ie. the bucket (GAMMA^(i-1), GAMMA^i]. */
+  private static int getBucketIndex(double value) {
+    return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+  }
+
+  /** Get the value of a bucket, within the relative accuracy of all values of the bucket. */
+  private static double getBucketValue(int index) {
+    return 2 * Math.pow(GAMMA, index) / (1 + GAMMA);
+  }
+
+  /** Counts of the values in contiguous buckets, from the bucket at an offset. */
+  private static final class Buckets implements Serializable {
+    // Extra buckets allocated on the side the buckets grow, to not resize for each new bucket,
+    // within the max. no. of buckets.
+    private static final int GROWTH = 64;
+
+    private long[] counts;
+    private int offset;
+    private long total;
+
+    long getTotal() {
+      return total;
+    }
+
+    void add(int index, long n) {
+      if (counts == null) {
+        counts = new long[GROWTH];
+        offset = index - GROWTH / 2;
+      } else if (index < offset) {
+        if (counts.length < MAX_BUCKETS) {
+          int highest = offset + counts.length - 1;
+          resize(Math.min(index, Math.max(index - GROWTH, highest - MAX_BUCKETS + 1)), highest);
+        }
+      } else if (index >= offset + counts.length) {
+        resize(offset, Math.max(index, Math.min(index + GROWTH, offset + MAX_BUCKETS - 1)));
+      }
+      // indexes below the collapsed buckets are counted in the lowest bucket
+      counts[Math.max(index, offset) - offset] += n;
+      total += n;
+    }
+
+    void addAll(Buckets other) {
+      if (other.counts == null) {
+        return;
+      }
+      for (int i = 0; i < other.counts.length; i++) {
+        if (other.counts[i] > 0) {
+          add(other.offset + i, other.counts[i]);
+        }
+      }
+    }
+
+    /** Get the index of the bucket of the value of the given rank, from 0 to total - 1. */
+    int getIndexOfRank(long rank) {
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen > rank) {
+          return offset + i;
+        }
+      }
+      return offset + counts.length - 1;
+    }
+
+    private void resize(int lowest, int highest) {
+      // collapse the lowest buckets, of the smallest magnitudes, beyond the max. no. of buckets
+      int newOffset = Math.max(lowest, highest - MAX_BUCKETS + 1);
+      long[] newCounts = new long[highest - newOffset + 1];
+      for (int i = 0; i < counts.length; i++) {
+        newCounts[Math.max(offset + i, newOffset) - newOffset] += counts[i];
+      }
+      counts = newCounts;
+      offset = newOffset;
+    }
+  }
+
+  /**
+   * Coder of {@link DistributionSketch}, encoding the statistics of the values, then either the
+   * exact values or the counts of the buckets as varints.
+   */
+  public static class DistributionSketchCoder extends CustomCoder<DistributionSketch> {
+    private static final DistributionSketchCoder INSTANCE = new DistributionSketchCoder();
+
+    private static final DoubleCoder DOUBLE_CODER = DoubleCoder.of();
+    private static final VarIntCoder INT_CODER = VarIntCoder.of();
+    private static final VarLongCoder LONG_CODER = VarLongCoder.of();
+
+    public static DistributionSketchCoder of() {
+      return INSTANCE;
+    }
+
+    @Override
+    public void encode(DistributionSketch sketch, OutputStream outStream) throws IOException {
+      LONG_CODER.encode(sketch.count, outStream);
+      DOUBLE_CODER.encode(sketch.sum, outStream);
+      DOUBLE_CODER.encode(sketch.sumCompensation, outStream);
+      DOUBLE_CODER.encode(sketch.simpleSum, outStream);
+      DOUBLE_CODER.encode(sketch.min, outStream);
+      DOUBLE_CODER.encode(sketch.max, outStream);
+      // no. of exact values plus one, or 0 if values are counted in buckets
+      if (sketch.values != null) {
+        INT_CODER.encode(sketch.valueCount + 1, outStream);
+        for (int i = 0; i < sketch.valueCount; i++) {
+          DOUBLE_CODER.encode(sketch.values[i], outStream);
+        }
+        return;
+      }
+      INT_CODER.encode(0, outStream);
+      encodeBuckets(sketch.positiveBuckets, outStream);
+      encodeBuckets(sketch.negativeBuckets, outStream);
+      LONG_CODER.encode(sketch.zeroCount, outStream);
+    }
+
+    @Override
+    public DistributionSketch decode(InputStream inStream) throws IOException {
+      DistributionSketch sketch = new DistributionSketch();
+      sketch.count = LONG_CODER.decode(inStream);
+      sketch.sum = DOUBLE_CODER.decode(inStream);
+      sketch.sumCompensation = DOUBLE_CODER.decode(inStream);
+      sketch.simpleSum = DOUBLE_CODER.decode(inStream);
+      sketch.min = DOUBLE_CODER.decode(inStream);
+      sketch.max = DOUBLE_CODER.decode(inStream);
+      int valueCount = INT_CODER.decode(inStream) - 1;
+      if (valueCount >= 0) {
+        sketch.values = new double[Math.max(sketch.values.length, valueCount)];
+        for (int i = 0; i < valueCount; i++) {
+          sketch.values[i] = DOUBLE_CODER.decode(inStream);
+        }
+        sketch.valueCount = valueCount;
+        return sketch;
+      }
+      sketch.values = null;
+      sketch.positiveBuckets = decodeBuckets(inStream);
+      sketch.negativeBuckets = decodeBuckets(inStream);
+      sketch.zeroCount = LONG_CODER.decode(inStream);
+      return sketch;
+    }
+
+    private static void encodeBuckets(Buckets buckets, OutputStream outStream) throws IOException {
+      if (buckets.counts == null) {
+        INT_CODER.encode(0, outStream);
+        return;
+      }
+      INT_CODER.encode(buckets.counts.length, outStream);
+      INT_CODER.encode(buckets.offset, outStream);
+      for (long count : buckets.counts) {
+        LONG_CODER.encode(count, outStream);
+      }
+    }
+
+    private static Buckets decodeBuckets(InputStream inStream) throws IOException {
+      Buckets buckets = new Buckets();
+      int length = INT_CODER.decode(inStream);
+      if (length == 0) {
+        return buckets;
+      }
+      buckets.offset = INT_CODER.decode(inStream);
+      buckets.counts = new long[length];
+      for (int i = 0; i < length; i++) {
+        buckets.counts[i] = LONG_CODER.decode(inStream);
+        buckets.total += buckets.counts[i];
+      }
+      return buckets;
+    }
+  }
+}
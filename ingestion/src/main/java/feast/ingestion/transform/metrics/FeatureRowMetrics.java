@@ -0,0 +1,203 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import com.google.protobuf.util.Timestamps;
+import feast.ingestion.transform.metrics.DistributionSketch.DistributionSketchCoder;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value.ValCase;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.MapCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+
+/**
+ * Mergeable metrics of the feature rows of a feature set: the event times of the feature rows, and
+ * the event times and count of missing values of each feature, with a size bounded by the no. of
+ * features rather than the no. of feature rows.
+ *
+ * <p>Event times are kept so that the lag of the feature rows can be computed when the metrics are
+ * written. They are kept as ages relative to the event time of the first feature row added, so that
+ * the sketches hold values of the magnitude of lags rather than of unix times, and need not be
+ * shifted as fresher feature rows are added. Ages are reported relative to the reference time, the
+ * latest event time of the feature rows, so that they are at least 0 and at most the lag of the
+ * oldest feature row.
+ *
+ * <p>Metrics are encoded by {@link FeatureRowMetricsCoder}.
+ */
+public class FeatureRowMetrics implements Serializable {
+  // Event time in milliseconds since epoch that the ages kept in the sketches are relative to.
+  private long anchorTime;
+  // Latest event time in milliseconds since epoch of the feature rows.
+  private long referenceTime;
+  private final DistributionSketch rowAge;
+  // Age of the feature rows with a value of each feature, relative to the anchor time.
+  private final Map<String, DistributionSketch> featureNameToAge;
+  // Count of "value_not_set" of each feature, including features without any missing value.
+  private final Map<String, Long> featureNameToMissingCount;
+
+  public FeatureRowMetrics() {
+    this(0, 0, new DistributionSketch(), new HashMap<>(), new HashMap<>());
+  }
+
+  private FeatureRowMetrics(
+      long anchorTime,
+      long referenceTime,
+      DistributionSketch rowAge,
+      Map<String, DistributionSketch> featureNameToAge,
+      Map<String, Long> featureNameToMissingCount) {
+    this.anchorTime = anchorTime;
+    this.referenceTime = referenceTime;
+    this.rowAge = rowAge;
+    this.featureNameToAge = featureNameToAge;
+    this.featureNameToMissingCount = featureNameToMissingCount;
+  }
+
+  /** Add a feature row to the metrics. */
+  public void add(FeatureRow featureRow) {
+    long eventTime = Timestamps.toMillis(featureRow.getEventTimestamp());
+    if (rowAge.getCount() == 0) {
+      anchorTime = eventTime;
+      referenceTime = eventTime;
+    } else {
+      referenceTime = Math.max(referenceTime, eventTime);
+    }
+    long featureRowAge = anchorTime - eventTime;
+    rowAge.add(featureRowAge);
+
+    for (Field field : featureRow.getFieldsList()) {
+      String featureName = field.getName();
+      if (field.getValue().getValCase().equals(ValCase.VAL_NOT_SET)) {
+        featureNameToMissingCount.merge(featureName, 1L, Long::sum);
+      } else {
+        featureNameToMissingCount.putIfAbsent(featureName, 0L);
+        featureNameToAge
+            .computeIfAbsent(featureName, name -> new DistributionSketch())
+            .add(featureRowAge);
+      }
+    }
+  }
+
+  /** Merge other metrics of feature rows of the same feature set into these metrics. */
+  public void merge(FeatureRowMetrics other) {
+    if (other.rowAge.getCount() == 0) {
+      return;
+    }
+    if (rowAge.getCount() == 0) {
+      anchorTime = other.anchorTime;
+      referenceTime = other.referenceTime;
+    } else {
+      referenceTime = Math.max(referenceTime, other.referenceTime);
+    }
+    // ages relative to the anchor time of the other metrics are made relative to this one
+    double shift = anchorTime - other.anchorTime;
+    rowAge.merge(other.rowAge, shift);
+    for (Entry<String, DistributionSketch> entry : other.featureNameToAge.entrySet()) {
+      featureNameToAge
+          .computeIfAbsent(entry.getKey(), name -> new DistributionSketch())
+          .merge(entry.getValue(), shift);
+    }
+    for (Entry<String, Long> entry : other.featureNameToMissingCount.entrySet()) {
+      featureNameToMissingCount.merge(entry.getKey(), entry.getValue(), Long::sum);
+    }
+  }
+
+  /**
+   * Get the latest event time in milliseconds since epoch of the feature rows, that the ages of the
+   * feature rows are relative to, so that their lag at a given time is the time minus the reference
+   * time, plus their age.
+   */
+  public long getReferenceTime() {
+    return referenceTime;
+  }
+
+  /**
+   * Get the age in milliseconds of the feature rows at the reference time, computed on each call.
+   */
+  public DistributionSketch getRowAge() {
+    return toReferenceTime(rowAge);
+  }
+
+  /**
+   * Get the age in milliseconds at the reference time of the feature rows with each feature,
+   * computed on each call.
+   */
+  public Map<String, DistributionSketch> getFeatureNameToAge() {
+    Map<String, DistributionSketch> featureNameToReferenceAge = new HashMap<>();
+    featureNameToAge.forEach(
+        (featureName, age) -> featureNameToReferenceAge.put(featureName, toReferenceTime(age)));
+    return featureNameToReferenceAge;
+  }
+
+  /** Get the count of missing values of each feature of the feature rows. */
+  public Map<String, Long> getFeatureNameToMissingCount() {
+    return featureNameToMissingCount;
+  }
+
+  /** Copy a sketch of ages relative to the anchor time with the ages at the reference time. */
+  private DistributionSketch toReferenceTime(DistributionSketch age) {
+    DistributionSketch referenceAge = new DistributionSketch();
+    referenceAge.merge(age, referenceTime - anchorTime);
+    return referenceAge;
+  }
+
+  /**
+   * Coder of {@link FeatureRowMetrics}, encoding its sketches with {@link DistributionSketchCoder}.
+   */
+  public static class FeatureRowMetricsCoder extends CustomCoder<FeatureRowMetrics> {
+    private static final FeatureRowMetricsCoder INSTANCE = new FeatureRowMetricsCoder();
+
+    private static final VarLongCoder TIME_CODER = VarLongCoder.of();
+    private static final DistributionSketchCoder SKETCH_CODER = DistributionSketchCoder.of();
+    private static final MapCoder<String, DistributionSketch> SKETCHES_CODER =
+        MapCoder.of(StringUtf8Coder.of(), SKETCH_CODER);
+    private static final MapCoder<String, Long> COUNTS_CODER =
+        MapCoder.of(StringUtf8Coder.of(), VarLongCoder.of());
+
+    public static FeatureRowMetricsCoder of() {
+      return INSTANCE;
+    }
+
+    @Override
+    public void encode(FeatureRowMetrics metrics, OutputStream outStream) throws IOException {
+      TIME_CODER.encode(metrics.anchorTime, outStream);
+      TIME_CODER.encode(metrics.referenceTime, outStream);
+      SKETCH_CODER.encode(metrics.rowAge, outStream);
+      SKETCHES_CODER.encode(metrics.featureNameToAge, outStream);
+      COUNTS_CODER.encode(metrics.featureNameToMissingCount, outStream);
+    }
+
+    @Override
+    public FeatureRowMetrics decode(InputStream inStream) throws IOException {
+      long anchorTime = TIME_CODER.decode(inStream);
+      long referenceTime = TIME_CODER.decode(inStream);
+      DistributionSketch rowAge = SKETCH_CODER.decode(inStream);
+      Map<String, DistributionSketch> featureNameToAge = SKETCHES_CODER.decode(inStream);
+      Map<String, Long> featureNameToMissingCount = COUNTS_CODER.decode(inStream);
+      return new FeatureRowMetrics(
+          anchorTime, referenceTime, rowAge, featureNameToAge, featureNameToMissingCount);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import feast.ingestion.transform.metrics.FeatureRowMetrics.FeatureRowMetricsCoder;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+
+/**
+ * Combines the feature rows of a feature set into their {@link FeatureRowMetrics}, so that row
+ * metrics can be computed incrementally, without grouping all feature rows of a window.
+ */
+public class FeatureRowMetricsFn
+    extends CombineFn<FeatureRow, FeatureRowMetrics, FeatureRowMetrics> {
+
+  @Override
+  public FeatureRowMetrics createAccumulator() {
+    return new FeatureRowMetrics();
+  }
+
+  @Override
+  public FeatureRowMetrics addInput(FeatureRowMetrics metrics, FeatureRow featureRow) {
+    metrics.add(featureRow);
+    return metrics;
+  }
+
+  @Override
+  public FeatureRowMetrics mergeAccumulators(Iterable<FeatureRowMetrics> accumulators) {
+    FeatureRowMetrics merged = null;
+    for (FeatureRowMetrics metrics : accumulators) {
+      if (merged == null) {
+        merged = metrics;
+      } else {
+        merged.merge(metrics);
+      }
+    }
+    return merged == null ? createAccumulator() : merged;
+  }
+
+  @Override
+  public FeatureRowMetrics extractOutput(FeatureRowMetrics metrics) {
+    return metrics;
+  }
+
+  @Override
+  public Coder<FeatureRowMetrics> getAccumulatorCoder(
+      CoderRegistry registry, Coder<FeatureRow> inputCoder) {
+    return FeatureRowMetricsCoder.of();
+  }
+
+  @Override
+  public Coder<FeatureRowMetrics> getDefaultOutputCoder(
+      CoderRegistry registry, Coder<FeatureRow> inputCoder) {
+    return FeatureRowMetricsCoder.of();
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import feast.ingestion.transform.metrics.DistributionSketch.DistributionSketchCoder;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.MapCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+
+/**
+ * Combines the feature rows of a feature set into a {@link DistributionSketch} of the numerical
+ * values of each feature, so that feature value metrics can be computed incrementally, without
+ * grouping all feature rows of a window.
+ *
+ * <p>Features without any numerical or boolean value have no sketch. Boolean values true and false
+ * are treated as numerical values of 1 and 0 respectively.
+ */
+public class FeatureValueSketchesFn
+    extends CombineFn<
+        FeatureRow, Map<String, DistributionSketch>, Map<String, DistributionSketch>> {
+
+  @Override
+  public Map<String, DistributionSketch> createAccumulator() {
+    return new HashMap<>();
+  }
+
+  @Override
+  public Map<String, DistributionSketch> addInput(
+      Map<String, DistributionSketch> featureNameToSketch, FeatureRow featureRow) {
+    for (Field field : featureRow.getFieldsList()) {
+      addValues(featureNameToSketch, field);
+    }
+    return featureNameToSketch;
+  }
+
+  @Override
+  public Map<String, DistributionSketch> mergeAccumulators(
+      Iterable<Map<String, DistributionSketch>> accumulators) {
+    Map<String, DistributionSketch> merged = null;
+    for (Map<String, DistributionSketch> accumulator : accumulators) {
+      if (merged == null) {
+        merged = accumulator;
+        continue;
+      }
+      // sketches of the other accumulators are copied rather than shared with the merged one
+      for (Entry<String, DistributionSketch> entry : accumulator.entrySet()) {
+        merged
+            .computeIfAbsent(entry.getKey(), name -> new DistributionSketch())
+            .merge(entry.getValue());
+      }
+    }
+    return merged == null ? createAccumulator() : merged;
+  }
+
+  @Override
+  public Map<String, DistributionSketch> extractOutput(
+      Map<String, DistributionSketch> featureNameToSketch) {
+    return featureNameToSketch;
+  }
+
+  @Override
+  public Coder<Map<String, DistributionSketch>> getAccumulatorCoder(
+      CoderRegistry registry, Coder<FeatureRow> inputCoder) {
+    return getSketchesCoder();
+  }
+
+  @Override
+  public Coder<Map<String, DistributionSketch>> getDefaultOutputCoder(
+      CoderRegistry registry, Coder<FeatureRow> inputCoder) {
+    return getSketchesCoder();
+  }
+
+  private static Coder<Map<String, DistributionSketch>> getSketchesCoder() {
+    return MapCoder.of(StringUtf8Coder.of(), DistributionSketchCoder.of());
+  }
+
+  // Add the values of the field to the sketch of the feature represented by the field.
+  // Non-numerical and non-boolean values are ignored because we are only concerned with
+  // numerical value in metrics data.
+  private static void addValues(Map<String, DistributionSketch> featureNameToSketch, Field field) {
+    Value value = field.getValue();
+    switch (value.getValCase()) {
+      case INT32_VAL:
+        getSketch(featureNameToSketch, field).add(value.getInt32Val());
+        break;
+      case INT64_VAL:
+        getSketch(featureNameToSketch, field).add(value.getInt64Val());
+        break;
+      case DOUBLE_VAL:
+        getSketch(featureNameToSketch, field).add(value.getDoubleVal());
+        break;
+      case FLOAT_VAL:
+        getSketch(featureNameToSketch, field).add(value.getFloatVal());
+        break;
+      case BOOL_VAL:
+        getSketch(featureNameToSketch, field).add(value.getBoolVal() ? 1 : 0);
+        break;
+      case INT32_LIST_VAL:
+        for (Integer val : value.getInt32ListVal().getValList()) {
+          getSketch(featureNameToSketch, field).add(val);
+        }
+        break;
+      case INT64_LIST_VAL:
+        for (Long val : value.getInt64ListVal().getValList()) {
+          getSketch(featureNameToSketch, field).add(val);
+        }
+        break;
+      case DOUBLE_LIST_VAL:
+        for (Double val : value.getDoubleListVal().getValList()) {
+          getSketch(featureNameToSketch, field).add(val);
+        }
+        break;
+      case FLOAT_LIST_VAL:
+        for (Float val : value.getFloatListVal().getValList()) {
+          getSketch(featureNameToSketch, field).add(val);
+        }
+        break;
+      case BOOL_LIST_VAL:
+        for (Boolean val : value.getBoolListVal().getValList()) {
+          getSketch(featureNameToSketch, field).add(val ? 1 : 0);
+        }
+        break;
+      case BYTES_VAL:
+      case BYTES_LIST_VAL:
+      case STRING_VAL:
+      case STRING_LIST_VAL:
+      case VAL_NOT_SET:
+      default:
+    }
+  }
+
+  private static DistributionSketch getSketch(
+      Map<String, DistributionSketch> featureNameToSketch, Field field) {
+    return featureNameToSketch.computeIfAbsent(field.getName(), name -> new DistributionSketch());
+  }
+}
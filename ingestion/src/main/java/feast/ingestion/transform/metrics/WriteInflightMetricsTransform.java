@@ -64,7 +64,9 @@ public abstract class WriteInflightMetricsTransform
         // Fixed window is applied so the metric collector will not be overwhelmed with the metrics
         // data. For validation, only summaries of the values are usually required vs the actual
         // values.
-        PCollection<KV<String, Iterable<FeatureRow>>> rowsGroupedByRef =
+        // Feature rows are combined into metrics as they arrive, so that the feature rows of a
+        // window do not need to be grouped to compute the metrics.
+        PCollection<KV<String, FeatureRow>> rowsByRef =
             input
                 .apply(
                     "FixedWindow",
@@ -81,28 +83,31 @@ public abstract class WriteInflightMetricsTransform
                               ProcessContext c, @Element FeatureRow featureRow) {
                             c.output(KV.of(featureRow.getFeatureSet(), featureRow));
                           }
-                        }))
-                .apply("GroupByFeatureSetRef", GroupByKey.create());
+                        }));
 
-        rowsGroupedByRef.apply(
-            "WriteInflightRowMetrics",
-            ParDo.of(
-                WriteRowMetricsDoFn.newBuilder()
-                    .setStatsdHost(options.getStatsdHost())
-                    .setStatsdPort(options.getStatsdPort())
-                    .setStoreName(getStoreName())
-                    .setMetricsNamespace(METRIC_NAMESPACE)
-                    .build()));
+        rowsByRef
+            .apply("CombineFeatureRowMetrics", Combine.perKey(new FeatureRowMetricsFn()))
+            .apply(
+                "WriteInflightRowMetrics",
+                ParDo.of(
+                    WriteRowMetricsDoFn.newBuilder()
+                        .setStatsdHost(options.getStatsdHost())
+                        .setStatsdPort(options.getStatsdPort())
+                        .setStoreName(getStoreName())
+                        .setMetricsNamespace(METRIC_NAMESPACE)
+                        .build()));
 
-        rowsGroupedByRef.apply(
-            "WriteInflightFeatureValueMetrics",
-            ParDo.of(
-                WriteFeatureValueMetricsDoFn.newBuilder()
-                    .setStatsdHost(options.getStatsdHost())
-                    .setStatsdPort(options.getStatsdPort())
-                    .setStoreName(getStoreName())
-                    .setMetricsNamespace(METRIC_NAMESPACE)
-                    .build()));
+        rowsByRef
+            .apply("CombineFeatureValueSketches", Combine.perKey(new FeatureValueSketchesFn()))
+            .apply(
+                "WriteInflightFeatureValueMetrics",
+                ParDo.of(
+                    WriteFeatureValueMetricsDoFn.newBuilder()
+                        .setStatsdHost(options.getStatsdHost())
+                        .setStatsdPort(options.getStatsdPort())
+                        .setStoreName(getStoreName())
+                        .setMetricsNamespace(METRIC_NAMESPACE)
+                        .build()));
 
         return PDone.in(input.getPipeline());
       case "none":
@@ -17,26 +17,26 @@
 package feast.ingestion.transform.metrics;
 
 import com.google.auto.value.AutoValue;
-import com.google.protobuf.util.Timestamps;
 import com.timgroup.statsd.NonBlockingStatsDClient;
 import com.timgroup.statsd.StatsDClient;
-import feast.proto.types.FeatureRowProto.FeatureRow;
-import feast.proto.types.FieldProto.Field;
-import feast.proto.types.ValueProto.Value;
-import feast.proto.types.ValueProto.Value.ValCase;
 import java.time.Clock;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Map.Entry;
 import javax.annotation.Nullable;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.values.KV;
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.slf4j.Logger;
 
+/**
+ * WriteRowMetricsDoFn accepts key value of FeatureSetRef(str) to the metrics of its feature rows,
+ * combined by {@link FeatureRowMetricsFn}, and writes the feature row lag, feature value lag and
+ * missing feature value count metrics to StatsD.
+ *
+ * <p>The lag of the feature rows is computed from their event times when the metrics are written,
+ * ie. when the window of the feature rows fires.
+ */
 @AutoValue
-public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<FeatureRow>>, Void> {
+public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, FeatureRowMetrics>, Void> {
 
   private static final Logger log = org.slf4j.LoggerFactory.getLogger(WriteRowMetricsDoFn.class);
 
@@ -134,13 +134,13 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
   @SuppressWarnings("DuplicatedCode")
   @ProcessElement
   public void processElement(
-      ProcessContext c, @Element KV<String, Iterable<FeatureRow>> featureSetRefToFeatureRows) {
+      ProcessContext c, @Element KV<String, FeatureRowMetrics> featureSetRefToMetrics) {
     if (statsd == null) {
       log.error("StatsD client is null, likely because it encounters an error during setup");
       return;
     }
 
-    String featureSetRef = featureSetRefToFeatureRows.getKey();
+    String featureSetRef = featureSetRefToMetrics.getKey();
     if (featureSetRef == null) {
       log.error(
           "Feature set reference in the feature row is null. Please check the input feature rows from previous steps");
@@ -158,39 +158,11 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
     String featureSetProject = slashSplits[0];
     String featureSetName = slashSplits[1];
 
-    // featureRowLagStats is stats for feature row lag for feature set "featureSetName"
-    DescriptiveStatistics featureRowLagStats = new DescriptiveStatistics();
-    // featureNameToLagStats is stats for feature lag for all features in feature set
-    // "featureSetName"
-    Map<String, DescriptiveStatistics> featureNameToLagStats = new HashMap<>();
-    // featureNameToMissingCount is count for "value_not_set" for all features in feature set
-    // "featureSetName"
-    Map<String, Long> featureNameToMissingCount = new HashMap<>();
-
-    for (FeatureRow featureRow : featureSetRefToFeatureRows.getValue()) {
-      long currentTime = getClock() == null ? System.currentTimeMillis() : getClock().millis();
-      long featureRowLag = currentTime - Timestamps.toMillis(featureRow.getEventTimestamp());
-      featureRowLagStats.addValue(featureRowLag);
-
-      for (Field field : featureRow.getFieldsList()) {
-        String featureName = field.getName();
-        Value featureValue = field.getValue();
-        if (!featureNameToLagStats.containsKey(featureName)) {
-          // Ensure map contains the "featureName" key
-          featureNameToLagStats.put(featureName, new DescriptiveStatistics());
-        }
-        if (!featureNameToMissingCount.containsKey(featureName)) {
-          // Ensure map contains the "featureName" key
-          featureNameToMissingCount.put(featureName, 0L);
-        }
-        if (featureValue.getValCase().equals(ValCase.VAL_NOT_SET)) {
-          featureNameToMissingCount.put(
-              featureName, featureNameToMissingCount.get(featureName) + 1);
-        } else {
-          featureNameToLagStats.get(featureName).addValue(featureRowLag);
-        }
-      }
-    }
+    FeatureRowMetrics metrics = featureSetRefToMetrics.getValue();
+    DistributionSketch featureRowAge = metrics.getRowAge();
+    // lag of a feature row is its age at the reference time, plus the time since then
+    long currentTime = getClock() == null ? System.currentTimeMillis() : getClock().millis();
+    long lagOffset = currentTime - metrics.getReferenceTime();
 
     String[] tags = {
       STORE_TAG_KEY + ":" + getStoreName(),
@@ -200,46 +172,44 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
       METRICS_NAMESPACE_KEY + ":" + getMetricsNamespace(),
     };
 
-    statsd.count(COUNT_NAME_FEATURE_ROW_INGESTED, featureRowLagStats.getN(), tags);
-    // DescriptiveStatistics returns invalid NaN value for getMin(), getMax(), ... when there is no
-    // items in the stats.
-    if (featureRowLagStats.getN() > 0) {
-      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MIN, featureRowLagStats.getMin(), tags);
-      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MAX, featureRowLagStats.getMax(), tags);
-      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MEAN, featureRowLagStats.getMean(), tags);
-      statsd.gauge(
-          GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_90, featureRowLagStats.getPercentile(90), tags);
-      statsd.gauge(
-          GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_95, featureRowLagStats.getPercentile(95), tags);
-      statsd.gauge(
-          GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_99, featureRowLagStats.getPercentile(99), tags);
+    statsd.count(COUNT_NAME_FEATURE_ROW_INGESTED, featureRowAge.getCount(), tags);
+    if (featureRowAge.getCount() > 0) {
+      double[] percentiles = featureRowAge.getPercentiles(90, 95, 99);
+      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MIN, lagOffset + featureRowAge.getMin(), tags);
+      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MAX, lagOffset + featureRowAge.getMax(), tags);
+      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MEAN, lagOffset + featureRowAge.getMean(), tags);
+      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_90, lagOffset + percentiles[0], tags);
+      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_95, lagOffset + percentiles[1], tags);
+      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_99, lagOffset + percentiles[2], tags);
     }
 
-    for (Entry<String, DescriptiveStatistics> entry : featureNameToLagStats.entrySet()) {
+    for (Entry<String, Long> entry : metrics.getFeatureNameToMissingCount().entrySet()) {
       String featureName = entry.getKey();
       String[] tagsWithFeatureName = ArrayUtils.add(tags, FEATURE_TAG_KEY + ":" + featureName);
-      DescriptiveStatistics stats = entry.getValue();
-      if (stats.getN() > 0) {
-        statsd.gauge(GAUGE_NAME_FEATURE_VALUE_LAG_MS_MIN, stats.getMin(), tagsWithFeatureName);
-        statsd.gauge(GAUGE_NAME_FEATURE_VALUE_LAG_MS_MAX, stats.getMax(), tagsWithFeatureName);
-        statsd.gauge(GAUGE_NAME_FEATURE_VALUE_LAG_MS_MEAN, stats.getMean(), tagsWithFeatureName);
+      // features whose values are all missing have no lag
+      DistributionSketch age = metrics.getFeatureNameToAge().get(featureName);
+      if (age != null && age.getCount() > 0) {
+        double[] percentiles = age.getPercentiles(90, 95, 99);
+        statsd.gauge(
+            GAUGE_NAME_FEATURE_VALUE_LAG_MS_MIN, lagOffset + age.getMin(), tagsWithFeatureName);
+        statsd.gauge(
+            GAUGE_NAME_FEATURE_VALUE_LAG_MS_MAX, lagOffset + age.getMax(), tagsWithFeatureName);
+        statsd.gauge(
+            GAUGE_NAME_FEATURE_VALUE_LAG_MS_MEAN, lagOffset + age.getMean(), tagsWithFeatureName);
         statsd.gauge(
             GAUGE_NAME_FEATURE_VALUE_LAG_MS_PERCENTILE_90,
-            stats.getPercentile(90),
+            lagOffset + percentiles[0],
             tagsWithFeatureName);
         statsd.gauge(
             GAUGE_NAME_FEATURE_VALUE_LAG_MS_PERCENTILE_95,
-            stats.getPercentile(95),
+            lagOffset + percentiles[1],
             tagsWithFeatureName);
         statsd.gauge(
             GAUGE_NAME_FEATURE_VALUE_LAG_MS_PERCENTILE_99,
-            stats.getPercentile(99),
+            lagOffset + percentiles[2],
             tagsWithFeatureName);
       }
-      statsd.count(
-          COUNT_NAME_FEATURE_VALUE_MISSING,
-          featureNameToMissingCount.get(featureName),
-          tagsWithFeatureName);
+      statsd.count(COUNT_NAME_FEATURE_VALUE_MISSING, entry.getValue(), tagsWithFeatureName);
     }
   }
 }
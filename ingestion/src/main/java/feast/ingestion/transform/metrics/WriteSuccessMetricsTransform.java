@@ -64,7 +64,9 @@ public abstract class WriteSuccessMetricsTransform
         // Fixed window is applied so the metric collector will not be overwhelmed with the metrics
         // data. For validation, only summaries of the values are usually required vs the actual
         // values.
-        PCollection<KV<String, Iterable<FeatureRow>>> validRowsGroupedByRef =
+        // Feature rows are combined into metrics as they arrive, so that the feature rows of a
+        // window do not need to be grouped to compute the metrics.
+        PCollection<KV<String, FeatureRow>> validRowsByRef =
             input
                 .apply(
                     "FixedWindow",
@@ -82,28 +84,31 @@ public abstract class WriteSuccessMetricsTransform
                               ProcessContext c, @Element FeatureRow featureRow) {
                             c.output(KV.of(featureRow.getFeatureSet(), featureRow));
                           }
-                        }))
-                .apply("GroupByFeatureSetRef", GroupByKey.create());
+                        }));
 
-        validRowsGroupedByRef.apply(
-            "WriteRowMetrics",
-            ParDo.of(
-                WriteRowMetricsDoFn.newBuilder()
-                    .setStatsdHost(options.getStatsdHost())
-                    .setStatsdPort(options.getStatsdPort())
-                    .setStoreName(getStoreName())
-                    .setMetricsNamespace(METRIC_NAMESPACE)
-                    .build()));
+        validRowsByRef
+            .apply("CombineFeatureRowMetrics", Combine.perKey(new FeatureRowMetricsFn()))
+            .apply(
+                "WriteRowMetrics",
+                ParDo.of(
+                    WriteRowMetricsDoFn.newBuilder()
+                        .setStatsdHost(options.getStatsdHost())
+                        .setStatsdPort(options.getStatsdPort())
+                        .setStoreName(getStoreName())
+                        .setMetricsNamespace(METRIC_NAMESPACE)
+                        .build()));
 
-        validRowsGroupedByRef.apply(
-            "WriteFeatureValueMetrics",
-            ParDo.of(
-                WriteFeatureValueMetricsDoFn.newBuilder()
-                    .setStatsdHost(options.getStatsdHost())
-                    .setStatsdPort(options.getStatsdPort())
-                    .setStoreName(getStoreName())
-                    .setMetricsNamespace(METRIC_NAMESPACE)
-                    .build()));
+        validRowsByRef
+            .apply("CombineFeatureValueSketches", Combine.perKey(new FeatureValueSketchesFn()))
+            .apply(
+                "WriteFeatureValueMetrics",
+                ParDo.of(
+                    WriteFeatureValueMetricsDoFn.newBuilder()
+                        .setStatsdHost(options.getStatsdHost())
+                        .setStatsdPort(options.getStatsdPort())
+                        .setStoreName(getStoreName())
+                        .setMetricsNamespace(METRIC_NAMESPACE)
+                        .build()));
 
         return PDone.in(input.getPipeline());
       case "none":
@@ -24,6 +24,7 @@ import feast.proto.core.StoreProto.Store.StoreType;
 import feast.proto.types.ValueProto.ValueType.Enum;
 import feast.storage.api.writer.FeatureSink;
 import feast.storage.connectors.bigquery.writer.BigQueryFeatureSink;
+import feast.storage.connectors.embedded.writer.EmbeddedFeatureSink;
 import feast.storage.connectors.redis.writer.RedisFeatureSink;
 import java.util.HashMap;
 import java.util.Map;
@@ -84,6 +85,8 @@ public class StoreUtil {
         return RedisFeatureSink.fromConfig(store.getRedisClusterConfig());
       case REDIS:
         return RedisFeatureSink.fromConfig(store.getRedisConfig());
+      case EMBEDDED:
+        return EmbeddedFeatureSink.fromConfig(store.getEmbeddedConfig());
       case BIGQUERY:
         return BigQueryFeatureSink.fromConfig(store.getBigqueryConfig());
       default:
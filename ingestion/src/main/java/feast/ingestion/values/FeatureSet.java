@@ -21,29 +21,60 @@ import static feast.ingestion.utils.SpecUtil.getFieldsByName;
 
 import feast.proto.core.FeatureSetProto;
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
- * This class represents {@link feast.proto.core.FeatureSetProto.FeatureSetSpec} but contains fields
- * directly accessible by name for feature validation purposes.
- *
- * <p>The use for this class is mainly for validating the Fields in FeatureRow.
+ * Fields of a version of a feature set spec, indexed so that the fields of each feature row can be
+ * looked up once by name and then accessed by index.
  */
 public class FeatureSet implements Serializable {
   private final String reference;
 
-  private final Map<String, Field> fields;
+  private final int version;
+
+  private final Map<String, Integer> fieldIndexByName;
+
+  private final Field[] fields;
 
   public FeatureSet(FeatureSetProto.FeatureSetSpec featureSetSpec) {
     this.reference = getFeatureSetStringRef(featureSetSpec);
-    this.fields = getFieldsByName(featureSetSpec);
+    this.version = featureSetSpec.getVersion();
+    Map<String, Field> fieldsByName = getFieldsByName(featureSetSpec);
+    this.fieldIndexByName = new HashMap<>(fieldsByName.size() * 2);
+    this.fields = new Field[fieldsByName.size()];
+    for (Field field : fieldsByName.values()) {
+      fields[fieldIndexByName.size()] = field;
+      fieldIndexByName.put(field.getName(), fieldIndexByName.size());
+    }
   }
 
   public String getReference() {
     return reference;
   }
 
+  /** Get the version of the spec the feature set was created from. */
+  public int getVersion() {
+    return version;
+  }
+
   public Field getField(String fieldName) {
-    return fields.getOrDefault(fieldName, null);
+    int fieldIndex = getFieldIndex(fieldName);
+    return fieldIndex < 0 ? null : fields[fieldIndex];
+  }
+
+  /** Get the index of the field with the given name, or -1 if there is no such field. */
+  public int getFieldIndex(String fieldName) {
+    Integer fieldIndex = fieldIndexByName.get(fieldName);
+    return fieldIndex == null ? -1 : fieldIndex;
+  }
+
+  /** Get the field at the given index, between 0 and the no. of fields. */
+  public Field getField(int fieldIndex) {
+    return fields[fieldIndex];
+  }
+
+  public int getFieldCount() {
+    return fields.length;
   }
 }
@@ -299,4 +299,66 @@ public class ProcessAndValidateFeatureRowsTest {
 
     p.run();
   }
+
+  @Test
+  public void shouldDropIdenticalDuplicateFields() {
+    FeatureSetSpec fs1 =
+        FeatureSetSpec.newBuilder()
+            .setName("feature_set")
+            .setProject("myproject")
+            .addEntities(
+                EntitySpec.newBuilder().setName("entity_id_primary").setValueType(Enum.INT32))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature_1").setValueType(Enum.STRING))
+            .build();
+
+    Map<String, FeatureSetSpec> featureSetSpecs = new HashMap<>();
+    featureSetSpecs.put("myproject/feature_set", fs1);
+
+    FeatureRow randomRow = TestUtil.createRandomFeatureRow(fs1);
+    Field feature1 =
+        Field.newBuilder()
+            .setName("feature_1")
+            .setValue(Value.newBuilder().setStringVal("hello"))
+            .build();
+    Field otherFeature1 =
+        Field.newBuilder()
+            .setName("feature_1")
+            .setValue(Value.newBuilder().setStringVal("world"))
+            .build();
+    FeatureRow input =
+        randomRow
+            .toBuilder()
+            .clearFields()
+            .addFields(randomRow.getFields(0))
+            .addFields(feature1)
+            .addFields(feature1)
+            .addFields(otherFeature1)
+            .build();
+    FeatureRow expected =
+        input
+            .toBuilder()
+            .clearFields()
+            .addFields(randomRow.getFields(0))
+            .addFields(feature1)
+            .addFields(otherFeature1)
+            .build();
+
+    PCollectionView<Map<String, Iterable<FeatureSetSpec>>> specsView =
+        p.apply("StaticSpecs", Create.of(featureSetSpecs)).apply(View.asMultimap());
+
+    PCollectionTuple output =
+        p.apply(Create.of(input))
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ProcessAndValidateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setFailureTag(FAILURE_TAG)
+                    .setSuccessTag(SUCCESS_TAG)
+                    .setFeatureSetSpecs(specsView)
+                    .build());
+
+    PAssert.that(output.get(SUCCESS_TAG)).containsInAnyOrder(expected);
+
+    p.run();
+  }
 }
@@ -0,0 +1,132 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.StoreProto.Store;
+import feast.proto.core.StoreProto.Store.Subscription;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType.Enum;
+import feast.storage.api.writer.FailedElement;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ProcessValidateAndAllocateFeatureRowsTest {
+
+  @Rule public transient TestPipeline p = TestPipeline.create();
+
+  private static final TupleTag<FailedElement> FAILURE_TAG = new TupleTag<FailedElement>() {};
+
+  @Test
+  public void shouldProcessValidateAndAllocateRowsInOnePass() {
+    FeatureSetSpec fs1 = newSpec("fs_1");
+    FeatureSetSpec fs2 = newSpec("fs_2");
+    Map<String, FeatureSetSpec> featureSetSpecs = new HashMap<>();
+    featureSetSpecs.put("myproject/fs_1", fs1);
+    featureSetSpecs.put("myproject/fs_2", fs2);
+
+    Store fs1Store = newStore("fs_1");
+    Store anyStore = newStore("*");
+    Map<Store, TupleTag<FeatureRow>> storeTags =
+        ImmutableMap.of(fs1Store, new TupleTag<>(), anyStore, new TupleTag<>());
+
+    FeatureRow validRow =
+        FeatureRow.newBuilder()
+            .setFeatureSet("myproject/fs_1")
+            .addFields(field("entity", Value.newBuilder().setInt64Val(1)))
+            .addFields(field("feature", Value.newBuilder().setStringVal("a")))
+            .build();
+    // row without project and version, with an unregistered field
+    FeatureRow rowToProcess =
+        FeatureRow.newBuilder()
+            .setFeatureSet("fs_2:1")
+            .addFields(field("entity", Value.newBuilder().setInt64Val(2)))
+            .addFields(field("extra", Value.newBuilder().setStringVal("b")))
+            .build();
+    FeatureRow invalidRow =
+        FeatureRow.newBuilder()
+            .setFeatureSet("myproject/fs_1")
+            .addFields(field("entity", Value.newBuilder().setStringVal("c")))
+            .build();
+    FeatureRow unknownRow = FeatureRow.newBuilder().setFeatureSet("myproject/fs_3").build();
+
+    PCollectionView<Map<String, Iterable<FeatureSetSpec>>> specsView =
+        p.apply("StaticSpecs", Create.of(featureSetSpecs)).apply(View.asMultimap());
+
+    PCollectionTuple output =
+        p.apply(Create.of(validRow, rowToProcess, invalidRow, unknownRow))
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ProcessValidateAndAllocateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setFeatureSetSpecs(specsView)
+                    .setStores(ImmutableList.of(fs1Store, anyStore))
+                    .setStoreTags(storeTags)
+                    .setFailureTag(FAILURE_TAG)
+                    .build());
+
+    PAssert.that(output.get(storeTags.get(fs1Store)).setCoder(ProtoCoder.of(FeatureRow.class)))
+        .containsInAnyOrder(validRow);
+    PAssert.that(output.get(storeTags.get(anyStore)).setCoder(ProtoCoder.of(FeatureRow.class)))
+        .containsInAnyOrder(
+            validRow,
+            FeatureRow.newBuilder()
+                .setFeatureSet("myproject/fs_2")
+                .addFields(field("entity", Value.newBuilder().setInt64Val(2)))
+                .build());
+    PAssert.that(output.get(FAILURE_TAG).apply(Count.globally())).containsInAnyOrder(1L);
+
+    p.run();
+  }
+
+  private static FeatureSetSpec newSpec(String name) {
+    return FeatureSetSpec.newBuilder()
+        .setName(name)
+        .setProject("myproject")
+        .addEntities(EntitySpec.newBuilder().setName("entity").setValueType(Enum.INT64))
+        .addFeatures(FeatureSpec.newBuilder().setName("feature").setValueType(Enum.STRING))
+        .build();
+  }
+
+  private static Store newStore(String featureSetName) {
+    return Store.newBuilder()
+        .addSubscriptions(
+            Subscription.newBuilder().setProject("myproject").setName(featureSetName).build())
+        .build();
+  }
+
+  private static Field field(String name, Value.Builder value) {
+    return Field.newBuilder().setName(name).setValue(value).build();
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+import feast.ingestion.transform.metrics.DistributionSketch.DistributionSketchCoder;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import org.junit.Test;
+
+public class DistributionSketchTest {
+
+  @Test
+  public void shouldComputeExactPercentilesOfFewValues() {
+    double[] values = {5, -3, 8, 1, 1, 100, 0, 2.5};
+    DistributionSketch sketch = new DistributionSketch();
+    DistributionSketch other = new DistributionSketch();
+    for (int i = 0; i < values.length; i++) {
+      (i % 2 == 0 ? sketch : other).add(values[i]);
+    }
+    sketch.merge(other);
+
+    double[] percentiles = sketch.getPercentiles(25, 50, 90, 99);
+    assertThat(percentiles[0], equalTo(new Percentile().evaluate(values, 25)));
+    assertThat(percentiles[1], equalTo(new Percentile().evaluate(values, 50)));
+    assertThat(percentiles[2], equalTo(new Percentile().evaluate(values, 90)));
+    assertThat(percentiles[3], equalTo(new Percentile().evaluate(values, 99)));
+    assertThat(sketch.getCount(), equalTo(8L));
+    assertThat(sketch.getMin(), equalTo(-3d));
+    assertThat(sketch.getMax(), equalTo(100d));
+    assertThat(sketch.getMean(), equalTo(114.5 / 8));
+  }
+
+  @Test
+  public void shouldComputePercentilesOfManyValuesWithinRelativeAccuracy() {
+    int count = 100000;
+    DistributionSketch sketch = new DistributionSketch();
+    DistributionSketch other = new DistributionSketch();
+    for (int i = 1; i <= count; i++) {
+      // values from -10000 to 90000, with a zero in between
+      (i % 3 == 0 ? sketch : other).add(i - count / 10);
+    }
+    sketch.merge(other);
+
+    double[] percentiles = sketch.getPercentiles(1, 5, 50, 99);
+    double[] expected = {-9000, -5000, 40000, 89000};
+    for (int i = 0; i < expected.length; i++) {
+      assertThat(
+          percentiles[i],
+          closeTo(expected[i], Math.abs(expected[i]) * DistributionSketch.RELATIVE_ACCURACY + 1));
+    }
+    assertThat(sketch.getCount(), equalTo((long) count));
+    assertThat(sketch.getMin(), equalTo(-9999d));
+    assertThat(sketch.getMax(), equalTo(90000d));
+  }
+
+  @Test
+  public void shouldComputeMeanOfValuesOfDifferentMagnitudes() {
+    DistributionSketch sketch = new DistributionSketch();
+    DistributionSketch other = new DistributionSketch();
+    sketch.add(1e16);
+    for (int i = 0; i < 1000; i++) {
+      // lost in a naive sum with 1e16
+      (i % 2 == 0 ? sketch : other).add(1);
+    }
+    other.add(-1e16);
+    sketch.merge(other);
+
+    assertThat(sketch.getMean(), equalTo(1000d / 1002));
+  }
+
+  @Test
+  public void shouldMergeShiftedSketches() {
+    DistributionSketch exact = new DistributionSketch();
+    DistributionSketch exactOther = new DistributionSketch();
+    for (int i = 0; i < 500; i++) {
+      // values of the other sketch are 1000 less than the values they are merged as
+      (i % 2 == 0 ? exact : exactOther).add(i % 2 == 0 ? i : i - 1000);
+    }
+    exact.merge(exactOther, 1000);
+
+    double[] values = new double[500];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i;
+    }
+    assertThat(exact.getPercentiles(50)[0], equalTo(new Percentile().evaluate(values, 50)));
+    assertThat(exact.getMin(), equalTo(0d));
+    assertThat(exact.getMax(), equalTo(499d));
+    assertThat(exact.getMean(), equalTo(249.5));
+
+    DistributionSketch bucketed = new DistributionSketch();
+    DistributionSketch bucketedOther = new DistributionSketch();
+    for (int i = 0; i < 10000; i++) {
+      (i % 2 == 0 ? bucketed : bucketedOther).add(i % 2 == 0 ? i : i - 1000);
+    }
+    bucketed.merge(bucketedOther, 1000);
+
+    // shifted buckets are within the relative accuracy of their values before and after the shift
+    assertThat(
+        bucketed.getPercentiles(50)[0],
+        closeTo(5000, 5000 * 2 * DistributionSketch.RELATIVE_ACCURACY));
+    assertThat(bucketed.getMin(), equalTo(0d));
+    assertThat(bucketed.getMax(), equalTo(9999d));
+    assertThat(bucketed.getMean(), equalTo(4999.5));
+  }
+
+  @Test
+  public void shouldNotComputePercentilesWithoutFiniteValues() {
+    DistributionSketch sketch = new DistributionSketch();
+    assertThat(sketch.getPercentiles(50), nullValue());
+
+    sketch.add(Double.NaN);
+    assertThat(sketch.getPercentiles(50), nullValue());
+    assertThat(sketch.getCount(), equalTo(1L));
+  }
+
+  @Test
+  public void shouldEncodeExactSketchesCompactly() throws Exception {
+    DistributionSketch sketch = new DistributionSketch();
+    for (int i = 0; i < 100; i++) {
+      sketch.add(i * 1.5 - 20);
+    }
+
+    DistributionSketch decoded = CoderUtils.clone(DistributionSketchCoder.of(), sketch);
+    assertSameDistribution(decoded, sketch);
+    decoded.add(1000);
+    assertThat(decoded.getMax(), equalTo(1000d));
+    assertThat(sketch.getMax(), equalTo(128.5));
+    assertThat(
+        CoderUtils.encodeToByteArray(DistributionSketchCoder.of(), sketch).length,
+        lessThan(
+            CoderUtils.encodeToByteArray(SerializableCoder.of(DistributionSketch.class), sketch)
+                .length));
+  }
+
+  @Test
+  public void shouldEncodeBucketedSketchesCompactly() throws Exception {
+    DistributionSketch sketch = new DistributionSketch();
+    for (int i = -3000; i < 10000; i++) {
+      sketch.add(i);
+    }
+
+    DistributionSketch decoded = CoderUtils.clone(DistributionSketchCoder.of(), sketch);
+    assertSameDistribution(decoded, sketch);
+    decoded.merge(sketch);
+    assertThat(decoded.getCount(), equalTo(26000L));
+    assertThat(
+        CoderUtils.encodeToByteArray(DistributionSketchCoder.of(), sketch).length,
+        lessThan(
+            CoderUtils.encodeToByteArray(SerializableCoder.of(DistributionSketch.class), sketch)
+                .length));
+  }
+
+  @Test
+  public void shouldEncodeEmptySketches() throws Exception {
+    DistributionSketch decoded =
+        CoderUtils.clone(DistributionSketchCoder.of(), new DistributionSketch());
+    assertThat(decoded.getCount(), equalTo(0L));
+    assertThat(decoded.getPercentiles(50), nullValue());
+
+    decoded.add(2);
+    assertThat(decoded.getPercentiles(50)[0], equalTo(2d));
+  }
+
+  private static void assertSameDistribution(
+      DistributionSketch actual, DistributionSketch expected) {
+    assertThat(actual.getCount(), equalTo(expected.getCount()));
+    assertThat(actual.getMin(), equalTo(expected.getMin()));
+    assertThat(actual.getMax(), equalTo(expected.getMax()));
+    assertThat(actual.getMean(), equalTo(expected.getMean()));
+    double[] actualPercentiles = actual.getPercentiles(1, 25, 50, 90, 99);
+    double[] expectedPercentiles = expected.getPercentiles(1, 25, 50, 90, 99);
+    for (int i = 0; i < expectedPercentiles.length; i++) {
+      assertThat(actualPercentiles[i], equalTo(expectedPercentiles[i]));
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.protobuf.util.Timestamps;
+import feast.ingestion.transform.metrics.FeatureRowMetrics.FeatureRowMetricsCoder;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.junit.Test;
+
+public class FeatureRowMetricsTest {
+
+  @Test
+  public void shouldComputeAgesAtLatestEventTimeOfWindowMixingOldAndFreshRows() {
+    // the first row is neither the oldest nor the freshest
+    FeatureRowMetrics metrics = new FeatureRowMetrics();
+    metrics.add(featureRow(5000, true));
+    metrics.add(featureRow(9000, false));
+    metrics.add(featureRow(1000, true));
+    FeatureRowMetrics other = new FeatureRowMetrics();
+    other.add(featureRow(3000, true));
+    other.add(featureRow(10000, true));
+    metrics.merge(other);
+
+    assertThat(metrics.getReferenceTime(), equalTo(10000L));
+    DistributionSketch rowAge = metrics.getRowAge();
+    assertThat(rowAge.getCount(), equalTo(5L));
+    assertThat(rowAge.getMin(), equalTo(0d));
+    assertThat(rowAge.getMax(), equalTo(9000d));
+    assertThat(rowAge.getMean(), equalTo((5000 + 1000 + 9000 + 7000 + 0) / 5d));
+    assertThat(rowAge.getPercentiles(50)[0], equalTo(5000d));
+    DistributionSketch featureAge = metrics.getFeatureNameToAge().get("feature");
+    assertThat(featureAge.getCount(), equalTo(4L));
+    assertThat(featureAge.getMin(), equalTo(0d));
+    assertThat(featureAge.getMax(), equalTo(9000d));
+    assertThat(metrics.getFeatureNameToMissingCount().get("feature"), equalTo(1L));
+  }
+
+  @Test
+  public void shouldKeepAgesAtLatestEventTimeWhenMergingIntoEmptyMetrics() {
+    FeatureRowMetrics metrics = new FeatureRowMetrics();
+    FeatureRowMetrics other = new FeatureRowMetrics();
+    other.add(featureRow(2000, true));
+    other.add(featureRow(4000, true));
+    metrics.merge(other);
+    metrics.merge(new FeatureRowMetrics());
+
+    assertThat(metrics.getReferenceTime(), equalTo(4000L));
+    assertThat(metrics.getRowAge().getMin(), equalTo(0d));
+    assertThat(metrics.getRowAge().getMax(), equalTo(2000d));
+  }
+
+  @Test
+  public void shouldEncodeMetricsWithTheirAnchorAndReferenceTimes() throws Exception {
+    FeatureRowMetrics metrics = new FeatureRowMetrics();
+    metrics.add(featureRow(5000, true));
+    metrics.add(featureRow(9000, false));
+    metrics.add(featureRow(1000, true));
+
+    FeatureRowMetrics decoded = CoderUtils.clone(FeatureRowMetricsCoder.of(), metrics);
+    FeatureRowMetrics other = new FeatureRowMetrics();
+    other.add(featureRow(10000, true));
+    decoded.merge(other);
+
+    assertThat(decoded.getReferenceTime(), equalTo(10000L));
+    assertThat(decoded.getRowAge().getCount(), equalTo(4L));
+    assertThat(decoded.getRowAge().getMin(), equalTo(0d));
+    assertThat(decoded.getRowAge().getMax(), equalTo(9000d));
+    assertThat(decoded.getFeatureNameToAge().get("feature").getMax(), equalTo(9000d));
+    assertThat(decoded.getFeatureNameToMissingCount().get("feature"), equalTo(1L));
+  }
+
+  private static FeatureRow featureRow(long eventTimeMillis, boolean hasValue) {
+    Value value = hasValue ? Value.newBuilder().setInt64Val(1).build() : Value.getDefaultInstance();
+    return FeatureRow.newBuilder()
+        .setEventTimestamp(Timestamps.fromMillis(eventTimeMillis))
+        .addFields(Field.newBuilder().setName("feature").setValue(value))
+        .build();
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Test;
+
+public class FeatureValueSketchesFnTest {
+
+  @Test
+  public void shouldNotShareSketchesOfMergedAccumulators() {
+    FeatureValueSketchesFn fn = new FeatureValueSketchesFn();
+    Map<String, DistributionSketch> accumulator = fn.createAccumulator();
+    Map<String, DistributionSketch> other = fn.addInput(fn.createAccumulator(), featureRow(2));
+
+    Map<String, DistributionSketch> merged =
+        fn.mergeAccumulators(Arrays.asList(accumulator, other));
+    fn.addInput(merged, featureRow(8));
+
+    assertThat(merged.get("feature").getCount(), equalTo(2L));
+    assertThat(other.get("feature").getCount(), equalTo(1L));
+    assertThat(other.get("feature").getMax(), equalTo(2d));
+  }
+
+  private static FeatureRow featureRow(long value) {
+    return FeatureRow.newBuilder()
+        .addFields(
+            Field.newBuilder().setName("feature").setValue(Value.newBuilder().setInt64Val(value)))
+        .build();
+  }
+}
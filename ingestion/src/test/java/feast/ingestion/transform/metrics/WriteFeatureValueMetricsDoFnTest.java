@@ -48,8 +48,10 @@ import java.util.Map.Entry;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.KV;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -69,8 +71,16 @@ public class WriteFeatureValueMetricsDoFnTest {
     List<String> expectedLines =
         readTestOutput("feast/ingestion/transform/WriteFeatureValueMetricsDoFnTest.output");
 
+    List<KV<String, FeatureRow>> rowsByRef = new ArrayList<>();
+    for (Entry<String, Iterable<FeatureRow>> entry : input.entrySet()) {
+      for (FeatureRow row : entry.getValue()) {
+        rowsByRef.add(KV.of(entry.getKey(), row));
+      }
+    }
+
     pipeline
-        .apply(Create.of(input))
+        .apply(Create.of(rowsByRef))
+        .apply(Combine.perKey(new FeatureValueSketchesFn()))
         .apply(
             ParDo.of(
                 WriteFeatureValueMetricsDoFn.newBuilder()
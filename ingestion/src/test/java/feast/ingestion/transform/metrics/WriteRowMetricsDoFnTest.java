@@ -26,13 +26,17 @@ import java.io.IOException;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.Create;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.KV;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -51,8 +55,16 @@ public class WriteRowMetricsDoFnTest {
     List<String> expectedLines =
         readTestOutput("feast/ingestion/transform/WriteRowMetricsDoFnTest.output");
 
+    List<KV<String, FeatureRow>> rowsByRef = new ArrayList<>();
+    for (Entry<String, Iterable<FeatureRow>> entry : input.entrySet()) {
+      for (FeatureRow row : entry.getValue()) {
+        rowsByRef.add(KV.of(entry.getKey(), row));
+      }
+    }
+
     pipeline
-        .apply(Create.of(input))
+        .apply(Create.of(rowsByRef))
+        .apply(Combine.perKey(new FeatureRowMetricsFn()))
         .apply(
             ParDo.of(
                 WriteRowMetricsDoFn.newBuilder()
@@ -22,12 +22,21 @@ import feast.proto.serving.ServingAPIProto.GetFeastServingInfoResponse;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldColumn;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldColumns;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldStatus;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldValues;
 import feast.proto.serving.ServingServiceGrpc;
 import feast.proto.serving.ServingServiceGrpc.ServingServiceBlockingStub;
+import feast.proto.types.ValueProto.Value;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -117,43 +126,132 @@ public class FeastClient implements AutoCloseable {
    */
   public List<Row> getOnlineFeatures(
       List<String> featureRefs, List<Row> rows, String project, boolean omitEntitiesInResponse) {
+    GetOnlineFeaturesResponse response =
+        stub.getOnlineFeatures(
+            buildOnlineFeaturesRequest(featureRefs, rows, project, omitEntitiesInResponse));
+
+    return toRows(response);
+  }
+
+  /**
+   * Stream online features from Feast.
+   *
+   * <p>See {@link #getOnlineFeaturesStream(List, List, String, boolean)}
+   *
+   * @param featureRefs list of string feature references to retrieve in the following format
+   *     featureSet:feature, where 'featureSet' and 'feature' refer to the FeatureSet and Feature
+   *     names respectively. Only the Feature name is required.
+   * @param rows list of {@link Row} to select the entities to retrieve the features for
+   * @return iterator of {@link Row} containing retrieved data fields.
+   */
+  public Iterator<Row> getOnlineFeaturesStream(List<String> featureRefs, List<Row> rows) {
+    return getOnlineFeaturesStream(featureRefs, rows, "", false);
+  }
+
+  /**
+   * Stream online features from Feast, for requests with a large no. of rows.
+   *
+   * <p>Feast serving retrieves the rows in chunks, and sends each chunk as the returned iterator
+   * consumes the previous ones, so the full result is never held in memory at once. Rows are
+   * returned in the order of the given rows. Errors while retrieving a chunk are thrown by the
+   * iterator as {@link io.grpc.StatusRuntimeException}.
+   *
+   * @param featureRefs list of string feature references to retrieve in the following format
+   *     featureSet:feature, where 'featureSet' and 'feature' refer to the FeatureSet and Feature
+   *     names respectively. Only the Feature name is required.
+   * @param rows list of {@link Row} to select the entities to retrieve the features for
+   * @param project {@link String} Specifies the project override. If specifed uses the project for
+   *     retrieval. Overrides the projects set in Feature References if also specified.
+   * @param omitEntitiesInResponse if true, the returned {@link Row} will not contain field and
+   *     value for the entity
+   * @return iterator of {@link Row} containing retrieved data fields.
+   */
+  public Iterator<Row> getOnlineFeaturesStream(
+      List<String> featureRefs, List<Row> rows, String project, boolean omitEntitiesInResponse) {
+    Iterator<GetOnlineFeaturesResponse> responses =
+        stub.getOnlineFeaturesStream(
+            buildOnlineFeaturesRequest(featureRefs, rows, project, omitEntitiesInResponse));
+
+    return new Iterator<Row>() {
+      private Iterator<Row> rows = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!rows.hasNext() && responses.hasNext()) {
+          rows = toRows(responses.next()).iterator();
+        }
+        return rows.hasNext();
+      }
+
+      @Override
+      public Row next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return rows.next();
+      }
+    };
+  }
+
+  private static GetOnlineFeaturesRequest buildOnlineFeaturesRequest(
+      List<String> featureRefs, List<Row> rows, String project, boolean omitEntitiesInResponse) {
     List<FeatureReference> features = RequestUtil.createFeatureRefs(featureRefs);
-    // build entity rows and collect entity references
-    HashSet<String> entityRefs = new HashSet<>();
     List<EntityRow> entityRows =
         rows.stream()
             .map(
-                row -> {
-                  entityRefs.addAll(row.getFields().keySet());
-                  return EntityRow.newBuilder()
-                      .setEntityTimestamp(row.getEntityTimestamp())
-                      .putAllFields(row.getFields())
-                      .build();
-                })
+                row ->
+                    EntityRow.newBuilder()
+                        .setEntityTimestamp(row.getEntityTimestamp())
+                        .putAllFields(row.getFields())
+                        .build())
             .collect(Collectors.toList());
 
-    GetOnlineFeaturesResponse response =
-        stub.getOnlineFeatures(
-            GetOnlineFeaturesRequest.newBuilder()
-                .addAllFeatures(features)
-                .addAllEntityRows(entityRows)
-                .setProject(project)
-                .setOmitEntitiesInResponse(omitEntitiesInResponse)
-                .build());
-
-    return response.getFieldValuesList().stream()
-        .map(
-            fieldValues -> {
-              Row row = Row.create();
-              for (String fieldName : fieldValues.getFieldsMap().keySet()) {
-                row.set(
-                    fieldName,
-                    fieldValues.getFieldsMap().get(fieldName),
-                    fieldValues.getStatusesMap().get(fieldName));
-              }
-              return row;
-            })
-        .collect(Collectors.toList());
+    return GetOnlineFeaturesRequest.newBuilder()
+        .addAllFeatures(features)
+        .addAllEntityRows(entityRows)
+        .setProject(project)
+        .setOmitEntitiesInResponse(omitEntitiesInResponse)
+        .setColumnarResponse(true)
+        .build();
+  }
+
+  /**
+   * Convert the given response to rows, from either the columnar or the per row field values.
+   * Fields with an INVALID status in columnar responses are absent from the entity row, and are
+   * left out of the converted row.
+   */
+  private static List<Row> toRows(GetOnlineFeaturesResponse response) {
+    if (!response.hasFieldColumns()) {
+      List<Row> rows = new ArrayList<>(response.getFieldValuesCount());
+      for (FieldValues fieldValues : response.getFieldValuesList()) {
+        Row row = Row.create();
+        for (Map.Entry<String, Value> field : fieldValues.getFieldsMap().entrySet()) {
+          row.setField(
+              field.getKey(), field.getValue(), fieldValues.getStatusesMap().get(field.getKey()));
+        }
+        rows.add(row);
+      }
+      return rows;
+    }
+
+    FieldColumns fieldColumns = response.getFieldColumns();
+    int rowCount =
+        (fieldColumns.getColumnsCount() == 0) ? 0 : fieldColumns.getColumns(0).getValuesCount();
+    List<Row> rows = new ArrayList<>(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      rows.add(Row.create());
+    }
+    for (int j = 0; j < fieldColumns.getColumnsCount(); j++) {
+      String fieldName = fieldColumns.getFieldNames(j);
+      FieldColumn column = fieldColumns.getColumns(j);
+      for (int i = 0; i < rowCount; i++) {
+        FieldStatus status = column.getStatuses(i);
+        if (status != FieldStatus.INVALID) {
+          rows.get(i).setField(fieldName, column.getValues(i), status);
+        }
+      }
+    }
+    return rows;
   }
 
   protected FeastClient(ManagedChannel channel) {
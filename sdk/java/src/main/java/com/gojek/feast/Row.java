@@ -97,6 +97,20 @@ public class Row {
     return this;
   }
 
+  /**
+   * Set a field retrieved from Feast, without converting the value.
+   *
+   * @param fieldName name of the field.
+   * @param value value of the field.
+   * @param status status of the field.
+   * @return this row.
+   */
+  Row setField(String fieldName, Value value, FieldStatus status) {
+    fields.put(fieldName, value);
+    fieldStatuses.put(fieldName, status);
+    return this;
+  }
+
   public Map<String, Value> getFields() {
     return fields;
   }
@@ -25,6 +25,8 @@ import feast.proto.serving.ServingAPIProto.FeatureReference;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldColumn;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldColumns;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldStatus;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldValues;
 import feast.proto.serving.ServingServiceGrpc.ServingServiceImplBase;
@@ -36,8 +38,10 @@ import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.stub.StreamObserver;
 import io.grpc.testing.GrpcCleanupRule;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
@@ -62,6 +66,22 @@ public class FeastClientTest {
                   responseObserver.onNext(FeastClientTest.getFakeResponse());
                   responseObserver.onCompleted();
                 }
+
+                @Override
+                public void getOnlineFeaturesStream(
+                    GetOnlineFeaturesRequest request,
+                    StreamObserver<GetOnlineFeaturesResponse> responseObserver) {
+
+                  if (!request.equals(FeastClientTest.getFakeRequest())) {
+                    responseObserver.onError(Status.FAILED_PRECONDITION.asRuntimeException());
+                  }
+
+                  // respond in several chunks of both formats, including an empty one
+                  responseObserver.onNext(FeastClientTest.getFakeResponse());
+                  responseObserver.onNext(GetOnlineFeaturesResponse.getDefaultInstance());
+                  responseObserver.onNext(FeastClientTest.getFakeColumnarResponse());
+                  responseObserver.onCompleted();
+                }
               }));
   private FeastClient client;
 
@@ -115,6 +135,28 @@ public class FeastClientTest {
         });
   }
 
+  @Test
+  public void shouldStreamOnlineFeatures() {
+    Iterator<Row> rows =
+        this.client.getOnlineFeaturesStream(
+            Arrays.asList("driver:name", "rating", "null_value"),
+            Arrays.asList(
+                Row.create().set("driver_id", 1).setEntityTimestamp(Instant.ofEpochSecond(100))),
+            "driver_project",
+            false);
+
+    List<Row> streamedRows = new ArrayList<>();
+    rows.forEachRemaining(streamedRows::add);
+    assertEquals(2, streamedRows.size());
+    for (Row row : streamedRows) {
+      assertEquals(row.getFields().get("driver:name"), strValue("david"));
+      assertEquals(row.getStatuses().get("null_value"), FieldStatus.NULL_VALUE);
+    }
+    // fields absent from the entity row in the columnar response are left out
+    assertEquals(4, streamedRows.get(0).getFields().size());
+    assertEquals(3, streamedRows.get(1).getFields().size());
+  }
+
   private static GetOnlineFeaturesRequest getFakeRequest() {
     // setup mock serving service stub
     return GetOnlineFeaturesRequest.newBuilder()
@@ -126,6 +168,7 @@ public class FeastClientTest {
                 .setEntityTimestamp(Timestamp.newBuilder().setSeconds(100))
                 .putFields("driver_id", intValue(1)))
         .setProject("driver_project")
+        .setColumnarResponse(true)
         .build();
   }
 
@@ -145,6 +188,33 @@ public class FeastClientTest {
         .build();
   }
 
+  private static GetOnlineFeaturesResponse getFakeColumnarResponse() {
+    return GetOnlineFeaturesResponse.newBuilder()
+        .setFieldColumns(
+            FieldColumns.newBuilder()
+                .addFieldNames("driver_id")
+                .addColumns(
+                    FieldColumn.newBuilder()
+                        .addValues(Value.newBuilder().build())
+                        .addStatuses(FieldStatus.INVALID))
+                .addFieldNames("driver:name")
+                .addColumns(
+                    FieldColumn.newBuilder()
+                        .addValues(strValue("david"))
+                        .addStatuses(FieldStatus.PRESENT))
+                .addFieldNames("rating")
+                .addColumns(
+                    FieldColumn.newBuilder()
+                        .addValues(intValue(3))
+                        .addStatuses(FieldStatus.PRESENT))
+                .addFieldNames("null_value")
+                .addColumns(
+                    FieldColumn.newBuilder()
+                        .addValues(Value.newBuilder().build())
+                        .addStatuses(FieldStatus.NULL_VALUE)))
+        .build();
+  }
+
   private static Value strValue(String val) {
     return Value.newBuilder().setStringVal(val).build();
   }
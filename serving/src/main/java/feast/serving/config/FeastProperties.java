@@ -42,6 +42,7 @@ import javax.validation.ValidatorFactory;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 import org.apache.logging.log4j.core.config.plugins.validation.constraints.ValidHost;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -149,6 +150,9 @@ public class FeastProperties {
   /* Metric tracing properties. */
   private TracingProperties tracing;
 
+  /* Online serving properties. */
+  private OnlineServingProperties onlineServing = new OnlineServingProperties();
+
   /* Feast Audit Logging properties */
   @NotNull private LoggingProperties logging;
 
@@ -259,7 +263,7 @@ public class FeastProperties {
     }
 
     /**
-     * Gets the store type. Example are REDIS or BIGQUERY
+     * Gets the store type. Example are REDIS, EMBEDDED or BIGQUERY
      *
      * @return the store type as a String.
      */
@@ -310,6 +314,11 @@ public class FeastProperties {
               StoreProto.Store.RedisConfig.newBuilder();
           JsonFormat.parser().merge(jsonWriter.writeValueAsString(config), redisConfig);
           return storeProtoBuilder.setRedisConfig(redisConfig.build()).build();
+        case EMBEDDED:
+          StoreProto.Store.EmbeddedConfig.Builder embeddedConfig =
+              StoreProto.Store.EmbeddedConfig.newBuilder();
+          JsonFormat.parser().merge(jsonWriter.writeValueAsString(config), embeddedConfig);
+          return storeProtoBuilder.setEmbeddedConfig(embeddedConfig.build()).build();
         case BIGQUERY:
           StoreProto.Store.BigQueryConfig.Builder bqConfig =
               StoreProto.Store.BigQueryConfig.newBuilder();
@@ -485,6 +494,24 @@ public class FeastProperties {
     this.tracing = tracing;
   }
 
+  /**
+   * Gets online serving properties
+   *
+   * @return online serving properties
+   */
+  public OnlineServingProperties getOnlineServing() {
+    return onlineServing;
+  }
+
+  /**
+   * Sets the online serving configuration.
+   *
+   * @param onlineServing the online serving properties
+   */
+  public void setOnlineServing(OnlineServingProperties onlineServing) {
+    this.onlineServing = onlineServing;
+  }
+
   /**
    * Gets logging properties
    *
@@ -612,6 +639,296 @@ public class FeastProperties {
     }
   }
 
+  /** Online serving properties */
+  public static class OnlineServingProperties {
+
+    /** Maximum no. of feature set lookups in flight at once for a single request */
+    @Positive private int maxConcurrentLookups = 16;
+
+    /** Deadline in milliseconds for all feature set lookups of a single request, 0 to disable */
+    @PositiveOrZero private long lookupTimeoutMillis = 0;
+
+    /** Maximum no. of entity rows in each response of a streamed online features request */
+    @Positive private int streamChunkSize = 1000;
+
+    /** No. of threads decoding and batching online store lookups, 0 for one per processor */
+    @PositiveOrZero private int executorThreads = 0;
+
+    /** Near cache of feature rows in front of the online store */
+    private NearCacheProperties nearCache = new NearCacheProperties();
+
+    /** Coalescing of concurrent lookups of the same entity keys */
+    private CoalescingProperties coalescing = new CoalescingProperties();
+
+    /**
+     * Gets the maximum no. of feature set lookups in flight at once for a single request.
+     *
+     * @return the maximum no. of concurrent lookups
+     */
+    public int getMaxConcurrentLookups() {
+      return maxConcurrentLookups;
+    }
+
+    /**
+     * Sets the maximum no. of feature set lookups in flight at once for a single request.
+     *
+     * @param maxConcurrentLookups the maximum no. of concurrent lookups
+     */
+    public void setMaxConcurrentLookups(int maxConcurrentLookups) {
+      this.maxConcurrentLookups = maxConcurrentLookups;
+    }
+
+    /**
+     * Gets the deadline in milliseconds for all feature set lookups of a single request.
+     *
+     * @return the lookup timeout in milliseconds, 0 if disabled
+     */
+    public long getLookupTimeoutMillis() {
+      return lookupTimeoutMillis;
+    }
+
+    /**
+     * Sets the deadline in milliseconds for all feature set lookups of a single request.
+     *
+     * @param lookupTimeoutMillis the lookup timeout in milliseconds, 0 to disable
+     */
+    public void setLookupTimeoutMillis(long lookupTimeoutMillis) {
+      this.lookupTimeoutMillis = lookupTimeoutMillis;
+    }
+
+    /**
+     * Gets the maximum no. of entity rows in each response of a streamed online features request.
+     *
+     * @return the stream chunk size
+     */
+    public int getStreamChunkSize() {
+      return streamChunkSize;
+    }
+
+    /**
+     * Sets the maximum no. of entity rows in each response of a streamed online features request.
+     *
+     * @param streamChunkSize the stream chunk size
+     */
+    public void setStreamChunkSize(int streamChunkSize) {
+      this.streamChunkSize = streamChunkSize;
+    }
+
+    /**
+     * Gets the no. of threads decoding and batching online store lookups.
+     *
+     * @return the no. of executor threads, 0 for one per available processor
+     */
+    public int getExecutorThreads() {
+      return executorThreads;
+    }
+
+    /**
+     * Sets the no. of threads decoding and batching online store lookups.
+     *
+     * @param executorThreads the no. of executor threads, 0 for one per available processor
+     */
+    public void setExecutorThreads(int executorThreads) {
+      this.executorThreads = executorThreads;
+    }
+
+    /**
+     * Gets the near cache properties.
+     *
+     * @return the near cache properties
+     */
+    public NearCacheProperties getNearCache() {
+      return nearCache;
+    }
+
+    /**
+     * Sets the near cache properties.
+     *
+     * @param nearCache the near cache properties
+     */
+    public void setNearCache(NearCacheProperties nearCache) {
+      this.nearCache = nearCache;
+    }
+
+    /**
+     * Gets the coalescing properties.
+     *
+     * @return the coalescing properties
+     */
+    public CoalescingProperties getCoalescing() {
+      return coalescing;
+    }
+
+    /**
+     * Sets the coalescing properties.
+     *
+     * @param coalescing the coalescing properties
+     */
+    public void setCoalescing(CoalescingProperties coalescing) {
+      this.coalescing = coalescing;
+    }
+
+    /** In-process near cache of feature rows retrieved from the online store */
+    public static class NearCacheProperties {
+
+      /** Near cache enabled/disabled */
+      private boolean enabled = false;
+
+      /** Maximum no. of feature rows to cache */
+      @Positive private long maxSize = 100000;
+
+      /** Time to live of a cached feature row in milliseconds, capped by feature set max age */
+      @Positive private long ttlMillis = 1000;
+
+      /**
+       * Time to live in milliseconds overriding ttlMillis for each feature set reference, 0 to not
+       * cache the feature set
+       */
+      private Map<String, Long> featureSetTtlMillis = new HashMap<>();
+
+      /**
+       * Is the near cache enabled
+       *
+       * @return boolean flag
+       */
+      public boolean isEnabled() {
+        return enabled;
+      }
+
+      /**
+       * Sets the near cache enabled or disabled.
+       *
+       * @param enabled flag
+       */
+      public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+      }
+
+      /**
+       * Gets the maximum no. of feature rows to cache.
+       *
+       * @return the maximum no. of feature rows
+       */
+      public long getMaxSize() {
+        return maxSize;
+      }
+
+      /**
+       * Sets the maximum no. of feature rows to cache.
+       *
+       * @param maxSize the maximum no. of feature rows
+       */
+      public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+      }
+
+      /**
+       * Gets the time to live of a cached feature row in milliseconds.
+       *
+       * @return the time to live in milliseconds
+       */
+      public long getTtlMillis() {
+        return ttlMillis;
+      }
+
+      /**
+       * Sets the time to live of a cached feature row in milliseconds.
+       *
+       * @param ttlMillis the time to live in milliseconds
+       */
+      public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+      }
+
+      /**
+       * Gets the time to live in milliseconds overriding the default one for each feature set
+       * reference.
+       *
+       * @return the time to live in milliseconds of each feature set reference
+       */
+      public Map<String, Long> getFeatureSetTtlMillis() {
+        return featureSetTtlMillis;
+      }
+
+      /**
+       * Sets the time to live in milliseconds overriding the default one for each feature set
+       * reference.
+       *
+       * @param featureSetTtlMillis the time to live in milliseconds of each feature set reference
+       */
+      public void setFeatureSetTtlMillis(Map<String, Long> featureSetTtlMillis) {
+        this.featureSetTtlMillis = featureSetTtlMillis;
+      }
+    }
+
+    /** Coalescing and micro-batching of concurrent lookups to the online store */
+    public static class CoalescingProperties {
+
+      /** Coalescing enabled/disabled */
+      private boolean enabled = false;
+
+      /** Time in microseconds to wait for lookups to batch together, 0 to disable batching */
+      @PositiveOrZero private long windowMicros = 200;
+
+      /** Maximum no. of entity rows in a batched lookup */
+      @Positive private int maxBatchSize = 1000;
+
+      /**
+       * Is coalescing enabled
+       *
+       * @return boolean flag
+       */
+      public boolean isEnabled() {
+        return enabled;
+      }
+
+      /**
+       * Sets coalescing enabled or disabled.
+       *
+       * @param enabled flag
+       */
+      public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+      }
+
+      /**
+       * Gets the time in microseconds to wait for lookups to batch together.
+       *
+       * @return the batching window in microseconds
+       */
+      public long getWindowMicros() {
+        return windowMicros;
+      }
+
+      /**
+       * Sets the time in microseconds to wait for lookups to batch together.
+       *
+       * @param windowMicros the batching window in microseconds, 0 to disable batching
+       */
+      public void setWindowMicros(long windowMicros) {
+        this.windowMicros = windowMicros;
+      }
+
+      /**
+       * Gets the maximum no. of entity rows in a batched lookup.
+       *
+       * @return the maximum batch size
+       */
+      public int getMaxBatchSize() {
+        return maxBatchSize;
+      }
+
+      /**
+       * Sets the maximum no. of entity rows in a batched lookup.
+       *
+       * @param maxBatchSize the maximum batch size
+       */
+      public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+      }
+    }
+  }
+
   /**
    * Validates all FeastProperties. This method runs after properties have been initialized and
    * individually and conditionally validates each class.
@@ -627,6 +944,23 @@ public class FeastProperties {
       throw new ConstraintViolationException(violations);
     }
 
+    // Validate OnlineServingProperties
+    Set<ConstraintViolation<OnlineServingProperties>> onlineServingPropsViolations =
+        validator.validate(getOnlineServing());
+    if (!onlineServingPropsViolations.isEmpty()) {
+      throw new ConstraintViolationException(onlineServingPropsViolations);
+    }
+    Set<ConstraintViolation<OnlineServingProperties.NearCacheProperties>> nearCachePropsViolations =
+        validator.validate(getOnlineServing().getNearCache());
+    if (!nearCachePropsViolations.isEmpty()) {
+      throw new ConstraintViolationException(nearCachePropsViolations);
+    }
+    Set<ConstraintViolation<OnlineServingProperties.CoalescingProperties>>
+        coalescingPropsViolations = validator.validate(getOnlineServing().getCoalescing());
+    if (!coalescingPropsViolations.isEmpty()) {
+      throw new ConstraintViolationException(coalescingPropsViolations);
+    }
+
     // Validate CoreAuthenticationProperties
     Set<ConstraintViolation<CoreAuthenticationProperties>> coreAuthenticationPropsViolations =
         validator.validate(getCoreAuthentication());
@@ -17,8 +17,11 @@
 package feast.serving.config;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.InvalidProtocolBufferException;
 import feast.proto.core.StoreProto;
+import feast.serving.retriever.CoalescingOnlineRetriever;
+import feast.serving.retriever.NearCacheOnlineRetriever;
 import feast.serving.service.HistoricalServingService;
 import feast.serving.service.JobService;
 import feast.serving.service.NoopJobService;
@@ -28,10 +31,13 @@ import feast.serving.specs.CachedSpecService;
 import feast.storage.api.retriever.HistoricalRetriever;
 import feast.storage.api.retriever.OnlineRetriever;
 import feast.storage.connectors.bigquery.retriever.BigQueryHistoricalRetriever;
+import feast.storage.connectors.embedded.retriever.EmbeddedOnlineRetriever;
 import feast.storage.connectors.redis.retriever.RedisClusterOnlineRetriever;
 import feast.storage.connectors.redis.retriever.RedisOnlineRetriever;
 import io.opentracing.Tracer;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import org.slf4j.Logger;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -52,15 +58,46 @@ public class ServingServiceConfig {
     FeastProperties.Store store = feastProperties.getActiveStore();
     StoreProto.Store.StoreType storeType = store.toProto().getType();
     Map<String, String> config = store.getConfig();
+    FeastProperties.OnlineServingProperties onlineServing = feastProperties.getOnlineServing();
+    // Threads are only started once the executor is used by an online store.
+    ScheduledExecutorService executor = onlineServingExecutor(onlineServing);
 
     switch (storeType) {
       case REDIS_CLUSTER:
-        OnlineRetriever redisClusterRetriever = RedisClusterOnlineRetriever.create(config);
-        servingService = new OnlineServingService(redisClusterRetriever, specService, tracer);
+        OnlineRetriever redisClusterRetriever =
+            withOnlineServingLayers(
+                RedisClusterOnlineRetriever.create(config, executor), onlineServing, executor);
+        servingService =
+            new OnlineServingService(
+                redisClusterRetriever,
+                specService,
+                tracer,
+                onlineServing.getMaxConcurrentLookups(),
+                onlineServing.getLookupTimeoutMillis());
         break;
       case REDIS:
-        OnlineRetriever redisRetriever = RedisOnlineRetriever.create(config);
-        servingService = new OnlineServingService(redisRetriever, specService, tracer);
+        OnlineRetriever redisRetriever =
+            withOnlineServingLayers(
+                RedisOnlineRetriever.create(config, executor), onlineServing, executor);
+        servingService =
+            new OnlineServingService(
+                redisRetriever,
+                specService,
+                tracer,
+                onlineServing.getMaxConcurrentLookups(),
+                onlineServing.getLookupTimeoutMillis());
+        break;
+      case EMBEDDED:
+        OnlineRetriever embeddedRetriever =
+            withOnlineServingLayers(
+                EmbeddedOnlineRetriever.create(config), onlineServing, executor);
+        servingService =
+            new OnlineServingService(
+                embeddedRetriever,
+                specService,
+                tracer,
+                onlineServing.getMaxConcurrentLookups(),
+                onlineServing.getLookupTimeoutMillis());
         break;
       case BIGQUERY:
         if (jobService.getClass() == NoopJobService.class) {
@@ -81,4 +118,61 @@ public class ServingServiceConfig {
 
     return servingService;
   }
+
+  private static ScheduledExecutorService onlineServingExecutor(
+      FeastProperties.OnlineServingProperties onlineServing) {
+    int threads = onlineServing.getExecutorThreads();
+    if (threads == 0) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    return Executors.newScheduledThreadPool(
+        threads,
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("feast-online-serving-%d")
+            .build());
+  }
+
+  private static OnlineRetriever withOnlineServingLayers(
+      OnlineRetriever retriever,
+      FeastProperties.OnlineServingProperties onlineServing,
+      ScheduledExecutorService executor) {
+    return withNearCache(withCoalescing(retriever, onlineServing, executor), onlineServing);
+  }
+
+  private static OnlineRetriever withCoalescing(
+      OnlineRetriever retriever,
+      FeastProperties.OnlineServingProperties onlineServing,
+      ScheduledExecutorService executor) {
+    FeastProperties.OnlineServingProperties.CoalescingProperties coalescing =
+        onlineServing.getCoalescing();
+    if (!coalescing.isEnabled()) {
+      return retriever;
+    }
+    log.info(
+        "Enabling coalescing of online lookups with window of {}us and batches of up to {} rows",
+        coalescing.getWindowMicros(),
+        coalescing.getMaxBatchSize());
+    return new CoalescingOnlineRetriever(
+        retriever, executor, coalescing.getWindowMicros(), coalescing.getMaxBatchSize());
+  }
+
+  private static OnlineRetriever withNearCache(
+      OnlineRetriever retriever, FeastProperties.OnlineServingProperties onlineServing) {
+    FeastProperties.OnlineServingProperties.NearCacheProperties nearCache =
+        onlineServing.getNearCache();
+    if (!nearCache.isEnabled()) {
+      return retriever;
+    }
+    log.info(
+        "Enabling near cache of up to {} feature rows with ttl of {}ms, overridden for {}",
+        nearCache.getMaxSize(),
+        nearCache.getTtlMillis(),
+        nearCache.getFeatureSetTtlMillis());
+    return new NearCacheOnlineRetriever(
+        retriever,
+        nearCache.getMaxSize(),
+        nearCache.getTtlMillis(),
+        nearCache.getFeatureSetTtlMillis());
+  }
 }
@@ -34,12 +34,15 @@ import feast.serving.interceptors.GrpcMonitoringInterceptor;
 import feast.serving.service.ServingService;
 import feast.serving.util.RequestHelper;
 import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
@@ -54,6 +57,7 @@ public class ServingServiceGRpcController extends ServingServiceImplBase {
       org.slf4j.LoggerFactory.getLogger(ServingServiceGRpcController.class);
   private final ServingService servingService;
   private final String version;
+  private final int streamChunkSize;
   private final Tracer tracer;
   private final AuthorizationService authorizationService;
 
@@ -66,6 +70,7 @@ public class ServingServiceGRpcController extends ServingServiceImplBase {
     this.authorizationService = authorizationService;
     this.servingService = servingService;
     this.version = feastProperties.getVersion();
+    this.streamChunkSize = feastProperties.getOnlineServing().getStreamChunkSize();
     this.tracer = tracer;
   }
 
@@ -85,36 +90,103 @@ public class ServingServiceGRpcController extends ServingServiceImplBase {
       StreamObserver<GetOnlineFeaturesResponse> responseObserver) {
     Span span = tracer.buildSpan("getOnlineFeatures").start();
     try (Scope scope = tracer.scopeManager().activate(span, false)) {
-      // authorize for the project in request object.
-      if (request.getProject() != null && !request.getProject().isEmpty()) {
-        // project set at root level overrides the project set at feature set level
-        this.authorizationService.authorizeRequest(
-            SecurityContextHolder.getContext(), request.getProject());
-      } else {
-        // authorize for projects set in feature list, backward compatibility for
-        // <=v0.5.X
-        this.checkProjectAccess(request.getFeaturesList());
-      }
+      authorizeOnlineRequest(request);
       RequestHelper.validateOnlineRequest(request);
       GetOnlineFeaturesResponse onlineFeatures = servingService.getOnlineFeatures(request);
       responseObserver.onNext(onlineFeatures);
       responseObserver.onCompleted();
-    } catch (SpecRetrievalException e) {
+    } catch (Exception e) {
+      onOnlineFeaturesError(responseObserver, e);
+    }
+    span.finish();
+  }
+
+  @Override
+  public void getOnlineFeaturesStream(
+      GetOnlineFeaturesRequest request,
+      StreamObserver<GetOnlineFeaturesResponse> responseObserver) {
+    Span span = tracer.buildSpan("getOnlineFeaturesStream").start();
+    // The span is finished by whichever of completion, failure or cancellation of the call happens
+    // first, as the call may still be cancelled after it completed.
+    AtomicBoolean spanFinished = new AtomicBoolean(false);
+    Runnable finishSpan =
+        () -> {
+          if (spanFinished.compareAndSet(false, true)) {
+            span.finish();
+          }
+        };
+    try (Scope scope = tracer.scopeManager().activate(span, false)) {
+      authorizeOnlineRequest(request);
+      RequestHelper.validateOnlineRequest(request);
+      Iterator<GetOnlineFeaturesResponse> responses =
+          servingService.getOnlineFeaturesStream(request, streamChunkSize);
+      // Send each chunk only when the client is ready to receive it, so that chunks are retrieved
+      // at the pace the client consumes them instead of being buffered in memory.
+      ServerCallStreamObserver<GetOnlineFeaturesResponse> serverCallObserver =
+          (ServerCallStreamObserver<GetOnlineFeaturesResponse>) responseObserver;
+      serverCallObserver.setOnCancelHandler(finishSpan);
+      serverCallObserver.setOnReadyHandler(
+          new Runnable() {
+            private boolean done = false;
+
+            @Override
+            public void run() {
+              if (done) {
+                return;
+              }
+              try {
+                while (serverCallObserver.isReady()
+                    && !serverCallObserver.isCancelled()
+                    && responses.hasNext()) {
+                  serverCallObserver.onNext(responses.next());
+                }
+                if (!responses.hasNext() && !serverCallObserver.isCancelled()) {
+                  done = true;
+                  serverCallObserver.onCompleted();
+                  finishSpan.run();
+                }
+              } catch (Exception e) {
+                done = true;
+                onOnlineFeaturesError(serverCallObserver, e);
+                finishSpan.run();
+              }
+            }
+          });
+    } catch (Exception e) {
+      onOnlineFeaturesError(responseObserver, e);
+      finishSpan.run();
+    }
+  }
+
+  private void authorizeOnlineRequest(GetOnlineFeaturesRequest request) {
+    // authorize for the project in request object.
+    if (request.getProject() != null && !request.getProject().isEmpty()) {
+      // project set at root level overrides the project set at feature set level
+      this.authorizationService.authorizeRequest(
+          SecurityContextHolder.getContext(), request.getProject());
+    } else {
+      // authorize for projects set in feature list, backward compatibility for
+      // <=v0.5.X
+      this.checkProjectAccess(request.getFeaturesList());
+    }
+  }
+
+  private void onOnlineFeaturesError(StreamObserver<?> responseObserver, Exception e) {
+    if (e instanceof SpecRetrievalException) {
       log.error("Failed to retrieve specs in SpecService", e);
       responseObserver.onError(
           Status.NOT_FOUND.withDescription(e.getMessage()).withCause(e).asException());
-    } catch (AccessDeniedException e) {
+    } else if (e instanceof AccessDeniedException) {
       log.info(String.format("User prevented from accessing one of the projects in request"));
       responseObserver.onError(
           Status.PERMISSION_DENIED
               .withDescription(e.getMessage())
               .withCause(e)
               .asRuntimeException());
-    } catch (Exception e) {
+    } else {
       log.warn("Failed to get Online Features", e);
       responseObserver.onError(e);
     }
-    span.finish();
   }
 
   @Override
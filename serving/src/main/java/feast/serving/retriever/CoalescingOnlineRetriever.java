@@ -0,0 +1,250 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.retriever;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import feast.common.models.FeatureSet;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.serving.util.Metrics;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.OnlineRetriever;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Online retriever that coalesces concurrent lookups in front of another {@link OnlineRetriever}.
+ *
+ * <p>Lookups of an entity key of a feature set that is already being retrieved for another request
+ * join the lookup in flight instead of retrieving the key again. Remaining lookups of the same
+ * feature set from concurrent requests are batched together for up to the configured window, or
+ * until the batch is full, and then retrieved from the underlying retriever in a single lookup.
+ *
+ * <p>Lookups are only coalesced with lookups of the same features, so that batches are retrieved
+ * with the requested features only.
+ */
+public class CoalescingOnlineRetriever implements OnlineRetriever {
+
+  // Max no. of feature set specs to retain the entity names of.
+  private static final int MAX_SPEC_COUNT = 1000;
+
+  private final OnlineRetriever retriever;
+  // Executor ending the window of pending batches and retrieving them.
+  private final ScheduledExecutorService executor;
+  private final long windowNanos;
+  private final int maxBatchSize;
+
+  // Lookups in flight by entity key and requested features, completed once the batch of the
+  // lookup is retrieved.
+  private final Map<ProjectedKey, CompletableFuture<Optional<FeatureRow>>> inFlight =
+      new ConcurrentHashMap<>();
+
+  // Batches waiting for their window to end, by feature set request. Guarded by itself.
+  private final Map<FeatureSetRequest, Batch> pendingBatches = new HashMap<>();
+
+  // Entity names of each feature set spec in key order.
+  private final LoadingCache<FeatureSetSpec, String[]> sortedEntityNames =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_SPEC_COUNT)
+          .build(CacheLoader.from(EntityKey::getSortedEntityNames));
+
+  /**
+   * Create a coalescing retriever in front of the given retriever.
+   *
+   * @param retriever online retriever to retrieve batches of feature rows from.
+   * @param executor executor to retrieve batches on at the end of their window.
+   * @param windowMicros time in microseconds to wait for lookups of the same feature set to batch
+   *     together. Lookups of a single request are still retrieved together if 0.
+   * @param maxBatchSize maximum no. of entity rows to retrieve in a single lookup.
+   */
+  public CoalescingOnlineRetriever(
+      OnlineRetriever retriever,
+      ScheduledExecutorService executor,
+      long windowMicros,
+      int maxBatchSize) {
+    this.retriever = retriever;
+    this.executor = executor;
+    this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<Optional<FeatureRow>> getOnlineFeatures(
+      List<EntityRow> entityRows, FeatureSetRequest featureSetRequest) {
+    return getOnlineFeaturesAsync(entityRows, featureSetRequest).join();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() {
+    retriever.close();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public CompletableFuture<List<Optional<FeatureRow>>> getOnlineFeaturesAsync(
+      List<EntityRow> entityRows, FeatureSetRequest featureSetRequest) {
+    FeatureSetSpec spec = featureSetRequest.getSpec();
+    String featureSetRef = FeatureSet.getFeatureSetStringRef(spec);
+    String[] entityNames = sortedEntityNames.getUnchecked(spec);
+    ImmutableSet<String> featureNames = ProjectedKey.getFeatureNames(featureSetRequest);
+    ProjectedKey[] keys = new ProjectedKey[entityRows.size()];
+    for (int i = 0; i < keys.length; i++) {
+      EntityKey entityKey = EntityKey.of(featureSetRef, entityNames, entityRows.get(i));
+      if (entityKey == null) {
+        // Entity rows without all entities of the feature set cannot be shared between requests.
+        return retriever.getOnlineFeaturesAsync(entityRows, featureSetRequest);
+      }
+      keys[i] = new ProjectedKey(entityKey, featureNames);
+    }
+
+    // Join lookups in flight and collect the entity rows this request has to look up itself.
+    List<CompletableFuture<Optional<FeatureRow>>> futures = new ArrayList<>(keys.length);
+    Batch ownLookups = new Batch(featureSetRequest);
+    for (int i = 0; i < keys.length; i++) {
+      CompletableFuture<Optional<FeatureRow>> future = new CompletableFuture<>();
+      CompletableFuture<Optional<FeatureRow>> inFlightFuture =
+          inFlight.putIfAbsent(keys[i], future);
+      if (inFlightFuture != null) {
+        futures.add(inFlightFuture);
+        continue;
+      }
+      futures.add(future);
+      ownLookups.add(entityRows.get(i), keys[i], future);
+    }
+    Metrics.coalescedLookupCount.labels(featureSetRef).inc(keys.length - ownLookups.size());
+
+    for (Batch batch : enqueue(ownLookups)) {
+      retrieve(batch);
+    }
+
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+        .thenApply(v -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+  }
+
+  /**
+   * Add the given lookups to the pending batch of their feature set.
+   *
+   * @return batches that are full and have to be retrieved now.
+   */
+  private List<Batch> enqueue(Batch lookups) {
+    List<Batch> fullBatches = new ArrayList<>();
+    if (windowNanos <= 0) {
+      Batch batch = new Batch(lookups.request);
+      for (int i = 0; i < lookups.size(); i++) {
+        batch.add(lookups.entityRows.get(i), lookups.keys.get(i), lookups.futures.get(i));
+        if (batch.size() >= maxBatchSize || i == lookups.size() - 1) {
+          fullBatches.add(batch);
+          batch = new Batch(lookups.request);
+        }
+      }
+      return fullBatches;
+    }
+
+    synchronized (pendingBatches) {
+      for (int i = 0; i < lookups.size(); i++) {
+        Batch batch = pendingBatches.get(lookups.request);
+        if (batch == null) {
+          Batch newBatch = new Batch(lookups.request);
+          newBatch.scheduledRetrieval =
+              executor.schedule(
+                  () -> retrieveIfPending(newBatch), windowNanos, TimeUnit.NANOSECONDS);
+          pendingBatches.put(lookups.request, newBatch);
+          batch = newBatch;
+        }
+        batch.add(lookups.entityRows.get(i), lookups.keys.get(i), lookups.futures.get(i));
+        if (batch.size() >= maxBatchSize) {
+          pendingBatches.remove(lookups.request);
+          batch.scheduledRetrieval.cancel(false);
+          fullBatches.add(batch);
+        }
+      }
+    }
+    return fullBatches;
+  }
+
+  /** Retrieve the given batch at the end of its window, unless it was already retrieved. */
+  private void retrieveIfPending(Batch batch) {
+    synchronized (pendingBatches) {
+      if (!pendingBatches.remove(batch.request, batch)) {
+        return;
+      }
+    }
+    retrieve(batch);
+  }
+
+  /** Retrieve the given batch and complete the lookups in it. */
+  private void retrieve(Batch batch) {
+    CompletableFuture<List<Optional<FeatureRow>>> featureRows;
+    try {
+      featureRows = retriever.getOnlineFeaturesAsync(batch.entityRows, batch.request);
+    } catch (RuntimeException e) {
+      featureRows = CompletableFuture.failedFuture(e);
+    }
+
+    featureRows.whenComplete(
+        (rows, error) -> {
+          for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<Optional<FeatureRow>> future = batch.futures.get(i);
+            inFlight.remove(batch.keys.get(i), future);
+            if (error != null) {
+              future.completeExceptionally(error);
+            } else {
+              future.complete(rows.get(i));
+            }
+          }
+        });
+  }
+
+  /** Lookups of entity rows of a feature set request to retrieve together. */
+  private static final class Batch {
+    private final FeatureSetRequest request;
+    private final List<EntityRow> entityRows = new ArrayList<>();
+    private final List<ProjectedKey> keys = new ArrayList<>();
+    private final List<CompletableFuture<Optional<FeatureRow>>> futures = new ArrayList<>();
+    private ScheduledFuture<?> scheduledRetrieval;
+
+    Batch(FeatureSetRequest request) {
+      this.request = request;
+    }
+
+    void add(
+        EntityRow entityRow, ProjectedKey key, CompletableFuture<Optional<FeatureRow>> future) {
+      entityRows.add(entityRow);
+      keys.add(key);
+      futures.add(future);
+    }
+
+    int size() {
+      return entityRows.size();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.retriever;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.types.ValueProto.Value;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Identifies the feature row of an entity in a feature set: the feature set reference and the
+ * encoded values of the entities of the feature set, in the alphabetical order of entity names.
+ */
+final class EntityKey {
+  private final String featureSetRef;
+  private final ByteString entityKey;
+  private final int hashCode;
+
+  private EntityKey(String featureSetRef, ByteString entityKey) {
+    this.featureSetRef = featureSetRef;
+    this.entityKey = entityKey;
+    this.hashCode = 31 * featureSetRef.hashCode() + entityKey.hashCode();
+  }
+
+  /**
+   * Make the key of the given entity row, from the values of the entities of the feature set.
+   *
+   * @param featureSetRef reference of the feature set, eg. "project/feature_set".
+   * @param sortedEntityNames entity names of the feature set, see {@link
+   *     #getSortedEntityNames(FeatureSetSpec)}.
+   * @param entityRow entity row to make the key of.
+   * @return entity key or null if the entity row does not contain all entities of the feature set.
+   */
+  static EntityKey of(String featureSetRef, String[] sortedEntityNames, EntityRow entityRow) {
+    Map<String, Value> fieldsMap = entityRow.getFieldsMap();
+    Value[] values = new Value[sortedEntityNames.length];
+    int size = 0;
+    for (int i = 0; i < sortedEntityNames.length; i++) {
+      values[i] = fieldsMap.get(sortedEntityNames[i]);
+      if (values[i] == null) {
+        return null;
+      }
+      size += CodedOutputStream.computeMessageSizeNoTag(values[i]);
+    }
+
+    byte[] entityKey = new byte[size];
+    CodedOutputStream output = CodedOutputStream.newInstance(entityKey);
+    try {
+      for (Value value : values) {
+        output.writeMessageNoTag(value);
+      }
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new EntityKey(featureSetRef, ByteString.copyFrom(entityKey));
+  }
+
+  /**
+   * Get the entity names of the given feature set spec in key order.
+   *
+   * @param spec feature set spec to get the entity names of.
+   * @return entity names in alphabetical order.
+   */
+  static String[] getSortedEntityNames(FeatureSetSpec spec) {
+    String[] entityNames =
+        spec.getEntitiesList().stream().map(EntitySpec::getName).toArray(String[]::new);
+    Arrays.sort(entityNames);
+    return entityNames;
+  }
+
+  String getFeatureSetRef() {
+    return featureSetRef;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof EntityKey)) {
+      return false;
+    }
+    EntityKey other = (EntityKey) o;
+    return hashCode == other.hashCode
+        && featureSetRef.equals(other.featureSetRef)
+        && entityKey.equals(other.entityKey);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+}
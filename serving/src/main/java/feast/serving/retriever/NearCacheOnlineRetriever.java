@@ -0,0 +1,236 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.retriever;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import feast.common.models.FeatureSet;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.serving.util.Metrics;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.OnlineRetriever;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Online retriever that keeps recently retrieved feature rows in an in-process cache in front of
+ * another {@link OnlineRetriever}, so that lookups of hot entities do not need a round trip to the
+ * online store.
+ *
+ * <p>Entries are keyed by feature set reference, entity key and the names of the requested
+ * features, and hold the feature row retrieved with only those features, so that lookups keep the
+ * projected decoding of the underlying retriever. Rows not found in the online store are cached as
+ * well.
+ *
+ * <p>Entries expire after the time to live of their feature set, which is the configured time to
+ * live unless overridden for the feature set, capped by the max age of the feature set. Feature
+ * sets with a time to live of 0 are not cached. The least valuable entries are evicted once the
+ * cache reaches its maximum size.
+ */
+public class NearCacheOnlineRetriever implements OnlineRetriever {
+
+  // Max no. of feature set specs to retain the entity names of.
+  private static final int MAX_SPEC_COUNT = 1000;
+
+  private final OnlineRetriever retriever;
+  private final long ttlNanos;
+  // Time to live in nanoseconds overriding the default one for each feature set reference.
+  private final Map<String, Long> featureSetTtlNanos = new HashMap<>();
+  private final Cache<ProjectedKey, CachedFeatureRow> cache;
+
+  // Entity names of each feature set spec in key order.
+  private final LoadingCache<FeatureSetSpec, String[]> sortedEntityNames =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_SPEC_COUNT)
+          .build(CacheLoader.from(EntityKey::getSortedEntityNames));
+
+  /**
+   * Create a near cache in front of the given retriever.
+   *
+   * @param retriever online retriever to retrieve feature rows not in the cache from.
+   * @param maximumSize maximum no. of feature rows to cache.
+   * @param ttlMillis time to live of a cached feature row in milliseconds. Capped by the max age of
+   *     the feature set of the feature row if set.
+   */
+  public NearCacheOnlineRetriever(OnlineRetriever retriever, long maximumSize, long ttlMillis) {
+    this(retriever, maximumSize, ttlMillis, Collections.emptyMap());
+  }
+
+  /**
+   * Create a near cache in front of the given retriever, with the time to live of some feature sets
+   * overridden.
+   *
+   * @param retriever online retriever to retrieve feature rows not in the cache from.
+   * @param maximumSize maximum no. of feature rows to cache.
+   * @param ttlMillis time to live of a cached feature row in milliseconds. Capped by the max age of
+   *     the feature set of the feature row if set.
+   * @param featureSetTtlMillis time to live in milliseconds overriding ttlMillis for each feature
+   *     set reference, eg. "project/feature_set", 0 to not cache the feature set.
+   */
+  public NearCacheOnlineRetriever(
+      OnlineRetriever retriever,
+      long maximumSize,
+      long ttlMillis,
+      Map<String, Long> featureSetTtlMillis) {
+    this.retriever = retriever;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    featureSetTtlMillis.forEach(
+        (featureSetRef, millis) ->
+            featureSetTtlNanos.put(featureSetRef, TimeUnit.MILLISECONDS.toNanos(millis)));
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(new CachedFeatureRowExpiry())
+            .removalListener(
+                (ProjectedKey key, CachedFeatureRow row, RemovalCause cause) -> {
+                  if (key != null && cause.wasEvicted()) {
+                    String featureSetRef = key.getEntityKey().getFeatureSetRef();
+                    Metrics.nearCacheEvictionCount.labels(featureSetRef).inc();
+                  }
+                })
+            .build();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<Optional<FeatureRow>> getOnlineFeatures(
+      List<EntityRow> entityRows, FeatureSetRequest featureSetRequest) {
+    return getOnlineFeaturesAsync(entityRows, featureSetRequest).join();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() {
+    retriever.close();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public CompletableFuture<List<Optional<FeatureRow>>> getOnlineFeaturesAsync(
+      List<EntityRow> entityRows, FeatureSetRequest featureSetRequest) {
+    FeatureSetSpec spec = featureSetRequest.getSpec();
+    String featureSetRef = FeatureSet.getFeatureSetStringRef(spec);
+    long rowTtlNanos = getTtlNanos(featureSetRef, spec);
+    if (rowTtlNanos <= 0) {
+      return retriever.getOnlineFeaturesAsync(entityRows, featureSetRequest);
+    }
+
+    // Serve cached feature rows and collect the entity rows that missed the cache.
+    String[] entityNames = sortedEntityNames.getUnchecked(spec);
+    ImmutableSet<String> featureNames = ProjectedKey.getFeatureNames(featureSetRequest);
+    List<Optional<FeatureRow>> featureRows = new ArrayList<>(entityRows.size());
+    List<ProjectedKey> missedKeys = new ArrayList<>();
+    List<Integer> missedIndexes = new ArrayList<>();
+    List<EntityRow> missedEntityRows = new ArrayList<>();
+    for (int i = 0; i < entityRows.size(); i++) {
+      EntityKey entityKey = EntityKey.of(featureSetRef, entityNames, entityRows.get(i));
+      ProjectedKey key = (entityKey == null) ? null : new ProjectedKey(entityKey, featureNames);
+      CachedFeatureRow cachedRow = (key == null) ? null : cache.getIfPresent(key);
+      if (cachedRow != null) {
+        featureRows.add(cachedRow.featureRow);
+        continue;
+      }
+      featureRows.add(Optional.empty());
+      missedKeys.add(key);
+      missedIndexes.add(i);
+      missedEntityRows.add(entityRows.get(i));
+    }
+    Metrics.nearCacheHitCount
+        .labels(featureSetRef)
+        .inc(entityRows.size() - missedEntityRows.size());
+    if (missedEntityRows.isEmpty()) {
+      return CompletableFuture.completedFuture(featureRows);
+    }
+    Metrics.nearCacheMissCount.labels(featureSetRef).inc(missedEntityRows.size());
+
+    // Retrieve the requested features for missed entity rows to populate the cache.
+    return retriever
+        .getOnlineFeaturesAsync(missedEntityRows, featureSetRequest)
+        .thenApply(
+            retrievedRows -> {
+              for (int i = 0; i < retrievedRows.size(); i++) {
+                Optional<FeatureRow> featureRow = retrievedRows.get(i);
+                featureRows.set(missedIndexes.get(i), featureRow);
+                ProjectedKey key = missedKeys.get(i);
+                if (key != null) {
+                  cache.put(key, new CachedFeatureRow(featureRow, rowTtlNanos));
+                }
+              }
+              return featureRows;
+            });
+  }
+
+  /**
+   * Get the time to live of cached feature rows of the given feature set, which is the time to live
+   * configured for the feature set or else the default one, capped by the max age of the feature
+   * set if set.
+   */
+  private long getTtlNanos(String featureSetRef, FeatureSetSpec spec) {
+    long configuredTtlNanos = featureSetTtlNanos.getOrDefault(featureSetRef, ttlNanos);
+    long maxAgeSeconds = spec.getMaxAge().getSeconds();
+    if (maxAgeSeconds <= 0) {
+      return configuredTtlNanos;
+    }
+    return Math.min(configuredTtlNanos, TimeUnit.SECONDS.toNanos(maxAgeSeconds));
+  }
+
+  /** Cached feature row, or empty if not found in the online store, with its time to live. */
+  private static final class CachedFeatureRow {
+    private final Optional<FeatureRow> featureRow;
+    private final long ttlNanos;
+
+    CachedFeatureRow(Optional<FeatureRow> featureRow, long ttlNanos) {
+      this.featureRow = featureRow;
+      this.ttlNanos = ttlNanos;
+    }
+  }
+
+  /** Expires cached feature rows after their time to live since they were last written. */
+  private static final class CachedFeatureRowExpiry
+      implements Expiry<ProjectedKey, CachedFeatureRow> {
+    @Override
+    public long expireAfterCreate(ProjectedKey key, CachedFeatureRow row, long currentTime) {
+      return row.ttlNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        ProjectedKey key, CachedFeatureRow row, long currentTime, long currentDuration) {
+      return row.ttlNanos;
+    }
+
+    @Override
+    public long expireAfterRead(
+        ProjectedKey key, CachedFeatureRow row, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
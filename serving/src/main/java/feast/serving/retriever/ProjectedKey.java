@@ -0,0 +1,74 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.retriever;
+
+import com.google.common.collect.ImmutableSet;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.storage.api.retriever.FeatureSetRequest;
+
+/**
+ * Identifies the feature row of an entity in a feature set retrieved with only the requested
+ * features: the {@link EntityKey} of the entity and the names of the requested features.
+ */
+final class ProjectedKey {
+  private final EntityKey entityKey;
+  private final ImmutableSet<String> featureNames;
+  private final int hashCode;
+
+  ProjectedKey(EntityKey entityKey, ImmutableSet<String> featureNames) {
+    this.entityKey = entityKey;
+    this.featureNames = featureNames;
+    this.hashCode = 31 * entityKey.hashCode() + featureNames.hashCode();
+  }
+
+  /**
+   * Get the names of the features requested in the given feature set request.
+   *
+   * @param featureSetRequest feature set request to get the feature names of.
+   * @return names of the requested features.
+   */
+  static ImmutableSet<String> getFeatureNames(FeatureSetRequest featureSetRequest) {
+    ImmutableSet.Builder<String> featureNames = ImmutableSet.builder();
+    for (FeatureReference featureReference : featureSetRequest.getFeatureReferences()) {
+      featureNames.add(featureReference.getName());
+    }
+    return featureNames.build();
+  }
+
+  EntityKey getEntityKey() {
+    return entityKey;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ProjectedKey)) {
+      return false;
+    }
+    ProjectedKey other = (ProjectedKey) o;
+    return hashCode == other.hashCode
+        && entityKey.equals(other.entityKey)
+        && featureNames.equals(other.featureNames);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+}
@@ -24,6 +24,7 @@ import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.HistoricalRetrievalResult;
 import feast.storage.api.retriever.HistoricalRetriever;
 import io.grpc.Status;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -61,6 +62,13 @@ public class HistoricalServingService implements ServingService {
     throw Status.UNIMPLEMENTED.withDescription("Method not implemented").asRuntimeException();
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public Iterator<GetOnlineFeaturesResponse> getOnlineFeaturesStream(
+      GetOnlineFeaturesRequest getFeaturesRequest, int chunkSize) {
+    throw Status.UNIMPLEMENTED.withDescription("Method not implemented").asRuntimeException();
+  }
+
   /** {@inheritDoc} */
   @Override
   public GetBatchFeaturesResponse getBatchFeatures(GetBatchFeaturesRequest getFeaturesRequest) {
@@ -0,0 +1,187 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.service;
+
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldColumn;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldColumns;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldStatus;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldValues;
+import feast.proto.types.ValueProto.Value;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assembles the field values and statuses of the entity rows of an online features request into a
+ * {@link GetOnlineFeaturesResponse}, either as a map of fields per entity row or as columns.
+ *
+ * <p>Fields are registered once per request with {@link #addFields(Collection)}, and the returned
+ * field indices are used to write the fields of each entity row, so that per row writes do not need
+ * to look up fields by name.
+ */
+abstract class OnlineFeaturesResponseWriter {
+  protected final int entityRowCount;
+  private final Map<String, Integer> fieldIndexByName = new HashMap<>();
+  protected final List<String> fieldNames = new ArrayList<>();
+  // field names of each call to addFields that registered new fields, in the order of the calls.
+  protected final List<Collection<String>> fieldGroups = new ArrayList<>();
+  // values and statuses of the fields, indexed by field index then entity row index.
+  protected final List<Value[]> valueColumns = new ArrayList<>();
+  protected final List<FieldStatus[]> statusColumns = new ArrayList<>();
+
+  private OnlineFeaturesResponseWriter(int entityRowCount) {
+    this.entityRowCount = entityRowCount;
+  }
+
+  /**
+   * Create a writer of field values in a map of fields per entity row.
+   *
+   * @param entityRowCount no. of entity rows in the response.
+   */
+  static OnlineFeaturesResponseWriter ofRows(int entityRowCount) {
+    return new RowWriter(entityRowCount);
+  }
+
+  /**
+   * Create a writer of field values in columns, one per field.
+   *
+   * @param entityRowCount no. of entity rows in the response.
+   */
+  static OnlineFeaturesResponseWriter ofColumns(int entityRowCount) {
+    return new ColumnWriter(entityRowCount);
+  }
+
+  /**
+   * Register fields of the response.
+   *
+   * @param names names of the fields.
+   * @return index of each field to write its values with, in the iteration order of the names, the
+   *     same for the same name.
+   */
+  int[] addFields(Collection<String> names) {
+    int[] fieldIndices = new int[names.size()];
+    boolean hasNewField = false;
+    int i = 0;
+    for (String name : names) {
+      Integer fieldIndex = fieldIndexByName.get(name);
+      if (fieldIndex == null) {
+        fieldIndex = fieldNames.size();
+        fieldIndexByName.put(name, fieldIndex);
+        fieldNames.add(name);
+        valueColumns.add(new Value[entityRowCount]);
+        statusColumns.add(new FieldStatus[entityRowCount]);
+        hasNewField = true;
+      }
+      fieldIndices[i++] = fieldIndex;
+    }
+    if (hasNewField) {
+      fieldGroups.add(names);
+    }
+    return fieldIndices;
+  }
+
+  /**
+   * Write the value and status of a field of an entity row, replacing any previous value.
+   *
+   * @param entityRowIndex index of the entity row in the request.
+   * @param fieldIndex index of the field returned by {@link #addFields(Collection)}.
+   * @param value value of the field.
+   * @param status status of the field.
+   */
+  void write(int entityRowIndex, int fieldIndex, Value value, FieldStatus status) {
+    valueColumns.get(fieldIndex)[entityRowIndex] = value;
+    statusColumns.get(fieldIndex)[entityRowIndex] = status;
+  }
+
+  /** Build the response from the written field values. */
+  abstract GetOnlineFeaturesResponse build();
+
+  /**
+   * Writes the fields of each entity row into the field values of the row. Fields are written in
+   * the iteration order of a hash map filled with the fields in the order they were registered,
+   * which is computed once per response, so that the fields of the response are serialized in the
+   * same order as when the fields of each entity row were collected in a hash map.
+   */
+  private static final class RowWriter extends OnlineFeaturesResponseWriter {
+
+    RowWriter(int entityRowCount) {
+      super(entityRowCount);
+    }
+
+    @Override
+    GetOnlineFeaturesResponse build() {
+      // replay the filling of the hash map of an entity row, as its capacity and so its iteration
+      // order depend on the size of the maps it was filled from.
+      Map<String, Integer> fieldOrder = new HashMap<>();
+      Map<String, Integer> fieldIndexByName = new HashMap<>();
+      for (int i = 0; i < fieldNames.size(); i++) {
+        fieldIndexByName.put(fieldNames.get(i), i);
+      }
+      for (Collection<String> fieldGroup : fieldGroups) {
+        Map<String, Integer> groupFields = new LinkedHashMap<>();
+        for (String name : fieldGroup) {
+          groupFields.put(name, fieldIndexByName.get(name));
+        }
+        fieldOrder.putAll(groupFields);
+      }
+      int[] orderedFieldIndices =
+          fieldOrder.values().stream().mapToInt(Integer::intValue).toArray();
+
+      GetOnlineFeaturesResponse.Builder response = GetOnlineFeaturesResponse.newBuilder();
+      for (int i = 0; i < entityRowCount; i++) {
+        FieldValues.Builder fieldValues = response.addFieldValuesBuilder();
+        for (int fieldIndex : orderedFieldIndices) {
+          Value value = valueColumns.get(fieldIndex)[i];
+          if (value != null) {
+            String fieldName = fieldNames.get(fieldIndex);
+            fieldValues.putFields(fieldName, value);
+            fieldValues.putStatuses(fieldName, statusColumns.get(fieldIndex)[i]);
+          }
+        }
+      }
+      return response.build();
+    }
+  }
+
+  /** Writes the fields of all entity rows as columns, in the order the fields were registered. */
+  private static final class ColumnWriter extends OnlineFeaturesResponseWriter {
+
+    ColumnWriter(int entityRowCount) {
+      super(entityRowCount);
+    }
+
+    @Override
+    GetOnlineFeaturesResponse build() {
+      FieldColumns.Builder fieldColumns = FieldColumns.newBuilder().addAllFieldNames(fieldNames);
+      for (int i = 0; i < fieldNames.size(); i++) {
+        Value[] values = valueColumns.get(i);
+        FieldStatus[] statuses = statusColumns.get(i);
+        FieldColumn.Builder column = fieldColumns.addColumnsBuilder();
+        for (int j = 0; j < entityRowCount; j++) {
+          // fields not written for an entity row are unset
+          column.addValues(values[j] == null ? Value.getDefaultInstance() : values[j]);
+          column.addStatuses(statuses[j] == null ? FieldStatus.INVALID : statuses[j]);
+        }
+      }
+      return GetOnlineFeaturesResponse.newBuilder().setFieldColumns(fieldColumns).build();
+    }
+  }
+}
@@ -24,7 +24,6 @@ import feast.common.models.FeatureSet;
 import feast.proto.serving.ServingAPIProto.*;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldStatus;
-import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldValues;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.proto.types.FieldProto.Field;
 import feast.proto.types.ValueProto.Value;
@@ -33,11 +32,17 @@ import feast.serving.util.Metrics;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.OnlineRetriever;
 import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import io.opentracing.Scope;
 import io.opentracing.Tracer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
-import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 
 public class OnlineServingService implements ServingService {
@@ -46,12 +51,27 @@ public class OnlineServingService implements ServingService {
   private final CachedSpecService specService;
   private final Tracer tracer;
   private final OnlineRetriever retriever;
+  // Max no. of feature set lookups in flight at once for a single request
+  private final int maxConcurrentLookups;
+  // Deadline for all feature set lookups of a single request, 0 if disabled
+  private final long lookupTimeoutMillis;
 
   public OnlineServingService(
       OnlineRetriever retriever, CachedSpecService specService, Tracer tracer) {
+    this(retriever, specService, tracer, Integer.MAX_VALUE, 0);
+  }
+
+  public OnlineServingService(
+      OnlineRetriever retriever,
+      CachedSpecService specService,
+      Tracer tracer,
+      int maxConcurrentLookups,
+      long lookupTimeoutMillis) {
     this.retriever = retriever;
     this.specService = specService;
     this.tracer = tracer;
+    this.maxConcurrentLookups = maxConcurrentLookups;
+    this.lookupTimeoutMillis = lookupTimeoutMillis;
   }
 
   /** {@inheritDoc} */
@@ -67,164 +87,288 @@ public class OnlineServingService implements ServingService {
   @Override
   public GetOnlineFeaturesResponse getOnlineFeatures(GetOnlineFeaturesRequest request) {
     try (Scope scope = tracer.buildSpan("getOnlineFeatures").startActive(true)) {
-      List<EntityRow> entityRows = request.getEntityRowsList();
-      // Collect the feature/entity value for each entity row in entityValueMap
-      Map<EntityRow, Map<String, Value>> entityValuesMap =
-          entityRows.stream().collect(Collectors.toMap(row -> row, row -> new HashMap<>()));
-      // Collect the feature/entity status metadata for each entity row in entityValueMap
-      Map<EntityRow, Map<String, FieldStatus>> entityStatusesMap =
-          entityRows.stream().collect(Collectors.toMap(row -> row, row -> new HashMap<>()));
-      // Collect featureRows retrieved for logging/tracing
-      List<List<Optional<FeatureRow>>> logFeatureRows = new LinkedList<>();
-
-      if (!request.getOmitEntitiesInResponse()) {
-        // Add entity row's fields as response fields
-        entityRows.forEach(
-            entityRow -> {
-              Map<String, Value> valueMap = entityRow.getFieldsMap();
-              entityValuesMap.get(entityRow).putAll(valueMap);
-              entityStatusesMap.get(entityRow).putAll(getMetadataMap(valueMap, false, false));
-            });
-      }
-
       List<FeatureSetRequest> featureSetRequests =
           specService.getFeatureSets(request.getFeaturesList(), request.getProject());
-      for (FeatureSetRequest featureSetRequest : featureSetRequests) {
-        // Pull feature rows for given entity rows from the feature/featureset specified in feature
-        // set request.
-        // from the configured online
-        List<Optional<FeatureRow>> featureRows =
-            retriever.getOnlineFeatures(entityRows, featureSetRequest);
-        // Check that feature row returned corresponds to a given entity row.
-        if (featureRows.size() != entityRows.size()) {
-          throw Status.INTERNAL
-              .withDescription(
-                  "The no. of FeatureRow obtained from OnlineRetriever"
-                      + "does not match no. of entityRow passed.")
-              .asRuntimeException();
+      return getOnlineFeatures(
+          request.getEntityRowsList(),
+          featureSetRequests,
+          request.getOmitEntitiesInResponse(),
+          request.getColumnarResponse(),
+          scope);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Iterator<GetOnlineFeaturesResponse> getOnlineFeaturesStream(
+      GetOnlineFeaturesRequest request, int chunkSize) {
+    // Resolve feature references upfront so that spec errors fail the call before any response.
+    List<FeatureSetRequest> featureSetRequests =
+        specService.getFeatureSets(request.getFeaturesList(), request.getProject());
+    List<EntityRow> entityRows = request.getEntityRowsList();
+    return new Iterator<>() {
+      private int chunkStart = 0;
+
+      @Override
+      public boolean hasNext() {
+        return chunkStart < entityRows.size();
+      }
+
+      @Override
+      public GetOnlineFeaturesResponse next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
         }
+        int chunkEnd = chunkStart + Math.min(chunkSize, entityRows.size() - chunkStart);
+        try (Scope scope = tracer.buildSpan("getOnlineFeaturesStream").startActive(true)) {
+          GetOnlineFeaturesResponse response =
+              getOnlineFeatures(
+                  entityRows.subList(chunkStart, chunkEnd),
+                  featureSetRequests,
+                  request.getOmitEntitiesInResponse(),
+                  request.getColumnarResponse(),
+                  scope);
+          chunkStart = chunkEnd;
+          return response;
+        }
+      }
+    };
+  }
 
-        Streams.zip(entityRows.stream(), featureRows.stream(), Pair::of)
-            .forEach(
-                entityFeaturePair -> {
-                  EntityRow entityRow = entityFeaturePair.getLeft();
-                  Optional<FeatureRow> featureRow = entityFeaturePair.getRight();
-                  // Unpack feature field values and merge into entityValueMap
-                  boolean isOutsideMaxAge =
-                      checkOutsideMaxAge(featureSetRequest, entityRow, featureRow);
-                  Map<String, Value> valueMap =
-                      unpackValueMap(featureRow, featureSetRequest, isOutsideMaxAge);
-                  entityValuesMap.get(entityRow).putAll(valueMap);
-
-                  // Generate metadata for feature values and merge into entityFieldsMap
-                  boolean isNotFound = featureRow.isEmpty();
-                  Map<String, FieldStatus> statusMap =
-                      getMetadataMap(valueMap, isNotFound, isOutsideMaxAge);
-                  entityStatusesMap.get(entityRow).putAll(statusMap);
-
-                  // Populate metrics/log request
-                  populateCountMetrics(statusMap, featureSetRequest);
-                });
-        populateRequestCountMetrics(featureSetRequest);
-        logFeatureRows.add(featureRows);
+  /**
+   * Get features for the given entity rows from the features specified in the given feature set
+   * requests.
+   *
+   * @param entityRows entity rows to retrieve features for.
+   * @param featureSetRequests feature set requests resolved from the requested feature references.
+   * @param omitEntitiesInResponse whether to omit entity fields from the response.
+   * @param columnarResponse whether to return field values in columns instead of per entity row.
+   * @param scope active tracing scope to log retrieved feature rows to, if any.
+   * @return response with the field values of each entity row, in the order of the entity rows.
+   */
+  private GetOnlineFeaturesResponse getOnlineFeatures(
+      List<EntityRow> entityRows,
+      List<FeatureSetRequest> featureSetRequests,
+      boolean omitEntitiesInResponse,
+      boolean columnarResponse,
+      Scope scope) {
+    // Response field values are assembled in place, indexed by the position of the entity row
+    // in the request, so that the response preserves the order of the entityRows provided.
+    OnlineFeaturesResponseWriter response =
+        columnarResponse
+            ? OnlineFeaturesResponseWriter.ofColumns(entityRows.size())
+            : OnlineFeaturesResponseWriter.ofRows(entityRows.size());
+    // Collect featureRows retrieved for logging/tracing
+    List<List<Optional<FeatureRow>>> logFeatureRows = new LinkedList<>();
+
+    if (!omitEntitiesInResponse) {
+      // Add entity row's fields as response fields
+      for (int i = 0; i < entityRows.size(); i++) {
+        Map<String, Value> entityFields = entityRows.get(i).getFieldsMap();
+        int[] fieldIndices = response.addFields(entityFields.keySet());
+        int j = 0;
+        for (Value value : entityFields.values()) {
+          response.write(i, fieldIndices[j++], value, getFieldStatus(value, false, false));
+        }
       }
-      if (scope != null) {
-        logFeatureRowsTrace(scope, logFeatureRows, featureSetRequests);
+    }
+
+    // Pull feature rows for given entity rows from the features/featuresets specified in the
+    // feature set requests from the configured online retriever. Lookups for all feature sets
+    // are issued at once, so that latency tracks the slowest feature set.
+    List<List<Optional<FeatureRow>>> featureRowsList =
+        retrieveFeatureRows(entityRows, featureSetRequests);
+    for (int i = 0; i < featureSetRequests.size(); i++) {
+      FeatureSetRequest featureSetRequest = featureSetRequests.get(i);
+      List<Optional<FeatureRow>> featureRows = featureRowsList.get(i);
+      // Check that feature row returned corresponds to a given entity row.
+      if (featureRows.size() != entityRows.size()) {
+        throw Status.INTERNAL
+            .withDescription(
+                "The no. of FeatureRow obtained from OnlineRetriever"
+                    + "does not match no. of entityRow passed.")
+            .asRuntimeException();
       }
 
-      // Build response field values from entityValuesMap and entityStatusesMap
-      // Reponse field values should be in the same order as the entityRows provided by the user.
-      List<FieldValues> fieldValuesList =
-          entityRows.stream()
-              .map(
-                  entityRow -> {
-                    return FieldValues.newBuilder()
-                        .putAllFields(entityValuesMap.get(entityRow))
-                        .putAllStatuses(entityStatusesMap.get(entityRow))
-                        .build();
-                  })
-              .collect(Collectors.toList());
-      return GetOnlineFeaturesResponse.newBuilder().addAllFieldValues(fieldValuesList).build();
+      // Unpack feature field values and status metadata directly into the response
+      populateFieldValues(response, entityRows, featureRows, featureSetRequest);
+      populateRequestCountMetrics(featureSetRequest);
+      logFeatureRows.add(featureRows);
+    }
+    if (scope != null) {
+      logFeatureRowsTrace(scope, logFeatureRows, featureSetRequests);
     }
+
+    return response.build();
   }
 
   /**
-   * Unpack feature values using data from the given feature row for features specified in the given
-   * feature set request.
+   * Retrieve feature rows for the given entity rows from the online retriever for each of the given
+   * feature set requests. Lookups are issued asynchronously, with at most maxConcurrentLookups in
+   * flight at once, and must all complete within lookupTimeoutMillis if set.
    *
-   * @param featureRow optional to unpack for feature values.
-   * @param featureSetRequest feature set request for which the feature row is retrieved for.
-   * @param isOutsideMaxAge whether which the feature row contains values that is outside max age.
-   * @return valueMap mapping string feature name to feature value for the given feature set
-   *     request.
+   * @param entityRows entity rows to retrieve feature rows for.
+   * @param featureSetRequests feature set requests to retrieve feature rows from.
+   * @return feature rows retrieved for each feature set request, in the order of the requests.
    */
-  private static Map<String, Value> unpackValueMap(
-      Optional<FeatureRow> featureRow,
-      FeatureSetRequest featureSetRequest,
-      boolean isOutsideMaxAge) {
-    Map<String, Value> valueMap = new HashMap<>();
+  private List<List<Optional<FeatureRow>>> retrieveFeatureRows(
+      List<EntityRow> entityRows, List<FeatureSetRequest> featureSetRequests) {
+    long deadlineNanos =
+        (lookupTimeoutMillis > 0)
+            ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lookupTimeoutMillis)
+            : Long.MAX_VALUE;
+    Semaphore permits = new Semaphore(Math.min(maxConcurrentLookups, featureSetRequests.size()));
+    List<CompletableFuture<List<Optional<FeatureRow>>>> futures =
+        new ArrayList<>(featureSetRequests.size());
+    try {
+      for (FeatureSetRequest featureSetRequest : featureSetRequests) {
+        if (!permits.tryAcquire(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS)) {
+          throw lookupDeadlineExceeded();
+        }
+        CompletableFuture<List<Optional<FeatureRow>>> future =
+            retriever.getOnlineFeaturesAsync(entityRows, featureSetRequest);
+        future.whenComplete((featureRows, e) -> permits.release());
+        futures.add(future);
+      }
+
+      List<List<Optional<FeatureRow>>> featureRowsList = new ArrayList<>(futures.size());
+      for (CompletableFuture<List<Optional<FeatureRow>>> future : futures) {
+        featureRowsList.add(future.get(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS));
+      }
+      return featureRowsList;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Status.CANCELLED
+          .withDescription("Interrupted while retrieving features from online store")
+          .withCause(e)
+          .asRuntimeException();
+    } catch (TimeoutException e) {
+      throw lookupDeadlineExceeded();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CompletionException && cause.getCause() != null) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof StatusRuntimeException) {
+        throw (StatusRuntimeException) cause;
+      }
+      throw Status.INTERNAL
+          .withDescription("Unexpected error when retrieving features from online store")
+          .withCause(cause)
+          .asRuntimeException();
+    } finally {
+      // abandon lookups still in flight if the request failed
+      futures.forEach(future -> future.cancel(false));
+    }
+  }
+
+  private static long remainingNanos(long deadlineNanos) {
+    return (deadlineNanos == Long.MAX_VALUE)
+        ? Long.MAX_VALUE
+        : Math.max(0, deadlineNanos - System.nanoTime());
+  }
+
+  private StatusRuntimeException lookupDeadlineExceeded() {
+    return Status.DEADLINE_EXCEEDED
+        .withDescription(
+            String.format(
+                "Retrieving features from online store took longer than %sms", lookupTimeoutMillis))
+        .asRuntimeException();
+  }
+
+  /**
+   * Unpack feature values and field status metadata from the given feature rows into the response
+   * fields of the entity row at the same index, for the features specified in the given feature set
+   * request.
+   *
+   * <p>Feature reference strings and the response field of each feature name are resolved once per
+   * feature set request, so that the values and statuses of each entity row are written directly to
+   * the response.
+   *
+   * @param response response to write the field values of each entity row to.
+   * @param entityRows entity rows for which the feature rows were retrieved.
+   * @param featureRows optional feature rows retrieved for each entity row.
+   * @param featureSetRequest feature set request for which the feature rows were retrieved for.
+   */
+  private static void populateFieldValues(
+      OnlineFeaturesResponseWriter response,
+      List<EntityRow> entityRows,
+      List<Optional<FeatureRow>> featureRows,
+      FeatureSetRequest featureSetRequest) {
     // In order to return values containing the same feature references provided by the user,
-    // we reuse the feature references in the request as the keys in field builder map
-    Map<String, FeatureReference> nameRefMap = featureSetRequest.getFeatureRefsByName();
-
-    if (featureRow.isPresent()) {
-      // unpack feature row's feature values and populate value map
-      Map<String, Value> featureValueMap =
-          featureRow.get().getFieldsList().stream()
-              .filter(featureRowField -> nameRefMap.containsKey(featureRowField.getName()))
-              .collect(
-                  Collectors.toMap(
-                      featureRowField -> {
-                        FeatureReference featureRef = nameRefMap.get(featureRowField.getName());
-                        return Feature.getFeatureStringWithProjectRef(featureRef);
-                      },
-                      featureRowField -> {
-                        // drop feature values with an age outside feature set's max age.
-                        return (isOutsideMaxAge)
-                            ? Value.newBuilder().build()
-                            : featureRowField.getValue();
-                      }));
-      valueMap.putAll(featureValueMap);
+    // we reuse the feature references in the request as the response field names
+    Set<FeatureReference> featureReferences = featureSetRequest.getFeatureReferences();
+    List<String> featureRefStrings = new ArrayList<>(featureReferences.size());
+    for (FeatureReference featureReference : featureReferences) {
+      featureRefStrings.add(Feature.getFeatureStringWithProjectRef(featureReference));
+    }
+    int[] fieldIndices = response.addFields(featureRefStrings);
+    Map<String, Integer> fieldIndexByName = new HashMap<>(fieldIndices.length * 2);
+    int featureIndex = 0;
+    for (FeatureReference featureReference : featureReferences) {
+      fieldIndexByName.put(featureReference.getName(), fieldIndices[featureIndex++]);
+    }
+
+    Value emptyValue = Value.getDefaultInstance();
+    long notFoundCount = 0;
+    long outsideMaxAgeCount = 0;
+    long currentTimeSeconds = System.currentTimeMillis() / 1000;
+
+    for (int i = 0; i < entityRows.size(); i++) {
+      Optional<FeatureRow> featureRow = featureRows.get(i);
+      boolean isNotFound = featureRow.isEmpty();
+      boolean isOutsideMaxAge =
+          checkOutsideMaxAge(featureSetRequest, entityRows.get(i), featureRow, currentTimeSeconds);
+
+      // create empty values for features specified in request but not present in feature row.
+      FieldStatus emptyStatus = getFieldStatus(emptyValue, isNotFound, isOutsideMaxAge);
+      for (int fieldIndex : fieldIndices) {
+        response.write(i, fieldIndex, emptyValue, emptyStatus);
+      }
+      if (!isNotFound && !isOutsideMaxAge) {
+        // feature values with an age outside feature set's max age are dropped.
+        for (Field field : featureRow.get().getFieldsList()) {
+          Integer fieldIndex = fieldIndexByName.get(field.getName());
+          if (fieldIndex != null) {
+            Value value = field.getValue();
+            response.write(i, fieldIndex, value, getFieldStatus(value, false, false));
+          }
+        }
+      }
+
+      if (isNotFound) {
+        notFoundCount++;
+      } else if (isOutsideMaxAge) {
+        outsideMaxAgeCount++;
+      }
     }
-    // create empty values for features specified in request but not present in feature row.
-    Set<String> missingFeatures =
-        nameRefMap.values().stream()
-            .map(ref -> Feature.getFeatureStringWithProjectRef(ref))
-            .collect(Collectors.toSet());
-    missingFeatures.removeAll(valueMap.keySet());
-    missingFeatures.forEach(refString -> valueMap.put(refString, Value.newBuilder().build()));
-
-    return valueMap;
+
+    populateCountMetrics(
+        featureRefStrings.toArray(new String[0]),
+        notFoundCount,
+        outsideMaxAgeCount,
+        featureSetRequest);
   }
 
   /**
-   * Generate Field level Status metadata for the given valueMap.
+   * Generate Field level Status metadata for the given field value.
    *
-   * @param valueMap map of field name to value to generate metadata for.
-   * @param isNotFound whether the given valueMap represents values that were not found in the
-   *     online retriever.
-   * @param isOutsideMaxAge whether the given valueMap contains values with age outside feature
-   *     set's max age.
-   * @return a 1:1 map keyed by field name containing field status metadata instead of values in the
-   *     given valueMap.
+   * @param fieldValue value to generate metadata for.
+   * @param isNotFound whether the given value represents a value that was not found in the online
+   *     retriever.
+   * @param isOutsideMaxAge whether the given value has an age outside feature set's max age.
+   * @return field status metadata for the given value.
    */
-  private static Map<String, FieldStatus> getMetadataMap(
-      Map<String, Value> valueMap, boolean isNotFound, boolean isOutsideMaxAge) {
-    return valueMap.entrySet().stream()
-        .collect(
-            Collectors.toMap(
-                es -> es.getKey(),
-                es -> {
-                  Value fieldValue = es.getValue();
-                  if (isNotFound) {
-                    return FieldStatus.NOT_FOUND;
-                  } else if (isOutsideMaxAge) {
-                    return FieldStatus.OUTSIDE_MAX_AGE;
-                  } else if (fieldValue.getValCase().equals(Value.ValCase.VAL_NOT_SET)) {
-                    return FieldStatus.NULL_VALUE;
-                  }
-                  return FieldStatus.PRESENT;
-                }));
+  private static FieldStatus getFieldStatus(
+      Value fieldValue, boolean isNotFound, boolean isOutsideMaxAge) {
+    if (isNotFound) {
+      return FieldStatus.NOT_FOUND;
+    } else if (isOutsideMaxAge) {
+      return FieldStatus.OUTSIDE_MAX_AGE;
+    } else if (fieldValue.getValCase().equals(Value.ValCase.VAL_NOT_SET)) {
+      return FieldStatus.NULL_VALUE;
+    }
+    return FieldStatus.PRESENT;
   }
 
   /**
@@ -235,9 +379,13 @@ public class OnlineServingService implements ServingService {
    * @param featureSetRequest contains the spec where feature's max age is extracted.
    * @param entityRow contains the retrieval timing of when features are pulled.
    * @param featureRow contains the ingestion timing and feature data.
+   * @param currentTimeSeconds retrieval time to use when entity row does not specify one.
    */
   private static boolean checkOutsideMaxAge(
-      FeatureSetRequest featureSetRequest, EntityRow entityRow, Optional<FeatureRow> featureRow) {
+      FeatureSetRequest featureSetRequest,
+      EntityRow entityRow,
+      Optional<FeatureRow> featureRow,
+      long currentTimeSeconds) {
     Duration maxAge = featureSetRequest.getSpec().getMaxAge();
     if (featureRow.isEmpty()) { // no data to consider
       return false;
@@ -248,7 +396,7 @@ public class OnlineServingService implements ServingService {
 
     long givenTimestamp = entityRow.getEntityTimestamp().getSeconds();
     if (givenTimestamp == 0) {
-      givenTimestamp = System.currentTimeMillis() / 1000;
+      givenTimestamp = currentTimeSeconds;
     }
     long timeDifference = givenTimestamp - featureRow.get().getEventTimestamp().getSeconds();
     return timeDifference > maxAge.getSeconds();
@@ -288,30 +436,35 @@ public class OnlineServingService implements ServingService {
     scope.span().log(ImmutableMap.of("event", "featureRows", "value", loggableFeatureRows));
   }
 
-  private void populateCountMetrics(
-      Map<String, FieldStatus> statusMap, FeatureSetRequest featureSetRequest) {
+  private static void populateCountMetrics(
+      String[] featureRefStrings,
+      long notFoundCount,
+      long outsideMaxAgeCount,
+      FeatureSetRequest featureSetRequest) {
     String project = featureSetRequest.getSpec().getProject();
-    statusMap
-        .entrySet()
-        .forEach(
-            es -> {
-              String featureRefString = es.getKey();
-              FieldStatus status = es.getValue();
-              if (status == FieldStatus.NOT_FOUND) {
-                Metrics.notFoundKeyCount.labels(project, featureRefString).inc();
-              }
-              if (status == FieldStatus.OUTSIDE_MAX_AGE) {
-                Metrics.staleKeyCount.labels(project, featureRefString).inc();
-              }
-            });
+    for (String featureRefString : featureRefStrings) {
+      if (notFoundCount > 0) {
+        Metrics.notFoundKeyCount.labels(project, featureRefString).inc(notFoundCount);
+      }
+      if (outsideMaxAgeCount > 0) {
+        Metrics.staleKeyCount.labels(project, featureRefString).inc(outsideMaxAgeCount);
+      }
+    }
   }
 
   private void populateRequestCountMetrics(FeatureSetRequest featureSetRequest) {
     String project = featureSetRequest.getSpec().getProject();
-    featureSetRequest
-        .getFeatureReferences()
-        .parallelStream()
-        .forEach(ref -> Metrics.requestCount.labels(project, ref.getName()).inc());
+    for (FeatureReference ref : featureSetRequest.getFeatureReferences()) {
+      Metrics.requestCount.labels(project, ref.getName()).inc();
+    }
+  }
+
+  /**
+   * Close the retriever of the service, releasing its connections to the online store. Invoked on
+   * shutdown by Spring as the inferred destroy method of the serving service bean.
+   */
+  public void close() {
+    retriever.close();
   }
 
   @Override
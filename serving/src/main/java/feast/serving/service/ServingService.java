@@ -24,6 +24,7 @@ import feast.proto.serving.ServingAPIProto.GetJobRequest;
 import feast.proto.serving.ServingAPIProto.GetJobResponse;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse;
+import java.util.Iterator;
 
 public interface ServingService {
   /**
@@ -61,6 +62,26 @@ public interface ServingService {
    */
   GetOnlineFeaturesResponse getOnlineFeatures(GetOnlineFeaturesRequest getFeaturesRequest);
 
+  /**
+   * Get features from an online serving store in chunks of entity rows. See {@link
+   * #getOnlineFeatures(GetOnlineFeaturesRequest)} for the retrieval semantics.
+   *
+   * <p>Feature references are resolved when this method is called, but each chunk of entity rows is
+   * only retrieved when the next response is requested from the returned iterator, so that callers
+   * can retrieve chunks as fast as they are able to send them.
+   *
+   * @param getFeaturesRequest {@link GetOnlineFeaturesRequest} containing list of {@link
+   *     feast.proto.serving.ServingAPIProto.FeatureReference}s to retrieve and list of {@link
+   *     feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow}s to join the
+   *     retrieved values to.
+   * @param chunkSize maximum no. of entity rows in each response.
+   * @return iterator of {@link GetOnlineFeaturesResponse}s, each with the list of {@link
+   *     feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldValues} of the next
+   *     chunk of {@link feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow}s.
+   */
+  Iterator<GetOnlineFeaturesResponse> getOnlineFeaturesStream(
+      GetOnlineFeaturesRequest getFeaturesRequest, int chunkSize);
+
   /**
    * Get features from a batch serving store, given a list of {@link
    * feast.proto.serving.ServingAPIProto.FeatureReference}s to retrieve, and {@link
@@ -18,8 +18,8 @@ package feast.serving.specs;
 
 import static feast.common.models.Feature.getFeatureStringWithProjectRef;
 import static feast.common.models.FeatureSet.getFeatureSetStringRef;
-import static java.util.stream.Collectors.groupingBy;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -37,13 +37,14 @@ import feast.storage.api.retriever.FeatureSetRequest;
 import io.grpc.StatusRuntimeException;
 import io.prometheus.client.Gauge;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 
@@ -51,6 +52,8 @@ import org.slf4j.Logger;
 public class CachedSpecService {
 
   private static final int MAX_SPEC_COUNT = 1000;
+  // Max no. of distinct lists of feature references to retain resolved feature set requests for.
+  private static final int MAX_RESOLVED_REQUEST_COUNT = 1000;
   private static final Logger log = org.slf4j.LoggerFactory.getLogger(CachedSpecService.class);
   private static final String DEFAULT_PROJECT_NAME = "default";
   // flag to signal that multiple featuresets match a specific
@@ -59,7 +62,8 @@ public class CachedSpecService {
 
   private final CoreSpecService coreService;
 
-  private Map<String, String> featureToFeatureSetMapping;
+  // Snapshot of the cached specs used to resolve feature references, swapped on every refresh.
+  private volatile SpecIndex specIndex;
 
   private final LoadingCache<String, FeatureSetSpec> featureSetCache;
   private Store store;
@@ -82,8 +86,7 @@ public class CachedSpecService {
     this.store = coreService.registerStore(store);
 
     Map<String, FeatureSetSpec> featureSets = getFeatureSetMap();
-    featureToFeatureSetMapping =
-        new ConcurrentHashMap<>(getFeatureToFeatureSetMapping(featureSets));
+    specIndex = new SpecIndex(featureSets, getFeatureToFeatureSetMapping(featureSets));
     CacheLoader<String, FeatureSetSpec> featureSetCacheLoader = CacheLoader.from(featureSets::get);
     featureSetCache =
         CacheBuilder.newBuilder().maximumSize(MAX_SPEC_COUNT).build(featureSetCacheLoader);
@@ -124,47 +127,64 @@ public class CachedSpecService {
    */
   public List<FeatureSetRequest> getFeatureSets(
       List<FeatureReference> featureReferences, String projectOverride) {
-    List<FeatureSetRequest> featureSetRequests = new ArrayList<>();
-    featureReferences.stream()
-        .map(
-            featureReference -> {
-              // apply project override when finding feature set for feature
-              FeatureReference queryFeatureRef = featureReference;
-              if (!projectOverride.isEmpty()) {
-                queryFeatureRef = featureReference.toBuilder().setProject(projectOverride).build();
-              }
-
-              String featureSetRefStr = mapFeatureToFeatureSetReference(queryFeatureRef);
-              return Pair.of(featureSetRefStr, featureReference);
-            })
-        .collect(groupingBy(Pair::getLeft))
-        .forEach(
-            (featureSetRefStr, fsRefStrAndFeatureRefs) -> {
-              List<FeatureReference> featureRefs =
-                  fsRefStrAndFeatureRefs.stream().map(Pair::getRight).collect(Collectors.toList());
-              featureSetRequests.add(buildFeatureSetRequest(featureSetRefStr, featureRefs));
-            });
+    // Requests repeatedly ask for the same features: reuse the feature set requests resolved for
+    // the same feature references from the current snapshot of specs.
+    SpecIndex index = specIndex;
+    ResolvedRequestKey key = new ResolvedRequestKey(featureReferences, projectOverride);
+    List<FeatureSetRequest> featureSetRequests = index.resolvedRequests.getIfPresent(key);
+    if (featureSetRequests == null) {
+      featureSetRequests = resolveFeatureSets(index, featureReferences, projectOverride);
+      index.resolvedRequests.put(
+          new ResolvedRequestKey(List.copyOf(featureReferences), projectOverride),
+          featureSetRequests);
+    }
     return featureSetRequests;
   }
 
+  /**
+   * Resolve the given feature references to feature set requests against the given snapshot of
+   * specs, grouping references by their containing feature set in order of first reference.
+   */
+  private List<FeatureSetRequest> resolveFeatureSets(
+      SpecIndex index, List<FeatureReference> featureReferences, String projectOverride) {
+    Map<String, List<FeatureReference>> featureRefsByFeatureSet = new LinkedHashMap<>();
+    for (FeatureReference featureReference : featureReferences) {
+      // apply project override when finding feature set for feature
+      FeatureReference queryFeatureRef = featureReference;
+      if (!projectOverride.isEmpty()) {
+        queryFeatureRef = featureReference.toBuilder().setProject(projectOverride).build();
+      }
+
+      String featureSetRefStr = mapFeatureToFeatureSetReference(index, queryFeatureRef);
+      featureRefsByFeatureSet
+          .computeIfAbsent(featureSetRefStr, featureSetRef -> new ArrayList<>())
+          .add(featureReference);
+    }
+
+    List<FeatureSetRequest> featureSetRequests = new ArrayList<>(featureRefsByFeatureSet.size());
+    featureRefsByFeatureSet.forEach(
+        (featureSetRefStr, featureRefs) ->
+            featureSetRequests.add(buildFeatureSetRequest(index, featureSetRefStr, featureRefs)));
+    return Collections.unmodifiableList(featureSetRequests);
+  }
+
   /**
    * Build a Feature Set request from the Feature Set specified by given Feature Set reference and
    * given Feature References.
    *
+   * @param index snapshot of specs to get the feature set from
    * @param featureSetRefStr string feature set reference specifying the feature set that contains
    *     requested features
    * @param featureReferences list of feature references specifying the containing feature set
    *     references.
    */
   private FeatureSetRequest buildFeatureSetRequest(
-      String featureSetRefStr, List<FeatureReference> featureReferences) {
+      SpecIndex index, String featureSetRefStr, List<FeatureReference> featureReferences) {
     // get feature set for name
-    FeatureSetSpec featureSetSpec;
-    try {
-      featureSetSpec = featureSetCache.get(featureSetRefStr);
-    } catch (ExecutionException e) {
+    FeatureSetSpec featureSetSpec = index.featureSets.get(featureSetRefStr);
+    if (featureSetSpec == null) {
       throw new SpecRetrievalException(
-          String.format("Unable to find featureSet with name: %s", featureSetRefStr), e);
+          String.format("Unable to find featureSet with name: %s", featureSetRefStr));
     }
 
     // check that requested features reference point to different features in the
@@ -186,10 +206,11 @@ public class CachedSpecService {
   }
 
   /** Maps given Feature Reference to the containing Feature Set's string reference */
-  private String mapFeatureToFeatureSetReference(FeatureReference featureReference) {
+  private String mapFeatureToFeatureSetReference(
+      SpecIndex index, FeatureReference featureReference) {
     // map feature reference to coresponding feature set string reference
     String featureSetRefStr =
-        featureToFeatureSetMapping.get(getFeatureStringWithProjectRef(featureReference));
+        index.featureToFeatureSetMapping.get(getFeatureStringWithProjectRef(featureReference));
     if (featureSetRefStr == null) {
       throw new SpecRetrievalException(
           String.format(
@@ -215,7 +236,7 @@ public class CachedSpecService {
     featureSetCache.invalidateAll();
     featureSetCache.putAll(featureSetMap);
 
-    featureToFeatureSetMapping = getFeatureToFeatureSetMapping(featureSetMap);
+    specIndex = new SpecIndex(featureSetMap, getFeatureToFeatureSetMapping(featureSetMap));
 
     featureSetsCount.set(featureSetCache.size());
     cacheLastUpdated.set(System.currentTimeMillis());
@@ -334,4 +355,50 @@ public class CachedSpecService {
     return Pair.of(
         getFeatureStringWithProjectRef(featureRef.build()), getFeatureSetStringRef(featureSetSpec));
   }
+
+  /**
+   * Immutable snapshot of the cached specs used to resolve feature references. Feature set requests
+   * resolved from a snapshot are memoized with it, and discarded when the snapshot is replaced.
+   */
+  private static final class SpecIndex {
+    private final Map<String, FeatureSetSpec> featureSets;
+    private final Map<String, String> featureToFeatureSetMapping;
+    private final Cache<ResolvedRequestKey, List<FeatureSetRequest>> resolvedRequests =
+        CacheBuilder.newBuilder().maximumSize(MAX_RESOLVED_REQUEST_COUNT).build();
+
+    SpecIndex(
+        Map<String, FeatureSetSpec> featureSets, Map<String, String> featureToFeatureSetMapping) {
+      this.featureSets = Map.copyOf(featureSets);
+      this.featureToFeatureSetMapping = Map.copyOf(featureToFeatureSetMapping);
+    }
+  }
+
+  /** Feature references and project override of a request for feature sets. */
+  private static final class ResolvedRequestKey {
+    private final List<FeatureReference> featureReferences;
+    private final String projectOverride;
+
+    ResolvedRequestKey(List<FeatureReference> featureReferences, String projectOverride) {
+      this.featureReferences = featureReferences;
+      this.projectOverride = projectOverride;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ResolvedRequestKey)) {
+        return false;
+      }
+      ResolvedRequestKey other = (ResolvedRequestKey) o;
+      return projectOverride.equals(other.projectOverride)
+          && featureReferences.equals(other.featureReferences);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(featureReferences, projectOverride);
+    }
+  }
 }
@@ -61,4 +61,36 @@ public class Metrics {
           .help("number of grpc requests served")
           .labelNames("method", "status_code")
           .register();
+
+  public static final Counter nearCacheHitCount =
+      Counter.build()
+          .name("near_cache_hit_count")
+          .subsystem("feast_serving")
+          .help("number of feature rows served from the near cache")
+          .labelNames("feature_set")
+          .register();
+
+  public static final Counter nearCacheMissCount =
+      Counter.build()
+          .name("near_cache_miss_count")
+          .subsystem("feast_serving")
+          .help("number of feature rows not found in the near cache")
+          .labelNames("feature_set")
+          .register();
+
+  public static final Counter nearCacheEvictionCount =
+      Counter.build()
+          .name("near_cache_eviction_count")
+          .subsystem("feast_serving")
+          .help("number of feature rows evicted from the near cache due to size or expiry")
+          .labelNames("feature_set")
+          .register();
+
+  public static final Counter coalescedLookupCount =
+      Counter.build()
+          .name("coalesced_lookup_count")
+          .subsystem("feast_serving")
+          .help("number of entity row lookups served by a lookup already in flight")
+          .labelNames("feature_set")
+          .register();
 }
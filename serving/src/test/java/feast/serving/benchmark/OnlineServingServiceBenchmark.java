@@ -0,0 +1,278 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.protobuf.Duration;
+import com.google.protobuf.Timestamp;
+import feast.common.models.Feature;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldStatus;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldValues;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.serving.service.OnlineServingService;
+import feast.serving.specs.CachedSpecService;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.OnlineRetriever;
+import io.opentracing.noop.NoopTracerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the throughput of response assembly in {@link OnlineServingService#getOnlineFeatures}
+ * against an in-memory retriever, so that only the serving side cost is measured. The baseline
+ * benchmark assembles the same response with hash maps of the fields of each entity row, as online
+ * serving did before the response was assembled by entity row index.
+ *
+ * <p>Run with: {@code mvn -pl serving test-compile exec:java
+ * -Dexec.mainClass=feast.serving.benchmark.OnlineServingServiceBenchmark
+ * -Dexec.classpathScope=test}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OnlineServingServiceBenchmark {
+
+  @Param({"500"})
+  public int entityRowCount;
+
+  @Param({"8"})
+  public int featureSetCount;
+
+  @Param({"10"})
+  public int featuresPerFeatureSet;
+
+  @Param({"false", "true"})
+  public boolean columnarResponse;
+
+  private OnlineServingService onlineServingService;
+  private GetOnlineFeaturesRequest request;
+  private List<FeatureSetRequest> featureSetRequests;
+  private OnlineRetriever retriever;
+
+  @Setup
+  public void setUp() {
+    List<EntityRow> entityRows = new ArrayList<>();
+    for (int i = 0; i < entityRowCount; i++) {
+      entityRows.add(
+          EntityRow.newBuilder()
+              .setEntityTimestamp(Timestamp.newBuilder().setSeconds(100))
+              .putFields("entity", Value.newBuilder().setInt64Val(i).build())
+              .build());
+    }
+
+    List<FeatureReference> featureReferences = new ArrayList<>();
+    featureSetRequests = new ArrayList<>();
+    Map<FeatureSetRequest, List<Optional<FeatureRow>>> featureRowsByRequest = new HashMap<>();
+    for (int i = 0; i < featureSetCount; i++) {
+      String featureSetName = "featureset_" + i;
+      FeatureSetSpec.Builder spec =
+          FeatureSetSpec.newBuilder()
+              .setProject("project")
+              .setName(featureSetName)
+              .setMaxAge(Duration.newBuilder().setSeconds(3600))
+              .addEntities(EntitySpec.newBuilder().setName("entity"));
+      FeatureSetRequest.Builder featureSetRequest = FeatureSetRequest.newBuilder();
+      for (int j = 0; j < featuresPerFeatureSet; j++) {
+        String featureName = "feature_" + j;
+        spec.addFeatures(FeatureSpec.newBuilder().setName(featureName));
+        FeatureReference featureReference =
+            FeatureReference.newBuilder()
+                .setProject("project")
+                .setFeatureSet(featureSetName)
+                .setName(featureName)
+                .build();
+        featureReferences.add(featureReference);
+        featureSetRequest.addFeatureReference(featureReference);
+      }
+      FeatureSetRequest builtRequest = featureSetRequest.setSpec(spec.build()).build();
+      featureSetRequests.add(builtRequest);
+
+      List<Optional<FeatureRow>> featureRows = new ArrayList<>();
+      for (int k = 0; k < entityRowCount; k++) {
+        FeatureRow.Builder featureRow =
+            FeatureRow.newBuilder()
+                .setFeatureSet("project/" + featureSetName)
+                .setEventTimestamp(Timestamp.newBuilder().setSeconds(90))
+                .addFields(
+                    Field.newBuilder()
+                        .setName("entity")
+                        .setValue(Value.newBuilder().setInt64Val(k)));
+        for (int j = 0; j < featuresPerFeatureSet; j++) {
+          featureRow.addFields(
+              Field.newBuilder()
+                  .setName("feature_" + j)
+                  .setValue(Value.newBuilder().setDoubleVal(k * j)));
+        }
+        // leave some rows missing to exercise the not found path
+        featureRows.add((k % 10 == 0) ? Optional.empty() : Optional.of(featureRow.build()));
+      }
+      featureRowsByRequest.put(builtRequest, featureRows);
+    }
+
+    CachedSpecService specService = mock(CachedSpecService.class);
+    when(specService.getFeatureSets(any(), anyString())).thenReturn(featureSetRequests);
+    retriever = (rows, featureSetRequest) -> featureRowsByRequest.get(featureSetRequest);
+
+    onlineServingService =
+        new OnlineServingService(retriever, specService, NoopTracerFactory.create());
+    request =
+        GetOnlineFeaturesRequest.newBuilder()
+            .addAllFeatures(featureReferences)
+            .addAllEntityRows(entityRows)
+            .setColumnarResponse(columnarResponse)
+            .build();
+  }
+
+  @Benchmark
+  public GetOnlineFeaturesResponse getOnlineFeatures() {
+    return onlineServingService.getOnlineFeatures(request);
+  }
+
+  @Benchmark
+  public GetOnlineFeaturesResponse getOnlineFeaturesBaseline() {
+    List<EntityRow> entityRows = request.getEntityRowsList();
+    Map<EntityRow, Map<String, Value>> entityValuesMap =
+        entityRows.stream().collect(Collectors.toMap(row -> row, row -> new HashMap<>()));
+    Map<EntityRow, Map<String, FieldStatus>> entityStatusesMap =
+        entityRows.stream().collect(Collectors.toMap(row -> row, row -> new HashMap<>()));
+    for (EntityRow entityRow : entityRows) {
+      Map<String, Value> valueMap = entityRow.getFieldsMap();
+      entityValuesMap.get(entityRow).putAll(valueMap);
+      entityStatusesMap.get(entityRow).putAll(getMetadataMap(valueMap, false, false));
+    }
+
+    for (FeatureSetRequest featureSetRequest : featureSetRequests) {
+      List<Optional<FeatureRow>> featureRows =
+          retriever.getOnlineFeatures(entityRows, featureSetRequest);
+      long maxAgeSeconds = featureSetRequest.getSpec().getMaxAge().getSeconds();
+      for (int i = 0; i < entityRows.size(); i++) {
+        EntityRow entityRow = entityRows.get(i);
+        Optional<FeatureRow> featureRow = featureRows.get(i);
+        boolean isOutsideMaxAge =
+            featureRow.isPresent()
+                && entityRow.getEntityTimestamp().getSeconds()
+                        - featureRow.get().getEventTimestamp().getSeconds()
+                    > maxAgeSeconds;
+        Map<String, Value> valueMap =
+            unpackValueMap(featureRow, featureSetRequest, isOutsideMaxAge);
+        entityValuesMap.get(entityRow).putAll(valueMap);
+        entityStatusesMap
+            .get(entityRow)
+            .putAll(getMetadataMap(valueMap, featureRow.isEmpty(), isOutsideMaxAge));
+      }
+    }
+
+    return GetOnlineFeaturesResponse.newBuilder()
+        .addAllFieldValues(
+            entityRows.stream()
+                .map(
+                    entityRow ->
+                        FieldValues.newBuilder()
+                            .putAllFields(entityValuesMap.get(entityRow))
+                            .putAllStatuses(entityStatusesMap.get(entityRow))
+                            .build())
+                .collect(Collectors.toList()))
+        .build();
+  }
+
+  private static Map<String, Value> unpackValueMap(
+      Optional<FeatureRow> featureRow,
+      FeatureSetRequest featureSetRequest,
+      boolean isOutsideMaxAge) {
+    Map<String, Value> valueMap = new HashMap<>();
+    Map<String, FeatureReference> nameRefMap = featureSetRequest.getFeatureRefsByName();
+    if (featureRow.isPresent()) {
+      valueMap.putAll(
+          featureRow.get().getFieldsList().stream()
+              .filter(field -> nameRefMap.containsKey(field.getName()))
+              .collect(
+                  Collectors.toMap(
+                      field ->
+                          Feature.getFeatureStringWithProjectRef(nameRefMap.get(field.getName())),
+                      field -> isOutsideMaxAge ? Value.newBuilder().build() : field.getValue())));
+    }
+    Set<String> missingFeatures =
+        nameRefMap.values().stream()
+            .map(Feature::getFeatureStringWithProjectRef)
+            .collect(Collectors.toSet());
+    missingFeatures.removeAll(valueMap.keySet());
+    missingFeatures.forEach(refString -> valueMap.put(refString, Value.newBuilder().build()));
+    return valueMap;
+  }
+
+  private static Map<String, FieldStatus> getMetadataMap(
+      Map<String, Value> valueMap, boolean isNotFound, boolean isOutsideMaxAge) {
+    return valueMap.entrySet().stream()
+        .collect(
+            Collectors.toMap(
+                Map.Entry::getKey,
+                entry -> {
+                  if (isNotFound) {
+                    return FieldStatus.NOT_FOUND;
+                  } else if (isOutsideMaxAge) {
+                    return FieldStatus.OUTSIDE_MAX_AGE;
+                  } else if (entry.getValue().getValCase() == Value.ValCase.VAL_NOT_SET) {
+                    return FieldStatus.NULL_VALUE;
+                  }
+                  return FieldStatus.PRESENT;
+                }));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(OnlineServingServiceBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+}
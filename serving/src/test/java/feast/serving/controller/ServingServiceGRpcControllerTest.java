@@ -18,8 +18,11 @@ package feast.serving.controller;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -38,11 +41,14 @@ import feast.proto.types.ValueProto.Value;
 import feast.serving.config.FeastProperties;
 import feast.serving.service.ServingService;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import io.jaegertracing.Configuration;
 import io.opentracing.Tracer;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.security.core.Authentication;
@@ -55,6 +61,8 @@ public class ServingServiceGRpcControllerTest {
 
   @Mock private StreamObserver<GetOnlineFeaturesResponse> mockStreamObserver;
 
+  @Mock private ServerCallStreamObserver<GetOnlineFeaturesResponse> mockServerCallStreamObserver;
+
   private GetOnlineFeaturesRequest validRequest;
 
   private ServingServiceGRpcController service;
@@ -138,4 +146,48 @@ public class ServingServiceGRpcControllerTest {
     service.getOnlineFeatures(validRequest, mockStreamObserver);
     Mockito.verify(mockStreamObserver).onError(Mockito.any(StatusRuntimeException.class));
   }
+
+  @Test
+  public void shouldStreamResponsesOnlyWhenClientIsReady() {
+    service = getServingServiceGRpcController(false);
+    // responses are distinct so that each one is verified to be sent once
+    GetOnlineFeaturesResponse response1 =
+        GetOnlineFeaturesResponse.newBuilder()
+            .addFieldValues(
+                GetOnlineFeaturesResponse.FieldValues.newBuilder()
+                    .putFields("feature", Value.newBuilder().setInt64Val(1).build()))
+            .build();
+    GetOnlineFeaturesResponse response2 =
+        GetOnlineFeaturesResponse.newBuilder()
+            .addFieldValues(
+                GetOnlineFeaturesResponse.FieldValues.newBuilder()
+                    .putFields("feature", Value.newBuilder().setInt64Val(2).build()))
+            .build();
+    when(mockServingService.getOnlineFeaturesStream(eq(validRequest), Mockito.anyInt()))
+        .thenReturn(List.of(response1, response2).iterator());
+    when(mockServerCallStreamObserver.isReady()).thenReturn(true, false, true);
+
+    service.getOnlineFeaturesStream(validRequest, mockServerCallStreamObserver);
+    ArgumentCaptor<Runnable> onReadyHandler = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(mockServerCallStreamObserver).setOnReadyHandler(onReadyHandler.capture());
+
+    // client becomes ready, then stops being ready after the first response
+    onReadyHandler.getValue().run();
+    Mockito.verify(mockServerCallStreamObserver, times(1)).onNext(response1);
+    Mockito.verify(mockServerCallStreamObserver, never()).onCompleted();
+
+    // client becomes ready again
+    onReadyHandler.getValue().run();
+    Mockito.verify(mockServerCallStreamObserver, times(1)).onNext(response2);
+    Mockito.verify(mockServerCallStreamObserver, times(1)).onCompleted();
+  }
+
+  @Test
+  public void shouldCallOnErrorIfStreamedRequestIsInvalid() {
+    service = getServingServiceGRpcController(false);
+    GetOnlineFeaturesRequest missingEntityName =
+        GetOnlineFeaturesRequest.newBuilder(validRequest).clearEntityRows().build();
+    service.getOnlineFeaturesStream(missingEntityName, mockServerCallStreamObserver);
+    Mockito.verify(mockServerCallStreamObserver).onError(Mockito.any(StatusRuntimeException.class));
+  }
 }
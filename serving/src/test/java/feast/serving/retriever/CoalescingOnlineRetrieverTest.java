@@ -0,0 +1,191 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.retriever;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.OnlineRetriever;
+import io.grpc.Status;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+public class CoalescingOnlineRetrieverTest {
+
+  @Mock OnlineRetriever retriever;
+
+  private ScheduledExecutorService executor;
+
+  private FeatureSetSpec spec;
+  private FeatureSetRequest featureSetRequest;
+  private EntityRow entityRow1;
+  private EntityRow entityRow2;
+  private FeatureRow featureRow1;
+  private FeatureRow featureRow2;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    executor = Executors.newSingleThreadScheduledExecutor();
+    spec =
+        FeatureSetSpec.newBuilder()
+            .setProject("project")
+            .setName("featureSet")
+            .addEntities(EntitySpec.newBuilder().setName("entity1"))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature1"))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature2"))
+            .build();
+    featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .setSpec(spec)
+            .addFeatureReference(FeatureReference.newBuilder().setName("feature1").build())
+            .build();
+    entityRow1 = EntityRow.newBuilder().putFields("entity1", intValue(1)).build();
+    entityRow2 = EntityRow.newBuilder().putFields("entity1", intValue(2)).build();
+    featureRow1 = featureRow(10);
+    featureRow2 = featureRow(20);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldJoinLookupsInFlightAndBatchRemainingLookups() {
+    CompletableFuture<List<Optional<FeatureRow>>> firstLookup = new CompletableFuture<>();
+    when(retriever.getOnlineFeaturesAsync(any(), any()))
+        .thenReturn(firstLookup)
+        .thenReturn(CompletableFuture.completedFuture(List.of(Optional.of(featureRow2))));
+    OnlineRetriever coalescing = new CoalescingOnlineRetriever(retriever, executor, 0, 100);
+
+    CompletableFuture<List<Optional<FeatureRow>>> first =
+        coalescing.getOnlineFeaturesAsync(List.of(entityRow1), featureSetRequest);
+    CompletableFuture<List<Optional<FeatureRow>>> second =
+        coalescing.getOnlineFeaturesAsync(List.of(entityRow2, entityRow1), featureSetRequest);
+    firstLookup.complete(List.of(Optional.of(featureRow1)));
+
+    assertThat(first.join(), equalTo(List.of(Optional.of(featureRow1))));
+    assertThat(second.join(), equalTo(List.of(Optional.of(featureRow2), Optional.of(featureRow1))));
+
+    // entity row 1 is looked up once, entity row 2 is looked up by the second request only
+    ArgumentCaptor<List<EntityRow>> entityRows = ArgumentCaptor.forClass(List.class);
+    verify(retriever, times(2)).getOnlineFeaturesAsync(entityRows.capture(), any());
+    assertThat(
+        entityRows.getAllValues(), equalTo(List.of(List.of(entityRow1), List.of(entityRow2))));
+  }
+
+  @Test
+  public void shouldBatchLookupsFromConcurrentRequestsWithinWindow() {
+    when(retriever.getOnlineFeaturesAsync(any(), any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                List.of(Optional.of(featureRow1), Optional.of(featureRow2))));
+    OnlineRetriever coalescing = new CoalescingOnlineRetriever(retriever, executor, 1000000, 2);
+
+    // the batch is retrieved as soon as it is full, before the end of the window
+    CompletableFuture<List<Optional<FeatureRow>>> first =
+        coalescing.getOnlineFeaturesAsync(List.of(entityRow1), featureSetRequest);
+    CompletableFuture<List<Optional<FeatureRow>>> second =
+        coalescing.getOnlineFeaturesAsync(List.of(entityRow2), featureSetRequest);
+
+    assertThat(first.join(), equalTo(List.of(Optional.of(featureRow1))));
+    assertThat(second.join(), equalTo(List.of(Optional.of(featureRow2))));
+    verify(retriever, times(1)).getOnlineFeaturesAsync(any(), any());
+  }
+
+  @Test
+  public void shouldOnlyCoalesceLookupsOfTheSameFeatures() {
+    FeatureSetRequest otherFeatureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .setSpec(spec)
+            .addFeatureReference(FeatureReference.newBuilder().setName("feature2").build())
+            .build();
+    CompletableFuture<List<Optional<FeatureRow>>> firstLookup = new CompletableFuture<>();
+    when(retriever.getOnlineFeaturesAsync(any(), any()))
+        .thenReturn(firstLookup)
+        .thenReturn(CompletableFuture.completedFuture(List.of(Optional.of(featureRow2))));
+    OnlineRetriever coalescing = new CoalescingOnlineRetriever(retriever, executor, 0, 100);
+
+    CompletableFuture<List<Optional<FeatureRow>>> first =
+        coalescing.getOnlineFeaturesAsync(List.of(entityRow1), featureSetRequest);
+    CompletableFuture<List<Optional<FeatureRow>>> second =
+        coalescing.getOnlineFeaturesAsync(List.of(entityRow1), otherFeatureSetRequest);
+    firstLookup.complete(List.of(Optional.of(featureRow1)));
+
+    assertThat(first.join(), equalTo(List.of(Optional.of(featureRow1))));
+    assertThat(second.join(), equalTo(List.of(Optional.of(featureRow2))));
+    // lookups are retrieved with the requested features only
+    verify(retriever).getOnlineFeaturesAsync(List.of(entityRow1), featureSetRequest);
+    verify(retriever).getOnlineFeaturesAsync(List.of(entityRow1), otherFeatureSetRequest);
+  }
+
+  @Test
+  public void shouldFailAllLookupsInFailedBatch() {
+    when(retriever.getOnlineFeaturesAsync(any(), any()))
+        .thenReturn(
+            CompletableFuture.failedFuture(Status.UNKNOWN.asRuntimeException()),
+            CompletableFuture.completedFuture(List.of(Optional.of(featureRow1))));
+    OnlineRetriever coalescing = new CoalescingOnlineRetriever(retriever, executor, 0, 100);
+
+    assertThrows(
+        CompletionException.class,
+        () -> coalescing.getOnlineFeatures(List.of(entityRow1), featureSetRequest));
+    // failed lookups are not kept in flight
+    assertThat(
+        coalescing.getOnlineFeatures(List.of(entityRow1), featureSetRequest),
+        equalTo(List.of(Optional.of(featureRow1))));
+  }
+
+  private FeatureRow featureRow(int val) {
+    return FeatureRow.newBuilder()
+        .setFeatureSet("project/featureSet")
+        .setEventTimestamp(Timestamp.newBuilder().setSeconds(100))
+        .addFields(Field.newBuilder().setName("feature1").setValue(intValue(val)))
+        .build();
+  }
+
+  private Value intValue(int val) {
+    return Value.newBuilder().setInt64Val(val).build();
+  }
+}
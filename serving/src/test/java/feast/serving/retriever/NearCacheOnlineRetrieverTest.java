@@ -0,0 +1,161 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.retriever;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.google.protobuf.Duration;
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.OnlineRetriever;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+public class NearCacheOnlineRetrieverTest {
+
+  @Mock OnlineRetriever retriever;
+
+  private FeatureSetSpec spec;
+  private FeatureSetRequest featureSetRequest;
+  private EntityRow entityRow1;
+  private EntityRow entityRow2;
+  private FeatureRow featureRow1;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    spec =
+        FeatureSetSpec.newBuilder()
+            .setProject("project")
+            .setName("featureSet")
+            .addEntities(EntitySpec.newBuilder().setName("entity1"))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature1"))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature2"))
+            .setMaxAge(Duration.newBuilder().setSeconds(30))
+            .build();
+    featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .setSpec(spec)
+            .addFeatureReference(FeatureReference.newBuilder().setName("feature1").build())
+            .build();
+    entityRow1 = EntityRow.newBuilder().putFields("entity1", intValue(1)).build();
+    entityRow2 = EntityRow.newBuilder().putFields("entity1", intValue(2)).build();
+    featureRow1 =
+        FeatureRow.newBuilder()
+            .setFeatureSet("project/featureSet")
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(100))
+            .addFields(Field.newBuilder().setName("feature1").setValue(intValue(10)))
+            .addFields(Field.newBuilder().setName("feature2").setValue(intValue(20)))
+            .build();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldServeCachedFeatureRowsAndOnlyRetrieveMisses() {
+    when(retriever.getOnlineFeaturesAsync(any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(List.of(Optional.of(featureRow1))))
+        .thenReturn(CompletableFuture.completedFuture(List.of(Optional.empty())));
+    OnlineRetriever nearCache = new NearCacheOnlineRetriever(retriever, 100, 60000);
+
+    assertThat(
+        nearCache.getOnlineFeatures(List.of(entityRow1), featureSetRequest),
+        equalTo(List.of(Optional.of(featureRow1))));
+    assertThat(
+        nearCache.getOnlineFeatures(List.of(entityRow2, entityRow1), featureSetRequest),
+        equalTo(List.of(Optional.empty(), Optional.of(featureRow1))));
+
+    ArgumentCaptor<List<EntityRow>> entityRows = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<FeatureSetRequest> requests = ArgumentCaptor.forClass(FeatureSetRequest.class);
+    verify(retriever, times(2)).getOnlineFeaturesAsync(entityRows.capture(), requests.capture());
+    assertThat(
+        entityRows.getAllValues(), equalTo(List.of(List.of(entityRow1), List.of(entityRow2))));
+    // misses should be retrieved with only the requested features
+    assertThat(requests.getValue(), equalTo(featureSetRequest));
+  }
+
+  @Test
+  public void shouldNotServeFeatureRowsCachedForOtherFeatures() {
+    FeatureSetRequest otherFeatureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .setSpec(spec)
+            .addFeatureReference(FeatureReference.newBuilder().setName("feature2").build())
+            .build();
+    when(retriever.getOnlineFeaturesAsync(any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(List.of(Optional.of(featureRow1))));
+    OnlineRetriever nearCache = new NearCacheOnlineRetriever(retriever, 100, 60000);
+
+    nearCache.getOnlineFeatures(List.of(entityRow1), featureSetRequest);
+    nearCache.getOnlineFeatures(List.of(entityRow1), otherFeatureSetRequest);
+    nearCache.getOnlineFeatures(List.of(entityRow1), otherFeatureSetRequest);
+
+    verify(retriever).getOnlineFeaturesAsync(List.of(entityRow1), featureSetRequest);
+    verify(retriever).getOnlineFeaturesAsync(List.of(entityRow1), otherFeatureSetRequest);
+  }
+
+  @Test
+  public void shouldBypassCacheIfTtlIsZero() {
+    when(retriever.getOnlineFeaturesAsync(List.of(entityRow1), featureSetRequest))
+        .thenReturn(CompletableFuture.completedFuture(List.of(Optional.of(featureRow1))));
+    OnlineRetriever nearCache = new NearCacheOnlineRetriever(retriever, 100, 0);
+
+    nearCache.getOnlineFeatures(List.of(entityRow1), featureSetRequest);
+    nearCache.getOnlineFeatures(List.of(entityRow1), featureSetRequest);
+
+    verify(retriever, times(2)).getOnlineFeaturesAsync(List.of(entityRow1), featureSetRequest);
+  }
+
+  @Test
+  public void shouldUseTtlOverriddenForFeatureSet() {
+    when(retriever.getOnlineFeaturesAsync(List.of(entityRow1), featureSetRequest))
+        .thenReturn(CompletableFuture.completedFuture(List.of(Optional.of(featureRow1))));
+    OnlineRetriever cachedNearCache =
+        new NearCacheOnlineRetriever(retriever, 100, 0, Map.of("project/featureSet", 60000L));
+    OnlineRetriever bypassedNearCache =
+        new NearCacheOnlineRetriever(retriever, 100, 60000, Map.of("project/featureSet", 0L));
+
+    cachedNearCache.getOnlineFeatures(List.of(entityRow1), featureSetRequest);
+    cachedNearCache.getOnlineFeatures(List.of(entityRow1), featureSetRequest);
+    bypassedNearCache.getOnlineFeatures(List.of(entityRow1), featureSetRequest);
+    bypassedNearCache.getOnlineFeatures(List.of(entityRow1), featureSetRequest);
+
+    verify(retriever, times(3)).getOnlineFeaturesAsync(List.of(entityRow1), featureSetRequest);
+  }
+
+  private Value intValue(int val) {
+    return Value.newBuilder().setInt64Val(val).build();
+  }
+}
@@ -18,6 +18,8 @@ package feast.serving.service;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -243,6 +245,28 @@ public class CachedSpecServiceTest {
                     .build())));
   }
 
+  @Test
+  public void shouldReuseResolvedFeatureSetsUntilCacheIsRefreshed() {
+    FeatureReference fr1 =
+        FeatureReference.newBuilder().setProject("project").setName("feature").build();
+    FeatureReference fr2 =
+        FeatureReference.newBuilder().setProject("project").setName("feature2").build();
+
+    List<FeatureSetRequest> featureSetRequests =
+        cachedSpecService.getFeatureSets(List.of(fr1, fr2));
+    assertThat(
+        cachedSpecService.getFeatureSets(List.of(fr1, fr2)), sameInstance(featureSetRequests));
+    assertThat(
+        cachedSpecService.getFeatureSets(List.of(fr1, fr2), "project"),
+        not(sameInstance(featureSetRequests)));
+
+    cachedSpecService.populateCache();
+    List<FeatureSetRequest> refreshedFeatureSetRequests =
+        cachedSpecService.getFeatureSets(List.of(fr1, fr2));
+    assertThat(refreshedFeatureSetRequests, not(sameInstance(featureSetRequests)));
+    assertThat(refreshedFeatureSetRequests, equalTo(featureSetRequests));
+  }
+
   @Test
   public void shouldThrowExceptionWhenMultipleFeatureSetMapToFeatureReference()
       throws SpecRetrievalException {
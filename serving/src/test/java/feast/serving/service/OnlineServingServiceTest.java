@@ -18,6 +18,7 @@ package feast.serving.service;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -30,6 +31,8 @@ import feast.proto.serving.ServingAPIProto.FeatureReference;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldColumn;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldColumns;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldStatus;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse.FieldValues;
 import feast.proto.types.FeatureRowProto.FeatureRow;
@@ -38,12 +41,18 @@ import feast.proto.types.ValueProto.Value;
 import feast.serving.specs.CachedSpecService;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.connectors.redis.retriever.RedisOnlineRetriever;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import io.opentracing.Tracer;
 import io.opentracing.Tracer.SpanBuilder;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
@@ -132,8 +141,8 @@ public class OnlineServingServiceTest {
 
     when(specService.getFeatureSets(request.getFeaturesList(), ""))
         .thenReturn(Collections.singletonList(featureSetRequest));
-    when(retriever.getOnlineFeatures(request.getEntityRowsList(), featureSetRequest))
-        .thenReturn(featureRows);
+    when(retriever.getOnlineFeaturesAsync(request.getEntityRowsList(), featureSetRequest))
+        .thenReturn(CompletableFuture.completedFuture(featureRows));
 
     when(tracer.buildSpan(ArgumentMatchers.any())).thenReturn(Mockito.mock(SpanBuilder.class));
 
@@ -164,6 +173,102 @@ public class OnlineServingServiceTest {
             .build();
     GetOnlineFeaturesResponse actual = onlineServingService.getOnlineFeatures(request);
     assertThat(actual, equalTo(expected));
+
+    // fields are serialized in the iteration order of the hash maps they are collected in
+    Map<String, Value> featureValueMap = new HashMap<>();
+    featureValueMap.put("feature1", intValue(1));
+    featureValueMap.put("project/feature2", intValue(1));
+    Map<String, Value> valueMap = new HashMap<>();
+    valueMap.putAll(request.getEntityRows(0).getFieldsMap());
+    valueMap.putAll(new HashMap<>(featureValueMap));
+    assertThat(
+        new ArrayList<>(actual.getFieldValues(0).getFieldsMap().keySet()),
+        equalTo(new ArrayList<>(valueMap.keySet())));
+  }
+
+  @Test
+  public void shouldReturnColumnarResponseIfRequested() {
+    GetOnlineFeaturesRequest request =
+        getOnlineFeaturesRequest(List.of(FeatureReference.newBuilder().setName("feature1").build()))
+            .toBuilder()
+            .setColumnarResponse(true)
+            .build();
+
+    FeatureSetRequest featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .addAllFeatureReferences(request.getFeaturesList())
+            .setSpec(getFeatureSetSpec())
+            .build();
+
+    List<Optional<FeatureRow>> featureRows =
+        List.of(Optional.of(testFeatureRows.get(0)), Optional.empty());
+
+    when(specService.getFeatureSets(request.getFeaturesList(), ""))
+        .thenReturn(Collections.singletonList(featureSetRequest));
+    when(retriever.getOnlineFeaturesAsync(request.getEntityRowsList(), featureSetRequest))
+        .thenReturn(CompletableFuture.completedFuture(featureRows));
+    when(tracer.buildSpan(ArgumentMatchers.any())).thenReturn(Mockito.mock(SpanBuilder.class));
+
+    GetOnlineFeaturesResponse expected =
+        GetOnlineFeaturesResponse.newBuilder()
+            .setFieldColumns(
+                FieldColumns.newBuilder()
+                    .addAllFieldNames(List.of("entity1", "entity2", "feature1"))
+                    .addColumns(
+                        FieldColumn.newBuilder()
+                            .addAllValues(List.of(intValue(1), intValue(2)))
+                            .addAllStatuses(List.of(FieldStatus.PRESENT, FieldStatus.PRESENT)))
+                    .addColumns(
+                        FieldColumn.newBuilder()
+                            .addAllValues(List.of(strValue("a"), strValue("b")))
+                            .addAllStatuses(List.of(FieldStatus.PRESENT, FieldStatus.PRESENT)))
+                    .addColumns(
+                        FieldColumn.newBuilder()
+                            .addAllValues(List.of(intValue(1), Value.newBuilder().build()))
+                            .addAllStatuses(List.of(FieldStatus.PRESENT, FieldStatus.NOT_FOUND))))
+            .build();
+    GetOnlineFeaturesResponse actual = onlineServingService.getOnlineFeatures(request);
+    assertThat(actual, equalTo(expected));
+  }
+
+  @Test
+  public void shouldStreamResponsesInChunksOfEntityRows() {
+    GetOnlineFeaturesRequest request =
+        getOnlineFeaturesRequest(List.of(FeatureReference.newBuilder().setName("feature1").build()))
+            .toBuilder()
+            .setOmitEntitiesInResponse(true)
+            .build();
+
+    FeatureSetRequest featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .addAllFeatureReferences(request.getFeaturesList())
+            .setSpec(getFeatureSetSpec())
+            .build();
+
+    when(specService.getFeatureSets(request.getFeaturesList(), ""))
+        .thenReturn(Collections.singletonList(featureSetRequest));
+    for (int i = 0; i < 2; i++) {
+      when(retriever.getOnlineFeaturesAsync(List.of(request.getEntityRows(i)), featureSetRequest))
+          .thenReturn(
+              CompletableFuture.completedFuture(List.of(Optional.of(testFeatureRows.get(i)))));
+    }
+    when(tracer.buildSpan(ArgumentMatchers.any())).thenReturn(Mockito.mock(SpanBuilder.class));
+
+    Iterator<GetOnlineFeaturesResponse> responses =
+        onlineServingService.getOnlineFeaturesStream(request, 1);
+
+    for (int i = 0; i < 2; i++) {
+      assertThat(
+          responses.next(),
+          equalTo(
+              GetOnlineFeaturesResponse.newBuilder()
+                  .addFieldValues(
+                      FieldValues.newBuilder()
+                          .putFields("feature1", intValue(i + 1))
+                          .putStatuses("feature1", FieldStatus.PRESENT))
+                  .build()));
+    }
+    assertThat(responses.hasNext(), equalTo(false));
   }
 
   @Test
@@ -186,8 +291,8 @@ public class OnlineServingServiceTest {
 
     when(specService.getFeatureSets(request.getFeaturesList(), ""))
         .thenReturn(Collections.singletonList(featureSetRequest));
-    when(retriever.getOnlineFeatures(request.getEntityRowsList(), featureSetRequest))
-        .thenReturn(featureRows);
+    when(retriever.getOnlineFeaturesAsync(request.getEntityRowsList(), featureSetRequest))
+        .thenReturn(CompletableFuture.completedFuture(featureRows));
     when(tracer.buildSpan(ArgumentMatchers.any())).thenReturn(Mockito.mock(SpanBuilder.class));
 
     GetOnlineFeaturesResponse expected =
@@ -241,8 +346,8 @@ public class OnlineServingServiceTest {
 
     when(specService.getFeatureSets(request.getFeaturesList(), ""))
         .thenReturn(Collections.singletonList(featureSetRequest));
-    when(retriever.getOnlineFeatures(request.getEntityRowsList(), featureSetRequest))
-        .thenReturn(featureRows);
+    when(retriever.getOnlineFeaturesAsync(request.getEntityRowsList(), featureSetRequest))
+        .thenReturn(CompletableFuture.completedFuture(featureRows));
     when(tracer.buildSpan(ArgumentMatchers.any())).thenReturn(Mockito.mock(SpanBuilder.class));
 
     GetOnlineFeaturesResponse expected =
@@ -292,8 +397,8 @@ public class OnlineServingServiceTest {
 
     when(specService.getFeatureSets(request.getFeaturesList(), ""))
         .thenReturn(Collections.singletonList(featureSetRequest));
-    when(retriever.getOnlineFeatures(request.getEntityRowsList(), featureSetRequest))
-        .thenReturn(featureRows);
+    when(retriever.getOnlineFeaturesAsync(request.getEntityRowsList(), featureSetRequest))
+        .thenReturn(CompletableFuture.completedFuture(featureRows));
     when(tracer.buildSpan(ArgumentMatchers.any())).thenReturn(Mockito.mock(SpanBuilder.class));
 
     GetOnlineFeaturesResponse expected =
@@ -346,8 +451,8 @@ public class OnlineServingServiceTest {
 
     when(specService.getFeatureSets(request.getFeaturesList(), "project"))
         .thenReturn(Collections.singletonList(featureSetRequest));
-    when(retriever.getOnlineFeatures(request.getEntityRowsList(), featureSetRequest))
-        .thenReturn(featureRows);
+    when(retriever.getOnlineFeaturesAsync(request.getEntityRowsList(), featureSetRequest))
+        .thenReturn(CompletableFuture.completedFuture(featureRows));
     when(tracer.buildSpan(ArgumentMatchers.any())).thenReturn(Mockito.mock(SpanBuilder.class));
 
     GetOnlineFeaturesResponse expected =
@@ -379,6 +484,31 @@ public class OnlineServingServiceTest {
     assertThat(actual, equalTo(expected));
   }
 
+  @Test
+  public void shouldFailWithDeadlineExceededIfLookupTimesOut() {
+    onlineServingService = new OnlineServingService(retriever, specService, tracer, 1, 10);
+    GetOnlineFeaturesRequest request =
+        getOnlineFeaturesRequest(
+            List.of(FeatureReference.newBuilder().setName("feature1").build()));
+
+    FeatureSetRequest featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .addAllFeatureReferences(request.getFeaturesList())
+            .setSpec(getFeatureSetSpec())
+            .build();
+
+    when(specService.getFeatureSets(request.getFeaturesList(), ""))
+        .thenReturn(Collections.singletonList(featureSetRequest));
+    when(retriever.getOnlineFeaturesAsync(request.getEntityRowsList(), featureSetRequest))
+        .thenReturn(new CompletableFuture<>());
+    when(tracer.buildSpan(ArgumentMatchers.any())).thenReturn(Mockito.mock(SpanBuilder.class));
+
+    StatusRuntimeException e =
+        assertThrows(
+            StatusRuntimeException.class, () -> onlineServingService.getOnlineFeatures(request));
+    assertThat(e.getStatus().getCode(), equalTo(Status.Code.DEADLINE_EXCEEDED));
+  }
+
   private Value intValue(int val) {
     return Value.newBuilder().setInt32Val(val).build();
   }
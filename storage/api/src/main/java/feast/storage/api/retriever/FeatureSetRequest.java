@@ -19,6 +19,7 @@ package feast.storage.api.retriever;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableSet;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
 import feast.proto.serving.ServingAPIProto.FeatureReference;
 import java.util.List;
 import java.util.Map;
@@ -53,6 +54,25 @@ public abstract class FeatureSetRequest {
     public abstract FeatureSetRequest build();
   }
 
+  /**
+   * Create a feature set request for all features of the given feature set spec.
+   *
+   * @param spec feature set spec to request features of.
+   * @return feature set request referencing every feature in the spec.
+   */
+  public static FeatureSetRequest ofAllFeatures(FeatureSetSpec spec) {
+    Builder featureSetRequest = newBuilder().setSpec(spec);
+    for (FeatureSpec featureSpec : spec.getFeaturesList()) {
+      featureSetRequest.addFeatureReference(
+          FeatureReference.newBuilder()
+              .setProject(spec.getProject())
+              .setFeatureSet(spec.getName())
+              .setName(featureSpec.getName())
+              .build());
+    }
+    return featureSetRequest.build();
+  }
+
   public Map<String, FeatureReference> getFeatureRefsByName() {
     return getFeatureReferences().stream()
         .collect(Collectors.toMap(FeatureReference::getName, featureReference -> featureReference));
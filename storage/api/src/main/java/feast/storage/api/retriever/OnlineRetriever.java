@@ -20,6 +20,7 @@ import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /** An online retriever is a feature retriever that retrieves the latest feature data. */
 public interface OnlineRetriever {
@@ -40,4 +41,35 @@ public interface OnlineRetriever {
    */
   List<Optional<FeatureRow>> getOnlineFeatures(
       List<EntityRow> entityRows, FeatureSetRequest featureSetRequest);
+
+  /**
+   * Asynchronously get online features for the given entity rows using data retrieved from the
+   * feature/featureset specified in feature set request. See {@link #getOnlineFeatures(List,
+   * FeatureSetRequest)} for the contract of the returned list.
+   *
+   * <p>Retrievers backed by a store with a non-blocking client should override this method so that
+   * lookups for multiple feature sets can be in flight at the same time. The default implementation
+   * performs the lookup synchronously on the calling thread.
+   *
+   * @param entityRows list of entity rows to request features for.
+   * @param featureSetRequest specifies the features/feature set to retrieve data from
+   * @return future completing with the list of {@link FeatureRow}s corresponding to data retrieved
+   *     for each entity row from feature/featureset specified in featureset request.
+   */
+  default CompletableFuture<List<Optional<FeatureRow>>> getOnlineFeaturesAsync(
+      List<EntityRow> entityRows, FeatureSetRequest featureSetRequest) {
+    try {
+      return CompletableFuture.completedFuture(getOnlineFeatures(entityRows, featureSetRequest));
+    } catch (RuntimeException e) {
+      CompletableFuture<List<Optional<FeatureRow>>> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+  }
+
+  /**
+   * Release the resources held by the retriever, such as connections to the online store. The
+   * retriever must not be used once closed. The default implementation holds no resources.
+   */
+  default void close() {}
 }
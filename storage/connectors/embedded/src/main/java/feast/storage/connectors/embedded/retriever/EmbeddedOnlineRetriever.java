@@ -0,0 +1,152 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.embedded.retriever;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.protobuf.InvalidProtocolBufferException;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.StoreProto.Store.EmbeddedConfig;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.OnlineRetriever;
+import feast.storage.connectors.embedded.store.EntityKeyEncoder;
+import feast.storage.connectors.embedded.store.FeatureRowCodec;
+import feast.storage.connectors.embedded.store.MappedFeatureStore;
+import io.grpc.Status;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Retrieves online features from the embedded store in the local memory-mapped files. Lookups are
+ * served on the calling thread with no network hop, so the default asynchronous lookup is used.
+ */
+public class EmbeddedOnlineRetriever implements OnlineRetriever {
+
+  // Max no. of compiled key encoders and codecs to retain, one per feature set spec version.
+  private static final int MAX_CODEC_COUNT = 1000;
+
+  private final MappedFeatureStore store;
+
+  // Key encoders compiled for each feature set spec, keyed by the spec itself so that an updated
+  // spec is compiled into a new encoder.
+  private final LoadingCache<FeatureSetSpec, EntityKeyEncoder> keyEncoders =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_CODEC_COUNT)
+          .build(
+              CacheLoader.from(
+                  (FeatureSetSpec spec) ->
+                      new EntityKeyEncoder(generateFeatureSetStringRef(spec), spec)));
+
+  // Feature row codecs compiled for each feature set spec.
+  private final LoadingCache<FeatureSetSpec, FeatureRowCodec> codecs =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_CODEC_COUNT)
+          .build(
+              CacheLoader.from(
+                  (FeatureSetSpec spec) ->
+                      new FeatureRowCodec(generateFeatureSetStringRef(spec), spec)));
+
+  private EmbeddedOnlineRetriever(MappedFeatureStore store) {
+    this.store = store;
+  }
+
+  public static OnlineRetriever create(Map<String, String> config) {
+    EmbeddedConfig.Builder embeddedConfig =
+        EmbeddedConfig.newBuilder().setPath(config.getOrDefault("path", ""));
+    if (config.containsKey("segment_size_mb")) {
+      embeddedConfig.setSegmentSizeMb(Integer.parseInt(config.get("segment_size_mb")));
+    }
+    if (config.containsKey("max_entries")) {
+      embeddedConfig.setMaxEntries(Long.parseLong(config.get("max_entries")));
+    }
+
+    try {
+      return new EmbeddedOnlineRetriever(MappedFeatureStore.open(embeddedConfig.build()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          String.format("Failed to open embedded store at '%s'", embeddedConfig.getPath()), e);
+    }
+  }
+
+  public static OnlineRetriever create(MappedFeatureStore store) {
+    return new EmbeddedOnlineRetriever(store);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<Optional<FeatureRow>> getOnlineFeatures(
+      List<EntityRow> entityRows, FeatureSetRequest featureSetRequest) {
+    FeatureSetSpec featureSetSpec = featureSetRequest.getSpec();
+    EntityKeyEncoder keyEncoder = keyEncoders.getUnchecked(featureSetSpec);
+    FeatureRowCodec codec = codecs.getUnchecked(featureSetSpec);
+    List<String> featureNames = getFeatureNames(featureSetRequest);
+
+    List<Optional<FeatureRow>> featureRows = new ArrayList<>(entityRows.size());
+    for (EntityRow entityRow : entityRows) {
+      byte[] key;
+      try {
+        key = keyEncoder.encode(entityRow.getFieldsMap());
+      } catch (IllegalArgumentException e) {
+        throw Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException();
+      }
+
+      byte[] value;
+      try {
+        value = store.get(key);
+      } catch (UncheckedIOException e) {
+        throw Status.INTERNAL
+            .withDescription("Unable to read feature rows from the embedded store")
+            .withCause(e)
+            .asRuntimeException();
+      }
+      if (value == null) {
+        featureRows.add(Optional.empty());
+        continue;
+      }
+
+      try {
+        featureRows.add(Optional.of(codec.decode(value, featureNames)));
+      } catch (InvalidProtocolBufferException e) {
+        throw Status.INTERNAL
+            .withDescription("Unable to parse protobuf while retrieving feature")
+            .withCause(e)
+            .asRuntimeException();
+      }
+    }
+    return featureRows;
+  }
+
+  private static List<String> getFeatureNames(FeatureSetRequest featureSetRequest) {
+    List<String> featureNames = new ArrayList<>(featureSetRequest.getFeatureReferences().size());
+    for (FeatureReference featureReference : featureSetRequest.getFeatureReferences()) {
+      featureNames.add(featureReference.getName());
+    }
+    return featureNames;
+  }
+
+  private static String generateFeatureSetStringRef(FeatureSetSpec featureSetSpec) {
+    return String.format("%s/%s", featureSetSpec.getProject(), featureSetSpec.getName());
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.embedded.store;
+
+import com.google.protobuf.CodedOutputStream;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.types.ValueProto.Value;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Encodes the keys of feature rows of a feature set in the embedded store: the feature set
+ * reference followed by the length-delimited values of the entities, in alphabetical order of the
+ * entity names.
+ */
+public class EntityKeyEncoder {
+  // Encoded feature set reference.
+  private final byte[] featureSetPrefix;
+  // Entity names in key order, ie. sorted alphabetically.
+  private final String[] entityNames;
+
+  /**
+   * Create a key encoder for the given feature set.
+   *
+   * @param featureSetRef reference of the feature set, eg. "project/feature_set".
+   * @param spec spec of the feature set.
+   */
+  public EntityKeyEncoder(String featureSetRef, FeatureSetSpec spec) {
+    byte[] prefix = new byte[CodedOutputStream.computeStringSizeNoTag(featureSetRef)];
+    CodedOutputStream output = CodedOutputStream.newInstance(prefix);
+    try {
+      output.writeStringNoTag(featureSetRef);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.featureSetPrefix = prefix;
+    this.entityNames =
+        spec.getEntitiesList().stream().map(EntitySpec::getName).toArray(String[]::new);
+    Arrays.sort(entityNames);
+  }
+
+  /**
+   * Encode the key of the given entity values.
+   *
+   * @param entityValues values of at least all entities of the feature set by entity name.
+   * @return encoded key.
+   * @throws IllegalArgumentException if an entity of the feature set has no value.
+   */
+  public byte[] encode(Map<String, Value> entityValues) {
+    Value[] values = new Value[entityNames.length];
+    int size = featureSetPrefix.length;
+    for (int i = 0; i < entityNames.length; i++) {
+      values[i] = entityValues.get(entityNames[i]);
+      if (values[i] == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Entity row fields \"%s\" does not contain required entity field \"%s\"",
+                entityValues.keySet().toString(), entityNames[i]));
+      }
+      size += CodedOutputStream.computeMessageSizeNoTag(values[i]);
+    }
+
+    byte[] key = new byte[size];
+    CodedOutputStream output = CodedOutputStream.newInstance(key);
+    try {
+      output.writeRawBytes(featureSetPrefix);
+      for (Value value : values) {
+        output.writeMessageNoTag(value);
+      }
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return key;
+  }
+}
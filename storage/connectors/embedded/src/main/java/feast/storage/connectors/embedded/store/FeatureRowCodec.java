@@ -0,0 +1,140 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.embedded.store;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the values of feature rows of a feature set in the embedded store, and decodes them back.
+ *
+ * <p>A feature row is stored with its event timestamp and a named field for each feature of the
+ * spec, without the feature set reference and the entity fields which are part of the key.
+ */
+public class FeatureRowCodec {
+  private final String featureSetRef;
+  // feature names in the order of the features in the spec.
+  private final String[] featureNames;
+  // maps feature name to the index of the feature in featureNames.
+  private final Map<String, Integer> featureIndexByName;
+
+  /**
+   * Create a codec for the given feature set.
+   *
+   * @param featureSetRef reference of the feature set, eg. "project/feature_set".
+   * @param spec spec of the feature set.
+   */
+  public FeatureRowCodec(String featureSetRef, FeatureSetSpec spec) {
+    this.featureSetRef = featureSetRef;
+    List<FeatureSpec> features = spec.getFeaturesList();
+    this.featureNames = new String[features.size()];
+    this.featureIndexByName = new HashMap<>(features.size() * 2);
+    for (int i = 0; i < featureNames.length; i++) {
+      featureNames[i] = features.get(i).getName();
+      featureIndexByName.put(featureNames[i], i);
+    }
+  }
+
+  /**
+   * Encode the value of the given feature row. Features of the spec missing from the feature row
+   * are stored with an unset value.
+   *
+   * @param featureRow feature row of the feature set.
+   * @return encoded value.
+   */
+  public byte[] encode(FeatureRow featureRow) {
+    Value[] values = new Value[featureNames.length];
+    for (Field field : featureRow.getFieldsList()) {
+      Integer featureIndex = featureIndexByName.get(field.getName());
+      if (featureIndex != null && values[featureIndex] == null) {
+        values[featureIndex] = field.getValue();
+      }
+    }
+
+    FeatureRow.Builder value =
+        FeatureRow.newBuilder().setEventTimestamp(featureRow.getEventTimestamp());
+    for (int i = 0; i < featureNames.length; i++) {
+      value.addFields(
+          Field.newBuilder()
+              .setName(featureNames[i])
+              .setValue((values[i] == null) ? Value.getDefaultInstance() : values[i]));
+    }
+    return value.build().toByteArray();
+  }
+
+  /**
+   * Decode the given value into a feature row with only the given features, in the given order.
+   * Features missing from the value, eg. added to the spec since the value was stored, have an
+   * unset value.
+   *
+   * @param value encoded value.
+   * @param names names of the features to decode.
+   * @return decoded feature row.
+   * @throws InvalidProtocolBufferException if the given bytes are not a valid feature row.
+   */
+  public FeatureRow decode(byte[] value, Collection<String> names)
+      throws InvalidProtocolBufferException {
+    FeatureRow storedRow = FeatureRow.parseFrom(value);
+    Map<String, Value> storedValues = new HashMap<>(storedRow.getFieldsCount() * 2);
+    for (Field field : storedRow.getFieldsList()) {
+      storedValues.put(field.getName(), field.getValue());
+    }
+
+    FeatureRow.Builder featureRow =
+        FeatureRow.newBuilder()
+            .setFeatureSet(featureSetRef)
+            .setEventTimestamp(storedRow.getEventTimestamp());
+    for (String name : names) {
+      featureRow.addFields(
+          Field.newBuilder()
+              .setName(name)
+              .setValue(storedValues.getOrDefault(name, Value.getDefaultInstance())));
+    }
+    return featureRow.build();
+  }
+
+  /**
+   * Check if the given feature row is more recent than the stored value, by event timestamp.
+   *
+   * @param featureRow feature row to store.
+   * @param value currently stored value.
+   * @return whether the feature row should replace the stored value.
+   */
+  public static boolean isMoreRecent(FeatureRow featureRow, byte[] value) {
+    Timestamp storedTimestamp;
+    try {
+      storedTimestamp = FeatureRow.parseFrom(value).getEventTimestamp();
+    } catch (InvalidProtocolBufferException e) {
+      // definitely need to replace the stored value
+      return true;
+    }
+    Timestamp timestamp = featureRow.getEventTimestamp();
+    if (timestamp.getSeconds() != storedTimestamp.getSeconds()) {
+      return timestamp.getSeconds() > storedTimestamp.getSeconds();
+    }
+    return timestamp.getNanos() > storedTimestamp.getNanos();
+  }
+}
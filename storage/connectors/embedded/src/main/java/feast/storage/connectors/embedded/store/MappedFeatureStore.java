@@ -0,0 +1,657 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.embedded.store;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import feast.proto.core.StoreProto.Store.EmbeddedConfig;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Predicate;
+
+/**
+ * Off-heap store of encoded feature rows by key, backed by memory-mapped files in a directory.
+ *
+ * <p>Records are appended to segment files and located through an open-addressing hash index of
+ * fixed capacity, itself mapped from the index file. As both are mapped rather than loaded, a
+ * process opening an existing store can serve lookups right away, and lookups do not allocate on
+ * the heap except for the returned value.
+ *
+ * <p>A store has a single writer: writes are serialized within the process and guarded across
+ * processes by a file lock taken on the first write. Reads take no locks, and only map segments
+ * read-only. A record is fully written before its location is published to the index, and is never
+ * modified afterwards, so a read observes either the previous or the new record of a key.
+ *
+ * <p>The bytes of replaced records are counted in the header of their segment. Once half of the
+ * bytes of a segment other than the active one are replaced records, the segment is compacted: its
+ * live records are appended again to the active segment, their locations are moved in the index,
+ * and the segment file is deleted. Lookups that read a location in a deleted segment look the key
+ * up again. Other processes that mapped a deleted segment hold its disk space until their store is
+ * closed and no longer referenced.
+ *
+ * <p>Locations are published to readers with plain accesses to the mapped index, which the Java
+ * memory model does not order, within a process as across processes. The store relies on the
+ * hardware ordering these accesses instead: under the total store order of x86-64, stores to the
+ * mapped files become visible in program order and loads are not reordered with earlier loads, so a
+ * reader observing a location observes the record written before it. The volatile accesses of
+ * {@code storeFence()} and {@code loadFence()} only keep the JIT compiler from reordering the
+ * accesses around them. Weakly ordered processors, such as ARM, are not supported.
+ */
+public class MappedFeatureStore {
+  public static final int DEFAULT_SEGMENT_SIZE_MB = 64;
+  public static final long DEFAULT_MAX_ENTRIES = 1000000;
+  private static final int MAX_SEGMENT_SIZE_MB = 1024;
+
+  private static final String INDEX_FILE = "index";
+  private static final String SEGMENT_FILE_PREFIX = "segment-";
+  private static final String OPEN_LOCK_FILE = "open.lock";
+  private static final String WRITE_LOCK_FILE = "write.lock";
+
+  private static final long MAGIC = 0x4645415354454D42L;
+  private static final long VERSION = 1;
+
+  // Header of the index and segment files: magic, version and two file specific longs.
+  private static final int HEADER_SIZE = 64;
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 8;
+  // Index header: no. of slots and no. of entries.
+  private static final int CAPACITY_OFFSET = 16;
+  private static final int ENTRY_COUNT_OFFSET = 24;
+  // Segment header: offset of the end of the last record and no. of bytes of replaced records.
+  private static final int WRITE_OFFSET_OFFSET = 16;
+  private static final int REPLACED_BYTES_OFFSET = 24;
+  // Share of the bytes of a segment that are replaced records from which it is compacted.
+  private static final double MAX_REPLACED_BYTES_RATIO = 0.5;
+
+  // Index slot: hash of the key followed by the location of the record, 0 if the slot is empty.
+  private static final int SLOT_SIZE = 16;
+  private static final int LOCATION_OFFSET = 8;
+  private static final double MAX_LOAD_FACTOR = 0.75;
+
+  // Record: key length, value length, key and value.
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private static final HashFunction KEY_HASH = Hashing.murmur3_128();
+
+  private static final AtomicReferenceFieldUpdater<MappedFeatureStore, ByteBuffer[]> SEGMENTS =
+      AtomicReferenceFieldUpdater.newUpdater(
+          MappedFeatureStore.class, ByteBuffer[].class, "segments");
+
+  // Stores open in this process by directory, shared so that a single instance writes to a store.
+  // Guarded by the class, as are the reference counts of the stores.
+  private static final Map<Path, MappedFeatureStore> openStores = new HashMap<>();
+
+  private final Path directory;
+  private final int segmentSize;
+  private final ByteBuffer index;
+  private final int capacity;
+  private final long maxEntryCount;
+
+  // Segments mapped so far by segment id, copied on write. Segment ids start at 1.
+  private volatile ByteBuffer[] segments = new ByteBuffer[1];
+
+  // Incremented by the writer after writing a record and before publishing its location to the
+  // index, and read by readers after reading a location and before reading the record, to keep
+  // the JIT compiler from reordering these accesses. See the class doc for their ordering.
+  private volatile long generation;
+
+  // No. of times the store was opened and not closed yet in this process.
+  private int refCount;
+
+  // Writer state, guarded by this.
+  private FileChannel writeLockChannel;
+  private int activeSegmentId;
+  // Writable mapping of the active segment, mapped on the first append after the write lock is
+  // acquired.
+  private ByteBuffer activeSegment;
+  // Writable mappings of the segments of replaced records, to count the replaced bytes in.
+  private final Map<Integer, ByteBuffer> writableSegments = new HashMap<>();
+  // Segments to compact once they are no longer active.
+  private final Set<Integer> segmentsToCompact = new TreeSet<>();
+
+  private MappedFeatureStore(Path directory, int segmentSize, long maxEntries) throws IOException {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    Files.createDirectories(directory);
+    try (FileChannel lockChannel =
+            FileChannel.open(
+                directory.resolve(OPEN_LOCK_FILE),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock = lockChannel.lock()) {
+      this.index = mapIndex(maxEntries);
+    }
+    this.capacity = (int) index.getLong(CAPACITY_OFFSET);
+    this.maxEntryCount = (long) (capacity * MAX_LOAD_FACTOR);
+    this.activeSegmentId = mapSegments();
+  }
+
+  /**
+   * Open the store with the given config, creating it if it does not exist. Stores are shared
+   * within the process: opening the same directory again returns the same store, which stays open
+   * until each holder closed it.
+   *
+   * @param config config of the embedded store.
+   * @return opened store.
+   * @throws IOException if the store files cannot be created or mapped.
+   */
+  public static MappedFeatureStore open(EmbeddedConfig config) throws IOException {
+    if (config.getPath().isEmpty()) {
+      throw new IllegalArgumentException("Path of the embedded store must be set");
+    }
+    int segmentSizeMb =
+        (config.getSegmentSizeMb() > 0) ? config.getSegmentSizeMb() : DEFAULT_SEGMENT_SIZE_MB;
+    if (segmentSizeMb > MAX_SEGMENT_SIZE_MB) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Segment size of the embedded store must be at most %dMB, got %dMB",
+              MAX_SEGMENT_SIZE_MB, segmentSizeMb));
+    }
+    long maxEntries = (config.getMaxEntries() > 0) ? config.getMaxEntries() : DEFAULT_MAX_ENTRIES;
+    return open(Paths.get(config.getPath()), segmentSizeMb * 1024 * 1024, maxEntries);
+  }
+
+  /**
+   * Open the store in the given directory, creating it if it does not exist.
+   *
+   * @param directory directory of the store files.
+   * @param segmentSize size of new segment files in bytes.
+   * @param maxEntries max no. of keys if the store is created, ignored otherwise.
+   * @return opened store.
+   * @throws IOException if the store files cannot be created or mapped.
+   */
+  public static synchronized MappedFeatureStore open(
+      Path directory, int segmentSize, long maxEntries) throws IOException {
+    Path path = directory.toAbsolutePath().normalize();
+    MappedFeatureStore store = openStores.get(path);
+    if (store == null) {
+      store = new MappedFeatureStore(path, segmentSize, maxEntries);
+      openStores.put(path, store);
+    }
+    store.refCount++;
+    return store;
+  }
+
+  /**
+   * Get the value stored at the given key.
+   *
+   * @param key key of the value.
+   * @return the stored value, or null if there is no value at the key.
+   */
+  public byte[] get(byte[] key) {
+    long hash = hash(key);
+    lookup:
+    while (true) {
+      int slot = (int) (hash & (capacity - 1));
+      for (int probes = 0; probes < capacity; probes++) {
+        int slotOffset = HEADER_SIZE + slot * SLOT_SIZE;
+        long location = index.getLong(slotOffset + LOCATION_OFFSET);
+        if (location == 0) {
+          return null;
+        }
+        loadFence();
+        if (index.getLong(slotOffset) == hash) {
+          ByteBuffer segment = getSegment(getSegmentId(location));
+          if (segment == null) {
+            // segment compacted since the location was read: look up the moved record
+            continue lookup;
+          }
+          int recordOffset = getRecordOffset(location);
+          if (keyEquals(segment, recordOffset, key)) {
+            return readValue(segment, recordOffset);
+          }
+        }
+        slot = (slot + 1) & (capacity - 1);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Store the value at the given key, if there is no value at the key yet or if the current value
+   * should be replaced.
+   *
+   * @param key key of the value.
+   * @param value value to store.
+   * @param shouldReplace tests whether the current value at the key should be replaced.
+   * @return whether the value was stored.
+   * @throws IOException if a new segment file cannot be created.
+   * @throws IllegalStateException if the store is written by another process, or is full.
+   */
+  public synchronized boolean put(byte[] key, byte[] value, Predicate<byte[]> shouldReplace)
+      throws IOException {
+    acquireWriteLock();
+    long hash = hash(key);
+    int slot = (int) (hash & (capacity - 1));
+    int slotOffset = HEADER_SIZE + slot * SLOT_SIZE;
+    long location = index.getLong(slotOffset + LOCATION_OFFSET);
+    while (location != 0) {
+      if (index.getLong(slotOffset) == hash) {
+        ByteBuffer segment = getSegment(getSegmentId(location));
+        int recordOffset = getRecordOffset(location);
+        if (keyEquals(segment, recordOffset, key)) {
+          if (!shouldReplace.test(readValue(segment, recordOffset))) {
+            return false;
+          }
+          long newLocation = append(key, value);
+          storeFence();
+          index.putLong(slotOffset + LOCATION_OFFSET, newLocation);
+          countReplacedRecord(location);
+          compactSegments();
+          return true;
+        }
+      }
+      slot = (slot + 1) & (capacity - 1);
+      slotOffset = HEADER_SIZE + slot * SLOT_SIZE;
+      location = index.getLong(slotOffset + LOCATION_OFFSET);
+    }
+
+    long entryCount = index.getLong(ENTRY_COUNT_OFFSET);
+    if (entryCount >= maxEntryCount) {
+      throw new IllegalStateException(
+          String.format(
+              "Embedded store at %s is full with %d keys, recreate it with more max entries",
+              directory, entryCount));
+    }
+    long newLocation = append(key, value);
+    index.putLong(slotOffset, hash);
+    storeFence();
+    index.putLong(slotOffset + LOCATION_OFFSET, newLocation);
+    index.putLong(ENTRY_COUNT_OFFSET, entryCount + 1);
+    return true;
+  }
+
+  /** Get the no. of keys in the store. */
+  public long size() {
+    return index.getLong(ENTRY_COUNT_OFFSET);
+  }
+
+  /**
+   * Close the store for this holder. Once every holder closed it, the store is released, along with
+   * the write lock if held. Mapped files are unmapped once the store is no longer referenced.
+   *
+   * @throws IOException if the write lock cannot be released.
+   */
+  public void close() throws IOException {
+    synchronized (MappedFeatureStore.class) {
+      if (refCount == 0 || --refCount > 0) {
+        return;
+      }
+      openStores.remove(directory, this);
+    }
+    synchronized (this) {
+      if (writeLockChannel != null) {
+        writeLockChannel.close();
+        writeLockChannel = null;
+        activeSegment = null;
+        writableSegments.clear();
+        segmentsToCompact.clear();
+      }
+    }
+  }
+
+  private ByteBuffer mapIndex(long maxEntries) throws IOException {
+    Path indexPath = directory.resolve(INDEX_FILE);
+    try (FileChannel channel =
+        FileChannel.open(
+            indexPath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      if (channel.size() > 0) {
+        MappedByteBuffer index = channel.map(MapMode.READ_WRITE, 0, channel.size());
+        checkHeader(index, indexPath);
+        return index;
+      }
+
+      long capacity = Long.highestOneBit((long) Math.ceil(maxEntries / MAX_LOAD_FACTOR) * 2 - 1);
+      long size = HEADER_SIZE + capacity * SLOT_SIZE;
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException(
+            String.format("Max entries of the embedded store is too large: %d", maxEntries));
+      }
+      MappedByteBuffer index = channel.map(MapMode.READ_WRITE, 0, size);
+      index.putLong(CAPACITY_OFFSET, capacity);
+      writeHeader(index);
+      return index;
+    }
+  }
+
+  /**
+   * Map the existing segment files read-only.
+   *
+   * @return id of the last segment, 0 if there is none.
+   */
+  private int mapSegments() throws IOException {
+    int lastSegmentId = 0;
+    try (DirectoryStream<Path> segmentPaths =
+        Files.newDirectoryStream(directory, SEGMENT_FILE_PREFIX + "*")) {
+      for (Path segmentPath : segmentPaths) {
+        String fileName = segmentPath.getFileName().toString();
+        int segmentId = Integer.parseInt(fileName.substring(SEGMENT_FILE_PREFIX.length()));
+        lastSegmentId = Math.max(lastSegmentId, segmentId);
+      }
+    }
+    for (int segmentId = 1; segmentId <= lastSegmentId; segmentId++) {
+      getSegment(segmentId);
+    }
+    return lastSegmentId;
+  }
+
+  /**
+   * Get the read-only mapping of a segment, mapping it if needed.
+   *
+   * @return mapping of the segment, or null if the segment was compacted.
+   */
+  private ByteBuffer getSegment(int segmentId) {
+    ByteBuffer[] segments = this.segments;
+    if (segmentId < segments.length && segments[segmentId] != null) {
+      return segments[segmentId];
+    }
+    // segment created by the writer in another process since the segments were mapped
+    try {
+      return addSegment(segmentId, mapSegment(segmentId, MapMode.READ_ONLY));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private ByteBuffer mapSegment(int segmentId, MapMode mode) throws IOException {
+    Path segmentPath = getSegmentPath(segmentId);
+    try (FileChannel channel =
+        (mode == MapMode.READ_ONLY)
+            ? FileChannel.open(segmentPath, StandardOpenOption.READ)
+            : FileChannel.open(segmentPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer segment = channel.map(mode, 0, channel.size());
+      checkHeader(segment, segmentPath);
+      return segment;
+    }
+  }
+
+  private ByteBuffer createSegment(int segmentId, int size) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            getSegmentPath(segmentId),
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      MappedByteBuffer segment = channel.map(MapMode.READ_WRITE, 0, size);
+      segment.putLong(WRITE_OFFSET_OFFSET, HEADER_SIZE);
+      writeHeader(segment);
+      return segment;
+    }
+  }
+
+  /**
+   * Publish the given mapping of a segment to readers, unless the segment was already mapped.
+   *
+   * @return the published mapping of the segment.
+   */
+  private ByteBuffer addSegment(int segmentId, ByteBuffer segment) {
+    while (true) {
+      ByteBuffer[] current = this.segments;
+      if (segmentId < current.length && current[segmentId] != null) {
+        return current[segmentId];
+      }
+      ByteBuffer[] updated = Arrays.copyOf(current, Math.max(current.length, segmentId + 1));
+      updated[segmentId] = segment;
+      if (SEGMENTS.compareAndSet(this, current, updated)) {
+        return segment;
+      }
+    }
+  }
+
+  /** Stop publishing the mapping of a compacted segment to readers. */
+  private void removeSegment(int segmentId) {
+    while (true) {
+      ByteBuffer[] current = this.segments;
+      if (segmentId >= current.length || current[segmentId] == null) {
+        return;
+      }
+      ByteBuffer[] updated = Arrays.copyOf(current, current.length);
+      updated[segmentId] = null;
+      if (SEGMENTS.compareAndSet(this, current, updated)) {
+        return;
+      }
+    }
+  }
+
+  private Path getSegmentPath(int segmentId) {
+    return directory.resolve(String.format("%s%08d", SEGMENT_FILE_PREFIX, segmentId));
+  }
+
+  private void acquireWriteLock() throws IOException {
+    if (writeLockChannel != null) {
+      return;
+    }
+    FileChannel channel =
+        FileChannel.open(
+            directory.resolve(WRITE_LOCK_FILE),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE);
+    if (channel.tryLock() == null) {
+      channel.close();
+      throw new IllegalStateException(
+          String.format("Embedded store at %s is being written by another process", directory));
+    }
+    writeLockChannel = channel;
+    // pick up segments created by the previous writer
+    activeSegmentId = Math.max(activeSegmentId, mapSegments());
+    activeSegment = null;
+    writableSegments.clear();
+  }
+
+  /**
+   * Append a record to the active segment, rolling over to a new segment if it does not fit.
+   *
+   * @return location of the appended record.
+   */
+  private long append(byte[] key, byte[] value) throws IOException {
+    int recordSize = RECORD_HEADER_SIZE + key.length + value.length;
+    if (activeSegment == null && activeSegmentId > 0) {
+      activeSegment = mapSegment(activeSegmentId, MapMode.READ_WRITE);
+    }
+    if (activeSegment == null
+        || activeSegment.getLong(WRITE_OFFSET_OFFSET) + recordSize > activeSegment.capacity()) {
+      activeSegment =
+          createSegment(activeSegmentId + 1, Math.max(segmentSize, HEADER_SIZE + recordSize));
+      activeSegmentId++;
+      addSegment(activeSegmentId, activeSegment);
+    }
+
+    int recordOffset = (int) activeSegment.getLong(WRITE_OFFSET_OFFSET);
+    ByteBuffer record = activeSegment.duplicate();
+    record.position(recordOffset);
+    record.putInt(key.length).putInt(value.length).put(key).put(value);
+    activeSegment.putLong(WRITE_OFFSET_OFFSET, (long) recordOffset + recordSize);
+    return ((long) activeSegmentId << 32) | recordOffset;
+  }
+
+  /**
+   * Count the bytes of a replaced record in the header of its segment, and mark the segment to be
+   * compacted once enough of its bytes are replaced records.
+   */
+  private void countReplacedRecord(long location) throws IOException {
+    int segmentId = getSegmentId(location);
+    ByteBuffer segment = getWritableSegment(segmentId);
+    int recordOffset = getRecordOffset(location);
+    long replacedBytes =
+        segment.getLong(REPLACED_BYTES_OFFSET)
+            + RECORD_HEADER_SIZE
+            + segment.getInt(recordOffset)
+            + segment.getInt(recordOffset + 4);
+    segment.putLong(REPLACED_BYTES_OFFSET, replacedBytes);
+    long writtenBytes = segment.getLong(WRITE_OFFSET_OFFSET) - HEADER_SIZE;
+    if (replacedBytes >= writtenBytes * MAX_REPLACED_BYTES_RATIO) {
+      segmentsToCompact.add(segmentId);
+    }
+  }
+
+  /** Compact the segments marked to be compacted, except the active segment. */
+  private void compactSegments() throws IOException {
+    Iterator<Integer> segmentIds = segmentsToCompact.iterator();
+    while (segmentIds.hasNext()) {
+      int segmentId = segmentIds.next();
+      if (segmentId != activeSegmentId) {
+        segmentIds.remove();
+        compact(segmentId);
+      }
+    }
+  }
+
+  /**
+   * Append the live records of a segment to the active segment, moving their locations in the
+   * index, then delete the segment.
+   */
+  private void compact(int segmentId) throws IOException {
+    ByteBuffer segment = getWritableSegment(segmentId);
+    long writeOffset = segment.getLong(WRITE_OFFSET_OFFSET);
+    int recordOffset = HEADER_SIZE;
+    while (recordOffset < writeOffset) {
+      int keyLength = segment.getInt(recordOffset);
+      byte[] key = new byte[keyLength];
+      ByteBuffer record = segment.duplicate();
+      record.position(recordOffset + RECORD_HEADER_SIZE);
+      record.get(key);
+      int slotOffset = findSlotOffset(hash(key), ((long) segmentId << 32) | recordOffset);
+      if (slotOffset >= 0) {
+        long newLocation = append(key, readValue(segment, recordOffset));
+        storeFence();
+        index.putLong(slotOffset + LOCATION_OFFSET, newLocation);
+      }
+      recordOffset += RECORD_HEADER_SIZE + keyLength + segment.getInt(recordOffset + 4);
+    }
+    writableSegments.remove(segmentId);
+    removeSegment(segmentId);
+    Files.delete(getSegmentPath(segmentId));
+  }
+
+  /**
+   * Find the index slot of the record at the given location.
+   *
+   * @return offset of the slot, or -1 if the record was replaced.
+   */
+  private int findSlotOffset(long hash, long location) {
+    int slot = (int) (hash & (capacity - 1));
+    for (int probes = 0; probes < capacity; probes++) {
+      int slotOffset = HEADER_SIZE + slot * SLOT_SIZE;
+      long slotLocation = index.getLong(slotOffset + LOCATION_OFFSET);
+      if (slotLocation == location) {
+        return slotOffset;
+      }
+      if (slotLocation == 0) {
+        return -1;
+      }
+      slot = (slot + 1) & (capacity - 1);
+    }
+    return -1;
+  }
+
+  private ByteBuffer getWritableSegment(int segmentId) throws IOException {
+    if (segmentId == activeSegmentId && activeSegment != null) {
+      return activeSegment;
+    }
+    ByteBuffer segment = writableSegments.get(segmentId);
+    if (segment == null) {
+      segment = mapSegment(segmentId, MapMode.READ_WRITE);
+      writableSegments.put(segmentId, segment);
+    }
+    return segment;
+  }
+
+  /** Order the writes to the mapped files before this call before the writes after it. */
+  private void storeFence() {
+    // only written by the writer, holding the lock on this
+    generation = generation + 1;
+  }
+
+  /** Order the reads of the mapped files after this call after the reads before it. */
+  private long loadFence() {
+    return generation;
+  }
+
+  private static boolean keyEquals(ByteBuffer segment, int recordOffset, byte[] key) {
+    if (segment.getInt(recordOffset) != key.length) {
+      return false;
+    }
+    int keyOffset = recordOffset + RECORD_HEADER_SIZE;
+    for (int i = 0; i < key.length; i++) {
+      if (segment.get(keyOffset + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] readValue(ByteBuffer segment, int recordOffset) {
+    int keyLength = segment.getInt(recordOffset);
+    byte[] value = new byte[segment.getInt(recordOffset + 4)];
+    ByteBuffer record = segment.duplicate();
+    record.position(recordOffset + RECORD_HEADER_SIZE + keyLength);
+    record.get(value);
+    return value;
+  }
+
+  private static void writeHeader(ByteBuffer buffer) {
+    buffer.putLong(VERSION_OFFSET, VERSION);
+    buffer.putLong(MAGIC_OFFSET, MAGIC);
+  }
+
+  private static void checkHeader(ByteBuffer buffer, Path path) throws IOException {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getLong(MAGIC_OFFSET) != MAGIC) {
+      throw new IOException(String.format("%s is not a file of an embedded store", path));
+    }
+    if (buffer.getLong(VERSION_OFFSET) != VERSION) {
+      throw new IOException(
+          String.format(
+              "%s has unsupported version %d, expected %d",
+              path, buffer.getLong(VERSION_OFFSET), VERSION));
+    }
+  }
+
+  private static int getSegmentId(long location) {
+    return (int) (location >>> 32);
+  }
+
+  private static int getRecordOffset(long location) {
+    return (int) location;
+  }
+
+  private static long hash(byte[] key) {
+    return KEY_HASH.hashBytes(key).asLong();
+  }
+}
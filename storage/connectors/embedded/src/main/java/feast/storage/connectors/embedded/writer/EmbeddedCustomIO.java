@@ -0,0 +1,161 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.embedded.writer;
+
+import com.google.common.collect.Iterables;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.StoreProto.Store.EmbeddedConfig;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.storage.api.writer.FailedElement;
+import feast.storage.api.writer.WriteResult;
+import feast.storage.connectors.embedded.store.EntityKeyEncoder;
+import feast.storage.connectors.embedded.store.FeatureRowCodec;
+import feast.storage.connectors.embedded.store.MappedFeatureStore;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+public class EmbeddedCustomIO {
+
+  private static TupleTag<FeatureRow> successfulInsertsTag =
+      new TupleTag<FeatureRow>("successfulInserts") {};
+  private static TupleTag<FailedElement> failedInsertsTupleTag =
+      new TupleTag<FailedElement>("failedInserts") {};
+
+  private EmbeddedCustomIO() {}
+
+  /** Write feature rows to the embedded store. */
+  public static class Write extends PTransform<PCollection<FeatureRow>, WriteResult> {
+
+    private final EmbeddedConfig embeddedConfig;
+    private final PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecs;
+
+    public Write(
+        EmbeddedConfig embeddedConfig,
+        PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecs) {
+      this.embeddedConfig = embeddedConfig;
+      this.featureSetSpecs = featureSetSpecs;
+    }
+
+    @Override
+    public WriteResult expand(PCollection<FeatureRow> input) {
+      PCollectionTuple embeddedWrite =
+          input.apply(
+              ParDo.of(new WriteDoFn(embeddedConfig, featureSetSpecs))
+                  .withOutputTags(successfulInsertsTag, TupleTagList.of(failedInsertsTupleTag))
+                  .withSideInputs(featureSetSpecs));
+      return WriteResult.in(
+          input.getPipeline(),
+          embeddedWrite.get(successfulInsertsTag),
+          embeddedWrite.get(failedInsertsTupleTag));
+    }
+
+    /**
+     * Writes each {@link FeatureRow} to the embedded store, unless the store already holds a row
+     * with a later or equal event timestamp for the same entities. As writes go to local memory,
+     * rows are written as they come rather than in batches.
+     */
+    public static class WriteDoFn extends DoFn<FeatureRow, FeatureRow> {
+      private final EmbeddedConfig embeddedConfig;
+      private final PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecsView;
+
+      private transient MappedFeatureStore store;
+      // Key encoders and codecs compiled for each feature set spec seen by this instance.
+      private transient Map<FeatureSetSpec, EntityKeyEncoder> keyEncoders;
+      private transient Map<FeatureSetSpec, FeatureRowCodec> codecs;
+
+      WriteDoFn(
+          EmbeddedConfig embeddedConfig,
+          PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecsView) {
+        this.embeddedConfig = embeddedConfig;
+        this.featureSetSpecsView = featureSetSpecsView;
+      }
+
+      @Setup
+      public void setup() throws IOException {
+        store = MappedFeatureStore.open(embeddedConfig);
+        keyEncoders = new HashMap<>();
+        codecs = new HashMap<>();
+      }
+
+      @Teardown
+      public void teardown() throws IOException {
+        if (store != null) {
+          store.close();
+          store = null;
+        }
+      }
+
+      @ProcessElement
+      public void processElement(ProcessContext context) {
+        FeatureRow featureRow = context.element();
+        try {
+          Iterable<FeatureSetSpec> specs =
+              context.sideInput(featureSetSpecsView).get(featureRow.getFeatureSet());
+          if (specs == null) {
+            throw new IllegalArgumentException(
+                String.format("Unknown feature set '%s'", featureRow.getFeatureSet()));
+          }
+          FeatureSetSpec spec = Iterables.getLast(specs);
+
+          Map<String, Value> fieldValues = new HashMap<>();
+          for (Field field : featureRow.getFieldsList()) {
+            fieldValues.putIfAbsent(field.getName(), field.getValue());
+          }
+          byte[] key =
+              keyEncoders
+                  .computeIfAbsent(spec, s -> new EntityKeyEncoder(featureRow.getFeatureSet(), s))
+                  .encode(fieldValues);
+          byte[] value =
+              codecs
+                  .computeIfAbsent(spec, s -> new FeatureRowCodec(featureRow.getFeatureSet(), s))
+                  .encode(featureRow);
+
+          if (store.put(key, value, current -> FeatureRowCodec.isMoreRecent(featureRow, current))) {
+            context.output(successfulInsertsTag, featureRow);
+          }
+        } catch (Exception e) {
+          context.output(
+              failedInsertsTupleTag,
+              toFailedElement(featureRow, e, context.getPipelineOptions().getJobName()));
+        }
+      }
+
+      private FailedElement toFailedElement(
+          FeatureRow featureRow, Exception exception, String jobName) {
+        return FailedElement.newBuilder()
+            .setJobName(jobName)
+            .setTransformName("EmbeddedCustomIO")
+            .setPayload(featureRow.toString())
+            .setErrorMessage(exception.getMessage())
+            .setStackTrace(ExceptionUtils.getStackTrace(exception))
+            .build();
+      }
+    }
+  }
+}
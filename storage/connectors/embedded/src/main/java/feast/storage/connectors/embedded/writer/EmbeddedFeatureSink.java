@@ -0,0 +1,106 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.embedded.writer;
+
+import com.google.auto.value.AutoValue;
+import feast.common.models.FeatureSetReference;
+import feast.proto.core.FeatureSetProto;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.StoreProto.Store.EmbeddedConfig;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.writer.FeatureSink;
+import feast.storage.api.writer.WriteResult;
+import feast.storage.connectors.embedded.store.MappedFeatureStore;
+import java.io.IOException;
+import java.util.Map;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Keys;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+
+/**
+ * Sink writing feature rows to the embedded store in memory-mapped files on the local disk of the
+ * workers. Only suitable for runners that execute on the same host as the serving replicas reading
+ * the store, eg. the direct runner.
+ */
+@AutoValue
+public abstract class EmbeddedFeatureSink implements FeatureSink {
+
+  /**
+   * Initialize a {@link EmbeddedFeatureSink} from a {@link EmbeddedConfig}.
+   *
+   * @param embeddedConfig {@link EmbeddedConfig}
+   * @return {@link EmbeddedFeatureSink}
+   */
+  public static FeatureSink fromConfig(EmbeddedConfig embeddedConfig) {
+    return builder().setEmbeddedConfig(embeddedConfig).build();
+  }
+
+  public abstract EmbeddedConfig getEmbeddedConfig();
+
+  public abstract Builder toBuilder();
+
+  public static Builder builder() {
+    return new AutoValue_EmbeddedFeatureSink.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    public abstract Builder setEmbeddedConfig(EmbeddedConfig embeddedConfig);
+
+    public abstract EmbeddedFeatureSink build();
+  }
+
+  PCollectionView<Map<String, Iterable<FeatureSetSpec>>> specsView;
+
+  PCollectionView<Map<String, Iterable<FeatureSetSpec>>> getSpecsView() {
+    return specsView;
+  }
+
+  @Override
+  public PCollection<FeatureSetReference> prepareWrite(
+      PCollection<KV<FeatureSetReference, FeatureSetProto.FeatureSetSpec>> featureSetSpecs) {
+    try {
+      MappedFeatureStore.open(getEmbeddedConfig()).close();
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format(
+              "Failed to open embedded store at '%s'. Please check that the path is writable.",
+              getEmbeddedConfig().getPath()),
+          e);
+    }
+    specsView = featureSetSpecs.apply(ParDo.of(new ReferenceToString())).apply(View.asMultimap());
+    return featureSetSpecs.apply(Keys.create());
+  }
+
+  @Override
+  public PTransform<PCollection<FeatureRow>, WriteResult> writer() {
+    return new EmbeddedCustomIO.Write(getEmbeddedConfig(), getSpecsView());
+  }
+
+  private static class ReferenceToString
+      extends DoFn<KV<FeatureSetReference, FeatureSetSpec>, KV<String, FeatureSetSpec>> {
+    @ProcessElement
+    public void process(ProcessContext c) {
+      c.output(KV.of(c.element().getKey().getReference(), c.element().getValue()));
+    }
+  }
+}
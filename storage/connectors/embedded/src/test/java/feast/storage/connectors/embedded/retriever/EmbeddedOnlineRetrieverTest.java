@@ -0,0 +1,148 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.embedded.retriever;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.OnlineRetriever;
+import feast.storage.connectors.embedded.store.EntityKeyEncoder;
+import feast.storage.connectors.embedded.store.FeatureRowCodec;
+import feast.storage.connectors.embedded.store.MappedFeatureStore;
+import io.grpc.StatusRuntimeException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EmbeddedOnlineRetrieverTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private MappedFeatureStore store;
+  private OnlineRetriever retriever;
+  private FeatureSetSpec spec;
+
+  @Before
+  public void setUp() throws IOException {
+    store = MappedFeatureStore.open(folder.getRoot().toPath(), 1024 * 1024, 100);
+    retriever = EmbeddedOnlineRetriever.create(store);
+    spec =
+        FeatureSetSpec.newBuilder()
+            .setProject("project")
+            .setName("featureSet")
+            .addEntities(EntitySpec.newBuilder().setName("entity1"))
+            .addEntities(EntitySpec.newBuilder().setName("entity2"))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature1"))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature2"))
+            .build();
+
+    FeatureRow featureRow =
+        FeatureRow.newBuilder()
+            .setFeatureSet("project/featureSet")
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(100))
+            .addFields(field("entity1", intValue(1)))
+            .addFields(field("entity2", strValue("a")))
+            .addFields(field("feature1", intValue(10)))
+            .addFields(field("feature2", intValue(20)))
+            .build();
+    store.put(
+        new EntityKeyEncoder("project/featureSet", spec)
+            .encode(ImmutableMap.of("entity1", intValue(1), "entity2", strValue("a"))),
+        new FeatureRowCodec("project/featureSet", spec).encode(featureRow),
+        current -> true);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    store.close();
+  }
+
+  @Test
+  public void shouldRetrieveRequestedFeaturesOfStoredRows() {
+    FeatureSetRequest featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .setSpec(spec)
+            .addFeatureReference(FeatureReference.newBuilder().setName("feature2").build())
+            .build();
+    List<EntityRow> entityRows =
+        ImmutableList.of(
+            EntityRow.newBuilder()
+                .putFields("entity1", intValue(1))
+                .putFields("entity2", strValue("a"))
+                .build(),
+            EntityRow.newBuilder()
+                .putFields("entity1", intValue(2))
+                .putFields("entity2", strValue("a"))
+                .build());
+
+    List<Optional<FeatureRow>> featureRows =
+        retriever.getOnlineFeatures(entityRows, featureSetRequest);
+
+    assertThat(
+        featureRows,
+        equalTo(
+            ImmutableList.of(
+                Optional.of(
+                    FeatureRow.newBuilder()
+                        .setFeatureSet("project/featureSet")
+                        .setEventTimestamp(Timestamp.newBuilder().setSeconds(100))
+                        .addFields(field("feature2", intValue(20)))
+                        .build()),
+                Optional.empty())));
+  }
+
+  @Test(expected = StatusRuntimeException.class)
+  public void shouldThrowIfEntityIsMissing() {
+    FeatureSetRequest featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .setSpec(spec)
+            .addFeatureReference(FeatureReference.newBuilder().setName("feature1").build())
+            .build();
+
+    retriever.getOnlineFeatures(
+        ImmutableList.of(EntityRow.newBuilder().putFields("entity1", intValue(1)).build()),
+        featureSetRequest);
+  }
+
+  private static Field field(String name, Value value) {
+    return Field.newBuilder().setName(name).setValue(value).build();
+  }
+
+  private static Value intValue(long val) {
+    return Value.newBuilder().setInt64Val(val).build();
+  }
+
+  private static Value strValue(String val) {
+    return Value.newBuilder().setStringVal(val).build();
+  }
+}
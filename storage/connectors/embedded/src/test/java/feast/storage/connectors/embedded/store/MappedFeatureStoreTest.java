@@ -0,0 +1,154 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.embedded.store;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import com.google.common.base.Strings;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFeatureStoreTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path directory;
+  private MappedFeatureStore store;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = folder.getRoot().toPath().resolve("store");
+    store = MappedFeatureStore.open(directory, 256, 100);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    store.close();
+  }
+
+  @Test
+  public void shouldGetStoredValues() throws IOException {
+    assertThat(store.put(bytes("key1"), bytes("value1"), current -> true), equalTo(true));
+    assertThat(store.put(bytes("key2"), bytes("value2"), current -> true), equalTo(true));
+
+    assertThat(store.get(bytes("key1")), equalTo(bytes("value1")));
+    assertThat(store.get(bytes("key2")), equalTo(bytes("value2")));
+    assertThat(store.get(bytes("key3")), nullValue());
+    assertThat(store.size(), equalTo(2L));
+  }
+
+  @Test
+  public void shouldOnlyReplaceValueIfRequested() throws IOException {
+    store.put(bytes("key"), bytes("value1"), current -> true);
+
+    assertThat(store.put(bytes("key"), bytes("value2"), current -> false), equalTo(false));
+    assertThat(store.get(bytes("key")), equalTo(bytes("value1")));
+    assertThat(
+        store.put(bytes("key"), bytes("value3"), current -> current.length == 6), equalTo(true));
+    assertThat(store.get(bytes("key")), equalTo(bytes("value3")));
+    assertThat(store.size(), equalTo(1L));
+  }
+
+  @Test
+  public void shouldRollOverToNewSegmentsAndReopen() throws IOException {
+    // records of 8 + 5 + 100 bytes do not fit twice in a segment of 256 bytes
+    String value = Strings.repeat("v", 100);
+    for (int i = 0; i < 10; i++) {
+      store.put(bytes("key" + i), bytes(value + i), current -> true);
+    }
+    assertThat(
+        Files.list(directory)
+            .filter(path -> path.getFileName().toString().startsWith("segment-"))
+            .collect(Collectors.toList())
+            .size(),
+        equalTo(10));
+
+    // a reopened store serves the stored values and appends after them
+    store.close();
+    store = MappedFeatureStore.open(directory, 256, 100);
+    store.put(bytes("key10"), bytes(value + 10), current -> true);
+    for (int i = 0; i <= 10; i++) {
+      assertThat(store.get(bytes("key" + i)), equalTo(bytes(value + i)));
+    }
+    assertThat(store.size(), equalTo(11L));
+  }
+
+  @Test
+  public void shouldCompactSegmentsOfReplacedRecords() throws IOException {
+    // records of 8 + 4 + 41 bytes fit three times in a segment of 256 bytes
+    String value = Strings.repeat("v", 40);
+    for (int i = 0; i < 3; i++) {
+      store.put(bytes("key" + i), bytes(value + i), current -> true);
+    }
+
+    // replacing two of the three records of the first segment compacts it, moving the third one
+    store.put(bytes("key0"), bytes(value + 3), current -> true);
+    store.put(bytes("key1"), bytes(value + 4), current -> true);
+    assertThat(Files.exists(directory.resolve("segment-00000001")), equalTo(false));
+    assertThat(segmentCount(), equalTo(1L));
+    for (int i = 0; i < 100; i++) {
+      store.put(bytes("key" + (i % 3)), bytes(value + (i % 10)), current -> true);
+    }
+    assertThat(segmentCount() <= 2, equalTo(true));
+
+    store.close();
+    store = MappedFeatureStore.open(directory, 256, 100);
+    assertThat(store.get(bytes("key0")), equalTo(bytes(value + 9)));
+    assertThat(store.get(bytes("key1")), equalTo(bytes(value + 7)));
+    assertThat(store.get(bytes("key2")), equalTo(bytes(value + 8)));
+    assertThat(store.size(), equalTo(3L));
+  }
+
+  @Test
+  public void shouldKeepSharedStoreOpenUntilClosedByEveryHolder() throws IOException {
+    MappedFeatureStore other = MappedFeatureStore.open(directory, 256, 100);
+    assertThat(other == store, equalTo(true));
+    store.put(bytes("key"), bytes("value"), current -> true);
+
+    // closing the store for one holder keeps it shared with the other
+    other.close();
+    assertThat(MappedFeatureStore.open(directory, 256, 100) == store, equalTo(true));
+    store.close();
+    assertThat(store.get(bytes("key")), equalTo(bytes("value")));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldThrowIfStoreIsFull() throws IOException {
+    for (int i = 0; i <= 192; i++) {
+      store.put(bytes("key" + i), bytes("value"), current -> true);
+    }
+  }
+
+  private long segmentCount() throws IOException {
+    return Files.list(directory)
+        .filter(path -> path.getFileName().toString().startsWith("segment-"))
+        .count();
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.embedded.writer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.Timestamp;
+import feast.common.models.FeatureSetReference;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.StoreProto.Store.EmbeddedConfig;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType.Enum;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.writer.WriteResult;
+import feast.storage.connectors.embedded.retriever.EmbeddedOnlineRetriever;
+import feast.storage.connectors.embedded.store.MappedFeatureStore;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.Create;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EmbeddedFeatureSinkTest {
+  @Rule public transient TestPipeline p = TestPipeline.create();
+  @Rule public transient TemporaryFolder folder = new TemporaryFolder();
+
+  private EmbeddedConfig embeddedConfig;
+  private EmbeddedFeatureSink embeddedFeatureSink;
+  private FeatureSetSpec spec;
+
+  @Before
+  public void setUp() {
+    embeddedConfig =
+        EmbeddedConfig.newBuilder()
+            .setPath(folder.getRoot().getAbsolutePath())
+            .setSegmentSizeMb(1)
+            .setMaxEntries(100)
+            .build();
+    spec =
+        FeatureSetSpec.newBuilder()
+            .setName("fs")
+            .setProject("myproject")
+            .addEntities(EntitySpec.newBuilder().setName("entity").setValueType(Enum.INT64))
+            .addFeatures(FeatureSpec.newBuilder().setName("feature").setValueType(Enum.STRING))
+            .build();
+
+    embeddedFeatureSink = (EmbeddedFeatureSink) EmbeddedFeatureSink.fromConfig(embeddedConfig);
+    embeddedFeatureSink.prepareWrite(
+        p.apply(
+            "Specs",
+            Create.of(ImmutableMap.of(FeatureSetReference.of("myproject", "fs", 1), spec))));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    MappedFeatureStore.open(embeddedConfig).close();
+  }
+
+  @Test
+  public void shouldWriteMostRecentRowsToStore() throws IOException {
+    List<FeatureRow> featureRows =
+        ImmutableList.of(
+            featureRow("myproject/fs", 1L, "one", 200),
+            featureRow("myproject/fs", 1L, "old", 100),
+            featureRow("myproject/fs", 2L, "two", 100),
+            featureRow("myproject/unknown", 1L, "one", 100));
+
+    WriteResult result = p.apply(Create.of(featureRows)).apply(embeddedFeatureSink.writer());
+    PAssert.that(result.getFailedInserts().apply(Count.globally())).containsInAnyOrder(1L);
+    p.run();
+
+    List<Optional<FeatureRow>> storedRows =
+        EmbeddedOnlineRetriever.create(MappedFeatureStore.open(embeddedConfig))
+            .getOnlineFeatures(
+                ImmutableList.of(entityRow(1), entityRow(2), entityRow(3)),
+                FeatureSetRequest.newBuilder()
+                    .setSpec(spec)
+                    .addFeatureReference(FeatureReference.newBuilder().setName("feature").build())
+                    .build());
+
+    assertThat(
+        storedRows,
+        equalTo(
+            ImmutableList.of(
+                Optional.of(featureRow("myproject/fs", null, "one", 200)),
+                Optional.of(featureRow("myproject/fs", null, "two", 100)),
+                Optional.empty())));
+  }
+
+  private static EntityRow entityRow(long entity) {
+    return EntityRow.newBuilder()
+        .putFields("entity", Value.newBuilder().setInt64Val(entity).build())
+        .build();
+  }
+
+  private static FeatureRow featureRow(
+      String featureSetRef, Long entity, String feature, long eventTimestamp) {
+    FeatureRow.Builder featureRow =
+        FeatureRow.newBuilder()
+            .setFeatureSet(featureSetRef)
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(eventTimestamp));
+    if (entity != null) {
+      featureRow.addFields(
+          Field.newBuilder().setName("entity").setValue(Value.newBuilder().setInt64Val(entity)));
+    }
+    return featureRow
+        .addFields(
+            Field.newBuilder()
+                .setName("feature")
+                .setValue(Value.newBuilder().setStringVal(feature)))
+        .build();
+  }
+}
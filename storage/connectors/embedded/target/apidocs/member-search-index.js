@@ -0,0 +1 @@
+memberSearchIndex = [{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedFeatureSink.Builder","l":"build()"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedFeatureSink","l":"builder()"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedFeatureSink.Builder","l":"Builder()","url":"%3Cinit%3E()"},{"p":"feast.storage.connectors.embedded.store","c":"MappedFeatureStore","l":"close()"},{"p":"feast.storage.connectors.embedded.retriever","c":"EmbeddedOnlineRetriever","l":"create(Map<String, String>)","url":"create(java.util.Map)"},{"p":"feast.storage.connectors.embedded.retriever","c":"EmbeddedOnlineRetriever","l":"create(MappedFeatureStore)","url":"create(feast.storage.connectors.embedded.store.MappedFeatureStore)"},{"p":"feast.storage.connectors.embedded.store","c":"FeatureRowCodec","l":"decode(byte[], Collection<String>)","url":"decode(byte[],java.util.Collection)"},{"p":"feast.storage.connectors.embedded.store","c":"MappedFeatureStore","l":"DEFAULT_MAX_ENTRIES"},{"p":"feast.storage.connectors.embedded.store","c":"MappedFeatureStore","l":"DEFAULT_SEGMENT_SIZE_MB"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedFeatureSink","l":"EmbeddedFeatureSink()","url":"%3Cinit%3E()"},{"p":"feast.storage.connectors.embedded.store","c":"FeatureRowCodec","l":"encode(FeatureRowProto.FeatureRow)","url":"encode(feast.proto.types.FeatureRowProto.FeatureRow)"},{"p":"feast.storage.connectors.embedded.store","c":"EntityKeyEncoder","l":"encode(Map<String, ValueProto.Value>)","url":"encode(java.util.Map)"},{"p":"feast.storage.connectors.embedded.store","c":"EntityKeyEncoder","l":"EntityKeyEncoder(String, FeatureSetProto.FeatureSetSpec)","url":"%3Cinit%3E(java.lang.String,feast.proto.core.FeatureSetProto.FeatureSetSpec)"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedCustomIO.Write","l":"expand(PCollection<FeatureRowProto.FeatureRow>)","url":"expand(org.apache.beam.sdk.values.PCollection)"},{"p":"feast.storage.connectors.embedded.store","c":"FeatureRowCodec","l":"FeatureRowCodec(String, FeatureSetProto.FeatureSetSpec)","url":"%3Cinit%3E(java.lang.String,feast.proto.core.FeatureSetProto.FeatureSetSpec)"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedFeatureSink","l":"fromConfig(StoreProto.Store.EmbeddedConfig)","url":"fromConfig(feast.proto.core.StoreProto.Store.EmbeddedConfig)"},{"p":"feast.storage.connectors.embedded.store","c":"MappedFeatureStore","l":"get(byte[])"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedFeatureSink","l":"getEmbeddedConfig()"},{"p":"feast.storage.connectors.embedded.retriever","c":"EmbeddedOnlineRetriever","l":"getOnlineFeatures(List<ServingAPIProto.GetOnlineFeaturesRequest.EntityRow>, FeatureSetRequest)","url":"getOnlineFeatures(java.util.List,feast.storage.api.retriever.FeatureSetRequest)"},{"p":"feast.storage.connectors.embedded.store","c":"FeatureRowCodec","l":"isMoreRecent(FeatureRowProto.FeatureRow, byte[])","url":"isMoreRecent(feast.proto.types.FeatureRowProto.FeatureRow,byte[])"},{"p":"feast.storage.connectors.embedded.store","c":"MappedFeatureStore","l":"open(Path, int, long)","url":"open(java.nio.file.Path,int,long)"},{"p":"feast.storage.connectors.embedded.store","c":"MappedFeatureStore","l":"open(StoreProto.Store.EmbeddedConfig)","url":"open(feast.proto.core.StoreProto.Store.EmbeddedConfig)"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedFeatureSink","l":"prepareWrite(PCollection<KV<FeatureSetReference, FeatureSetProto.FeatureSetSpec>>)","url":"prepareWrite(org.apache.beam.sdk.values.PCollection)"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedCustomIO.Write.WriteDoFn","l":"processElement(DoFn.ProcessContext)","url":"processElement(org.apache.beam.sdk.transforms.DoFn.ProcessContext)"},{"p":"feast.storage.connectors.embedded.store","c":"MappedFeatureStore","l":"put(byte[], byte[], Predicate<byte[]>)","url":"put(byte[],byte[],java.util.function.Predicate)"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedFeatureSink.Builder","l":"setEmbeddedConfig(StoreProto.Store.EmbeddedConfig)","url":"setEmbeddedConfig(feast.proto.core.StoreProto.Store.EmbeddedConfig)"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedCustomIO.Write.WriteDoFn","l":"setup()"},{"p":"feast.storage.connectors.embedded.store","c":"MappedFeatureStore","l":"size()"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedCustomIO.Write.WriteDoFn","l":"teardown()"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedFeatureSink","l":"toBuilder()"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedCustomIO.Write","l":"Write(StoreProto.Store.EmbeddedConfig, PCollectionView<Map<String, Iterable<FeatureSetProto.FeatureSetSpec>>>)","url":"%3Cinit%3E(feast.proto.core.StoreProto.Store.EmbeddedConfig,org.apache.beam.sdk.values.PCollectionView)"},{"p":"feast.storage.connectors.embedded.writer","c":"EmbeddedFeatureSink","l":"writer()"}]
\ No newline at end of file
@@ -0,0 +1 @@
+packageSearchIndex = [{"l":"All Packages","url":"allpackages-index.html"},{"l":"feast.storage.connectors.embedded.retriever"},{"l":"feast.storage.connectors.embedded.store"},{"l":"feast.storage.connectors.embedded.writer"}]
\ No newline at end of file
@@ -0,0 +1 @@
+typeSearchIndex = [{"l":"All Classes","url":"allclasses-index.html"},{"p":"feast.storage.connectors.embedded.writer","l":"EmbeddedFeatureSink.Builder"},{"p":"feast.storage.connectors.embedded.writer","l":"EmbeddedCustomIO"},{"p":"feast.storage.connectors.embedded.writer","l":"EmbeddedFeatureSink"},{"p":"feast.storage.connectors.embedded.retriever","l":"EmbeddedOnlineRetriever"},{"p":"feast.storage.connectors.embedded.store","l":"EntityKeyEncoder"},{"p":"feast.storage.connectors.embedded.store","l":"FeatureRowCodec"},{"p":"feast.storage.connectors.embedded.store","l":"MappedFeatureStore"},{"p":"feast.storage.connectors.embedded.writer","l":"EmbeddedCustomIO.Write"},{"p":"feast.storage.connectors.embedded.writer","l":"EmbeddedCustomIO.Write.WriteDoFn"}]
\ No newline at end of file
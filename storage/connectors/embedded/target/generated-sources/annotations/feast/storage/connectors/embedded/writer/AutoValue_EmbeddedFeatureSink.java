@@ -0,0 +1,82 @@
+package feast.storage.connectors.embedded.writer;
+
+import feast.proto.core.StoreProto;
+import javax.annotation.Generated;
+
+@Generated("com.google.auto.value.processor.AutoValueProcessor")
+final class AutoValue_EmbeddedFeatureSink extends EmbeddedFeatureSink {
+
+  private final StoreProto.Store.EmbeddedConfig embeddedConfig;
+
+  private AutoValue_EmbeddedFeatureSink(
+      StoreProto.Store.EmbeddedConfig embeddedConfig) {
+    this.embeddedConfig = embeddedConfig;
+  }
+
+  @Override
+  public StoreProto.Store.EmbeddedConfig getEmbeddedConfig() {
+    return embeddedConfig;
+  }
+
+  @Override
+  public String toString() {
+    return "EmbeddedFeatureSink{"
+         + "embeddedConfig=" + embeddedConfig
+        + "}";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof EmbeddedFeatureSink) {
+      EmbeddedFeatureSink that = (EmbeddedFeatureSink) o;
+      return this.embeddedConfig.equals(that.getEmbeddedConfig());
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int h$ = 1;
+    h$ *= 1000003;
+    h$ ^= embeddedConfig.hashCode();
+    return h$;
+  }
+
+  @Override
+  public EmbeddedFeatureSink.Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  static final class Builder extends EmbeddedFeatureSink.Builder {
+    private StoreProto.Store.EmbeddedConfig embeddedConfig;
+    Builder() {
+    }
+    private Builder(EmbeddedFeatureSink source) {
+      this.embeddedConfig = source.getEmbeddedConfig();
+    }
+    @Override
+    public EmbeddedFeatureSink.Builder setEmbeddedConfig(StoreProto.Store.EmbeddedConfig embeddedConfig) {
+      if (embeddedConfig == null) {
+        throw new NullPointerException("Null embeddedConfig");
+      }
+      this.embeddedConfig = embeddedConfig;
+      return this;
+    }
+    @Override
+    public EmbeddedFeatureSink build() {
+      String missing = "";
+      if (this.embeddedConfig == null) {
+        missing += " embeddedConfig";
+      }
+      if (!missing.isEmpty()) {
+        throw new IllegalStateException("Missing required properties:" + missing);
+      }
+      return new AutoValue_EmbeddedFeatureSink(
+          this.embeddedConfig);
+    }
+  }
+
+}
@@ -17,27 +17,78 @@
 package feast.storage.connectors.redis.retriever;
 
 import com.google.common.hash.Hashing;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.WireFormat;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.FeatureSetProto.FeatureSpec;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.BoolList;
+import feast.proto.types.ValueProto.BytesList;
+import feast.proto.types.ValueProto.DoubleList;
+import feast.proto.types.ValueProto.FloatList;
+import feast.proto.types.ValueProto.Int32List;
+import feast.proto.types.ValueProto.Int64List;
+import feast.proto.types.ValueProto.StringList;
 import feast.proto.types.ValueProto.Value;
+import feast.storage.connectors.redis.writer.CompactFeatureRowEncoder;
 import feast.storage.connectors.redis.writer.RedisCustomIO;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
+/**
+ * Decoder for feature rows encoded by {@link RedisCustomIO}. The decoding plan for the given
+ * feature set spec is compiled once on construction, so a decoder should be reused for all rows of
+ * the same spec.
+ */
 public class FeatureRowDecoder {
 
+  // Wire format tags of the FeatureRow and Field messages read when decoding from bytes.
+  private static final int FIELDS_TAG = makeTag(FeatureRow.FIELDS_FIELD_NUMBER);
+  private static final int EVENT_TIMESTAMP_TAG = makeTag(FeatureRow.EVENT_TIMESTAMP_FIELD_NUMBER);
+  private static final int INGESTION_ID_TAG = makeTag(FeatureRow.INGESTION_ID_FIELD_NUMBER);
+  private static final int FIELD_NAME_TAG = makeTag(Field.NAME_FIELD_NUMBER);
+  private static final int FIELD_VALUE_TAG = makeTag(Field.VALUE_FIELD_NUMBER);
+
   private final String featureSetRef;
-  private final FeatureSetSpec spec;
+  // feature names in the order of the features in the spec, used by the v2 decoder.
+  private final String[] featureNames;
+  // feature names in alphabetical order, used by the v1 decoder.
+  private final String[] sortedFeatureNames;
+  // maps feature name to the index of the feature in featureNames.
+  private final Map<String, Integer> featureIndexByName;
+  // maps hashed feature name to the index of the feature in featureNames.
+  private final Map<String, Integer> featureIndexByNameHash;
+  // maps the compact hash of the feature name to the index of the feature in featureNames.
+  private final Map<Integer, Integer> featureIndexByCompactNameHash;
 
   public FeatureRowDecoder(String featureSetRef, FeatureSetSpec spec) {
     this.featureSetRef = featureSetRef;
-    this.spec = spec;
+    List<FeatureSpec> features = spec.getFeaturesList();
+    this.featureNames = new String[features.size()];
+    this.featureIndexByName = new HashMap<>(features.size() * 2);
+    this.featureIndexByNameHash = new HashMap<>(features.size() * 2);
+    this.featureIndexByCompactNameHash = new HashMap<>(features.size() * 2);
+    for (int i = 0; i < featureNames.length; i++) {
+      String name = features.get(i).getName();
+      featureNames[i] = name;
+      featureIndexByName.put(name, i);
+      featureIndexByNameHash.put(
+          Hashing.murmur3_32().hashString(name, StandardCharsets.UTF_8).toString(), i);
+      featureIndexByCompactNameHash.put(CompactFeatureRowEncoder.hashFeatureName(name), i);
+    }
+    this.sortedFeatureNames = featureNames.clone();
+    Arrays.sort(sortedFeatureNames);
   }
 
   /**
@@ -47,24 +98,25 @@ public class FeatureRowDecoder {
    * spec. NOTE: This method is deprecated and will be removed in Feast v0.7.
    *
    * @param featureRow Feature row
+   * @param hasNamedField whether any field in the feature row has its name set
    * @return boolean
    */
   @Deprecated
-  private boolean isEncodedV1(FeatureRow featureRow) {
+  private boolean isEncodedV1(FeatureRow featureRow, boolean hasNamedField) {
     return featureRow.getFeatureSet().isEmpty()
-        && featureRow.getFieldsList().stream().allMatch(field -> field.getName().isEmpty())
-        && featureRow.getFieldsList().size() == spec.getFeaturesList().size();
+        && !hasNamedField
+        && featureRow.getFieldsCount() == featureNames.length;
   }
 
   /**
    * Check if encoded feature row can be decoded by Decoder. The v2 Decoder requires that a Feature
    * Row to have both it feature set reference and fields names are set.
    *
-   * @param featureRow Feature row
+   * @param hasUnnamedField whether any field in the feature row has its name unset
    * @return boolean
    */
-  private boolean isEncodedV2(FeatureRow featureRow) {
-    return !featureRow.getFieldsList().stream().anyMatch(field -> field.getName().isEmpty());
+  private boolean isEncodedV2(boolean hasUnnamedField) {
+    return !hasUnnamedField;
   }
 
   /**
@@ -76,67 +128,292 @@ public class FeatureRowDecoder {
    * @return boolean
    */
   public FeatureRow decode(FeatureRow encodedFeatureRow) {
-    if (isEncodedV1(encodedFeatureRow)) {
+    List<Field> encodedFields = encodedFeatureRow.getFieldsList();
+    boolean hasNamedField = false;
+    boolean hasUnnamedField = false;
+    for (Field field : encodedFields) {
+      if (field.getName().isEmpty()) {
+        hasUnnamedField = true;
+      } else {
+        hasNamedField = true;
+      }
+    }
+
+    if (isEncodedV1(encodedFeatureRow, hasNamedField)) {
       // TODO: remove v1 feature row decoder in Feast 0.7
       // Decode Feature Rows using the v1 Decoder.
-      final List<Field> fieldsWithoutName = encodedFeatureRow.getFieldsList();
-      List<String> featureNames =
-          spec.getFeaturesList().stream()
-              .sorted(Comparator.comparing(FeatureSpec::getName))
-              .map(FeatureSpec::getName)
-              .collect(Collectors.toList());
-
-      List<Field> fields =
-          IntStream.range(0, featureNames.size())
-              .mapToObj(
-                  featureNameIndex -> {
-                    String featureName = featureNames.get(featureNameIndex);
-                    return fieldsWithoutName
-                        .get(featureNameIndex)
-                        .toBuilder()
-                        .setName(featureName)
-                        .build();
-                  })
-              .collect(Collectors.toList());
-
-      return encodedFeatureRow
-          .toBuilder()
-          .clearFields()
-          .setFeatureSet(featureSetRef)
-          .addAllFields(fields)
-          .build();
-    }
-    if (isEncodedV2(encodedFeatureRow)) {
+      // v1 Decoder input Feature Rows have unnamed fields in the alphabetical order of the
+      // feature names.
+      FeatureRow.Builder featureRow =
+          encodedFeatureRow.toBuilder().clearFields().setFeatureSet(featureSetRef);
+      for (int i = 0; i < sortedFeatureNames.length; i++) {
+        featureRow.addFields(encodedFields.get(i).toBuilder().setName(sortedFeatureNames[i]));
+      }
+      return featureRow.build();
+    }
+    if (isEncodedV2(hasUnnamedField)) {
       // Decode Feature Rows using the v2 Decoder.
       // v2 Decoder input Feature Rows should use a hashed name as the field name and
       // should not have feature set reference set.
       // Decoding reverts the field name to a unhashed string and set feature set reference.
-      Map<String, Value> nameHashValueMap =
-          encodedFeatureRow.getFieldsList().stream()
-              .collect(Collectors.toMap(field -> field.getName(), field -> field.getValue()));
-
-      List<String> featureNames =
-          spec.getFeaturesList().stream().map(FeatureSpec::getName).collect(Collectors.toList());
-
-      List<Field> fields =
-          featureNames.stream()
-              .map(
-                  name -> {
-                    String nameHash =
-                        Hashing.murmur3_32().hashString(name, StandardCharsets.UTF_8).toString();
-                    Value value =
-                        nameHashValueMap.getOrDefault(nameHash, Value.newBuilder().build());
-                    return Field.newBuilder().setName(name).setValue(value).build();
-                  })
-              .collect(Collectors.toList());
-
-      return encodedFeatureRow
-          .toBuilder()
-          .clearFields()
-          .setFeatureSet(featureSetRef)
-          .addAllFields(fields)
-          .build();
+      Value[] values = new Value[featureNames.length];
+      for (Field field : encodedFields) {
+        Integer featureIndex = featureIndexByNameHash.get(field.getName());
+        if (featureIndex != null) {
+          values[featureIndex] = field.getValue();
+        }
+      }
+
+      FeatureRow.Builder featureRow =
+          encodedFeatureRow.toBuilder().clearFields().setFeatureSet(featureSetRef);
+      for (int i = 0; i < featureNames.length; i++) {
+        Value value = (values[i] == null) ? Value.getDefaultInstance() : values[i];
+        featureRow.addFields(Field.newBuilder().setName(featureNames[i]).setValue(value));
+      }
+      return featureRow.build();
     }
     throw new IllegalArgumentException("Failed to decode FeatureRow row: Possible data corruption");
   }
+
+  /**
+   * Compile the projection of the given feature names for use with {@link #decode(byte[], BitSet)}.
+   * Feature names not in the feature set spec are ignored.
+   *
+   * @param names names of the features to decode.
+   * @return projection of the features to decode.
+   */
+  public BitSet project(Collection<String> names) {
+    BitSet projection = new BitSet(featureNames.length);
+    for (String name : names) {
+      Integer featureIndex = featureIndexByName.get(name);
+      if (featureIndex != null) {
+        projection.set(featureIndex);
+      }
+    }
+    return projection;
+  }
+
+  /**
+   * Decode feature row encoded by {@link RedisCustomIO} from its serialized bytes, materializing
+   * only the values of the features in the given projection. The decoded feature row only contains
+   * fields for the projected features.
+   *
+   * <p>Encoded fields are walked directly on the serialized bytes, so values of features not in the
+   * projection are skipped without being parsed. Feature rows encoded by the v1 encoder are fully
+   * parsed before being projected. Feature rows in the compact (v3) encoding of {@link
+   * CompactFeatureRowEncoder} can be decoded whatever the features they were encoded with: features
+   * without an encoded value are decoded with an empty value.
+   *
+   * @throws IllegalArgumentException if unable to the decode the given feature row
+   * @throws InvalidProtocolBufferException if the given bytes are not a valid feature row
+   * @param encodedFeatureRow serialized feature row
+   * @param projection features to decode, compiled with {@link #project(Collection)}
+   * @return decoded feature row
+   */
+  public FeatureRow decode(byte[] encodedFeatureRow, BitSet projection)
+      throws InvalidProtocolBufferException {
+    if (CompactFeatureRowEncoder.isCompact(encodedFeatureRow)) {
+      return decodeCompact(encodedFeatureRow, projection);
+    }
+    CodedInputStream input = CodedInputStream.newInstance(encodedFeatureRow);
+    FeatureRow.Builder featureRow = FeatureRow.newBuilder().setFeatureSet(featureSetRef);
+    Value[] values = new Value[featureNames.length];
+    try {
+      int tag;
+      while ((tag = input.readTag()) != 0) {
+        if (tag == FIELDS_TAG) {
+          int oldLimit = input.pushLimit(input.readRawVarint32());
+          if (!readField(input, projection, values)) {
+            // unnamed fields are only produced by the v1 encoder
+            return project(decode(FeatureRow.parseFrom(encodedFeatureRow)), projection);
+          }
+          input.popLimit(oldLimit);
+        } else if (tag == EVENT_TIMESTAMP_TAG) {
+          featureRow.setEventTimestamp(
+              input.readMessage(Timestamp.parser(), ExtensionRegistryLite.getEmptyRegistry()));
+        } else if (tag == INGESTION_ID_TAG) {
+          featureRow.setIngestionId(input.readStringRequireUtf8());
+        } else if (!input.skipField(tag)) {
+          break;
+        }
+      }
+    } catch (InvalidProtocolBufferException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new InvalidProtocolBufferException(e);
+    }
+
+    for (int i = projection.nextSetBit(0); i >= 0; i = projection.nextSetBit(i + 1)) {
+      Value value = (values[i] == null) ? Value.getDefaultInstance() : values[i];
+      featureRow.addFields(Field.newBuilder().setName(featureNames[i]).setValue(value));
+    }
+    return featureRow.build();
+  }
+
+  /**
+   * Check if the given serialized feature row can be decoded by this decoder. Only feature rows in
+   * the compact encoding with another version than the version of {@link CompactFeatureRowEncoder}
+   * cannot be decoded.
+   *
+   * @param encodedFeatureRow serialized feature row
+   * @return whether the feature row can be decoded.
+   */
+  public boolean isDecodable(byte[] encodedFeatureRow) {
+    return !CompactFeatureRowEncoder.isCompact(encodedFeatureRow)
+        || encodedFeatureRow[1] == CompactFeatureRowEncoder.VERSION;
+  }
+
+  private FeatureRow decodeCompact(byte[] encodedFeatureRow, BitSet projection)
+      throws InvalidProtocolBufferException {
+    if (!isDecodable(encodedFeatureRow)) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Failed to decode FeatureRow row: unsupported compact encoding version %d",
+              encodedFeatureRow[1]));
+    }
+    CodedInputStream input =
+        CodedInputStream.newInstance(
+            encodedFeatureRow,
+            CompactFeatureRowEncoder.HEADER_SIZE,
+            encodedFeatureRow.length - CompactFeatureRowEncoder.HEADER_SIZE);
+    FeatureRow.Builder featureRow = FeatureRow.newBuilder().setFeatureSet(featureSetRef);
+    Value[] values = new Value[featureNames.length];
+    try {
+      featureRow.setEventTimestamp(
+          Timestamp.newBuilder().setSeconds(input.readInt64()).setNanos(input.readInt32()));
+      while (!input.isAtEnd()) {
+        // values of features that are not in the spec anymore are skipped
+        Integer featureIndex = featureIndexByCompactNameHash.get(input.readFixed32());
+        Value.ValCase valCase = Value.ValCase.forNumber(input.readRawByte());
+        if (featureIndex != null && projection.get(featureIndex)) {
+          values[featureIndex] = readValue(input, valCase);
+        } else {
+          skipValue(input, valCase);
+        }
+      }
+    } catch (InvalidProtocolBufferException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new InvalidProtocolBufferException(e);
+    }
+
+    for (int i = projection.nextSetBit(0); i >= 0; i = projection.nextSetBit(i + 1)) {
+      Value value = (values[i] == null) ? Value.getDefaultInstance() : values[i];
+      featureRow.addFields(Field.newBuilder().setName(featureNames[i]).setValue(value));
+    }
+    return featureRow.build();
+  }
+
+  private static Value readValue(CodedInputStream input, Value.ValCase valCase) throws IOException {
+    ExtensionRegistryLite registry = ExtensionRegistryLite.getEmptyRegistry();
+    Value.Builder value = Value.newBuilder();
+    switch (valCase == null ? Value.ValCase.VAL_NOT_SET : valCase) {
+      case BYTES_VAL:
+        return value.setBytesVal(input.readBytes()).build();
+      case STRING_VAL:
+        return value.setStringVal(input.readStringRequireUtf8()).build();
+      case INT32_VAL:
+        return value.setInt32Val(input.readInt32()).build();
+      case INT64_VAL:
+        return value.setInt64Val(input.readInt64()).build();
+      case DOUBLE_VAL:
+        return value.setDoubleVal(input.readDouble()).build();
+      case FLOAT_VAL:
+        return value.setFloatVal(input.readFloat()).build();
+      case BOOL_VAL:
+        return value.setBoolVal(input.readBool()).build();
+      case BYTES_LIST_VAL:
+        return value.setBytesListVal(input.readMessage(BytesList.parser(), registry)).build();
+      case STRING_LIST_VAL:
+        return value.setStringListVal(input.readMessage(StringList.parser(), registry)).build();
+      case INT32_LIST_VAL:
+        return value.setInt32ListVal(input.readMessage(Int32List.parser(), registry)).build();
+      case INT64_LIST_VAL:
+        return value.setInt64ListVal(input.readMessage(Int64List.parser(), registry)).build();
+      case DOUBLE_LIST_VAL:
+        return value.setDoubleListVal(input.readMessage(DoubleList.parser(), registry)).build();
+      case FLOAT_LIST_VAL:
+        return value.setFloatListVal(input.readMessage(FloatList.parser(), registry)).build();
+      case BOOL_LIST_VAL:
+        return value.setBoolListVal(input.readMessage(BoolList.parser(), registry)).build();
+      default:
+        throw new InvalidProtocolBufferException("Invalid value type of compact feature row");
+    }
+  }
+
+  private static void skipValue(CodedInputStream input, Value.ValCase valCase) throws IOException {
+    switch (valCase == null ? Value.ValCase.VAL_NOT_SET : valCase) {
+      case INT32_VAL:
+      case INT64_VAL:
+      case BOOL_VAL:
+        input.readRawVarint64();
+        break;
+      case DOUBLE_VAL:
+        input.skipRawBytes(8);
+        break;
+      case FLOAT_VAL:
+        input.skipRawBytes(4);
+        break;
+      case VAL_NOT_SET:
+        throw new InvalidProtocolBufferException("Invalid value type of compact feature row");
+      default:
+        // bytes, strings and lists are length delimited
+        input.skipRawBytes(input.readRawVarint32());
+    }
+  }
+
+  /**
+   * Read a single encoded field, parsing its value into the slot of its feature if the feature is
+   * in the given projection.
+   *
+   * @return false if the field does not have its name set, true otherwise.
+   */
+  private boolean readField(CodedInputStream input, BitSet projection, Value[] values)
+      throws IOException {
+    String nameHash = null;
+    ByteString valueBytes = null;
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      if (tag == FIELD_NAME_TAG) {
+        nameHash = input.readStringRequireUtf8();
+      } else if (tag == FIELD_VALUE_TAG && nameHash == null) {
+        // name is written before value by protobuf encoders, but is not guaranteed to be.
+        valueBytes = input.readBytes();
+      } else if (tag == FIELD_VALUE_TAG) {
+        Integer featureIndex = featureIndexByNameHash.get(nameHash);
+        if (featureIndex != null && projection.get(featureIndex)) {
+          values[featureIndex] =
+              input.readMessage(Value.parser(), ExtensionRegistryLite.getEmptyRegistry());
+        } else {
+          input.skipField(tag);
+        }
+      } else if (!input.skipField(tag)) {
+        break;
+      }
+    }
+
+    if (nameHash == null || nameHash.isEmpty()) {
+      return false;
+    }
+    Integer featureIndex = featureIndexByNameHash.get(nameHash);
+    if (valueBytes != null && featureIndex != null && projection.get(featureIndex)) {
+      values[featureIndex] = Value.parseFrom(valueBytes);
+    }
+    return true;
+  }
+
+  private FeatureRow project(FeatureRow decodedFeatureRow, BitSet projection) {
+    FeatureRow.Builder featureRow = decodedFeatureRow.toBuilder().clearFields();
+    for (Field field : decodedFeatureRow.getFieldsList()) {
+      Integer featureIndex = featureIndexByName.get(field.getName());
+      if (featureIndex != null && projection.get(featureIndex)) {
+        featureRow.addFields(field);
+      }
+    }
+    return featureRow.build();
+  }
+
+  private static int makeTag(int fieldNumber) {
+    return (fieldNumber << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+  }
 }
@@ -16,41 +16,136 @@
  */
 package feast.storage.connectors.redis.retriever;
 
-import com.google.protobuf.AbstractMessageLite;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.protobuf.InvalidProtocolBufferException;
-import feast.proto.core.FeatureSetProto.EntitySpec;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
-import feast.proto.storage.RedisProto.RedisKey;
 import feast.proto.types.FeatureRowProto.FeatureRow;
-import feast.proto.types.FieldProto.Field;
-import feast.proto.types.ValueProto.Value;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.OnlineRetriever;
+import feast.storage.connectors.redis.writer.RedisHashLayout;
 import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.lettuce.core.KeyValue;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.SlotHash;
 import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
 import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
+import io.lettuce.core.cluster.models.partitions.Partitions;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
 import io.lettuce.core.codec.ByteArrayCodec;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /** Defines a storage retriever */
 public class RedisClusterOnlineRetriever implements OnlineRetriever {
 
+  // Max no. of compiled feature row decoders and key encoders to retain, one per feature set
+  // spec version.
+  private static final int MAX_DECODER_COUNT = 1000;
+  // Default max no. of pipeline connections, leased by lookups while they queue their GETs.
+  private static final int DEFAULT_MAX_PIPELINE_CONNECTIONS =
+      Runtime.getRuntime().availableProcessors();
+
+  private final StatefulRedisClusterConnection<byte[], byte[]> connection;
+  // Client of the connections of the retriever if owned by the retriever, null otherwise.
+  private final RedisClusterClient client;
+
   private final RedisAdvancedClusterCommands<byte[], byte[]> syncCommands;
+  private final RedisAdvancedClusterAsyncCommands<byte[], byte[]> asyncCommands;
+  // Opens connections dedicated to pipelined reads, or null to read with cluster MGETs only.
+  private final Supplier<StatefulRedisClusterConnection<byte[], byte[]>> pipelineConnectionFactory;
+  // Pipeline connections with auto flush disabled that are not leased by a lookup. A lookup leases
+  // a connection while it queues and flushes its GETs, so that concurrent lookups never flush each
+  // other's partially queued commands. Connections are opened as more lookups queue at once, up
+  // to maxPipelineConnections.
+  private final Queue<StatefulRedisClusterConnection<byte[], byte[]>> idlePipelineConnections =
+      new ConcurrentLinkedQueue<>();
+  private final int maxPipelineConnections;
+  // No. of pipeline connections opened, whether idle or leased.
+  private final AtomicInteger pipelineConnectionCount = new AtomicInteger();
+  private volatile boolean closed;
+  // Decompresses values compressed by the Redis sink, loading dictionaries from Redis.
+  private final ValueDecompressor valueDecompressor;
+  // Whether feature rows are stored in the hash layout of RedisHashLayout.
+  private final boolean hashLayout;
+  // Executor decoding feature rows off the Redis client's event loop.
+  private final Executor decodeExecutor;
+
+  // Feature row decoders compiled for each feature set spec, keyed by the spec itself so that an
+  // updated spec is compiled into a new decoder.
+  private final LoadingCache<FeatureSetSpec, FeatureRowDecoder> decoders =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_DECODER_COUNT)
+          .build(
+              CacheLoader.from(
+                  (FeatureSetSpec spec) ->
+                      new FeatureRowDecoder(generateFeatureSetStringRef(spec), spec)));
+
+  // Redis key encoders compiled for each feature set spec.
+  private final LoadingCache<FeatureSetSpec, RedisKeyEncoder> keyEncoders =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_DECODER_COUNT)
+          .build(
+              CacheLoader.from(
+                  (FeatureSetSpec spec) ->
+                      new RedisKeyEncoder(generateFeatureSetStringRef(spec), spec)));
 
-  private RedisClusterOnlineRetriever(StatefulRedisClusterConnection<byte[], byte[]> connection) {
+  private RedisClusterOnlineRetriever(
+      RedisClusterClient client,
+      StatefulRedisClusterConnection<byte[], byte[]> connection,
+      Supplier<StatefulRedisClusterConnection<byte[], byte[]>> pipelineConnectionFactory,
+      int maxPipelineConnections,
+      boolean hashLayout,
+      Executor decodeExecutor) {
+    this.client = client;
+    this.connection = connection;
+    this.hashLayout = hashLayout;
+    this.decodeExecutor = decodeExecutor;
     this.syncCommands = connection.sync();
+    this.asyncCommands = connection.async();
+    this.pipelineConnectionFactory = pipelineConnectionFactory;
+    this.maxPipelineConnections = maxPipelineConnections;
+    this.valueDecompressor =
+        new ValueDecompressor(key -> asyncCommands.get(key).toCompletableFuture());
   }
 
   public static OnlineRetriever create(Map<String, String> config) {
+    return create(config, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Create a retriever connected to the Redis cluster in the given store config, decoding the
+   * feature rows of asynchronous lookups on the given executor.
+   *
+   * @param config config of the Redis cluster store.
+   * @param decodeExecutor executor to decode retrieved feature rows on.
+   * @return retriever
+   */
+  public static OnlineRetriever create(Map<String, String> config, Executor decodeExecutor) {
     List<RedisURI> redisURIList =
         Arrays.stream(config.get("connection_string").split(","))
             .map(
@@ -60,14 +155,68 @@ public class RedisClusterOnlineRetriever implements OnlineRetriever {
                 })
             .collect(Collectors.toList());
 
-    StatefulRedisClusterConnection<byte[], byte[]> connection =
-        RedisClusterClient.create(redisURIList).connect(new ByteArrayCodec());
+    int maxPipelineConnections =
+        Integer.parseInt(config.getOrDefault("max_pipeline_connections", "0"));
+    if (maxPipelineConnections <= 0) {
+      maxPipelineConnections = DEFAULT_MAX_PIPELINE_CONNECTIONS;
+    }
 
-    return new RedisClusterOnlineRetriever(connection);
+    RedisClusterClient client = RedisClusterClient.create(redisURIList);
+    return new RedisClusterOnlineRetriever(
+        client,
+        client.connect(new ByteArrayCodec()),
+        () -> client.connect(new ByteArrayCodec()),
+        maxPipelineConnections,
+        Boolean.parseBoolean(config.getOrDefault("hash_layout", "false")),
+        decodeExecutor);
   }
 
+  /**
+   * Create a retriever reading with cluster MGETs on the given connection.
+   *
+   * @param connection connection to the Redis cluster.
+   * @return retriever
+   */
   public static OnlineRetriever create(StatefulRedisClusterConnection<byte[], byte[]> connection) {
-    return new RedisClusterOnlineRetriever(connection);
+    return new RedisClusterOnlineRetriever(
+        null, connection, null, 0, false, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Create a retriever reading on the given connection.
+   *
+   * @param connection connection to the Redis cluster.
+   * @param hashLayout whether feature rows are stored in the hash layout.
+   * @return retriever
+   */
+  public static OnlineRetriever create(
+      StatefulRedisClusterConnection<byte[], byte[]> connection, boolean hashLayout) {
+    return new RedisClusterOnlineRetriever(
+        null, connection, null, 0, hashLayout, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Create a retriever reading with GETs pipelined to the node serving each key.
+   *
+   * @param connection connection to the Redis cluster, used to retry keys that could not be read
+   *     from the node expected to serve them, eg. after slots have moved.
+   * @param pipelineConnectionFactory opens connections to the Redis cluster dedicated to the
+   *     retriever, on which auto flush is disabled.
+   * @param maxPipelineConnections max no. of connections to open with the factory. Lookups read
+   *     with a cluster MGET on the given connection when all of them are leased.
+   * @return retriever
+   */
+  public static OnlineRetriever create(
+      StatefulRedisClusterConnection<byte[], byte[]> connection,
+      Supplier<StatefulRedisClusterConnection<byte[], byte[]>> pipelineConnectionFactory,
+      int maxPipelineConnections) {
+    return new RedisClusterOnlineRetriever(
+        null,
+        connection,
+        pipelineConnectionFactory,
+        maxPipelineConnections,
+        false,
+        ForkJoinPool.commonPool());
   }
 
   /** {@inheritDoc} */
@@ -77,12 +226,27 @@ public class RedisClusterOnlineRetriever implements OnlineRetriever {
 
     // get features for this features/featureset in featureset request
     FeatureSetSpec featureSetSpec = featureSetRequest.getSpec();
-    List<RedisKey> redisKeys = buildRedisKeys(entityRows, featureSetSpec);
-    FeatureRowDecoder decoder =
-        new FeatureRowDecoder(generateFeatureSetStringRef(featureSetSpec), featureSetSpec);
+    byte[][] redisKeys = encodeRedisKeys(entityRows, featureSetSpec);
+    if (hashLayout) {
+      try {
+        return getFeaturesFromHashes(
+                redisKeys,
+                generateFeatureSetStringRef(featureSetSpec),
+                RedisHashLayout.selectFeatures(featureSetSpec, getFeatureNames(featureSetRequest)))
+            .join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof StatusRuntimeException) {
+          throw (StatusRuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    FeatureRowDecoder decoder = decoders.getUnchecked(featureSetSpec);
+    BitSet projection = decoder.project(getFeatureNames(featureSetRequest));
+    String featureSetRef = generateFeatureSetStringRef(featureSetSpec);
     List<Optional<FeatureRow>> featureRows = new ArrayList<>();
     try {
-      featureRows = getFeaturesFromRedis(redisKeys, decoder);
+      featureRows = getFeaturesFromRedis(redisKeys, featureSetRef, decoder, projection);
     } catch (InvalidProtocolBufferException | ExecutionException e) {
       throw Status.INTERNAL
           .withDescription("Unable to parse protobuf while retrieving feature")
@@ -92,63 +256,104 @@ public class RedisClusterOnlineRetriever implements OnlineRetriever {
     return featureRows;
   }
 
-  private List<RedisKey> buildRedisKeys(List<EntityRow> entityRows, FeatureSetSpec featureSetSpec) {
+  /** {@inheritDoc} */
+  @Override
+  public CompletableFuture<List<Optional<FeatureRow>>> getOnlineFeaturesAsync(
+      List<EntityRow> entityRows, FeatureSetRequest featureSetRequest) {
+
+    // get features for this features/featureset in featureset request
+    FeatureSetSpec featureSetSpec = featureSetRequest.getSpec();
+    byte[][] redisKeys = encodeRedisKeys(entityRows, featureSetSpec);
+    if (hashLayout) {
+      return getFeaturesFromHashes(
+          redisKeys,
+          generateFeatureSetStringRef(featureSetSpec),
+          RedisHashLayout.selectFeatures(featureSetSpec, getFeatureNames(featureSetRequest)));
+    }
+    FeatureRowDecoder decoder = decoders.getUnchecked(featureSetSpec);
+    BitSet projection = decoder.project(getFeatureNames(featureSetRequest));
     String featureSetRef = generateFeatureSetStringRef(featureSetSpec);
-    List<String> featureSetEntityNames =
-        featureSetSpec.getEntitiesList().stream()
-            .map(EntitySpec::getName)
-            .collect(Collectors.toList());
-    List<RedisKey> redisKeys =
-        entityRows.stream()
-            .map(row -> makeRedisKey(featureSetRef, featureSetEntityNames, row))
-            .collect(Collectors.toList());
-    return redisKeys;
+    return sendMultiGetAsync(redisKeys)
+        .thenCompose(
+            featureRowsBytes ->
+                // dictionaries of compressed values are loaded without blocking the event loop
+                valueDecompressor
+                    .loadDictionaries(featureSetRef, featureRowsBytes)
+                    .thenApply(ignored -> featureRowsBytes))
+        .handleAsync(
+            (featureRowsBytes, e) -> {
+              if (e != null) {
+                throw Status.NOT_FOUND
+                    .withDescription("Unable to retrieve feature from Redis")
+                    .withCause(e)
+                    .asRuntimeException();
+              }
+              try {
+                return decodeFeatureRows(featureRowsBytes, featureSetRef, decoder, projection);
+              } catch (InvalidProtocolBufferException ex) {
+                throw Status.INTERNAL
+                    .withDescription("Unable to parse protobuf while retrieving feature")
+                    .withCause(ex)
+                    .asRuntimeException();
+              }
+            },
+            decodeExecutor);
   }
 
   /**
-   * Create {@link RedisKey}
+   * Encode the Redis keys of the given entity rows using the key encoder of the feature set.
    *
-   * @param featureSet featureSet reference of the feature. E.g. feature_set_1:1
-   * @param featureSetEntityNames entity names that belong to the featureSet
-   * @param entityRow entityRow to build the key from
-   * @return {@link RedisKey}
+   * @param entityRows entity rows to build the keys from
+   * @param featureSetSpec spec of the featureSet of the features to retrieve
+   * @return encoded Redis key of each entity row
    */
-  private RedisKey makeRedisKey(
-      String featureSet, List<String> featureSetEntityNames, EntityRow entityRow) {
-    RedisKey.Builder builder = RedisKey.newBuilder().setFeatureSet(featureSet);
-    Map<String, Value> fieldsMap = entityRow.getFieldsMap();
-    featureSetEntityNames.sort(String::compareTo);
-    for (int i = 0; i < featureSetEntityNames.size(); i++) {
-      String entityName = featureSetEntityNames.get(i);
-
-      if (!fieldsMap.containsKey(entityName)) {
-        throw Status.INVALID_ARGUMENT
-            .withDescription(
-                String.format(
-                    "Entity row fields \"%s\" does not contain required entity field \"%s\"",
-                    fieldsMap.keySet().toString(), entityName))
-            .asRuntimeException();
-      }
-
-      builder.addEntities(
-          Field.newBuilder().setName(entityName).setValue(fieldsMap.get(entityName)));
+  private byte[][] encodeRedisKeys(List<EntityRow> entityRows, FeatureSetSpec featureSetSpec) {
+    try {
+      return keyEncoders.getUnchecked(featureSetSpec).encode(entityRows);
+    } catch (IllegalArgumentException e) {
+      throw Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException();
     }
-    return builder.build();
   }
 
   /**
    * Get features from data pulled from the Redis for a specific featureset.
    *
    * @param redisKeys keys used to retrieve data from Redis for a specific featureset.
+   * @param featureSetRef reference of the featureset.
    * @param decoder used to decode the data retrieved from Redis for a specific featureset.
+   * @param projection features to decode from the data retrieved from Redis.
    * @return List of {@link FeatureRow} optionals
    */
   private List<Optional<FeatureRow>> getFeaturesFromRedis(
-      List<RedisKey> redisKeys, FeatureRowDecoder decoder)
+      byte[][] redisKeys, String featureSetRef, FeatureRowDecoder decoder, BitSet projection)
       throws InvalidProtocolBufferException, ExecutionException {
     // pull feature row data bytes from redis using given redis keys
     List<byte[]> featureRowsBytes = sendMultiGet(redisKeys);
-    List<Optional<FeatureRow>> featureRows = new ArrayList<>();
+    try {
+      valueDecompressor.loadDictionaries(featureSetRef, featureRowsBytes).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Status.CANCELLED.withCause(e).asRuntimeException();
+    }
+    return decodeFeatureRows(featureRowsBytes, featureSetRef, decoder, projection);
+  }
+
+  /**
+   * Decode feature rows from the data bytes pulled from Redis for a specific featureset.
+   *
+   * @param featureRowsBytes data bytes or null pulled from redis for each key.
+   * @param featureSetRef reference of the featureset.
+   * @param decoder used to decode the data retrieved from Redis for a specific featureset.
+   * @param projection features to decode from the data retrieved from Redis.
+   * @return List of {@link FeatureRow} optionals
+   */
+  private List<Optional<FeatureRow>> decodeFeatureRows(
+      List<byte[]> featureRowsBytes,
+      String featureSetRef,
+      FeatureRowDecoder decoder,
+      BitSet projection)
+      throws InvalidProtocolBufferException {
+    List<Optional<FeatureRow>> featureRows = new ArrayList<>(featureRowsBytes.size());
 
     for (byte[] featureRowBytes : featureRowsBytes) {
       if (featureRowBytes == null) {
@@ -156,10 +361,17 @@ public class RedisClusterOnlineRetriever implements OnlineRetriever {
         continue;
       }
 
-      // decode feature rows from data bytes using decoder.
-      FeatureRow featureRow = FeatureRow.parseFrom(featureRowBytes);
+      // decompress and decode requested features from data bytes using decoder.
+      FeatureRow featureRow;
       try {
-        featureRow = decoder.decode(featureRow);
+        byte[] encodedFeatureRow = valueDecompressor.decompress(featureSetRef, featureRowBytes);
+        // feature rows in a compact encoding version unknown to the decoder are not found until
+        // they are written again in a known version.
+        if (!decoder.isDecodable(encodedFeatureRow)) {
+          featureRows.add(Optional.empty());
+          continue;
+        }
+        featureRow = decoder.decode(encodedFeatureRow, projection);
       } catch (IllegalArgumentException e) {
         // decoding feature row failed: data corruption could have occurred
         throw Status.DATA_LOSS.withCause(e).withDescription(e.getMessage()).asRuntimeException();
@@ -170,28 +382,67 @@ public class RedisClusterOnlineRetriever implements OnlineRetriever {
   }
 
   /**
-   * Pull the data stored in Redis at the given keys as bytes using the mget command. If no data is
-   * stored at a given key in Redis, will subsitute the data with null.
+   * Get the requested features of the given keys from the hashes of the hash layout, with one HMGET
+   * of the fields of the requested features per key.
+   *
+   * @param redisKeys keys of the hashes to read the features from.
+   * @param featureSetRef reference of the featureset.
+   * @param featureNames names of the features to read, in spec order.
+   * @return future of the list of {@link FeatureRow} optionals
+   */
+  private CompletableFuture<List<Optional<FeatureRow>>> getFeaturesFromHashes(
+      byte[][] redisKeys, String featureSetRef, List<String> featureNames) {
+    if (featureNames.isEmpty()) {
+      return CompletableFuture.completedFuture(
+          Collections.nCopies(redisKeys.length, Optional.empty()));
+    }
+    byte[][] fields = featureNames.stream().map(RedisHashLayout::fieldName).toArray(byte[][]::new);
+    List<CompletableFuture<List<KeyValue<byte[], byte[]>>>> hashes =
+        new ArrayList<>(redisKeys.length);
+    for (byte[] key : redisKeys) {
+      hashes.add(asyncCommands.hmget(key, fields).toCompletableFuture());
+    }
+    return CompletableFuture.allOf(hashes.toArray(new CompletableFuture[0]))
+        .handleAsync(
+            (ignored, e) -> {
+              if (e != null) {
+                throw Status.UNKNOWN
+                    .withDescription("Unexpected error when pulling data from from Redis.")
+                    .withCause(e)
+                    .asRuntimeException();
+              }
+              List<Optional<FeatureRow>> featureRows = new ArrayList<>(hashes.size());
+              try {
+                for (CompletableFuture<List<KeyValue<byte[], byte[]>>> hash : hashes) {
+                  featureRows.add(
+                      RedisHashLayout.decode(
+                          featureSetRef, featureNames, unpackKeyValues(hash.join())));
+                }
+              } catch (InvalidProtocolBufferException ex) {
+                throw Status.INTERNAL
+                    .withDescription("Unable to parse protobuf while retrieving feature")
+                    .withCause(ex)
+                    .asRuntimeException();
+              }
+              return featureRows;
+            },
+            decodeExecutor);
+  }
+
+  /**
+   * Pull the data stored in Redis at the given keys as bytes using pipelined GETs, or the mget
+   * command if pipelining is disabled or all pipeline connections are leased. If no data is stored
+   * at a given key in Redis, will subsitute the data with null.
    *
-   * @param keys list of {@link RedisKey} to pull from redis.
+   * @param keys encoded Redis keys to pull from redis.
    * @return list of data bytes or null pulled from redis for each given key.
    */
-  private List<byte[]> sendMultiGet(List<RedisKey> keys) {
+  private List<byte[]> sendMultiGet(byte[][] keys) {
     try {
-      byte[][] binaryKeys =
-          keys.stream()
-              .map(AbstractMessageLite::toByteArray)
-              .collect(Collectors.toList())
-              .toArray(new byte[0][0]);
-      return syncCommands.mget(binaryKeys).stream()
-          .map(
-              keyValue -> {
-                if (keyValue == null) {
-                  return null;
-                }
-                return keyValue.getValueOrElse(null);
-              })
-          .collect(Collectors.toList());
+      if (pipelineConnectionFactory != null) {
+        return sendPipelinedGets(keys).get();
+      }
+      return unpackKeyValues(syncCommands.mget(keys));
     } catch (Exception e) {
       throw Status.NOT_FOUND
           .withDescription("Unable to retrieve feature from Redis")
@@ -200,6 +451,201 @@ public class RedisClusterOnlineRetriever implements OnlineRetriever {
     }
   }
 
+  /**
+   * Asynchronously pull the data stored in Redis at the given keys as bytes. If no data is stored
+   * at a given key in Redis, will subsitute the data with null.
+   *
+   * @param keys encoded Redis keys to pull from redis.
+   * @return future of the list of data bytes or null pulled from redis for each given key.
+   */
+  private CompletableFuture<List<byte[]>> sendMultiGetAsync(byte[][] keys) {
+    if (pipelineConnectionFactory != null) {
+      return sendPipelinedGets(keys);
+    }
+    return sendClusterMultiGet(keys);
+  }
+
+  private CompletableFuture<List<byte[]>> sendClusterMultiGet(byte[][] keys) {
+    return asyncCommands
+        .mget(keys)
+        .toCompletableFuture()
+        .thenApply(RedisClusterOnlineRetriever::unpackKeyValues);
+  }
+
+  /**
+   * Pull the data stored in Redis at the given keys by grouping the keys by the cluster node
+   * serving their slot, and pipelining the GETs of each group to its node in a single flush. A
+   * cluster MGET splits keys per slot instead, so keys spread over many slots would be sent in as
+   * many commands. The GETs are queued and flushed on a pipeline connection leased for the lookup,
+   * or sent with a cluster MGET if all pipeline connections are leased by concurrent lookups.
+   *
+   * <p>Keys that could not be read from the node expected to serve them, eg. as their slot has
+   * moved since the cluster topology was last refreshed, are read again with a cluster MGET.
+   *
+   * @param keys encoded Redis keys to pull from redis.
+   * @return future of the list of data bytes or null pulled from redis for each key, in the order
+   *     of the given keys.
+   */
+  private CompletableFuture<List<byte[]>> sendPipelinedGets(byte[][] keys) {
+    StatefulRedisClusterConnection<byte[], byte[]> pipelineConnection = leasePipelineConnection();
+    if (pipelineConnection == null) {
+      return sendClusterMultiGet(keys);
+    }
+    try {
+      return queuePipelinedGets(keys, pipelineConnection);
+    } finally {
+      releasePipelineConnection(pipelineConnection);
+    }
+  }
+
+  /**
+   * Lease an idle pipeline connection, opening a new one if none is idle and less than
+   * maxPipelineConnections are open.
+   *
+   * @return leased pipeline connection, or null if all pipeline connections are leased.
+   */
+  private StatefulRedisClusterConnection<byte[], byte[]> leasePipelineConnection() {
+    StatefulRedisClusterConnection<byte[], byte[]> pipelineConnection =
+        idlePipelineConnections.poll();
+    if (pipelineConnection != null || closed) {
+      return pipelineConnection;
+    }
+    if (pipelineConnectionCount.incrementAndGet() > maxPipelineConnections) {
+      pipelineConnectionCount.decrementAndGet();
+      return null;
+    }
+    try {
+      pipelineConnection = pipelineConnectionFactory.get();
+    } catch (RuntimeException e) {
+      pipelineConnectionCount.decrementAndGet();
+      throw e;
+    }
+    // commands are flushed once per node after all the GETs of a lookup have been queued
+    pipelineConnection.setAutoFlushCommands(false);
+    return pipelineConnection;
+  }
+
+  /** Return a leased pipeline connection to the idle connections, closing it if closed. */
+  private void releasePipelineConnection(
+      StatefulRedisClusterConnection<byte[], byte[]> pipelineConnection) {
+    idlePipelineConnections.offer(pipelineConnection);
+    if (closed) {
+      closeIdlePipelineConnections();
+    }
+  }
+
+  private void closeIdlePipelineConnections() {
+    StatefulRedisClusterConnection<byte[], byte[]> pipelineConnection;
+    while ((pipelineConnection = idlePipelineConnections.poll()) != null) {
+      pipelineConnection.close();
+    }
+  }
+
+  /**
+   * Close the pipeline connections and the connection of the retriever, shutting down its client if
+   * the retriever created it. Pipeline connections leased by lookups in flight are closed once the
+   * lookups have queued their GETs.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    closeIdlePipelineConnections();
+    connection.close();
+    if (client != null) {
+      client.shutdown();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private CompletableFuture<List<byte[]>> queuePipelinedGets(
+      byte[][] keys, StatefulRedisClusterConnection<byte[], byte[]> pipelineConnection) {
+    Partitions partitions = pipelineConnection.getPartitions();
+    Map<String, List<Integer>> keyIndexesByNodeId = new HashMap<>();
+    for (int i = 0; i < keys.length; i++) {
+      RedisClusterNode node = partitions.getPartitionBySlot(SlotHash.getSlot(keys[i]));
+      String nodeId = (node == null) ? null : node.getNodeId();
+      keyIndexesByNodeId.computeIfAbsent(nodeId, id -> new ArrayList<>()).add(i);
+    }
+
+    CompletableFuture<byte[]>[] values = new CompletableFuture[keys.length];
+    for (Map.Entry<String, List<Integer>> keyIndexes : keyIndexesByNodeId.entrySet()) {
+      try {
+        if (keyIndexes.getKey() == null) {
+          throw new IllegalStateException("No node is known to serve the slot of the key");
+        }
+        StatefulRedisConnection<byte[], byte[]> nodeConnection =
+            pipelineConnection.getConnection(keyIndexes.getKey());
+        RedisAsyncCommands<byte[], byte[]> nodeCommands = nodeConnection.async();
+        for (int i : keyIndexes.getValue()) {
+          values[i] = nodeCommands.get(keys[i]).toCompletableFuture();
+        }
+        nodeConnection.flushCommands();
+      } catch (RuntimeException e) {
+        for (int i : keyIndexes.getValue()) {
+          values[i] = new CompletableFuture<>();
+          values[i].completeExceptionally(e);
+        }
+      }
+    }
+
+    return CompletableFuture.allOf(values)
+        .handle((ignored, e) -> null)
+        .thenCompose(
+            ignored -> {
+              List<byte[]> featureRowsBytes = new ArrayList<>(keys.length);
+              List<Integer> failedKeyIndexes = new ArrayList<>();
+              for (int i = 0; i < keys.length; i++) {
+                if (values[i].isCompletedExceptionally()) {
+                  failedKeyIndexes.add(i);
+                  featureRowsBytes.add(null);
+                } else {
+                  featureRowsBytes.add(values[i].join());
+                }
+              }
+              if (failedKeyIndexes.isEmpty()) {
+                return CompletableFuture.completedFuture(featureRowsBytes);
+              }
+
+              byte[][] failedKeys = new byte[failedKeyIndexes.size()][];
+              for (int j = 0; j < failedKeys.length; j++) {
+                failedKeys[j] = keys[failedKeyIndexes.get(j)];
+              }
+              return asyncCommands
+                  .mget(failedKeys)
+                  .toCompletableFuture()
+                  .thenApply(
+                      keyValues -> {
+                        List<byte[]> retriedBytes = unpackKeyValues(keyValues);
+                        for (int j = 0; j < failedKeys.length; j++) {
+                          featureRowsBytes.set(failedKeyIndexes.get(j), retriedBytes.get(j));
+                        }
+                        return featureRowsBytes;
+                      });
+            });
+  }
+
+  private static List<String> getFeatureNames(FeatureSetRequest featureSetRequest) {
+    List<String> featureNames = new ArrayList<>(featureSetRequest.getFeatureReferences().size());
+    for (FeatureReference featureReference : featureSetRequest.getFeatureReferences()) {
+      featureNames.add(featureReference.getName());
+    }
+    return featureNames;
+  }
+
+  /**
+   * Unpack the values returned by a Redis mget command, substituting null for keys with no data.
+   *
+   * @param keyValues key values returned by mget, in the order of the requested keys.
+   * @return list of data bytes or null for each requested key.
+   */
+  private static List<byte[]> unpackKeyValues(List<KeyValue<byte[], byte[]>> keyValues) {
+    List<byte[]> values = new ArrayList<>(keyValues.size());
+    for (KeyValue<byte[], byte[]> keyValue : keyValues) {
+      values.add((keyValue == null) ? null : keyValue.getValueOrElse(null));
+    }
+    return values;
+  }
+
   // TODO: Refactor this out to common package?
   private static String generateFeatureSetStringRef(FeatureSetSpec featureSetSpec) {
     String ref = String.format("%s/%s", featureSetSpec.getProject(), featureSetSpec.getName());
@@ -0,0 +1,156 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.retriever;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ClientOptions.DisconnectedBehavior;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connections to a Redis instance shared by the threads serving online lookups, so that lookups are
+ * not all serialized onto a single socket.
+ *
+ * <p>Lookups are spread over the connections round robin. Connections are reconnected automatically
+ * by the client when they are lost, and fail commands while disconnected rather than queue them.
+ * When health checks are enabled, each connection is periodically sent a PING, and lookups skip the
+ * connections that did not answer the last one, unless none did.
+ */
+class RedisConnectionPool {
+  private static final Logger log = LoggerFactory.getLogger(RedisConnectionPool.class);
+
+  private static final ScheduledExecutorService healthCheckExecutor =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("feast-redis-health-check-%d")
+              .build());
+
+  private final List<StatefulRedisConnection<byte[], byte[]>> connections;
+  // 1 if the connection at the same index passed its last health check, 0 otherwise.
+  private final AtomicIntegerArray healthy;
+  private final AtomicInteger nextIndex = new AtomicInteger();
+  // PINGs not answered within the interval between health checks fail the check.
+  private final long healthCheckIntervalMillis;
+
+  RedisConnectionPool(
+      List<StatefulRedisConnection<byte[], byte[]>> connections, long healthCheckIntervalMillis) {
+    this.connections = ImmutableList.copyOf(connections);
+    this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+    this.healthy = new AtomicIntegerArray(connections.size());
+    for (int i = 0; i < connections.size(); i++) {
+      healthy.set(i, 1);
+    }
+  }
+
+  /**
+   * Connect a pool to the given Redis instance.
+   *
+   * @param redisURI URI of the Redis instance.
+   * @param poolSize no. of connections in the pool.
+   * @param healthCheckIntervalMillis interval between health checks, 0 to disable them.
+   * @return connected pool.
+   */
+  static RedisConnectionPool connect(
+      RedisURI redisURI, int poolSize, long healthCheckIntervalMillis) {
+    RedisClient client = RedisClient.create(redisURI);
+    client.setOptions(
+        ClientOptions.builder()
+            .autoReconnect(true)
+            .pingBeforeActivateConnection(true)
+            .disconnectedBehavior(DisconnectedBehavior.REJECT_COMMANDS)
+            .build());
+    List<StatefulRedisConnection<byte[], byte[]>> connections = new ArrayList<>(poolSize);
+    for (int i = 0; i < poolSize; i++) {
+      connections.add(client.connect(new ByteArrayCodec()));
+    }
+
+    RedisConnectionPool pool = new RedisConnectionPool(connections, healthCheckIntervalMillis);
+    if (healthCheckIntervalMillis > 0) {
+      healthCheckExecutor.scheduleWithFixedDelay(
+          pool::checkHealth,
+          healthCheckIntervalMillis,
+          healthCheckIntervalMillis,
+          TimeUnit.MILLISECONDS);
+    }
+    return pool;
+  }
+
+  /** Get the connection to send the next lookup to. */
+  StatefulRedisConnection<byte[], byte[]> next() {
+    int size = connections.size();
+    if (size == 1) {
+      return connections.get(0);
+    }
+    int start = Math.floorMod(nextIndex.getAndIncrement(), size);
+    for (int i = 0; i < size; i++) {
+      int index = (start + i) % size;
+      if (healthy.get(index) == 1 && connections.get(index).isOpen()) {
+        return connections.get(index);
+      }
+    }
+    // no connection is known to be healthy: let the lookup fail or succeed on the next one
+    return connections.get(start);
+  }
+
+  /** Send a PING to each connection, and record whether it answered. */
+  void checkHealth() {
+    for (int i = 0; i < connections.size(); i++) {
+      int index = i;
+      StatefulRedisConnection<byte[], byte[]> connection = connections.get(i);
+      // fail the check, but not the PING itself, if it is not answered in time
+      CompletableFuture<String> pong =
+          connection.async().ping().toCompletableFuture().thenApply(reply -> reply);
+      ScheduledFuture<?> timeout =
+          healthCheckExecutor.schedule(
+              () ->
+                  pong.completeExceptionally(
+                      new TimeoutException(
+                          String.format("PING not answered in %dms", healthCheckIntervalMillis))),
+              healthCheckIntervalMillis,
+              TimeUnit.MILLISECONDS);
+      pong.whenComplete(
+          (reply, e) -> {
+            timeout.cancel(false);
+            int isHealthy = (e == null) ? 1 : 0;
+            if (healthy.getAndSet(index, isHealthy) != isHealthy) {
+              if (isHealthy == 1) {
+                log.info("Redis connection {} passed health check", index);
+              } else {
+                log.warn("Redis connection {} failed health check: {}", index, e.toString());
+              }
+            }
+          });
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.retriever;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.storage.RedisProto.RedisKey;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the Redis keys of entity rows or feature rows of a feature set.
+ *
+ * <p>Produces the same bytes as serializing the equivalent {@link RedisKey}, without building the
+ * key proto: the feature set part of the key and the encoded entity names are computed once per
+ * spec, and each key is written directly into an array of its exact size.
+ */
+public class RedisKeyEncoder {
+  private static final int ENTITIES_TAG = makeTag(RedisKey.ENTITIES_FIELD_NUMBER);
+  private static final int FIELD_VALUE_TAG = makeTag(Field.VALUE_FIELD_NUMBER);
+
+  // Encoded feature set field of the key.
+  private final byte[] featureSetPrefix;
+  // Entity names in key order, ie. sorted alphabetically.
+  private final String[] entityNames;
+  // Encoded name field of the entity field of each entity in key order.
+  private final byte[][] encodedEntityNames;
+  // maps entity name to the index of the entity in key order.
+  private final Map<String, Integer> entityIndexByName;
+
+  /**
+   * Create a key encoder for the given feature set.
+   *
+   * @param featureSetRef reference of the feature set, eg. "project/feature_set".
+   * @param spec spec of the feature set.
+   */
+  public RedisKeyEncoder(String featureSetRef, FeatureSetSpec spec) {
+    this.featureSetPrefix =
+        RedisKey.newBuilder().setFeatureSet(featureSetRef).build().toByteArray();
+    this.entityNames =
+        spec.getEntitiesList().stream().map(EntitySpec::getName).toArray(String[]::new);
+    Arrays.sort(entityNames);
+    this.encodedEntityNames = new byte[entityNames.length][];
+    this.entityIndexByName = new HashMap<>(entityNames.length * 2);
+    for (int i = 0; i < entityNames.length; i++) {
+      encodedEntityNames[i] = Field.newBuilder().setName(entityNames[i]).build().toByteArray();
+      entityIndexByName.put(entityNames[i], i);
+    }
+  }
+
+  /**
+   * Encode the Redis keys of the given entity rows.
+   *
+   * @param entityRows entity rows to encode the keys of.
+   * @return encoded Redis key of each entity row.
+   * @throws IllegalArgumentException if an entity row does not contain all entities of the feature
+   *     set.
+   */
+  public byte[][] encode(List<EntityRow> entityRows) {
+    byte[][] keys = new byte[entityRows.size()][];
+    Value[] values = new Value[entityNames.length];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = encode(entityRows.get(i).getFieldsMap(), values);
+    }
+    return keys;
+  }
+
+  /**
+   * Encode the Redis key of the given entity values.
+   *
+   * @param entityValues values of at least all entities of the feature set by entity name.
+   * @return encoded Redis key.
+   * @throws IllegalArgumentException if an entity of the feature set has no value.
+   */
+  public byte[] encode(Map<String, Value> entityValues) {
+    return encode(entityValues, new Value[entityNames.length]);
+  }
+
+  /**
+   * Encode the Redis key of the feature row with the given fields. If an entity has several fields,
+   * the value of its first field is used.
+   *
+   * @param fields fields of the feature row, including fields of at least all entities of the
+   *     feature set.
+   * @return encoded Redis key.
+   * @throws IllegalArgumentException if an entity of the feature set has no field.
+   */
+  public byte[] encodeFields(List<Field> fields) {
+    Value[] values = new Value[entityNames.length];
+    for (Field field : fields) {
+      Integer entityIndex = entityIndexByName.get(field.getName());
+      if (entityIndex != null && values[entityIndex] == null) {
+        values[entityIndex] = field.getValue();
+      }
+    }
+    for (int i = 0; i < entityNames.length; i++) {
+      if (values[i] == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Feature row fields do not contain required entity field \"%s\"", entityNames[i]));
+      }
+    }
+    return encode(values);
+  }
+
+  private byte[] encode(Map<String, Value> entityValues, Value[] values) {
+    for (int i = 0; i < entityNames.length; i++) {
+      values[i] = entityValues.get(entityNames[i]);
+      if (values[i] == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Entity row fields \"%s\" does not contain required entity field \"%s\"",
+                entityValues.keySet().toString(), entityNames[i]));
+      }
+    }
+    return encode(values);
+  }
+
+  /** Encode the Redis key of the given values of the entities in key order. */
+  private byte[] encode(Value[] values) {
+    int size = featureSetPrefix.length;
+    for (int i = 0; i < entityNames.length; i++) {
+      int fieldSize = getFieldSize(i, values[i]);
+      size += CodedOutputStream.computeUInt32SizeNoTag(ENTITIES_TAG);
+      size += CodedOutputStream.computeUInt32SizeNoTag(fieldSize) + fieldSize;
+    }
+
+    byte[] key = new byte[size];
+    CodedOutputStream output = CodedOutputStream.newInstance(key);
+    try {
+      output.writeRawBytes(featureSetPrefix);
+      for (int i = 0; i < entityNames.length; i++) {
+        output.writeUInt32NoTag(ENTITIES_TAG);
+        output.writeUInt32NoTag(getFieldSize(i, values[i]));
+        output.writeRawBytes(encodedEntityNames[i]);
+        output.writeUInt32NoTag(FIELD_VALUE_TAG);
+        output.writeUInt32NoTag(values[i].getSerializedSize());
+        values[i].writeTo(output);
+      }
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return key;
+  }
+
+  /** Get the encoded size of the entity field of the i-th entity with the given value. */
+  private int getFieldSize(int i, Value value) {
+    int valueSize = value.getSerializedSize();
+    return encodedEntityNames[i].length
+        + CodedOutputStream.computeUInt32SizeNoTag(FIELD_VALUE_TAG)
+        + CodedOutputStream.computeUInt32SizeNoTag(valueSize)
+        + valueSize;
+  }
+
+  private static int makeTag(int fieldNumber) {
+    return (fieldNumber << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+  }
+}
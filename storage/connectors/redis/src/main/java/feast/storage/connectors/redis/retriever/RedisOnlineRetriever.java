@@ -16,50 +16,135 @@
  */
 package feast.storage.connectors.redis.retriever;
 
-import com.google.protobuf.AbstractMessageLite;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.protobuf.InvalidProtocolBufferException;
-import feast.proto.core.FeatureSetProto.EntitySpec;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
-import feast.proto.storage.RedisProto.RedisKey;
 import feast.proto.types.FeatureRowProto.FeatureRow;
-import feast.proto.types.FieldProto.Field;
-import feast.proto.types.ValueProto.Value;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.OnlineRetriever;
+import feast.storage.connectors.redis.writer.RedisHashLayout;
 import io.grpc.Status;
-import io.lettuce.core.RedisClient;
+import io.grpc.StatusRuntimeException;
+import io.lettuce.core.KeyValue;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.StatefulRedisConnection;
-import io.lettuce.core.api.sync.RedisCommands;
-import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class RedisOnlineRetriever implements OnlineRetriever {
 
-  private final RedisCommands<byte[], byte[]> syncCommands;
+  // Max no. of compiled feature row decoders and key encoders to retain, one per feature set
+  // spec version.
+  private static final int MAX_DECODER_COUNT = 1000;
 
-  private RedisOnlineRetriever(StatefulRedisConnection<byte[], byte[]> connection) {
-    this.syncCommands = connection.sync();
+  private final RedisConnectionPool connectionPool;
+
+  // Feature row decoders compiled for each feature set spec, keyed by the spec itself so that an
+  // updated spec is compiled into a new decoder.
+  private final LoadingCache<FeatureSetSpec, FeatureRowDecoder> decoders =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_DECODER_COUNT)
+          .build(
+              CacheLoader.from(
+                  (FeatureSetSpec spec) ->
+                      new FeatureRowDecoder(generateFeatureSetStringRef(spec), spec)));
+
+  // Redis key encoders compiled for each feature set spec.
+  private final LoadingCache<FeatureSetSpec, RedisKeyEncoder> keyEncoders =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_DECODER_COUNT)
+          .build(
+              CacheLoader.from(
+                  (FeatureSetSpec spec) ->
+                      new RedisKeyEncoder(generateFeatureSetStringRef(spec), spec)));
+
+  // Decompresses values compressed by the Redis sink, loading dictionaries from Redis.
+  private final ValueDecompressor valueDecompressor;
+  // Whether feature rows are stored in the hash layout of RedisHashLayout.
+  private final boolean hashLayout;
+  // Executor decoding feature rows off the Redis client's event loop.
+  private final Executor decodeExecutor;
+
+  private RedisOnlineRetriever(
+      RedisConnectionPool connectionPool, boolean hashLayout, Executor decodeExecutor) {
+    this.connectionPool = connectionPool;
+    this.hashLayout = hashLayout;
+    this.decodeExecutor = decodeExecutor;
+    this.valueDecompressor =
+        new ValueDecompressor(key -> connectionPool.next().async().get(key).toCompletableFuture());
   }
 
+  /**
+   * Create a retriever connected to the Redis instance in the given store config. Besides host and
+   * port, the config may set the connection_pool_size and health_check_interval_ms of the pool of
+   * connections shared by lookups, and hash_layout if feature rows are stored in the hash layout.
+   *
+   * @param config config of the Redis store.
+   * @return retriever
+   */
   public static OnlineRetriever create(Map<String, String> config) {
+    return create(config, ForkJoinPool.commonPool());
+  }
 
-    StatefulRedisConnection<byte[], byte[]> connection =
-        RedisClient.create(
-                RedisURI.create(config.get("host"), Integer.parseInt(config.get("port"))))
-            .connect(new ByteArrayCodec());
+  /**
+   * Create a retriever connected to the Redis instance in the given store config, decoding the
+   * feature rows of asynchronous lookups on the given executor.
+   *
+   * @param config config of the Redis store.
+   * @param decodeExecutor executor to decode retrieved feature rows on.
+   * @return retriever
+   */
+  public static OnlineRetriever create(Map<String, String> config, Executor decodeExecutor) {
+    int poolSize = Integer.parseInt(config.getOrDefault("connection_pool_size", "1"));
+    long healthCheckIntervalMillis =
+        Long.parseLong(config.getOrDefault("health_check_interval_ms", "0"));
+    if (poolSize < 1) {
+      throw new IllegalArgumentException(
+          String.format("Redis connection_pool_size must be at least 1, got %d", poolSize));
+    }
 
-    return new RedisOnlineRetriever(connection);
+    RedisConnectionPool connectionPool =
+        RedisConnectionPool.connect(
+            RedisURI.create(config.get("host"), Integer.parseInt(config.get("port"))),
+            poolSize,
+            healthCheckIntervalMillis);
+    return new RedisOnlineRetriever(
+        connectionPool,
+        Boolean.parseBoolean(config.getOrDefault("hash_layout", "false")),
+        decodeExecutor);
   }
 
   public static OnlineRetriever create(StatefulRedisConnection<byte[], byte[]> connection) {
-    return new RedisOnlineRetriever(connection);
+    return create(connection, false);
+  }
+
+  /**
+   * Create a retriever reading on the given connection.
+   *
+   * @param connection connection to Redis.
+   * @param hashLayout whether feature rows are stored in the hash layout.
+   * @return retriever
+   */
+  public static OnlineRetriever create(
+      StatefulRedisConnection<byte[], byte[]> connection, boolean hashLayout) {
+    return new RedisOnlineRetriever(
+        new RedisConnectionPool(Collections.singletonList(connection), 0),
+        hashLayout,
+        ForkJoinPool.commonPool());
   }
 
   /** {@inheritDoc} */
@@ -69,12 +154,27 @@ public class RedisOnlineRetriever implements OnlineRetriever {
 
     // get features for this features/featureset in featureset request
     FeatureSetSpec featureSetSpec = featureSetRequest.getSpec();
-    List<RedisKey> redisKeys = buildRedisKeys(entityRows, featureSetSpec);
-    FeatureRowDecoder decoder =
-        new FeatureRowDecoder(generateFeatureSetStringRef(featureSetSpec), featureSetSpec);
+    byte[][] redisKeys = encodeRedisKeys(entityRows, featureSetSpec);
+    if (hashLayout) {
+      try {
+        return getFeaturesFromHashes(
+                redisKeys,
+                generateFeatureSetStringRef(featureSetSpec),
+                RedisHashLayout.selectFeatures(featureSetSpec, getFeatureNames(featureSetRequest)))
+            .join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof StatusRuntimeException) {
+          throw (StatusRuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    FeatureRowDecoder decoder = decoders.getUnchecked(featureSetSpec);
+    BitSet projection = decoder.project(getFeatureNames(featureSetRequest));
+    String featureSetRef = generateFeatureSetStringRef(featureSetSpec);
     List<Optional<FeatureRow>> featureRows = new ArrayList<>();
     try {
-      featureRows = getFeaturesFromRedis(redisKeys, decoder);
+      featureRows = getFeaturesFromRedis(redisKeys, featureSetRef, decoder, projection);
     } catch (InvalidProtocolBufferException | ExecutionException e) {
       throw Status.INTERNAL
           .withDescription("Unable to parse protobuf while retrieving feature")
@@ -85,63 +185,110 @@ public class RedisOnlineRetriever implements OnlineRetriever {
     return featureRows;
   }
 
-  private List<RedisKey> buildRedisKeys(List<EntityRow> entityRows, FeatureSetSpec featureSetSpec) {
+  /** {@inheritDoc} */
+  @Override
+  public CompletableFuture<List<Optional<FeatureRow>>> getOnlineFeaturesAsync(
+      List<EntityRow> entityRows, FeatureSetRequest featureSetRequest) {
+
+    // get features for this features/featureset in featureset request
+    FeatureSetSpec featureSetSpec = featureSetRequest.getSpec();
+    byte[][] redisKeys = encodeRedisKeys(entityRows, featureSetSpec);
+    if (hashLayout) {
+      return getFeaturesFromHashes(
+          redisKeys,
+          generateFeatureSetStringRef(featureSetSpec),
+          RedisHashLayout.selectFeatures(featureSetSpec, getFeatureNames(featureSetRequest)));
+    }
+    FeatureRowDecoder decoder = decoders.getUnchecked(featureSetSpec);
+    BitSet projection = decoder.project(getFeatureNames(featureSetRequest));
     String featureSetRef = generateFeatureSetStringRef(featureSetSpec);
-    List<String> featureSetEntityNames =
-        featureSetSpec.getEntitiesList().stream()
-            .map(EntitySpec::getName)
-            .collect(Collectors.toList());
-    List<RedisKey> redisKeys =
-        entityRows.stream()
-            .map(row -> makeRedisKey(featureSetRef, featureSetEntityNames, row))
-            .collect(Collectors.toList());
-    return redisKeys;
+    return connectionPool
+        .next()
+        .async()
+        .mget(redisKeys)
+        .toCompletableFuture()
+        .thenCompose(
+            keyValues -> {
+              // dictionaries of compressed values are loaded without blocking the event loop
+              List<byte[]> values = unpackKeyValues(keyValues);
+              return valueDecompressor
+                  .loadDictionaries(featureSetRef, values)
+                  .thenApply(ignored -> values);
+            })
+        .handleAsync(
+            (values, e) -> {
+              if (e != null) {
+                throw Status.UNKNOWN
+                    .withDescription("Unexpected error when pulling data from from Redis.")
+                    .withCause(e)
+                    .asRuntimeException();
+              }
+              try {
+                return decodeFeatureRows(values, featureSetRef, decoder, projection);
+              } catch (InvalidProtocolBufferException ex) {
+                throw Status.INTERNAL
+                    .withDescription("Unable to parse protobuf while retrieving feature")
+                    .withCause(ex)
+                    .asRuntimeException();
+              }
+            },
+            decodeExecutor);
   }
 
   /**
-   * Create {@link RedisKey}
+   * Encode the Redis keys of the given entity rows using the key encoder of the feature set.
    *
-   * @param featureSet featureSet reference of the feature. E.g. feature_set_1
-   * @param featureSetEntityNames entity names that belong to the featureSet
-   * @param entityRow entityRow to build the key from
-   * @return {@link RedisKey}
+   * @param entityRows entity rows to build the keys from
+   * @param featureSetSpec spec of the featureSet of the features to retrieve
+   * @return encoded Redis key of each entity row
    */
-  private RedisKey makeRedisKey(
-      String featureSet, List<String> featureSetEntityNames, EntityRow entityRow) {
-    RedisKey.Builder builder = RedisKey.newBuilder().setFeatureSet(featureSet);
-    Map<String, Value> fieldsMap = entityRow.getFieldsMap();
-    featureSetEntityNames.sort(String::compareTo);
-    for (int i = 0; i < featureSetEntityNames.size(); i++) {
-      String entityName = featureSetEntityNames.get(i);
-
-      if (!fieldsMap.containsKey(entityName)) {
-        throw Status.INVALID_ARGUMENT
-            .withDescription(
-                String.format(
-                    "Entity row fields \"%s\" does not contain required entity field \"%s\"",
-                    fieldsMap.keySet().toString(), entityName))
-            .asRuntimeException();
-      }
-
-      builder.addEntities(
-          Field.newBuilder().setName(entityName).setValue(fieldsMap.get(entityName)));
+  private byte[][] encodeRedisKeys(List<EntityRow> entityRows, FeatureSetSpec featureSetSpec) {
+    try {
+      return keyEncoders.getUnchecked(featureSetSpec).encode(entityRows);
+    } catch (IllegalArgumentException e) {
+      throw Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException();
     }
-    return builder.build();
   }
 
   /**
    * Get features from data pulled from the Redis for a specific featureset.
    *
    * @param redisKeys keys used to retrieve data from Redis for a specific featureset.
+   * @param featureSetRef reference of the featureset.
    * @param decoder used to decode the data retrieved from Redis for a specific featureset.
+   * @param projection features to decode from the data retrieved from Redis.
    * @return List of {@link FeatureRow} optionals
    */
   private List<Optional<FeatureRow>> getFeaturesFromRedis(
-      List<RedisKey> redisKeys, FeatureRowDecoder decoder)
+      byte[][] redisKeys, String featureSetRef, FeatureRowDecoder decoder, BitSet projection)
       throws InvalidProtocolBufferException, ExecutionException {
     // pull feature row data bytes from redis using given redis keys
     List<byte[]> featureRowsBytes = sendMultiGet(redisKeys);
-    List<Optional<FeatureRow>> featureRows = new ArrayList<>();
+    try {
+      valueDecompressor.loadDictionaries(featureSetRef, featureRowsBytes).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Status.CANCELLED.withCause(e).asRuntimeException();
+    }
+    return decodeFeatureRows(featureRowsBytes, featureSetRef, decoder, projection);
+  }
+
+  /**
+   * Decode feature rows from the data bytes pulled from Redis for a specific featureset.
+   *
+   * @param featureRowsBytes data bytes or null pulled from redis for each key.
+   * @param featureSetRef reference of the featureset.
+   * @param decoder used to decode the data retrieved from Redis for a specific featureset.
+   * @param projection features to decode from the data retrieved from Redis.
+   * @return List of {@link FeatureRow} optionals
+   */
+  private List<Optional<FeatureRow>> decodeFeatureRows(
+      List<byte[]> featureRowsBytes,
+      String featureSetRef,
+      FeatureRowDecoder decoder,
+      BitSet projection)
+      throws InvalidProtocolBufferException {
+    List<Optional<FeatureRow>> featureRows = new ArrayList<>(featureRowsBytes.size());
 
     for (byte[] featureRowBytes : featureRowsBytes) {
       if (featureRowBytes == null) {
@@ -149,10 +296,17 @@ public class RedisOnlineRetriever implements OnlineRetriever {
         continue;
       }
 
-      // decode feature rows from data bytes using decoder.
-      FeatureRow featureRow = FeatureRow.parseFrom(featureRowBytes);
+      // decompress and decode requested features from data bytes using decoder.
+      FeatureRow featureRow;
       try {
-        featureRow = decoder.decode(featureRow);
+        byte[] encodedFeatureRow = valueDecompressor.decompress(featureSetRef, featureRowBytes);
+        // feature rows in a compact encoding version unknown to the decoder are not found until
+        // they are written again in a known version.
+        if (!decoder.isDecodable(encodedFeatureRow)) {
+          featureRows.add(Optional.empty());
+          continue;
+        }
+        featureRow = decoder.decode(encodedFeatureRow, projection);
       } catch (IllegalArgumentException e) {
         // decoding feature row failed: data corruption could have occurred
         throw Status.DATA_LOSS.withCause(e).withDescription(e.getMessage()).asRuntimeException();
@@ -162,29 +316,65 @@ public class RedisOnlineRetriever implements OnlineRetriever {
     return featureRows;
   }
 
+  /**
+   * Get the requested features of the given keys from the hashes of the hash layout, with one HMGET
+   * of the fields of the requested features per key.
+   *
+   * @param redisKeys keys of the hashes to read the features from.
+   * @param featureSetRef reference of the featureset.
+   * @param featureNames names of the features to read, in spec order.
+   * @return future of the list of {@link FeatureRow} optionals
+   */
+  private CompletableFuture<List<Optional<FeatureRow>>> getFeaturesFromHashes(
+      byte[][] redisKeys, String featureSetRef, List<String> featureNames) {
+    if (featureNames.isEmpty()) {
+      return CompletableFuture.completedFuture(
+          Collections.nCopies(redisKeys.length, Optional.empty()));
+    }
+    byte[][] fields = featureNames.stream().map(RedisHashLayout::fieldName).toArray(byte[][]::new);
+    RedisAsyncCommands<byte[], byte[]> commands = connectionPool.next().async();
+    List<CompletableFuture<List<KeyValue<byte[], byte[]>>>> hashes =
+        new ArrayList<>(redisKeys.length);
+    for (byte[] key : redisKeys) {
+      hashes.add(commands.hmget(key, fields).toCompletableFuture());
+    }
+    return CompletableFuture.allOf(hashes.toArray(new CompletableFuture[0]))
+        .handleAsync(
+            (ignored, e) -> {
+              if (e != null) {
+                throw Status.UNKNOWN
+                    .withDescription("Unexpected error when pulling data from from Redis.")
+                    .withCause(e)
+                    .asRuntimeException();
+              }
+              List<Optional<FeatureRow>> featureRows = new ArrayList<>(hashes.size());
+              try {
+                for (CompletableFuture<List<KeyValue<byte[], byte[]>>> hash : hashes) {
+                  featureRows.add(
+                      RedisHashLayout.decode(
+                          featureSetRef, featureNames, unpackKeyValues(hash.join())));
+                }
+              } catch (InvalidProtocolBufferException ex) {
+                throw Status.INTERNAL
+                    .withDescription("Unable to parse protobuf while retrieving feature")
+                    .withCause(ex)
+                    .asRuntimeException();
+              }
+              return featureRows;
+            },
+            decodeExecutor);
+  }
+
   /**
    * Pull the data stored in Redis at the given keys as bytes using the mget command. If no data is
    * stored at a given key in Redis, will subsitute the data with null.
    *
-   * @param keys list of {@link RedisKey} to pull from redis.
+   * @param keys encoded Redis keys to pull from redis.
    * @return list of data bytes or null pulled from redis for each given key.
    */
-  private List<byte[]> sendMultiGet(List<RedisKey> keys) {
+  private List<byte[]> sendMultiGet(byte[][] keys) {
     try {
-      byte[][] binaryKeys =
-          keys.stream()
-              .map(AbstractMessageLite::toByteArray)
-              .collect(Collectors.toList())
-              .toArray(new byte[0][0]);
-      return syncCommands.mget(binaryKeys).stream()
-          .map(
-              keyValue -> {
-                if (keyValue == null) {
-                  return null;
-                }
-                return keyValue.getValueOrElse(null);
-              })
-          .collect(Collectors.toList());
+      return unpackKeyValues(connectionPool.next().sync().mget(keys));
     } catch (Exception e) {
       throw Status.UNKNOWN
           .withDescription("Unexpected error when pulling data from from Redis.")
@@ -193,6 +383,28 @@ public class RedisOnlineRetriever implements OnlineRetriever {
     }
   }
 
+  private static List<String> getFeatureNames(FeatureSetRequest featureSetRequest) {
+    List<String> featureNames = new ArrayList<>(featureSetRequest.getFeatureReferences().size());
+    for (FeatureReference featureReference : featureSetRequest.getFeatureReferences()) {
+      featureNames.add(featureReference.getName());
+    }
+    return featureNames;
+  }
+
+  /**
+   * Unpack the values returned by a Redis mget command, substituting null for keys with no data.
+   *
+   * @param keyValues key values returned by mget, in the order of the requested keys.
+   * @return list of data bytes or null for each requested key.
+   */
+  private static List<byte[]> unpackKeyValues(List<KeyValue<byte[], byte[]>> keyValues) {
+    List<byte[]> values = new ArrayList<>(keyValues.size());
+    for (KeyValue<byte[], byte[]> keyValue : keyValues) {
+      values.add((keyValue == null) ? null : keyValue.getValueOrElse(null));
+    }
+    return values;
+  }
+
   // TODO: Refactor this out to common package
   private static String generateFeatureSetStringRef(FeatureSetSpec featureSetSpec) {
     String ref = String.format("%s/%s", featureSetSpec.getProject(), featureSetSpec.getName());
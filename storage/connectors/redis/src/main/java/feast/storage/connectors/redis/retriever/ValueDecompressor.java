@@ -0,0 +1,293 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.retriever;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Decompressor of the values of feature rows compressed by the Redis sink. A compressed value is
+ * encoded as:
+ *
+ * <ul>
+ *   <li>the codec byte, {@link #LZ4}, {@link #ZSTD} or {@link #ZSTD_DICTIONARY}. Codec bytes have
+ *       the invalid protobuf wire type 6, so that a compressed value is never mistaken for an
+ *       uncompressed value.
+ *   <li>the id of the dictionary as a little endian fixed32, for {@link #ZSTD_DICTIONARY} only. The
+ *       id is the {@link #dictionaryId(byte[])} hash of the dictionary.
+ *   <li>the seconds of the event timestamp of the feature row as an int64 varint, left uncompressed
+ *       so that the sink can compare the value with new feature rows.
+ *   <li>the size of the uncompressed value as a varint.
+ *   <li>the compressed value.
+ * </ul>
+ *
+ * <p>The ZSTD dictionary of a feature set is stored in Redis at {@link #dictionaryKey(String)}, and
+ * is loaded with {@link #loadDictionaries(String, List)} before the values compressed with it are
+ * decompressed. Dictionaries missing from Redis, or replaced by a dictionary with another id, are
+ * not loaded again for 10 seconds.
+ */
+public class ValueDecompressor {
+  public static final byte LZ4 = 0x0e;
+  public static final byte ZSTD = 0x16;
+  public static final byte ZSTD_DICTIONARY = 0x1e;
+
+  // Max no. of loaded dictionaries to retain, one per feature set.
+  private static final int MAX_DICTIONARY_COUNT = 1000;
+  // Time after which the dictionaries of values found missing from Redis are loaded again.
+  private static final long MISSING_DICTIONARY_TTL_SECONDS = 10;
+
+  private static final Histogram decompressionLatency =
+      Histogram.build()
+          .buckets(0.00001, 0.00002, 0.00005, 0.0001, 0.0002, 0.0005, 0.001, 0.002, 0.005)
+          .name("redis_value_decompression_latency_seconds")
+          .subsystem("feast_serving")
+          .help("Latency of the decompression of feature row values read from Redis in seconds")
+          .labelNames("feature_set")
+          .register();
+
+  private static final Counter compressedBytes =
+      Counter.build()
+          .name("redis_value_compressed_bytes")
+          .subsystem("feast_serving")
+          .help("Size of compressed feature row values read from Redis in bytes")
+          .labelNames("feature_set")
+          .register();
+
+  private static final Counter uncompressedBytes =
+      Counter.build()
+          .name("redis_value_uncompressed_bytes")
+          .subsystem("feast_serving")
+          .help("Size of compressed feature row values read from Redis once decompressed in bytes")
+          .labelNames("feature_set")
+          .register();
+
+  private static final LZ4FastDecompressor lz4Decompressor =
+      LZ4Factory.fastestInstance().fastDecompressor();
+
+  // Loads the dictionary stored in Redis at the given key, completing with null if there is none.
+  private final Function<byte[], CompletableFuture<byte[]>> dictionaryLoader;
+  // Dictionaries loaded from Redis by feature set reference.
+  private final Cache<String, Dictionary> dictionaries =
+      CacheBuilder.newBuilder().maximumSize(MAX_DICTIONARY_COUNT).build();
+  // Ids of the dictionaries found missing from Redis by feature set reference.
+  private final Cache<String, Integer> missingDictionaryIds =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_DICTIONARY_COUNT)
+          .expireAfterWrite(MISSING_DICTIONARY_TTL_SECONDS, TimeUnit.SECONDS)
+          .build();
+
+  /**
+   * Create a decompressor loading dictionaries from Redis with the given loader.
+   *
+   * @param dictionaryLoader loads the value stored in Redis at the given key, completing with null
+   *     if there is none.
+   */
+  public ValueDecompressor(Function<byte[], CompletableFuture<byte[]>> dictionaryLoader) {
+    this.dictionaryLoader = dictionaryLoader;
+  }
+
+  /** Check if the given value is compressed. */
+  public static boolean isCompressed(byte[] value) {
+    return value.length > 0 && (value[0] == LZ4 || value[0] == ZSTD || value[0] == ZSTD_DICTIONARY);
+  }
+
+  /**
+   * Get the Redis key of the ZSTD dictionary of a feature set. Dictionary keys are strings prefixed
+   * with "feast:", so that they never collide with the serialized RedisKey keys of feature rows.
+   *
+   * @param featureSetRef reference of the feature set of the dictionary.
+   * @return Redis key of the dictionary.
+   */
+  public static byte[] dictionaryKey(String featureSetRef) {
+    return ("feast:dictionary:" + featureSetRef).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Get the id of a ZSTD dictionary, written with the values compressed with the dictionary.
+   *
+   * @param dictionary ZSTD dictionary.
+   * @return id of the dictionary.
+   */
+  public static int dictionaryId(byte[] dictionary) {
+    return Hashing.murmur3_32().hashBytes(dictionary).asInt();
+  }
+
+  /**
+   * Read the seconds of the event timestamp of the feature row of a compressed value.
+   *
+   * @param value compressed value.
+   * @return seconds of the event timestamp.
+   * @throws InvalidProtocolBufferException if the value is not a valid compressed value.
+   */
+  public static long readEventTimestampSeconds(byte[] value) throws InvalidProtocolBufferException {
+    int headerSize = getHeaderSize(value);
+    try {
+      return CodedInputStream.newInstance(value, headerSize, value.length - headerSize).readInt64();
+    } catch (InvalidProtocolBufferException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new InvalidProtocolBufferException(e);
+    }
+  }
+
+  /**
+   * Load the dictionaries that are needed to decompress the given values and are not loaded yet.
+   *
+   * @param featureSetRef reference of the feature set of the values.
+   * @param values values read from Redis, that may be null or uncompressed.
+   * @return future completing once the dictionaries are loaded.
+   */
+  public CompletableFuture<Void> loadDictionaries(String featureSetRef, List<byte[]> values) {
+    List<CompletableFuture<?>> loads = new ArrayList<>();
+    Set<Integer> requestedDictionaryIds = new HashSet<>();
+    for (byte[] value : values) {
+      if (value == null || value.length < 5 || value[0] != ZSTD_DICTIONARY) {
+        continue;
+      }
+      int dictionaryId = readDictionaryId(value);
+      if (getDictionary(featureSetRef, dictionaryId) != null
+          || Integer.valueOf(dictionaryId).equals(missingDictionaryIds.getIfPresent(featureSetRef))
+          || !requestedDictionaryIds.add(dictionaryId)) {
+        continue;
+      }
+      loads.add(
+          dictionaryLoader
+              .apply(dictionaryKey(featureSetRef))
+              .thenAccept(
+                  dictionary -> {
+                    if (dictionary != null && dictionaryId(dictionary) == dictionaryId) {
+                      dictionaries.put(
+                          featureSetRef,
+                          new Dictionary(dictionaryId, new ZstdDictDecompress(dictionary)));
+                    } else {
+                      missingDictionaryIds.put(featureSetRef, dictionaryId);
+                    }
+                  }));
+    }
+    return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0]));
+  }
+
+  /**
+   * Decompress the given value if it is compressed.
+   *
+   * @param featureSetRef reference of the feature set of the value.
+   * @param value value read from Redis.
+   * @return uncompressed value, the given value if it is not compressed.
+   * @throws IllegalArgumentException if the dictionary of the value is not loaded.
+   * @throws InvalidProtocolBufferException if the value cannot be decompressed.
+   */
+  public byte[] decompress(String featureSetRef, byte[] value)
+      throws InvalidProtocolBufferException {
+    if (!isCompressed(value)) {
+      return value;
+    }
+    int headerSize = getHeaderSize(value);
+    ZstdDictDecompress dictionary = null;
+    if (value[0] == ZSTD_DICTIONARY) {
+      dictionary = getDictionary(featureSetRef, readDictionaryId(value));
+      if (dictionary == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Failed to decompress value of feature set %s: dictionary not loaded",
+                featureSetRef));
+      }
+    }
+
+    long startTime = System.nanoTime();
+    byte[] uncompressed;
+    try {
+      CodedInputStream input =
+          CodedInputStream.newInstance(value, headerSize, value.length - headerSize);
+      input.readInt64();
+      int size = input.readRawVarint32();
+      byte[] compressed =
+          Arrays.copyOfRange(value, headerSize + input.getTotalBytesRead(), value.length);
+      switch (value[0]) {
+        case LZ4:
+          uncompressed = lz4Decompressor.decompress(compressed, size);
+          break;
+        case ZSTD:
+          uncompressed = Zstd.decompress(compressed, size);
+          break;
+        default:
+          uncompressed = Zstd.decompress(compressed, dictionary, size);
+      }
+    } catch (InvalidProtocolBufferException e) {
+      throw e;
+    } catch (IOException | RuntimeException e) {
+      // LZ4 and ZSTD report corrupted values with runtime exceptions
+      throw new InvalidProtocolBufferException(
+          String.format("Failed to decompress value of feature set %s: %s", featureSetRef, e));
+    }
+
+    decompressionLatency.labels(featureSetRef).observe((System.nanoTime() - startTime) / 1e9);
+    compressedBytes.labels(featureSetRef).inc(value.length);
+    uncompressedBytes.labels(featureSetRef).inc(uncompressed.length);
+    return uncompressed;
+  }
+
+  private ZstdDictDecompress getDictionary(String featureSetRef, int dictionaryId) {
+    Dictionary dictionary = dictionaries.getIfPresent(featureSetRef);
+    return (dictionary == null || dictionary.id != dictionaryId) ? null : dictionary.dictionary;
+  }
+
+  private static int getHeaderSize(byte[] value) throws InvalidProtocolBufferException {
+    int headerSize = value[0] == ZSTD_DICTIONARY ? 5 : 1;
+    if (value.length < headerSize) {
+      throw new InvalidProtocolBufferException(
+          "Compressed value was truncated in the middle of its header");
+    }
+    return headerSize;
+  }
+
+  private static int readDictionaryId(byte[] value) {
+    return (value[1] & 0xff)
+        | (value[2] & 0xff) << 8
+        | (value[3] & 0xff) << 16
+        | (value[4] & 0xff) << 24;
+  }
+
+  /** ZSTD dictionary loaded from Redis, with its id. */
+  private static final class Dictionary {
+    private final int id;
+    private final ZstdDictDecompress dictionary;
+
+    Dictionary(int id, ZstdDictDecompress dictionary) {
+      this.id = id;
+      this.dictionary = dictionary;
+    }
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import com.google.common.hash.Hashing;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.storage.connectors.redis.retriever.FeatureRowDecoder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encoder of feature rows in the compact (v3) encoding, in which the values of a feature row are
+ * keyed by the hash of their feature name instead of being named, decoded by {@link
+ * FeatureRowDecoder}. A feature row is encoded as:
+ *
+ * <ul>
+ *   <li>a marker byte 0, which is not a valid protobuf tag, so that a compact feature row is never
+ *       mistaken for a serialized {@link FeatureRow}, followed by the version byte 3.
+ *   <li>the seconds and nanos of the event timestamp, as int64 and int32 varints.
+ *   <li>for each feature with a value: the murmur3 hash of the feature name as a little endian
+ *       fixed32, the number of the value case in one byte, and the value encoded as a protobuf
+ *       field of the value case without tag.
+ * </ul>
+ *
+ * <p>As values are not positional, feature rows stay decodable when features are added to or
+ * removed from the feature set spec: added features have no value and values of removed features
+ * are skipped.
+ *
+ * <p>The encoding plan of the given feature set spec is compiled once on construction, so an
+ * encoder should be reused for all rows of the same spec.
+ */
+public class CompactFeatureRowEncoder {
+  public static final byte MARKER = 0;
+  public static final byte VERSION = 3;
+  // Size of the marker and the version.
+  public static final int HEADER_SIZE = 2;
+
+  // maps feature name to the index of the feature in the spec.
+  private final Map<String, Integer> featureIndexByName;
+  // hashes of the feature names, in the order of the features in the spec.
+  private final int[] featureNameHashes;
+
+  /**
+   * Compile the encoding plan of the given feature set spec.
+   *
+   * @param spec feature set spec of the feature rows to encode.
+   * @throws IllegalArgumentException if the names of two features of the spec have the same hash.
+   */
+  public CompactFeatureRowEncoder(FeatureSetSpec spec) {
+    List<FeatureSpec> features = spec.getFeaturesList();
+    this.featureIndexByName = new HashMap<>(features.size() * 2);
+    this.featureNameHashes = new int[features.size()];
+    Set<Integer> distinctHashes = new HashSet<>(features.size() * 2);
+    for (int i = 0; i < featureNameHashes.length; i++) {
+      String name = features.get(i).getName();
+      featureIndexByName.put(name, i);
+      featureNameHashes[i] = hashFeatureName(name);
+      if (!distinctHashes.add(featureNameHashes[i])) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Feature %s of feature set %s has the same name hash as another feature",
+                name, spec.getName()));
+      }
+    }
+  }
+
+  /**
+   * Hash the name of a feature, which keys the value of the feature in the compact encoding.
+   *
+   * @param featureName name of the feature.
+   * @return murmur3 hash of the feature name.
+   */
+  public static int hashFeatureName(String featureName) {
+    return Hashing.murmur3_32().hashString(featureName, StandardCharsets.UTF_8).asInt();
+  }
+
+  /** Check if the given bytes are a feature row in the compact encoding. */
+  public static boolean isCompact(byte[] encodedFeatureRow) {
+    return encodedFeatureRow.length >= HEADER_SIZE && encodedFeatureRow[0] == MARKER;
+  }
+
+  /**
+   * Read the event timestamp of a feature row in the compact encoding.
+   *
+   * @param encodedFeatureRow feature row in the compact encoding.
+   * @return event timestamp of the feature row.
+   * @throws InvalidProtocolBufferException if the event timestamp cannot be read.
+   */
+  public static Timestamp readEventTimestamp(byte[] encodedFeatureRow)
+      throws InvalidProtocolBufferException {
+    CodedInputStream input =
+        CodedInputStream.newInstance(
+            encodedFeatureRow, HEADER_SIZE, encodedFeatureRow.length - HEADER_SIZE);
+    try {
+      return Timestamp.newBuilder()
+          .setSeconds(input.readInt64())
+          .setNanos(input.readInt32())
+          .build();
+    } catch (InvalidProtocolBufferException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new InvalidProtocolBufferException(e);
+    }
+  }
+
+  /**
+   * Encode the values of the features of the spec in the given feature row. Fields of the feature
+   * row that are not features of the spec are ignored, as are duplicate fields of a feature.
+   *
+   * @param featureRow feature row to encode.
+   * @return feature row in the compact encoding.
+   */
+  public byte[] encode(FeatureRow featureRow) {
+    Value[] values = new Value[featureNameHashes.length];
+    for (Field field : featureRow.getFieldsList()) {
+      Integer featureIndex = featureIndexByName.get(field.getName());
+      if (featureIndex != null && values[featureIndex] == null) {
+        values[featureIndex] = field.getValue();
+      }
+    }
+
+    Timestamp eventTimestamp = featureRow.getEventTimestamp();
+    int size =
+        HEADER_SIZE
+            + CodedOutputStream.computeInt64SizeNoTag(eventTimestamp.getSeconds())
+            + CodedOutputStream.computeInt32SizeNoTag(eventTimestamp.getNanos());
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null && values[i].getValCase() != Value.ValCase.VAL_NOT_SET) {
+        size +=
+            CodedOutputStream.computeFixed32SizeNoTag(featureNameHashes[i])
+                + 1
+                + computeValueSize(values[i]);
+      } else {
+        values[i] = null;
+      }
+    }
+
+    byte[] encoded = new byte[size];
+    CodedOutputStream output = CodedOutputStream.newInstance(encoded);
+    try {
+      output.writeRawByte(MARKER);
+      output.writeRawByte(VERSION);
+      output.writeInt64NoTag(eventTimestamp.getSeconds());
+      output.writeInt32NoTag(eventTimestamp.getNanos());
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != null) {
+          output.writeFixed32NoTag(featureNameHashes[i]);
+          output.writeRawByte(values[i].getValCase().getNumber());
+          writeValue(output, values[i]);
+        }
+      }
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return encoded;
+  }
+
+  private static int computeValueSize(Value value) {
+    switch (value.getValCase()) {
+      case BYTES_VAL:
+        return CodedOutputStream.computeBytesSizeNoTag(value.getBytesVal());
+      case STRING_VAL:
+        return CodedOutputStream.computeStringSizeNoTag(value.getStringVal());
+      case INT32_VAL:
+        return CodedOutputStream.computeInt32SizeNoTag(value.getInt32Val());
+      case INT64_VAL:
+        return CodedOutputStream.computeInt64SizeNoTag(value.getInt64Val());
+      case DOUBLE_VAL:
+        return CodedOutputStream.computeDoubleSizeNoTag(value.getDoubleVal());
+      case FLOAT_VAL:
+        return CodedOutputStream.computeFloatSizeNoTag(value.getFloatVal());
+      case BOOL_VAL:
+        return CodedOutputStream.computeBoolSizeNoTag(value.getBoolVal());
+      default:
+        return CodedOutputStream.computeMessageSizeNoTag(getListVal(value));
+    }
+  }
+
+  private static void writeValue(CodedOutputStream output, Value value) throws IOException {
+    switch (value.getValCase()) {
+      case BYTES_VAL:
+        output.writeBytesNoTag(value.getBytesVal());
+        break;
+      case STRING_VAL:
+        output.writeStringNoTag(value.getStringVal());
+        break;
+      case INT32_VAL:
+        output.writeInt32NoTag(value.getInt32Val());
+        break;
+      case INT64_VAL:
+        output.writeInt64NoTag(value.getInt64Val());
+        break;
+      case DOUBLE_VAL:
+        output.writeDoubleNoTag(value.getDoubleVal());
+        break;
+      case FLOAT_VAL:
+        output.writeFloatNoTag(value.getFloatVal());
+        break;
+      case BOOL_VAL:
+        output.writeBoolNoTag(value.getBoolVal());
+        break;
+      default:
+        output.writeMessageNoTag(getListVal(value));
+    }
+  }
+
+  private static MessageLite getListVal(Value value) {
+    switch (value.getValCase()) {
+      case BYTES_LIST_VAL:
+        return value.getBytesListVal();
+      case STRING_LIST_VAL:
+        return value.getStringListVal();
+      case INT32_LIST_VAL:
+        return value.getInt32ListVal();
+      case INT64_LIST_VAL:
+        return value.getInt64ListVal();
+      case DOUBLE_LIST_VAL:
+        return value.getDoubleListVal();
+      case FLOAT_LIST_VAL:
+        return value.getFloatListVal();
+      case BOOL_LIST_VAL:
+        return value.getBoolListVal();
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unsupported value type: %s", value.getValCase()));
+    }
+  }
+}
@@ -20,13 +20,20 @@ import com.google.common.collect.Lists;
 import feast.proto.core.StoreProto;
 import feast.storage.common.retry.BackOffExecutor;
 import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.cluster.RedisClusterClient;
 import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
 import io.lettuce.core.codec.ByteArrayCodec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +47,7 @@ public class RedisClusterIngestionClient implements RedisIngestionClient {
   private transient RedisClusterClient clusterClient;
   private StatefulRedisClusterConnection<byte[], byte[]> connection;
   private RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands;
+  private boolean scriptLoaded;
 
   public RedisClusterIngestionClient(StoreProto.Store.RedisClusterConfig redisClusterConfig) {
     this.uriList =
@@ -106,4 +114,83 @@ public class RedisClusterIngestionClient implements RedisIngestionClient {
   public CompletableFuture<byte[]> get(byte[] key) {
     return commands.get(key).toCompletableFuture();
   }
+
+  @Override
+  public CompletableFuture<Boolean> setnx(byte[] key, byte[] value) {
+    return commands.setnx(key, value).toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<List<byte[]>> hmget(byte[] key, byte[][] fields) {
+    return commands
+        .hmget(key, fields)
+        .toCompletableFuture()
+        .thenApply(
+            keyValues ->
+                keyValues.stream()
+                    .map(keyValue -> keyValue.getValueOrElse(null))
+                    .collect(Collectors.toList()));
+  }
+
+  @Override
+  public CompletableFuture<String> hmset(byte[] key, Map<byte[], byte[]> fields) {
+    return commands.hmset(key, fields).toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setIfNewer(
+      byte[] key, byte[] value, long eventTimestampSeconds, long expireAtMillis) {
+    if (!scriptLoaded) {
+      loadScript();
+    }
+    byte[][] keys = {key};
+    byte[] timestamp = WriteIfNewerScript.encodeArg(eventTimestampSeconds);
+    byte[] expireAt = WriteIfNewerScript.encodeArg(expireAtMillis);
+    return WriteIfNewerScript.run(
+        () ->
+            commands.evalsha(
+                WriteIfNewerScript.DIGEST,
+                ScriptOutputType.INTEGER,
+                keys,
+                value,
+                timestamp,
+                expireAt),
+        () ->
+            commands.eval(
+                WriteIfNewerScript.SCRIPT,
+                ScriptOutputType.INTEGER,
+                keys,
+                value,
+                timestamp,
+                expireAt),
+        connection::flushCommands);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> pexpireat(byte[] key, long timestampMillis) {
+    return commands.pexpireat(key, timestampMillis).toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Long> pttl(byte[] key) {
+    return commands.pttl(key).toCompletableFuture();
+  }
+
+  /** Load the script into the script cache of every master node, which runs the writes. */
+  private void loadScript() {
+    List<RedisFuture<String>> digests = new ArrayList<>();
+    for (RedisClusterNode node : connection.getPartitions()) {
+      if (node.is(RedisClusterNode.NodeFlag.MASTER)) {
+        StatefulRedisConnection<byte[], byte[]> nodeConnection =
+            connection.getConnection(node.getNodeId());
+        digests.add(
+            nodeConnection
+                .async()
+                .scriptLoad(WriteIfNewerScript.SCRIPT.getBytes(StandardCharsets.UTF_8)));
+        nodeConnection.flushCommands();
+      }
+    }
+    LettuceFutures.awaitAll(60, TimeUnit.SECONDS, digests.toArray(new Future[0]));
+    scriptLoaded = true;
+  }
 }
@@ -18,26 +18,28 @@ package feast.storage.connectors.redis.writer;
 
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Streams;
-import com.google.common.hash.Hashing;
 import com.google.protobuf.InvalidProtocolBufferException;
-import feast.proto.core.FeatureSetProto.EntitySpec;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
-import feast.proto.core.FeatureSetProto.FeatureSpec;
-import feast.proto.storage.RedisProto.RedisKey;
-import feast.proto.storage.RedisProto.RedisKey.Builder;
+import feast.proto.core.StoreProto.Store.RedisValueCompression;
 import feast.proto.types.FeatureRowProto.FeatureRow;
-import feast.proto.types.FieldProto.Field;
 import feast.proto.types.ValueProto;
 import feast.storage.api.writer.FailedElement;
 import feast.storage.api.writer.WriteResult;
-import feast.storage.connectors.redis.retriever.FeatureRowDecoder;
-import java.nio.charset.StandardCharsets;
+import feast.storage.connectors.redis.retriever.ValueDecompressor;
+import feast.storage.connectors.redis.writer.RedisRowEncoder.EncodedKey;
 import java.util.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.*;
 import org.apache.beam.sdk.transforms.windowing.*;
 import org.apache.beam.sdk.values.*;
@@ -45,6 +47,7 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
+import org.joda.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +60,11 @@ public class RedisCustomIO {
 
   private static final Logger log = LoggerFactory.getLogger(RedisCustomIO.class);
 
+  private static final Counter keysWrittenWithTtl =
+      Metrics.counter(RedisCustomIO.class, "keys_written_with_ttl");
+  private static final Counter expiredRowsSkipped =
+      Metrics.counter(RedisCustomIO.class, "expired_rows_skipped");
+
   private RedisCustomIO() {}
 
   public static Write write(
@@ -72,6 +80,13 @@ public class RedisCustomIO {
     private RedisIngestionClient redisIngestionClient;
     private int batchSize;
     private Duration flushFrequency;
+    private boolean serverSideCompareAndSet;
+    private boolean compactValueEncoding;
+    private RedisValueCompression valueCompression = RedisValueCompression.getDefaultInstance();
+    private boolean hashLayout;
+    private Duration expirySlack;
+    private boolean bufferedWrites;
+    private long maxBatchBytes = Long.MAX_VALUE;
 
     public Write(
         RedisIngestionClient redisIngestionClient,
@@ -90,8 +105,77 @@ public class RedisCustomIO {
       return this;
     }
 
+    /**
+     * Check that feature rows are more recent than the current rows in Redis with a script run by
+     * Redis, writing each batch with a single round trip instead of two.
+     */
+    public Write withServerSideCompareAndSet(boolean serverSideCompareAndSet) {
+      this.serverSideCompareAndSet = serverSideCompareAndSet;
+      return this;
+    }
+
+    /**
+     * Write feature rows in the compact encoding of {@link CompactFeatureRowEncoder} instead of
+     * encoded Feature Rows with hashed field names.
+     */
+    public Write withCompactValueEncoding(boolean compactValueEncoding) {
+      this.compactValueEncoding = compactValueEncoding;
+      return this;
+    }
+
+    /**
+     * Compress the values of feature rows of the feature sets selected by the given config, in the
+     * format decompressed by {@link ValueDecompressor}.
+     */
+    public Write withValueCompression(RedisValueCompression valueCompression) {
+      this.valueCompression = valueCompression;
+      return this;
+    }
+
+    /**
+     * Write each entity key as a hash with one field per feature in the layout of {@link
+     * RedisHashLayout}, instead of a single value per entity key. Only the features of a feature
+     * row are written, each if it is more recent than the current field in Redis, so values are
+     * neither compact encoded nor compressed.
+     */
+    public Write withHashLayout(boolean hashLayout) {
+      this.hashLayout = hashLayout;
+      return this;
+    }
+
+    /**
+     * Expire the keys of feature rows at their event time plus the max age of their feature set
+     * spec and the given slack, so that Redis frees rows once they are too old to be served. Keys
+     * of feature sets without max age do not expire. Disabled if the slack is null, the default.
+     */
+    public Write withMaxAgeExpiry(Duration expirySlack) {
+      this.expirySlack = expirySlack;
+      return this;
+    }
+
+    /**
+     * Buffer feature rows within bundles instead of windowing them by flush frequency and grouping
+     * them by feature set into batches. The buffer of a bundle is written when it reaches the batch
+     * size or the max batch bytes, when it is older than the flush frequency and at the end of the
+     * bundle. As rows of the same key can be written concurrently by different bundles, buffered
+     * rows are always compared to the current rows of their keys by Redis, as with {@link
+     * #withServerSideCompareAndSet(boolean)}.
+     */
+    public Write withBufferedWrites(boolean bufferedWrites) {
+      this.bufferedWrites = bufferedWrites;
+      return this;
+    }
+
+    public Write withMaxBatchBytes(long maxBatchBytes) {
+      this.maxBatchBytes = maxBatchBytes;
+      return this;
+    }
+
     @Override
     public WriteResult expand(PCollection<FeatureRow> input) {
+      if (bufferedWrites) {
+        return expandBuffered(input);
+      }
       PCollectionTuple redisWrite =
           input
               .apply("FixedFlushWindow", Window.<FeatureRow>into(FixedWindows.of(flushFrequency)))
@@ -108,7 +192,40 @@ public class RedisCustomIO {
               .apply("ExtractResultValues", Values.create())
               .apply("GlobalWindow", Window.<Iterable<FeatureRow>>into(new GlobalWindows()))
               .apply(
-                  ParDo.of(new WriteDoFn(redisIngestionClient, featureSetSpecs))
+                  ParDo.of(
+                          new WriteDoFn(
+                              redisIngestionClient,
+                              featureSetSpecs,
+                              serverSideCompareAndSet,
+                              compactValueEncoding,
+                              valueCompression,
+                              hashLayout,
+                              expirySlack))
+                      .withOutputTags(successfulInsertsTag, TupleTagList.of(failedInsertsTupleTag))
+                      .withSideInputs(featureSetSpecs));
+      return WriteResult.in(
+          input.getPipeline(),
+          redisWrite.get(successfulInsertsTag),
+          redisWrite.get(failedInsertsTupleTag));
+    }
+
+    private WriteResult expandBuffered(PCollection<FeatureRow> input) {
+      PCollectionTuple redisWrite =
+          input
+              .apply("GlobalWindow", Window.<FeatureRow>into(new GlobalWindows()))
+              .apply(
+                  ParDo.of(
+                          new BufferedWriteDoFn(
+                              redisIngestionClient,
+                              featureSetSpecs,
+                              true,
+                              compactValueEncoding,
+                              valueCompression,
+                              hashLayout,
+                              expirySlack,
+                              batchSize,
+                              maxBatchBytes,
+                              flushFrequency))
                       .withOutputTags(successfulInsertsTag, TupleTagList.of(failedInsertsTupleTag))
                       .withSideInputs(featureSetSpecs));
       return WriteResult.in(
@@ -118,24 +235,45 @@ public class RedisCustomIO {
     }
 
     /**
-     * Writes batch of {@link FeatureRow} to Redis. Only latest values should be written. In order
-     * to guarantee that we first fetch all existing values (first batch operation), compare with
-     * current batch by eventTimestamp, and send to redis values (second batch operation) that were
-     * confirmed to be most recent.
+     * Base class of DoFns writing batches of {@link FeatureRow} to Redis. Only latest values should
+     * be written. In order to guarantee that we first fetch all existing values (first batch
+     * operation), compare with current batch by eventTimestamp, and send to redis values (second
+     * batch operation) that were confirmed to be most recent. With server side compare and set,
+     * values are instead sent with a single batch operation running a Lua script, which writes the
+     * values that are more recent than the existing values.
      */
-    public static class WriteDoFn extends BatchDoFnWithRedis<Iterable<FeatureRow>, FeatureRow> {
-      private final PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecsView;
-
-      WriteDoFn(
+    abstract static class BaseWriteDoFn<InputT> extends BatchDoFnWithRedis<InputT, FeatureRow> {
+      protected final PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecsView;
+      private final boolean serverSideCompareAndSet;
+      private final boolean compactValueEncoding;
+      private final ValueCompressor valueCompressor;
+      private final boolean hashLayout;
+      // Slack added to the max age of specs to expire keys at, or null if keys do not expire.
+      private final Duration expirySlack;
+      // Row encoder of each feature set, with the spec it was compiled for, so that the encoder of
+      // a previous spec of the feature set is replaced rather than kept.
+      private final Map<String, ImmutablePair<FeatureSetSpec, RedisRowEncoder>> encoders =
+          new HashMap<>();
+
+      BaseWriteDoFn(
           RedisIngestionClient redisIngestionClient,
-          PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecsView) {
+          PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecsView,
+          boolean serverSideCompareAndSet,
+          boolean compactValueEncoding,
+          RedisValueCompression valueCompression,
+          boolean hashLayout,
+          Duration expirySlack) {
 
         super(redisIngestionClient);
         this.featureSetSpecsView = featureSetSpecsView;
+        this.serverSideCompareAndSet = serverSideCompareAndSet;
+        this.compactValueEncoding = compactValueEncoding;
+        this.valueCompressor = new ValueCompressor(valueCompression);
+        this.hashLayout = hashLayout;
+        this.expirySlack = expirySlack;
       }
 
-      private FailedElement toFailedElement(
-          FeatureRow featureRow, Exception exception, String jobName) {
+      FailedElement toFailedElement(FeatureRow featureRow, Exception exception, String jobName) {
         return FailedElement.newBuilder()
             .setJobName(jobName)
             .setTransformName("RedisCustomIO")
@@ -145,123 +283,303 @@ public class RedisCustomIO {
             .build();
       }
 
-      private RedisKey getKey(FeatureRow featureRow, FeatureSetSpec spec) {
-        List<String> entityNames =
-            spec.getEntitiesList().stream()
-                .map(EntitySpec::getName)
-                .sorted()
-                .collect(Collectors.toList());
-
-        Map<String, Field> entityFields = new HashMap<>();
-        Builder redisKeyBuilder = RedisKey.newBuilder().setFeatureSet(featureRow.getFeatureSet());
-        for (Field field : featureRow.getFieldsList()) {
-          if (entityNames.contains(field.getName())) {
-            entityFields.putIfAbsent(
-                field.getName(),
-                Field.newBuilder().setName(field.getName()).setValue(field.getValue()).build());
-          }
+      /**
+       * Get the encoder of the rows of the given feature set, compiled once per spec of the feature
+       * set, and recompiled when the latest spec of the feature set changes.
+       */
+      RedisRowEncoder getEncoder(String featureSetRef, Map<String, FeatureSetSpec> latestSpecs) {
+        FeatureSetSpec spec = latestSpecs.get(featureSetRef);
+        ImmutablePair<FeatureSetSpec, RedisRowEncoder> encoder = encoders.get(featureSetRef);
+        if (encoder == null || !encoder.getLeft().equals(spec)) {
+          encoder = ImmutablePair.of(spec, new RedisRowEncoder(featureSetRef, spec));
+          encoders.put(featureSetRef, encoder);
         }
-        for (String entityName : entityNames) {
-          redisKeyBuilder.addEntities(entityFields.get(entityName));
+        return encoder.getRight();
+      }
+
+      /** Encode the Feature Row as bytes to store in Redis, compressed if enabled. */
+      byte[] encodeValue(FeatureRow featureRow, RedisRowEncoder encoder) {
+        byte[] value =
+            compactValueEncoding
+                ? encoder.encodeCompactValue(featureRow)
+                : encoder.encodeValue(featureRow);
+        if (valueCompressor.isEnabled(featureRow.getFeatureSet())) {
+          return valueCompressor.compress(
+              featureRow.getFeatureSet(), value, featureRow.getEventTimestamp().getSeconds());
         }
-        return redisKeyBuilder.build();
+        return value;
       }
 
       /**
-       * Encode the Feature Row as bytes to store in Redis in encoded Feature Row encoding. To
-       * reduce storage space consumption in redis, feature rows are "encoded" by hashing the fields
-       * names and not unsetting the feature set reference. {@link FeatureRowDecoder} is
-       * rensponsible for reversing this "encoding" step.
+       * Write the rows more recent than the current rows in Redis. Rows whose keys would already
+       * have expired are skipped, as expiring their keys in the past would delete them.
+       *
+       * @param rows rows deduplicated by key.
+       * @param latestSpecs latest spec of each feature set of the rows by feature set reference.
+       * @return the written rows.
        */
-      private FeatureRow getValue(FeatureRow featureRow, FeatureSetSpec spec) {
-        List<String> featureNames =
-            spec.getFeaturesList().stream().map(FeatureSpec::getName).collect(Collectors.toList());
-
-        Map<String, Field.Builder> fieldValueOnlyMap =
-            featureRow.getFieldsList().stream()
-                .filter(field -> featureNames.contains(field.getName()))
-                .distinct()
-                .collect(
-                    Collectors.toMap(
-                        Field::getName, field -> Field.newBuilder().setValue(field.getValue())));
-
-        List<Field> values =
-            featureNames.stream()
-                .sorted()
-                .map(
-                    featureName -> {
-                      Field.Builder field =
-                          fieldValueOnlyMap.getOrDefault(
-                              featureName,
-                              Field.newBuilder().setValue(ValueProto.Value.getDefaultInstance()));
-
-                      // Encode the name of the as the hash of the field name.
-                      // Use hash of name instead of the name of to reduce redis storage consumption
-                      // per feature row stored.
-                      String nameHash =
-                          Hashing.murmur3_32()
-                              .hashString(featureName, StandardCharsets.UTF_8)
-                              .toString();
-                      field.setName(nameHash);
-
-                      return field.build();
-                    })
-                .collect(Collectors.toList());
-
-        return FeatureRow.newBuilder()
-            .setEventTimestamp(featureRow.getEventTimestamp())
-            .addAllFields(values)
-            .build();
+      List<FeatureRow> write(
+          Map<EncodedKey, FeatureRow> rows, Map<String, FeatureSetSpec> latestSpecs)
+          throws Exception {
+        // dictionaries trained while writing previous batches are written before the values
+        // compressed with them. Only the first dictionary written for a feature set is stored,
+        // so that all workers compress with the same dictionary.
+        Map<String, byte[]> dictionaries = valueCompressor.getPendingDictionaries();
+        if (!dictionaries.isEmpty()) {
+          Map<String, CompletableFuture<byte[]>> storedDictionaries = new HashMap<>();
+          executeBatch(
+              redisIngestionClient -> {
+                List<Future<?>> futures = new ArrayList<>();
+                dictionaries.forEach(
+                    (featureSetRef, dictionary) -> {
+                      byte[] key = ValueDecompressor.dictionaryKey(featureSetRef);
+                      futures.add(redisIngestionClient.setnx(key, dictionary));
+                      CompletableFuture<byte[]> storedDictionary = redisIngestionClient.get(key);
+                      storedDictionaries.put(featureSetRef, storedDictionary);
+                      futures.add(storedDictionary);
+                    });
+                return futures;
+              });
+          storedDictionaries.forEach(
+              (featureSetRef, storedDictionary) ->
+                  valueCompressor.activateDictionary(featureSetRef, storedDictionary.join()));
+        }
+        if (expirySlack != null) {
+          rows = skipExpiredRows(rows, latestSpecs);
+        }
+        if (hashLayout) {
+          return writeFieldsIfNewer(rows, latestSpecs);
+        }
+        return serverSideCompareAndSet
+            ? writeIfNewer(rows, latestSpecs)
+            : fetchAndWriteIfNewer(rows, latestSpecs);
       }
 
-      @ProcessElement
-      public void processElement(ProcessContext context) {
-        List<FeatureRow> filteredFeatureRows = Collections.synchronizedList(new ArrayList<>());
-        Map<String, FeatureSetSpec> latestSpecs =
-            getLatestSpecs(context.sideInput(featureSetSpecsView));
+      /** Fetch the current rows in Redis, then write the rows more recent than the current rows. */
+      private List<FeatureRow> fetchAndWriteIfNewer(
+          Map<EncodedKey, FeatureRow> deduplicatedRows, Map<String, FeatureSetSpec> latestSpecs)
+          throws Exception {
+        List<Map.Entry<EncodedKey, FeatureRow>> filteredEntries =
+            Collections.synchronizedList(new ArrayList<>());
+        executeBatch(
+            (redisIngestionClient) ->
+                deduplicatedRows.entrySet().stream()
+                    .map(
+                        entry ->
+                            redisIngestionClient
+                                .get(entry.getKey().getBytes())
+                                .thenAccept(
+                                    currentValue -> {
+                                      if (rowShouldBeWritten(entry.getValue(), currentValue)) {
+                                        filteredEntries.add(entry);
+                                      }
+                                    }))
+                    .collect(Collectors.toList()));
+
+        executeBatch(
+            redisIngestionClient ->
+                filteredEntries.stream()
+                    .flatMap(
+                        entry -> {
+                          FeatureRow row = entry.getValue();
+                          byte[] key = entry.getKey().getBytes();
+                          RedisRowEncoder encoder = getEncoder(row.getFeatureSet(), latestSpecs);
+                          Future<?> set = redisIngestionClient.set(key, encodeValue(row, encoder));
+                          long expireAtMillis =
+                              getExpireAtMillis(row, latestSpecs.get(row.getFeatureSet()));
+                          return (expireAtMillis == 0)
+                              ? Stream.<Future<?>>of(set)
+                              : Stream.<Future<?>>of(
+                                  set, redisIngestionClient.pexpireat(key, expireAtMillis));
+                        })
+                    .collect(Collectors.toList()));
+        List<FeatureRow> filteredFeatureRows =
+            filteredEntries.stream().map(Map.Entry::getValue).collect(Collectors.toList());
+        countKeysWrittenWithTtl(filteredFeatureRows, latestSpecs);
+        return filteredFeatureRows;
+      }
 
-        Map<RedisKey, FeatureRow> deduplicatedRows =
-            deduplicateRows(context.element(), latestSpecs);
+      /** Write the rows more recent than the current rows in Redis, checked by Redis. */
+      private List<FeatureRow> writeIfNewer(
+          Map<EncodedKey, FeatureRow> rows, Map<String, FeatureSetSpec> latestSpecs)
+          throws Exception {
+        List<FeatureRow> writtenRows = Collections.synchronizedList(new ArrayList<>());
+        executeBatch(
+            redisIngestionClient ->
+                rows.entrySet().stream()
+                    .map(
+                        entry -> {
+                          FeatureRow row = entry.getValue();
+                          return redisIngestionClient
+                              .setIfNewer(
+                                  entry.getKey().getBytes(),
+                                  encodeValue(row, getEncoder(row.getFeatureSet(), latestSpecs)),
+                                  row.getEventTimestamp().getSeconds(),
+                                  getExpireAtMillis(row, latestSpecs.get(row.getFeatureSet())))
+                              .thenAccept(
+                                  written -> {
+                                    if (written) {
+                                      writtenRows.add(row);
+                                    }
+                                  });
+                        })
+                    .collect(Collectors.toList()));
+        countKeysWrittenWithTtl(writtenRows, latestSpecs);
+        return writtenRows;
+      }
 
-        try {
-          executeBatch(
-              (redisIngestionClient) ->
-                  deduplicatedRows.entrySet().stream()
-                      .map(
-                          entry ->
+      /**
+       * Write the features of the rows to the hash of their key, each feature only if it is more
+       * recent than the current field of the hash in Redis. Features not in a row are left
+       * unchanged. If keys expire, the expiry of a hash is only ever postponed, so that writing an
+       * older row does not expire the more recent fields of the hash early, and is not added to a
+       * hash that does not expire.
+       */
+      private List<FeatureRow> writeFieldsIfNewer(
+          Map<EncodedKey, FeatureRow> rows, Map<String, FeatureSetSpec> latestSpecs)
+          throws Exception {
+        Map<EncodedKey, Map<String, ValueProto.Value>> rowValues = new HashMap<>();
+        rows.forEach(
+            (key, row) -> {
+              Map<String, ValueProto.Value> values =
+                  getEncoder(row.getFeatureSet(), latestSpecs).getFeatureValues(row);
+              if (!values.isEmpty()) {
+                rowValues.put(key, values);
+              }
+            });
+
+        Map<EncodedKey, List<byte[]>> currentFields = new ConcurrentHashMap<>();
+        Map<EncodedKey, Long> currentTtls = new ConcurrentHashMap<>();
+        executeBatch(
+            redisIngestionClient ->
+                rowValues.entrySet().stream()
+                    .flatMap(
+                        entry -> {
+                          byte[] key = entry.getKey().getBytes();
+                          RedisRowEncoder encoder =
+                              getEncoder(rows.get(entry.getKey()).getFeatureSet(), latestSpecs);
+                          Future<?> fields =
                               redisIngestionClient
-                                  .get(entry.getKey().toByteArray())
-                                  .thenAccept(
-                                      currentValue -> {
-                                        FeatureRow newRow = entry.getValue();
-                                        if (rowShouldBeWritten(newRow, currentValue)) {
-                                          filteredFeatureRows.add(newRow);
-                                        }
-                                      }))
-                      .collect(Collectors.toList()));
-
-          executeBatch(
-              redisIngestionClient ->
-                  filteredFeatureRows.stream()
-                      .map(
-                          row ->
-                              redisIngestionClient.set(
-                                  getKey(row, latestSpecs.get(row.getFeatureSet())).toByteArray(),
-                                  getValue(row, latestSpecs.get(row.getFeatureSet()))
-                                      .toByteArray()))
-                      .collect(Collectors.toList()));
-
-          filteredFeatureRows.forEach(row -> context.output(successfulInsertsTag, row));
-        } catch (Exception e) {
-          deduplicatedRows
-              .values()
-              .forEach(
-                  failedMutation -> {
-                    FailedElement failedElement =
-                        toFailedElement(
-                            failedMutation, e, context.getPipelineOptions().getJobName());
-                    context.output(failedInsertsTupleTag, failedElement);
+                                  .hmget(
+                                      key,
+                                      entry.getValue().keySet().stream()
+                                          .map(encoder::getHashFieldName)
+                                          .toArray(byte[][]::new))
+                                  .thenAccept(values -> currentFields.put(entry.getKey(), values));
+                          if (expirySlack == null) {
+                            return Stream.<Future<?>>of(fields);
+                          }
+                          return Stream.<Future<?>>of(
+                              fields,
+                              redisIngestionClient
+                                  .pttl(key)
+                                  .thenAccept(ttl -> currentTtls.put(entry.getKey(), ttl)));
+                        })
+                    .collect(Collectors.toList()));
+
+        List<FeatureRow> writtenRows = new ArrayList<>();
+        Map<EncodedKey, Map<byte[], byte[]>> newerFields = new HashMap<>();
+        Map<EncodedKey, Long> newExpiries = new HashMap<>();
+        long nowMillis = System.currentTimeMillis();
+        rowValues.forEach(
+            (key, values) -> {
+              FeatureRow row = rows.get(key);
+              RedisRowEncoder encoder = getEncoder(row.getFeatureSet(), latestSpecs);
+              Iterator<byte[]> current = currentFields.get(key).iterator();
+              Map<byte[], byte[]> fields = new LinkedHashMap<>();
+              values.forEach(
+                  (featureName, value) -> {
+                    if (fieldShouldBeWritten(row, current.next())) {
+                      fields.put(
+                          encoder.getHashFieldName(featureName),
+                          RedisHashLayout.encodeField(row.getEventTimestamp(), value));
+                    }
                   });
+              if (!fields.isEmpty()) {
+                newerFields.put(key, fields);
+                writtenRows.add(row);
+                long expireAtMillis = getExpireAtMillis(row, latestSpecs.get(row.getFeatureSet()));
+                // a ttl of -2 means that the hash does not exist, -1 that it does not expire, so
+                // that its fields written without expiry are kept.
+                long ttl = currentTtls.getOrDefault(key, -2L);
+                if (expireAtMillis != 0
+                    && (ttl == -2 || (ttl >= 0 && expireAtMillis > nowMillis + ttl))) {
+                  newExpiries.put(key, expireAtMillis);
+                }
+              }
+            });
+
+        executeBatch(
+            redisIngestionClient ->
+                newerFields.entrySet().stream()
+                    .flatMap(
+                        entry -> {
+                          byte[] key = entry.getKey().getBytes();
+                          Future<?> hmset = redisIngestionClient.hmset(key, entry.getValue());
+                          Long expireAtMillis = newExpiries.get(entry.getKey());
+                          return (expireAtMillis == null)
+                              ? Stream.<Future<?>>of(hmset)
+                              : Stream.<Future<?>>of(
+                                  hmset, redisIngestionClient.pexpireat(key, expireAtMillis));
+                        })
+                    .collect(Collectors.toList()));
+        keysWrittenWithTtl.inc(newExpiries.size());
+        return writtenRows;
+      }
+
+      private boolean fieldShouldBeWritten(FeatureRow newRow, byte[] currentField) {
+        if (currentField == null) {
+          return true;
+        }
+        try {
+          return RedisHashLayout.readEventTimestamp(currentField).getSeconds()
+              < newRow.getEventTimestamp().getSeconds();
+        } catch (InvalidProtocolBufferException e) {
+          return true;
+        }
+      }
+
+      /**
+       * Get the unix time in milliseconds at which the key of the row expires, which is the event
+       * time of the row plus the max age of its spec and the expiry slack.
+       *
+       * @return expiry time of the key, 0 if the key does not expire.
+       */
+      long getExpireAtMillis(FeatureRow row, FeatureSetSpec spec) {
+        com.google.protobuf.Duration maxAge = spec.getMaxAge();
+        if (expirySlack == null || (maxAge.getSeconds() == 0 && maxAge.getNanos() == 0)) {
+          return 0;
+        }
+        com.google.protobuf.Timestamp eventTimestamp = row.getEventTimestamp();
+        return eventTimestamp.getSeconds() * 1000
+            + eventTimestamp.getNanos() / 1000000
+            + maxAge.getSeconds() * 1000
+            + maxAge.getNanos() / 1000000
+            + expirySlack.getMillis();
+      }
+
+      private Map<EncodedKey, FeatureRow> skipExpiredRows(
+          Map<EncodedKey, FeatureRow> rows, Map<String, FeatureSetSpec> latestSpecs) {
+        long nowMillis = System.currentTimeMillis();
+        Map<EncodedKey, FeatureRow> unexpiredRows = new HashMap<>();
+        rows.forEach(
+            (key, row) -> {
+              long expireAtMillis = getExpireAtMillis(row, latestSpecs.get(row.getFeatureSet()));
+              if (expireAtMillis == 0 || expireAtMillis > nowMillis) {
+                unexpiredRows.put(key, row);
+              }
+            });
+        expiredRowsSkipped.inc(rows.size() - unexpiredRows.size());
+        return unexpiredRows;
+      }
+
+      private void countKeysWrittenWithTtl(
+          List<FeatureRow> writtenRows, Map<String, FeatureSetSpec> latestSpecs) {
+        if (expirySlack != null) {
+          keysWrittenWithTtl.inc(
+              writtenRows.stream()
+                  .filter(row -> getExpireAtMillis(row, latestSpecs.get(row.getFeatureSet())) != 0)
+                  .count());
         }
       }
 
@@ -270,21 +588,30 @@ public class RedisCustomIO {
           // nothing to compare with
           return true;
         }
-        FeatureRow currentRow;
+        com.google.protobuf.Timestamp currentEventTimestamp;
         try {
-          currentRow = FeatureRow.parseFrom(currentValue);
+          if (ValueDecompressor.isCompressed(currentValue)) {
+            currentEventTimestamp =
+                com.google.protobuf.Timestamp.newBuilder()
+                    .setSeconds(ValueDecompressor.readEventTimestampSeconds(currentValue))
+                    .build();
+          } else if (CompactFeatureRowEncoder.isCompact(currentValue)) {
+            currentEventTimestamp = CompactFeatureRowEncoder.readEventTimestamp(currentValue);
+          } else {
+            currentEventTimestamp = FeatureRow.parseFrom(currentValue).getEventTimestamp();
+          }
         } catch (InvalidProtocolBufferException e) {
           // definitely need to replace current value
           return true;
         }
 
         // check whether new row has later eventTimestamp
-        return new DateTime(currentRow.getEventTimestamp().getSeconds() * 1000L)
+        return new DateTime(currentEventTimestamp.getSeconds() * 1000L)
             .isBefore(new DateTime(newRow.getEventTimestamp().getSeconds() * 1000L));
       }
 
       /** Deduplicate rows by key within batch. Keep only latest eventTimestamp */
-      Map<RedisKey, FeatureRow> deduplicateRows(
+      Map<EncodedKey, FeatureRow> deduplicateRows(
           Iterable<FeatureRow> rows, Map<String, FeatureSetSpec> latestSpecs) {
         Comparator<FeatureRow> byEventTimestamp =
             Comparator.comparing(r -> r.getEventTimestamp().getSeconds());
@@ -298,7 +625,7 @@ public class RedisCustomIO {
         return Streams.stream(rows)
             .collect(
                 Collectors.groupingBy(
-                    row -> getKey(row, latestSpecs.get(row.getFeatureSet())),
+                    row -> getEncoder(row.getFeatureSet(), latestSpecs).encodeKey(row),
                     Collectors.reducing(identity, BinaryOperator.maxBy(byEventTimestamp))));
       }
 
@@ -308,5 +635,167 @@ public class RedisCustomIO {
             .collect(Collectors.toMap(ImmutablePair::getLeft, ImmutablePair::getRight));
       }
     }
+
+    /** Writes batches of {@link FeatureRow}s of the same feature set to Redis. */
+    public static class WriteDoFn extends BaseWriteDoFn<Iterable<FeatureRow>> {
+
+      WriteDoFn(
+          RedisIngestionClient redisIngestionClient,
+          PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecsView,
+          boolean serverSideCompareAndSet,
+          boolean compactValueEncoding,
+          RedisValueCompression valueCompression,
+          boolean hashLayout,
+          Duration expirySlack) {
+        super(
+            redisIngestionClient,
+            featureSetSpecsView,
+            serverSideCompareAndSet,
+            compactValueEncoding,
+            valueCompression,
+            hashLayout,
+            expirySlack);
+      }
+
+      @ProcessElement
+      public void processElement(ProcessContext context) {
+        Map<String, FeatureSetSpec> latestSpecs =
+            getLatestSpecs(context.sideInput(featureSetSpecsView));
+
+        Map<EncodedKey, FeatureRow> deduplicatedRows =
+            deduplicateRows(context.element(), latestSpecs);
+
+        try {
+          write(deduplicatedRows, latestSpecs)
+              .forEach(row -> context.output(successfulInsertsTag, row));
+        } catch (Exception e) {
+          deduplicatedRows
+              .values()
+              .forEach(
+                  failedMutation -> {
+                    FailedElement failedElement =
+                        toFailedElement(
+                            failedMutation, e, context.getPipelineOptions().getJobName());
+                    context.output(failedInsertsTupleTag, failedElement);
+                  });
+        }
+      }
+    }
+
+    /**
+     * Writes {@link FeatureRow}s to Redis, buffering the rows of a bundle by key and keeping the
+     * latest row of each key. The buffer is written when it reaches the max no. of rows or bytes,
+     * when its oldest row has been buffered for the max buffering time, and at the end of the
+     * bundle. Unlike {@link WriteDoFn}, rows are neither windowed nor grouped by feature set, so
+     * that writing does not need a shuffle, and rows are written at the latest when their bundle is
+     * finished.
+     */
+    public static class BufferedWriteDoFn extends BaseWriteDoFn<FeatureRow> {
+      private final int maxBatchSize;
+      private final long maxBatchBytes;
+      private final long maxBufferingMillis;
+
+      private transient Map<EncodedKey, FeatureRow> buffer;
+      private transient long bufferedBytes;
+      private transient long bufferedSinceMillis;
+      private transient Instant maxBufferedTimestamp;
+      // Side input of the last processed element and the latest specs extracted from it.
+      private transient Map<String, Iterable<FeatureSetSpec>> specs;
+      private transient Map<String, FeatureSetSpec> latestSpecs;
+
+      BufferedWriteDoFn(
+          RedisIngestionClient redisIngestionClient,
+          PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecsView,
+          boolean serverSideCompareAndSet,
+          boolean compactValueEncoding,
+          RedisValueCompression valueCompression,
+          boolean hashLayout,
+          Duration expirySlack,
+          int maxBatchSize,
+          long maxBatchBytes,
+          Duration maxBufferingTime) {
+        super(
+            redisIngestionClient,
+            featureSetSpecsView,
+            serverSideCompareAndSet,
+            compactValueEncoding,
+            valueCompression,
+            hashLayout,
+            expirySlack);
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxBufferingMillis = maxBufferingTime.getMillis();
+      }
+
+      @StartBundle
+      public void startBundle() {
+        super.startBundle();
+        buffer = new HashMap<>();
+        bufferedBytes = 0;
+        maxBufferedTimestamp = BoundedWindow.TIMESTAMP_MIN_VALUE;
+      }
+
+      @ProcessElement
+      public void processElement(ProcessContext context) {
+        Map<String, Iterable<FeatureSetSpec>> sideInput = context.sideInput(featureSetSpecsView);
+        if (sideInput != specs) {
+          specs = sideInput;
+          latestSpecs = getLatestSpecs(sideInput);
+        }
+
+        FeatureRow row = context.element();
+        if (buffer.isEmpty()) {
+          bufferedSinceMillis = System.currentTimeMillis();
+        }
+        EncodedKey key = getEncoder(row.getFeatureSet(), latestSpecs).encodeKey(row);
+        FeatureRow bufferedRow = buffer.get(key);
+        if (bufferedRow == null) {
+          buffer.put(key, row);
+          bufferedBytes += row.getSerializedSize();
+        } else if (row.getEventTimestamp().getSeconds()
+            > bufferedRow.getEventTimestamp().getSeconds()) {
+          buffer.put(key, row);
+          bufferedBytes += row.getSerializedSize() - bufferedRow.getSerializedSize();
+        }
+        if (context.timestamp().isAfter(maxBufferedTimestamp)) {
+          maxBufferedTimestamp = context.timestamp();
+        }
+
+        if (buffer.size() >= maxBatchSize
+            || bufferedBytes >= maxBatchBytes
+            || System.currentTimeMillis() - bufferedSinceMillis >= maxBufferingMillis) {
+          flush(
+              context.getPipelineOptions().getJobName(),
+              writtenRow -> context.output(successfulInsertsTag, writtenRow),
+              failedElement -> context.output(failedInsertsTupleTag, failedElement));
+        }
+      }
+
+      @FinishBundle
+      public void finishBundle(FinishBundleContext context) {
+        Instant timestamp = maxBufferedTimestamp;
+        flush(
+            context.getPipelineOptions().getJobName(),
+            writtenRow ->
+                context.output(successfulInsertsTag, writtenRow, timestamp, GlobalWindow.INSTANCE),
+            failedElement ->
+                context.output(
+                    failedInsertsTupleTag, failedElement, timestamp, GlobalWindow.INSTANCE));
+      }
+
+      private void flush(
+          String jobName, Consumer<FeatureRow> onWritten, Consumer<FailedElement> onFailed) {
+        if (buffer.isEmpty()) {
+          return;
+        }
+        try {
+          write(buffer, latestSpecs).forEach(onWritten);
+        } catch (Exception e) {
+          buffer.values().forEach(row -> onFailed.accept(toFailedElement(row, e, jobName)));
+        }
+        buffer = new HashMap<>();
+        bufferedBytes = 0;
+      }
+    }
   }
 }
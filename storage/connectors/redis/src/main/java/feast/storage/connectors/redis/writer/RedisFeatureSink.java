@@ -41,6 +41,7 @@ import org.joda.time.Duration;
 public abstract class RedisFeatureSink implements FeatureSink {
   private static final int DEFAULT_BATCH_SIZE = 10000;
   private static final int DEFAULT_FREQUENCY_SECONDS = 30;
+  private static final long DEFAULT_BATCH_BYTES = 16 * 1024 * 1024;
 
   /**
    * Initialize a {@link RedisFeatureSink.Builder} from a {@link StoreProto.Store.RedisConfig}.
@@ -139,7 +140,17 @@ public abstract class RedisFeatureSink implements FeatureSink {
       return new RedisCustomIO.Write(
               new RedisClusterIngestionClient(getRedisClusterConfig()), getSpecsView())
           .withFlushFrequency(Duration.standardSeconds(flushFrequencySeconds))
-          .withBatchSize(DEFAULT_BATCH_SIZE);
+          .withBatchSize(DEFAULT_BATCH_SIZE)
+          .withMaxBatchBytes(DEFAULT_BATCH_BYTES)
+          .withServerSideCompareAndSet(getRedisClusterConfig().getServerSideCompareAndSet())
+          .withCompactValueEncoding(getRedisClusterConfig().getCompactValueEncoding())
+          .withValueCompression(getRedisClusterConfig().getValueCompression())
+          .withHashLayout(getRedisClusterConfig().getHashLayout())
+          .withMaxAgeExpiry(
+              getRedisClusterConfig().getExpireAfterMaxAge()
+                  ? Duration.standardSeconds(getRedisClusterConfig().getExpirySlackSeconds())
+                  : null)
+          .withBufferedWrites(getRedisClusterConfig().getBufferedWrites());
 
     } else if (getRedisConfig() != null) {
       if (getRedisConfig().getFlushFrequencySeconds() > 0) {
@@ -149,7 +160,17 @@ public abstract class RedisFeatureSink implements FeatureSink {
       return new RedisCustomIO.Write(
               new RedisStandaloneIngestionClient(getRedisConfig()), getSpecsView())
           .withFlushFrequency(Duration.standardSeconds(flushFrequencySeconds))
-          .withBatchSize(DEFAULT_BATCH_SIZE);
+          .withBatchSize(DEFAULT_BATCH_SIZE)
+          .withMaxBatchBytes(DEFAULT_BATCH_BYTES)
+          .withServerSideCompareAndSet(getRedisConfig().getServerSideCompareAndSet())
+          .withCompactValueEncoding(getRedisConfig().getCompactValueEncoding())
+          .withValueCompression(getRedisConfig().getValueCompression())
+          .withHashLayout(getRedisConfig().getHashLayout())
+          .withMaxAgeExpiry(
+              getRedisConfig().getExpireAfterMaxAge()
+                  ? Duration.standardSeconds(getRedisConfig().getExpirySlackSeconds())
+                  : null)
+          .withBufferedWrites(getRedisConfig().getBufferedWrites());
     } else {
       throw new RuntimeException(
           "At least one RedisConfig or RedisClusterConfig must be provided to Redis Sink");
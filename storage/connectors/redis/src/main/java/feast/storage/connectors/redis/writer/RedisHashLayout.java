@@ -0,0 +1,171 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import com.google.common.hash.Hashing;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Encoding of feature rows in the hash layout, in which each entity key of a feature set is a Redis
+ * hash with one field per feature, so that features can be read and written individually. The name
+ * of a field is the murmur3 hash of its feature name, as in encoded Feature Rows, and its value is
+ * encoded as:
+ *
+ * <ul>
+ *   <li>the seconds and nanos of the event timestamp of the feature row the value was written from,
+ *       as int64 and int32 varints.
+ *   <li>the serialized {@link Value}.
+ * </ul>
+ */
+public final class RedisHashLayout {
+
+  private RedisHashLayout() {}
+
+  /** Get the name of the hash field of a feature. */
+  public static byte[] fieldName(String featureName) {
+    return Hashing.murmur3_32()
+        .hashString(featureName, StandardCharsets.UTF_8)
+        .toString()
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Select the features of a feature set spec to read from the hash of an entity key.
+   *
+   * @param spec spec of the feature set.
+   * @param names names of the requested features.
+   * @return names of the features of the spec among the requested features, in spec order.
+   */
+  public static List<String> selectFeatures(FeatureSetSpec spec, Collection<String> names) {
+    Set<String> requestedNames = new HashSet<>(names);
+    List<String> featureNames = new ArrayList<>(requestedNames.size());
+    for (FeatureSpec feature : spec.getFeaturesList()) {
+      if (requestedNames.contains(feature.getName())) {
+        featureNames.add(feature.getName());
+      }
+    }
+    return featureNames;
+  }
+
+  /**
+   * Encode the value of the hash field of a feature.
+   *
+   * @param eventTimestamp event timestamp of the feature row of the value.
+   * @param value value of the feature.
+   * @return encoded field value.
+   */
+  public static byte[] encodeField(Timestamp eventTimestamp, Value value) {
+    byte[] field =
+        new byte
+            [CodedOutputStream.computeInt64SizeNoTag(eventTimestamp.getSeconds())
+                + CodedOutputStream.computeInt32SizeNoTag(eventTimestamp.getNanos())
+                + value.getSerializedSize()];
+    CodedOutputStream output = CodedOutputStream.newInstance(field);
+    try {
+      output.writeInt64NoTag(eventTimestamp.getSeconds());
+      output.writeInt32NoTag(eventTimestamp.getNanos());
+      value.writeTo(output);
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return field;
+  }
+
+  /**
+   * Read the event timestamp of an encoded field value.
+   *
+   * @param field encoded field value.
+   * @return event timestamp of the feature row the value was written from.
+   * @throws InvalidProtocolBufferException if the field value is invalid.
+   */
+  public static Timestamp readEventTimestamp(byte[] field) throws InvalidProtocolBufferException {
+    return readEventTimestamp(CodedInputStream.newInstance(field));
+  }
+
+  /**
+   * Decode the feature row of the given hash fields of an entity key. The event timestamp of the
+   * feature row is the oldest event timestamp of its fields, so that the feature row is outside the
+   * max age of its feature set if any of its fields is, and features without a field have the
+   * default value.
+   *
+   * @param featureSetRef reference of the feature set of the feature row.
+   * @param featureNames names of the features of the fields.
+   * @param fields encoded value or null for the field of each feature.
+   * @return decoded feature row, empty if no feature has a field.
+   * @throws InvalidProtocolBufferException if a field value is invalid.
+   */
+  public static Optional<FeatureRow> decode(
+      String featureSetRef, List<String> featureNames, List<byte[]> fields)
+      throws InvalidProtocolBufferException {
+    FeatureRow.Builder featureRow = FeatureRow.newBuilder().setFeatureSet(featureSetRef);
+    Timestamp eventTimestamp = null;
+    for (int i = 0; i < featureNames.size(); i++) {
+      byte[] field = fields.get(i);
+      Value value = Value.getDefaultInstance();
+      if (field != null) {
+        CodedInputStream input = CodedInputStream.newInstance(field);
+        Timestamp fieldTimestamp = readEventTimestamp(input);
+        value = Value.parser().parseFrom(input);
+        if (eventTimestamp == null || isBefore(fieldTimestamp, eventTimestamp)) {
+          eventTimestamp = fieldTimestamp;
+        }
+      }
+      featureRow.addFields(Field.newBuilder().setName(featureNames.get(i)).setValue(value));
+    }
+    if (eventTimestamp == null) {
+      return Optional.empty();
+    }
+    return Optional.of(featureRow.setEventTimestamp(eventTimestamp).build());
+  }
+
+  private static Timestamp readEventTimestamp(CodedInputStream input)
+      throws InvalidProtocolBufferException {
+    try {
+      return Timestamp.newBuilder()
+          .setSeconds(input.readInt64())
+          .setNanos(input.readInt32())
+          .build();
+    } catch (InvalidProtocolBufferException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new InvalidProtocolBufferException(e);
+    }
+  }
+
+  private static boolean isBefore(Timestamp a, Timestamp b) {
+    return a.getSeconds() < b.getSeconds()
+        || (a.getSeconds() == b.getSeconds() && a.getNanos() < b.getNanos());
+  }
+}
@@ -18,6 +18,8 @@ package feast.storage.connectors.redis.writer;
 
 import feast.storage.common.retry.BackOffExecutor;
 import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
@@ -38,4 +40,56 @@ public interface RedisIngestionClient extends Serializable {
   CompletableFuture<String> set(byte[] key, byte[] value);
 
   CompletableFuture<byte[]> get(byte[] key);
+
+  /**
+   * Set the value of the key unless the key already exists.
+   *
+   * @return whether the value was set.
+   */
+  CompletableFuture<Boolean> setnx(byte[] key, byte[] value);
+
+  /**
+   * Get the values of the given fields of the hash at the key.
+   *
+   * @param key key of the hash.
+   * @param fields names of the fields to get.
+   * @return value or null of each field, in the order of the given fields.
+   */
+  CompletableFuture<List<byte[]>> hmget(byte[] key, byte[][] fields);
+
+  /**
+   * Set the values of the given fields of the hash at the key, leaving its other fields unchanged.
+   *
+   * @param key key of the hash.
+   * @param fields values by field name.
+   */
+  CompletableFuture<String> hmset(byte[] key, Map<byte[], byte[]> fields);
+
+  /**
+   * Set the value of the key to the given encoded feature row, unless the current value of the key
+   * is a feature row with the same or a later event timestamp. The check is done by Redis.
+   *
+   * @param key key of the feature row.
+   * @param value encoded feature row.
+   * @param eventTimestampSeconds seconds of the event timestamp of the feature row.
+   * @param expireAtMillis unix time in milliseconds at which the key expires if the value is set, 0
+   *     if the key does not expire. Must be in the future, else the key is deleted.
+   * @return whether the value was set.
+   */
+  CompletableFuture<Boolean> setIfNewer(
+      byte[] key, byte[] value, long eventTimestampSeconds, long expireAtMillis);
+
+  /**
+   * Set the unix time in milliseconds at which the key expires.
+   *
+   * @return whether the key exists.
+   */
+  CompletableFuture<Boolean> pexpireat(byte[] key, long timestampMillis);
+
+  /**
+   * Get the time to live of the key in milliseconds.
+   *
+   * @return time to live, -1 if the key does not expire, -2 if the key does not exist.
+   */
+  CompletableFuture<Long> pttl(byte[] key);
 }
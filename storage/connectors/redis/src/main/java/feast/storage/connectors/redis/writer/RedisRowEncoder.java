@@ -0,0 +1,225 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import com.google.common.hash.Hashing;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.WireFormat;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.storage.connectors.redis.retriever.FeatureRowDecoder;
+import feast.storage.connectors.redis.retriever.RedisKeyEncoder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encoder of the Redis keys and values of the feature rows of a feature set spec, compiled once per
+ * spec so that the key and the value of each row are encoded in a single pass over its fields.
+ *
+ * <p>Keys are encoded by {@link RedisKeyEncoder}. Values in the encoded Feature Row encoding are
+ * the same bytes as the serialized {@link FeatureRow} with the fields of all features of the spec
+ * in alphabetical order, named by the murmur3 hash of their feature name, and without feature set
+ * reference, decoded by {@link FeatureRowDecoder}. The encoded names are computed once per spec,
+ * and each value is written directly into an array of its exact size.
+ */
+class RedisRowEncoder {
+  private static final int FIELDS_TAG = makeTag(FeatureRow.FIELDS_FIELD_NUMBER);
+  private static final int EVENT_TIMESTAMP_TAG = makeTag(FeatureRow.EVENT_TIMESTAMP_FIELD_NUMBER);
+  private static final int FIELD_VALUE_TAG = makeTag(Field.VALUE_FIELD_NUMBER);
+
+  private final RedisKeyEncoder keyEncoder;
+  private final CompactFeatureRowEncoder compactEncoder;
+  // maps feature name to the index of the feature in alphabetical order.
+  private final Map<String, Integer> featureIndexByName;
+  // Encoded hashed name field of the field of each feature in alphabetical order.
+  private final byte[][] encodedFeatureNames;
+  // Name of the hash field of each feature in alphabetical order.
+  private final byte[][] hashFieldNames;
+
+  /**
+   * Create an encoder for the given feature set.
+   *
+   * @param featureSetRef reference of the feature set, eg. "project/feature_set".
+   * @param spec spec of the feature set.
+   */
+  RedisRowEncoder(String featureSetRef, FeatureSetSpec spec) {
+    this.keyEncoder = new RedisKeyEncoder(featureSetRef, spec);
+    this.compactEncoder = new CompactFeatureRowEncoder(spec);
+    String[] featureNames =
+        spec.getFeaturesList().stream().map(FeatureSpec::getName).toArray(String[]::new);
+    Arrays.sort(featureNames);
+    this.featureIndexByName = new HashMap<>(featureNames.length * 2);
+    this.encodedFeatureNames = new byte[featureNames.length][];
+    this.hashFieldNames = new byte[featureNames.length][];
+    for (int i = 0; i < featureNames.length; i++) {
+      String nameHash =
+          Hashing.murmur3_32().hashString(featureNames[i], StandardCharsets.UTF_8).toString();
+      featureIndexByName.put(featureNames[i], i);
+      encodedFeatureNames[i] = Field.newBuilder().setName(nameHash).build().toByteArray();
+      hashFieldNames[i] = RedisHashLayout.fieldName(featureNames[i]);
+    }
+  }
+
+  /**
+   * Encode the Redis key of a feature row, from the first field of each entity of the spec.
+   *
+   * @throws IllegalArgumentException if the row has no field for an entity of the spec.
+   */
+  EncodedKey encodeKey(FeatureRow featureRow) {
+    return new EncodedKey(keyEncoder.encodeFields(featureRow.getFieldsList()));
+  }
+
+  /**
+   * Encode the value of a feature row in the encoded Feature Row encoding. Features of the spec
+   * without a field in the row are encoded with an empty value.
+   *
+   * @throws IllegalArgumentException if the row has fields with different values for a feature.
+   */
+  byte[] encodeValue(FeatureRow featureRow) {
+    Value[] values = new Value[encodedFeatureNames.length];
+    for (Field field : featureRow.getFieldsList()) {
+      Integer featureIndex = featureIndexByName.get(field.getName());
+      if (featureIndex == null) {
+        continue;
+      }
+      if (values[featureIndex] == null) {
+        values[featureIndex] = field.getValue();
+      } else if (!values[featureIndex].equals(field.getValue())) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Feature row has fields with different values for feature \"%s\"",
+                field.getName()));
+      }
+    }
+
+    int size = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        values[i] = Value.getDefaultInstance();
+      }
+      int fieldSize = getFieldSize(i, values[i]);
+      size += CodedOutputStream.computeUInt32SizeNoTag(FIELDS_TAG);
+      size += CodedOutputStream.computeUInt32SizeNoTag(fieldSize) + fieldSize;
+    }
+    Timestamp eventTimestamp = featureRow.getEventTimestamp();
+    int eventTimestampSize = eventTimestamp.getSerializedSize();
+    size += CodedOutputStream.computeUInt32SizeNoTag(EVENT_TIMESTAMP_TAG);
+    size += CodedOutputStream.computeUInt32SizeNoTag(eventTimestampSize) + eventTimestampSize;
+
+    byte[] value = new byte[size];
+    CodedOutputStream output = CodedOutputStream.newInstance(value);
+    try {
+      for (int i = 0; i < values.length; i++) {
+        output.writeUInt32NoTag(FIELDS_TAG);
+        output.writeUInt32NoTag(getFieldSize(i, values[i]));
+        output.writeRawBytes(encodedFeatureNames[i]);
+        output.writeUInt32NoTag(FIELD_VALUE_TAG);
+        output.writeUInt32NoTag(values[i].getSerializedSize());
+        values[i].writeTo(output);
+      }
+      output.writeUInt32NoTag(EVENT_TIMESTAMP_TAG);
+      output.writeUInt32NoTag(eventTimestampSize);
+      eventTimestamp.writeTo(output);
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return value;
+  }
+
+  /** Encode the value of a feature row in the compact encoding. */
+  byte[] encodeCompactValue(FeatureRow featureRow) {
+    return compactEncoder.encode(featureRow);
+  }
+
+  /**
+   * Get the values of the features of the spec in a feature row by name, in the order of the row.
+   * If a feature has several fields, the value of its first field is used.
+   */
+  Map<String, Value> getFeatureValues(FeatureRow featureRow) {
+    Map<String, Value> values = new LinkedHashMap<>();
+    for (Field field : featureRow.getFieldsList()) {
+      if (featureIndexByName.containsKey(field.getName())) {
+        values.putIfAbsent(field.getName(), field.getValue());
+      }
+    }
+    return values;
+  }
+
+  /** Get the name of the hash field of a feature of the spec. */
+  byte[] getHashFieldName(String featureName) {
+    return hashFieldNames[featureIndexByName.get(featureName)];
+  }
+
+  /** Get the encoded size of the field of the i-th feature with the given value. */
+  private int getFieldSize(int i, Value value) {
+    int valueSize = value.getSerializedSize();
+    return encodedFeatureNames[i].length
+        + CodedOutputStream.computeUInt32SizeNoTag(FIELD_VALUE_TAG)
+        + CodedOutputStream.computeUInt32SizeNoTag(valueSize)
+        + valueSize;
+  }
+
+  private static int makeTag(int fieldNumber) {
+    return (fieldNumber << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+  }
+
+  /**
+   * Encoded Redis key of a feature row, compared by its bytes, so that rows can be deduplicated by
+   * key without building a {@link feast.proto.storage.RedisProto.RedisKey}.
+   */
+  static final class EncodedKey {
+    private final byte[] bytes;
+    private final int hashCode;
+
+    EncodedKey(byte[] bytes) {
+      this.bytes = bytes;
+      this.hashCode = Arrays.hashCode(bytes);
+    }
+
+    /** Get the bytes of the key, which must not be modified. */
+    byte[] getBytes() {
+      return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof EncodedKey)) {
+        return false;
+      }
+      EncodedKey other = (EncodedKey) o;
+      return hashCode == other.hashCode && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
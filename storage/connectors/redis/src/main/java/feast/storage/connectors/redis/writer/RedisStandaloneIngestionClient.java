@@ -21,13 +21,19 @@ import feast.proto.core.StoreProto;
 import feast.storage.common.retry.BackOffExecutor;
 import io.lettuce.core.LettuceFutures;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.codec.ByteArrayCodec;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.joda.time.Duration;
 
 public class RedisStandaloneIngestionClient implements RedisIngestionClient {
@@ -38,6 +44,7 @@ public class RedisStandaloneIngestionClient implements RedisIngestionClient {
   private static final int DEFAULT_TIMEOUT = 2000;
   private StatefulRedisConnection<byte[], byte[]> connection;
   private RedisAsyncCommands<byte[], byte[]> commands;
+  private boolean scriptLoaded;
 
   public RedisStandaloneIngestionClient(StoreProto.Store.RedisConfig redisConfig) {
     this.host = redisConfig.getHost();
@@ -96,4 +103,73 @@ public class RedisStandaloneIngestionClient implements RedisIngestionClient {
   public CompletableFuture<byte[]> get(byte[] key) {
     return commands.get(key).toCompletableFuture();
   }
+
+  @Override
+  public CompletableFuture<Boolean> setnx(byte[] key, byte[] value) {
+    return commands.setnx(key, value).toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<List<byte[]>> hmget(byte[] key, byte[][] fields) {
+    return commands
+        .hmget(key, fields)
+        .toCompletableFuture()
+        .thenApply(
+            keyValues ->
+                keyValues.stream()
+                    .map(keyValue -> keyValue.getValueOrElse(null))
+                    .collect(Collectors.toList()));
+  }
+
+  @Override
+  public CompletableFuture<String> hmset(byte[] key, Map<byte[], byte[]> fields) {
+    return commands.hmset(key, fields).toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setIfNewer(
+      byte[] key, byte[] value, long eventTimestampSeconds, long expireAtMillis) {
+    if (!scriptLoaded) {
+      loadScript();
+    }
+    byte[][] keys = {key};
+    byte[] timestamp = WriteIfNewerScript.encodeArg(eventTimestampSeconds);
+    byte[] expireAt = WriteIfNewerScript.encodeArg(expireAtMillis);
+    return WriteIfNewerScript.run(
+        () ->
+            commands.evalsha(
+                WriteIfNewerScript.DIGEST,
+                ScriptOutputType.INTEGER,
+                keys,
+                value,
+                timestamp,
+                expireAt),
+        () ->
+            commands.eval(
+                WriteIfNewerScript.SCRIPT,
+                ScriptOutputType.INTEGER,
+                keys,
+                value,
+                timestamp,
+                expireAt),
+        connection::flushCommands);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> pexpireat(byte[] key, long timestampMillis) {
+    return commands.pexpireat(key, timestampMillis).toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Long> pttl(byte[] key) {
+    return commands.pttl(key).toCompletableFuture();
+  }
+
+  private void loadScript() {
+    RedisFuture<String> digest =
+        commands.scriptLoad(WriteIfNewerScript.SCRIPT.getBytes(StandardCharsets.UTF_8));
+    connection.flushCommands();
+    LettuceFutures.awaitAll(60, TimeUnit.SECONDS, digest);
+    scriptLoaded = true;
+  }
 }
@@ -0,0 +1,210 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.google.protobuf.CodedOutputStream;
+import feast.proto.core.StoreProto.Store.RedisValueCompression;
+import feast.proto.core.StoreProto.Store.RedisValueCompression.Codec;
+import feast.storage.connectors.redis.retriever.ValueDecompressor;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compresses the encoded values of feature rows written to Redis, in the format decompressed by
+ * {@link ValueDecompressor}.
+ *
+ * <p>If ZSTD dictionaries are enabled, the first values of each feature set are sampled and
+ * compressed without a dictionary, then a dictionary is trained from the samples. Trained
+ * dictionaries are pending until they have been written to Redis with {@link
+ * #getPendingDictionaries()} and {@link #activateDictionary(String, byte[])}, so that values are
+ * never written before the dictionary needed to decompress them. Redis stores a single dictionary
+ * per feature set: the first one written by any worker, which all workers then compress with.
+ */
+class ValueCompressor implements Serializable {
+  private static final Logger log = LoggerFactory.getLogger(ValueCompressor.class);
+
+  private static final int DEFAULT_LEVEL = 3;
+  private static final int DEFAULT_DICTIONARY_SIZE_BYTES = 16 * 1024;
+
+  private static final Counter uncompressedBytes =
+      Metrics.counter(ValueCompressor.class, "value_uncompressed_bytes");
+  private static final Counter compressedBytes =
+      Metrics.counter(ValueCompressor.class, "value_compressed_bytes");
+
+  private final Codec codec;
+  private final Set<String> featureSets;
+  private final int level;
+  private final int dictionarySampleCount;
+  private final int dictionarySizeBytes;
+
+  private transient LZ4Compressor lz4Compressor;
+  // Samples of the values of each feature set to train its dictionary from.
+  private transient Map<String, List<byte[]>> samples;
+  // Feature sets for which a dictionary has been trained or failed to be trained.
+  private transient Set<String> trainedFeatureSets;
+  // Dictionaries trained but not written to Redis yet by feature set.
+  private transient Map<String, byte[]> pendingDictionaries;
+  // Dictionaries written to Redis by feature set, with their ids.
+  private transient Map<String, ZstdDictCompress> dictionaries;
+  private transient Map<String, Integer> dictionaryIds;
+
+  ValueCompressor(RedisValueCompression config) {
+    this.codec = config.getCodec();
+    this.featureSets = new HashSet<>(config.getFeatureSetsList());
+    this.level = (config.getLevel() == 0) ? DEFAULT_LEVEL : config.getLevel();
+    this.dictionarySampleCount = config.getDictionarySampleCount();
+    this.dictionarySizeBytes =
+        (config.getDictionarySizeBytes() == 0)
+            ? DEFAULT_DICTIONARY_SIZE_BYTES
+            : config.getDictionarySizeBytes();
+  }
+
+  /** Check if the values of the given feature set are compressed. */
+  boolean isEnabled(String featureSetRef) {
+    return codec != Codec.NONE && (featureSets.isEmpty() || featureSets.contains(featureSetRef));
+  }
+
+  /**
+   * Compress the encoded value of a feature row.
+   *
+   * @param featureSetRef reference of the feature set of the feature row.
+   * @param value encoded feature row.
+   * @param eventTimestampSeconds seconds of the event timestamp of the feature row.
+   * @return compressed value.
+   */
+  byte[] compress(String featureSetRef, byte[] value, long eventTimestampSeconds) {
+    if (lz4Compressor == null) {
+      lz4Compressor = LZ4Factory.fastestInstance().fastCompressor();
+      samples = new HashMap<>();
+      trainedFeatureSets = new HashSet<>();
+      pendingDictionaries = new HashMap<>();
+      dictionaries = new HashMap<>();
+      dictionaryIds = new HashMap<>();
+    }
+
+    byte codecByte;
+    byte[] compressed;
+    ZstdDictCompress dictionary = dictionaries.get(featureSetRef);
+    if (codec == Codec.LZ4) {
+      codecByte = ValueDecompressor.LZ4;
+      compressed = lz4Compressor.compress(value);
+    } else if (dictionary != null) {
+      codecByte = ValueDecompressor.ZSTD_DICTIONARY;
+      compressed = Zstd.compress(value, dictionary);
+    } else {
+      codecByte = ValueDecompressor.ZSTD;
+      compressed = Zstd.compress(value, level);
+      sample(featureSetRef, value);
+    }
+
+    int dictionaryIdSize = (codecByte == ValueDecompressor.ZSTD_DICTIONARY) ? 4 : 0;
+    byte[] compressedValue =
+        new byte
+            [1
+                + dictionaryIdSize
+                + CodedOutputStream.computeInt64SizeNoTag(eventTimestampSeconds)
+                + CodedOutputStream.computeUInt32SizeNoTag(value.length)
+                + compressed.length];
+    CodedOutputStream output = CodedOutputStream.newInstance(compressedValue);
+    try {
+      output.writeRawByte(codecByte);
+      if (dictionaryIdSize > 0) {
+        output.writeFixed32NoTag(dictionaryIds.get(featureSetRef));
+      }
+      output.writeInt64NoTag(eventTimestampSeconds);
+      output.writeUInt32NoTag(value.length);
+      output.writeRawBytes(compressed);
+      output.checkNoSpaceLeft();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    uncompressedBytes.inc(value.length);
+    compressedBytes.inc(compressedValue.length);
+    return compressedValue;
+  }
+
+  /**
+   * Get the dictionaries trained since they were last activated, to write to Redis at {@link
+   * ValueDecompressor#dictionaryKey(String)} unless a dictionary is stored there already.
+   *
+   * @return dictionaries by feature set reference.
+   */
+  Map<String, byte[]> getPendingDictionaries() {
+    return (pendingDictionaries == null)
+        ? Collections.emptyMap()
+        : new HashMap<>(pendingDictionaries);
+  }
+
+  /**
+   * Compress the following values of a feature set with the dictionary stored in Redis, which is
+   * the pending dictionary of the feature set or a dictionary written before by another worker.
+   *
+   * @param featureSetRef reference of the feature set of the dictionary.
+   * @param dictionary dictionary stored in Redis, or null to keep compressing without dictionary.
+   */
+  void activateDictionary(String featureSetRef, byte[] dictionary) {
+    pendingDictionaries.remove(featureSetRef);
+    if (dictionary != null) {
+      dictionaries.put(featureSetRef, new ZstdDictCompress(dictionary, level));
+      dictionaryIds.put(featureSetRef, ValueDecompressor.dictionaryId(dictionary));
+    }
+  }
+
+  private void sample(String featureSetRef, byte[] value) {
+    if (dictionarySampleCount <= 0 || trainedFeatureSets.contains(featureSetRef)) {
+      return;
+    }
+    List<byte[]> featureSetSamples =
+        samples.computeIfAbsent(featureSetRef, ref -> new ArrayList<>());
+    featureSetSamples.add(value);
+    if (featureSetSamples.size() < dictionarySampleCount) {
+      return;
+    }
+
+    int samplesSize = featureSetSamples.stream().mapToInt(sample -> sample.length).sum();
+    ZstdDictTrainer trainer = new ZstdDictTrainer(samplesSize, dictionarySizeBytes);
+    featureSetSamples.forEach(trainer::addSample);
+    try {
+      pendingDictionaries.put(featureSetRef, trainer.trainSamples());
+    } catch (RuntimeException e) {
+      // too few or too similar samples: keep compressing without a dictionary
+      log.warn(
+          "Unable to train ZSTD dictionary for feature set {}, compressing without dictionary: {}",
+          featureSetRef,
+          e.getMessage());
+    }
+    samples.remove(featureSetRef);
+    trainedFeatureSets.add(featureSetRef);
+  }
+}
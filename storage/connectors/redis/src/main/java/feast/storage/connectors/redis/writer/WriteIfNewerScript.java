@@ -0,0 +1,109 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.Resources;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisFuture;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lua script writing a feature row to Redis only if it is more recent than the current feature row
+ * of its key, with the same semantics as the check of {@link RedisCustomIO}, so that conditional
+ * writes take a single round trip to Redis.
+ *
+ * <p>The script is run by its SHA1 digest with EVALSHA, and is sent with EVAL only if it is not in
+ * the script cache of the Redis node, eg. after a restart or a failover.
+ */
+final class WriteIfNewerScript {
+  static final String SCRIPT = loadScript();
+  static final String DIGEST = digest(SCRIPT);
+
+  private WriteIfNewerScript() {}
+
+  /**
+   * Run the script.
+   *
+   * @param evalSha sends the script by its digest.
+   * @param eval sends the script.
+   * @param flush flushes the commands sent, if commands are not flushed automatically.
+   * @return whether the feature row was written.
+   */
+  static CompletableFuture<Boolean> run(
+      Supplier<RedisFuture<Long>> evalSha, Supplier<RedisFuture<Long>> eval, Runnable flush) {
+    return evalSha
+        .get()
+        .toCompletableFuture()
+        .handle(
+            (written, e) -> {
+              if (e == null) {
+                return CompletableFuture.completedFuture(written);
+              }
+              if (!isNoScript(e)) {
+                CompletableFuture<Long> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+              }
+              CompletableFuture<Long> evalFuture = eval.get().toCompletableFuture();
+              flush.run();
+              return evalFuture;
+            })
+        .thenCompose(Function.identity())
+        .thenApply(written -> written == 1L);
+  }
+
+  static byte[] encodeArg(long value) {
+    return Long.toString(value).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static boolean isNoScript(Throwable e) {
+    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+    return cause instanceof RedisCommandExecutionException
+        && cause.getMessage() != null
+        && cause.getMessage().startsWith("NOSCRIPT");
+  }
+
+  private static String loadScript() {
+    try {
+      return Resources.toString(
+          Resources.getResource(WriteIfNewerScript.class, "write_if_newer.lua"),
+          StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String digest(String script) {
+    try {
+      return BaseEncoding.base16()
+          .lowerCase()
+          .encode(
+              MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
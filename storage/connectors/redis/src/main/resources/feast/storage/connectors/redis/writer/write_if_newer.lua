@@ -0,0 +1,124 @@
+-- SPDX-License-Identifier: Apache-2.0
+-- Copyright 2018-2020 The Feast Authors
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     https://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+
+-- Writes a feature row encoded by RedisCustomIO to the key, unless the current value of the key
+-- is a feature row with the same or a later event timestamp, in seconds.
+--
+-- KEYS[1]: key of the feature row.
+-- ARGV[1]: encoded feature row.
+-- ARGV[2]: seconds of the event timestamp of the feature row.
+-- ARGV[3]: unix time in milliseconds at which the written key expires, 0 if it does not expire.
+--          Must be in the future, as an expiry in the past deletes the key. The expiry is only set
+--          if the row is written: SET clears the expiry of the key it replaces.
+-- Returns 1 if the feature row was written, 0 otherwise.
+
+-- Read the varint at the given position of the bytes, returning it and the position after it.
+local function read_varint(bytes, pos)
+  local value, scale = 0, 1
+  while true do
+    local byte = string.byte(bytes, pos)
+    value = value + (byte % 128) * scale
+    pos = pos + 1
+    if byte < 128 then
+      return value, pos
+    end
+    scale = scale * 128
+  end
+end
+
+-- Convert a varint decoded as unsigned to int64: negative int64 are encoded as 64 bit two's
+-- complement varints.
+local function to_int64(value)
+  if value >= 2 ^ 63 then
+    return value - 2 ^ 64
+  end
+  return value
+end
+
+-- Read the seconds of the event timestamp of a feature row, field 3 of the FeatureRow message and
+-- field 1 of its Timestamp message. Raises an error if the bytes are not a feature row.
+local function read_event_timestamp_seconds(row)
+  -- feature rows in the compact encoding start with the marker byte 0 and the version byte 3,
+  -- followed by the seconds of the event timestamp.
+  if string.byte(row, 1) == 0 then
+    if string.byte(row, 2) ~= 3 then
+      error("invalid compact feature row")
+    end
+    return to_int64(read_varint(row, 3))
+  end
+  -- compressed feature rows start with a codec byte, followed by a 4 byte dictionary id for the
+  -- zstd dictionary codec (0x1e), then the uncompressed seconds of the event timestamp.
+  local codec = string.byte(row, 1)
+  if codec == 0x0e or codec == 0x16 then
+    return to_int64(read_varint(row, 2))
+  elseif codec == 0x1e then
+    return to_int64(read_varint(row, 6))
+  end
+
+  local pos = 1
+  while pos <= #row do
+    local tag
+    tag, pos = read_varint(row, pos)
+    local field_number, wire_type = math.floor(tag / 8), tag % 8
+    if wire_type == 0 then
+      local _
+      _, pos = read_varint(row, pos)
+    elseif wire_type == 1 then
+      pos = pos + 8
+    elseif wire_type == 5 then
+      pos = pos + 4
+    elseif wire_type == 2 then
+      local length
+      length, pos = read_varint(row, pos)
+      if field_number == 3 then
+        local seconds, timestamp_end = 0, pos + length
+        while pos < timestamp_end do
+          local timestamp_tag, value
+          timestamp_tag, pos = read_varint(row, pos)
+          if timestamp_tag % 8 ~= 0 then
+            error("invalid timestamp")
+          end
+          value, pos = read_varint(row, pos)
+          if timestamp_tag == 8 then
+            seconds = value
+          end
+        end
+        return to_int64(seconds)
+      end
+      pos = pos + length
+    else
+      error("invalid feature row")
+    end
+  end
+  if pos ~= #row + 1 then
+    error("invalid feature row")
+  end
+  -- the event timestamp is not set
+  return 0
+end
+
+local current = redis.call("GET", KEYS[1])
+if current then
+  local parsed, current_seconds = pcall(read_event_timestamp_seconds, current)
+  -- values that are not feature rows are replaced
+  if parsed and current_seconds >= tonumber(ARGV[2]) then
+    return 0
+  end
+end
+redis.call("SET", KEYS[1], ARGV[1])
+if tonumber(ARGV[3]) > 0 then
+  redis.call("PEXPIREAT", KEYS[1], ARGV[3])
+end
+return 1
@@ -19,15 +19,24 @@ package feast.storage.connectors.redis.retriever;
 import static org.junit.Assert.*;
 
 import com.google.common.hash.Hashing;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Timestamp;
 import feast.proto.core.FeatureSetProto;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.types.FeatureRowProto;
 import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.FloatList;
+import feast.proto.types.ValueProto.Int64List;
+import feast.proto.types.ValueProto.StringList;
 import feast.proto.types.ValueProto.Value;
 import feast.proto.types.ValueProto.ValueType;
+import feast.storage.connectors.redis.writer.CompactFeatureRowEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.Test;
 
 public class FeatureRowDecoderTest {
@@ -162,6 +171,273 @@ public class FeatureRowDecoderTest {
     assertEquals(expectedFeatureRow, decoder.decode(encodedFeatureRow));
   }
 
+  @Test
+  public void shouldReuseDecoderForMultipleFeatureRowsV2() {
+    FeatureRowDecoder decoder = new FeatureRowDecoder("feature_set_ref", spec);
+
+    for (int i = 0; i < 3; i++) {
+      // fields are encoded out of spec order, decoded fields should follow spec order.
+      FeatureRowProto.FeatureRow encodedFeatureRow =
+          FeatureRowProto.FeatureRow.newBuilder()
+              .setEventTimestamp(Timestamp.newBuilder().setNanos(1000))
+              .addFields(
+                  Field.newBuilder()
+                      .setName(
+                          Hashing.murmur3_32()
+                              .hashString("feature2", StandardCharsets.UTF_8)
+                              .toString())
+                      .setValue(Value.newBuilder().setFloatVal(i)))
+              .addFields(
+                  Field.newBuilder()
+                      .setName(
+                          Hashing.murmur3_32()
+                              .hashString("feature1", StandardCharsets.UTF_8)
+                              .toString())
+                      .setValue(Value.newBuilder().setInt32Val(i)))
+              .build();
+
+      FeatureRowProto.FeatureRow expectedFeatureRow =
+          FeatureRowProto.FeatureRow.newBuilder()
+              .setFeatureSet("feature_set_ref")
+              .setEventTimestamp(Timestamp.newBuilder().setNanos(1000))
+              .addFields(
+                  Field.newBuilder()
+                      .setName("feature1")
+                      .setValue(Value.newBuilder().setInt32Val(i)))
+              .addFields(
+                  Field.newBuilder()
+                      .setName("feature2")
+                      .setValue(Value.newBuilder().setFloatVal(i)))
+              .build();
+
+      assertEquals(expectedFeatureRow, decoder.decode(encodedFeatureRow));
+    }
+  }
+
+  @Test
+  public void shouldDecodeOnlyProjectedFeaturesFromBytesV2() throws Exception {
+    FeatureRowDecoder decoder = new FeatureRowDecoder("feature_set_ref", spec);
+
+    FeatureRowProto.FeatureRow encodedFeatureRow =
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setEventTimestamp(Timestamp.newBuilder().setNanos(1000))
+            .addFields(
+                Field.newBuilder()
+                    .setName(
+                        Hashing.murmur3_32()
+                            .hashString("feature1", StandardCharsets.UTF_8)
+                            .toString())
+                    .setValue(Value.newBuilder().setInt32Val(2)))
+            .addFields(
+                Field.newBuilder()
+                    .setName(
+                        Hashing.murmur3_32()
+                            .hashString("feature2", StandardCharsets.UTF_8)
+                            .toString())
+                    .setValue(Value.newBuilder().setFloatVal(1.0f)))
+            .build();
+
+    FeatureRowProto.FeatureRow expectedFeatureRow =
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setFeatureSet("feature_set_ref")
+            .setEventTimestamp(Timestamp.newBuilder().setNanos(1000))
+            .addFields(
+                Field.newBuilder()
+                    .setName("feature2")
+                    .setValue(Value.newBuilder().setFloatVal(1.0f)))
+            .build();
+
+    assertEquals(
+        expectedFeatureRow,
+        decoder.decode(
+            encodedFeatureRow.toByteArray(), decoder.project(Collections.singleton("feature2"))));
+  }
+
+  @Test
+  public void shouldDecodeMissingProjectedFeaturesFromBytesAsUnsetV2() throws Exception {
+    FeatureRowDecoder decoder = new FeatureRowDecoder("feature_set_ref", spec);
+
+    FeatureRowProto.FeatureRow encodedFeatureRow =
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setEventTimestamp(Timestamp.newBuilder().setNanos(1000))
+            .addFields(
+                Field.newBuilder()
+                    .setName(
+                        Hashing.murmur3_32()
+                            .hashString("feature1", StandardCharsets.UTF_8)
+                            .toString())
+                    .setValue(Value.newBuilder().setInt32Val(2)))
+            .build();
+
+    FeatureRowProto.FeatureRow expectedFeatureRow =
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setFeatureSet("feature_set_ref")
+            .setEventTimestamp(Timestamp.newBuilder().setNanos(1000))
+            .addFields(
+                Field.newBuilder().setName("feature1").setValue(Value.newBuilder().setInt32Val(2)))
+            .addFields(Field.newBuilder().setName("feature2").setValue(Value.newBuilder().build()))
+            .build();
+
+    assertEquals(
+        expectedFeatureRow,
+        decoder.decode(
+            encodedFeatureRow.toByteArray(),
+            decoder.project(Arrays.asList("feature1", "feature2", "feature3"))));
+  }
+
+  @Test
+  public void shouldDecodeOnlyProjectedFeaturesFromBytesV1() throws Exception {
+    FeatureRowDecoder decoder = new FeatureRowDecoder("feature_set_ref", spec);
+
+    FeatureRowProto.FeatureRow encodedFeatureRow =
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setEventTimestamp(Timestamp.newBuilder().setNanos(1000))
+            .addFields(Field.newBuilder().setValue(Value.newBuilder().setInt32Val(2)))
+            .addFields(Field.newBuilder().setValue(Value.newBuilder().setFloatVal(1.0f)))
+            .build();
+
+    FeatureRowProto.FeatureRow expectedFeatureRow =
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setFeatureSet("feature_set_ref")
+            .setEventTimestamp(Timestamp.newBuilder().setNanos(1000))
+            .addFields(
+                Field.newBuilder().setName("feature1").setValue(Value.newBuilder().setInt32Val(2)))
+            .build();
+
+    assertEquals(
+        expectedFeatureRow,
+        decoder.decode(
+            encodedFeatureRow.toByteArray(), decoder.project(Collections.singleton("feature1"))));
+  }
+
+  @Test
+  public void shouldDecodeOnlyProjectedFeaturesFromCompactBytes() throws Exception {
+    FeatureSetSpec.Builder compactSpec = spec.toBuilder();
+    Value[] values = {
+      Value.newBuilder().setBytesVal(ByteString.copyFromUtf8("bytes")).build(),
+      Value.newBuilder().setStringVal("string").build(),
+      Value.newBuilder().setInt32Val(-32).build(),
+      Value.newBuilder().setInt64Val(Long.MAX_VALUE).build(),
+      Value.newBuilder().setDoubleVal(6.4).build(),
+      Value.newBuilder().setBoolVal(true).build(),
+      Value.newBuilder().setStringListVal(StringList.newBuilder().addVal("a").addVal("b")).build(),
+      Value.newBuilder().setInt64ListVal(Int64List.newBuilder().addVal(-1).addVal(2)).build(),
+      Value.newBuilder().setFloatListVal(FloatList.newBuilder().addVal(0.5f)).build(),
+    };
+    FeatureRowProto.FeatureRow.Builder featureRow =
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setFeatureSet("feature_set_ref")
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(-100).setNanos(1000))
+            .addFields(
+                Field.newBuilder().setName("feature1").setValue(Value.newBuilder().setFloatVal(1)))
+            .addFields(Field.newBuilder().setName("feature2").setValue(Value.getDefaultInstance()));
+    for (int i = 0; i < values.length; i++) {
+      compactSpec.addFeatures(FeatureSetProto.FeatureSpec.newBuilder().setName("a_feature" + i));
+      featureRow.addFields(Field.newBuilder().setName("a_feature" + i).setValue(values[i]));
+    }
+    FeatureRowDecoder decoder = new FeatureRowDecoder("feature_set_ref", compactSpec.build());
+
+    byte[] encodedFeatureRow =
+        new CompactFeatureRowEncoder(compactSpec.build()).encode(featureRow.build());
+
+    assertTrue(decoder.isDecodable(encodedFeatureRow));
+    FeatureRowProto.FeatureRow.Builder expectedFeatureRow =
+        featureRow.clone().clearFields().addFields(featureRow.getFields(0));
+    for (int i = 1; i < values.length; i += 2) {
+      expectedFeatureRow.addFields(featureRow.getFields(i + 2));
+    }
+    assertEquals(
+        expectedFeatureRow.build(),
+        decoder.decode(
+            encodedFeatureRow,
+            decoder.project(
+                Arrays.asList(
+                    "feature1", "a_feature1", "a_feature3", "a_feature5", "a_feature7"))));
+    List<String> featureNames =
+        compactSpec.getFeaturesList().stream()
+            .map(FeatureSetProto.FeatureSpec::getName)
+            .collect(Collectors.toList());
+    assertEquals(
+        featureRow.build(), decoder.decode(encodedFeatureRow, decoder.project(featureNames)));
+  }
+
+  @Test
+  public void shouldDecodeCompactBytesEncodedBeforeAndAfterSpecEvolution() throws Exception {
+    // feature2 is removed from the spec and feature3 is added to it
+    FeatureSetSpec evolvedSpec =
+        spec.toBuilder()
+            .removeFeatures(1)
+            .addFeatures(
+                FeatureSetProto.FeatureSpec.newBuilder()
+                    .setName("feature3")
+                    .setValueType(ValueType.Enum.STRING))
+            .build();
+    FeatureRowProto.FeatureRow featureRow =
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(10))
+            .addFields(
+                Field.newBuilder().setName("feature1").setValue(Value.newBuilder().setFloatVal(1)))
+            .addFields(
+                Field.newBuilder().setName("feature2").setValue(Value.newBuilder().setInt32Val(2)))
+            .addFields(
+                Field.newBuilder()
+                    .setName("feature3")
+                    .setValue(Value.newBuilder().setStringVal("three")))
+            .build();
+    byte[] encodedBefore = new CompactFeatureRowEncoder(spec).encode(featureRow);
+    byte[] encodedAfter = new CompactFeatureRowEncoder(evolvedSpec).encode(featureRow);
+
+    FeatureRowDecoder evolvedDecoder = new FeatureRowDecoder("feature_set_ref", evolvedSpec);
+    BitSet evolvedProjection = evolvedDecoder.project(Arrays.asList("feature1", "feature3"));
+    assertTrue(evolvedDecoder.isDecodable(encodedBefore));
+    assertEquals(
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setFeatureSet("feature_set_ref")
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(10))
+            .addFields(featureRow.getFields(0))
+            .addFields(Field.newBuilder().setName("feature3").setValue(Value.getDefaultInstance()))
+            .build(),
+        evolvedDecoder.decode(encodedBefore, evolvedProjection));
+    assertEquals(
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setFeatureSet("feature_set_ref")
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(10))
+            .addFields(featureRow.getFields(0))
+            .addFields(featureRow.getFields(2))
+            .build(),
+        evolvedDecoder.decode(encodedAfter, evolvedProjection));
+
+    FeatureRowDecoder decoder = new FeatureRowDecoder("feature_set_ref", spec);
+    BitSet projection = decoder.project(Arrays.asList("feature1", "feature2"));
+    assertTrue(decoder.isDecodable(encodedAfter));
+    assertEquals(
+        FeatureRowProto.FeatureRow.newBuilder()
+            .setFeatureSet("feature_set_ref")
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(10))
+            .addFields(featureRow.getFields(0))
+            .addFields(Field.newBuilder().setName("feature2").setValue(Value.getDefaultInstance()))
+            .build(),
+        decoder.decode(encodedAfter, projection));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotDecodeCompactBytesOfUnknownVersion() throws Exception {
+    FeatureRowDecoder decoder = new FeatureRowDecoder("feature_set_ref", spec);
+    byte[] encodedFeatureRow =
+        new CompactFeatureRowEncoder(spec)
+            .encode(
+                FeatureRowProto.FeatureRow.newBuilder()
+                    .addFields(
+                        Field.newBuilder()
+                            .setName("feature1")
+                            .setValue(Value.newBuilder().setFloatVal(1)))
+                    .build());
+    encodedFeatureRow[1] = CompactFeatureRowEncoder.VERSION + 1;
+
+    assertFalse(decoder.isDecodable(encodedFeatureRow));
+    decoder.decode(encodedFeatureRow, decoder.project(Collections.singleton("feature1")));
+  }
+
   // TODO: remove this test in Feast 0.7 when support for Feature Row v1 encoding is removed
   @Test
   public void shouldDecodeValidEncodedFeatureRowV1() {
@@ -18,6 +18,8 @@ package feast.storage.connectors.redis.retriever;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -38,10 +40,20 @@ import feast.proto.types.ValueProto.Value;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.OnlineRetriever;
 import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.cluster.SlotHash;
 import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
 import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
+import io.lettuce.core.cluster.models.partitions.Partitions;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
@@ -53,6 +65,18 @@ public class RedisClusterOnlineRetrieverTest {
 
   @Mock RedisAdvancedClusterCommands<byte[], byte[]> syncCommands;
 
+  @Mock RedisAdvancedClusterAsyncCommands<byte[], byte[]> asyncCommands;
+
+  @Mock StatefulRedisClusterConnection<byte[], byte[]> pipelineConnection;
+
+  @Mock StatefulRedisConnection<byte[], byte[]> nodeConnection1;
+
+  @Mock StatefulRedisConnection<byte[], byte[]> nodeConnection2;
+
+  @Mock RedisAsyncCommands<byte[], byte[]> nodeCommands1;
+
+  @Mock RedisAsyncCommands<byte[], byte[]> nodeCommands2;
+
   private OnlineRetriever redisClusterOnlineRetriever;
   private byte[][] redisKeyList;
 
@@ -219,6 +243,188 @@ public class RedisClusterOnlineRetrieverTest {
     assertThat(actual, equalTo(expected));
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldPipelineGetsPerNodeAndRetryFailedKeys() {
+    FeatureSetRequest featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .setSpec(getFeatureSetSpec())
+            .addFeatureReference(
+                FeatureReference.newBuilder().setName("feature1").setProject("project").build())
+            .build();
+    List<EntityRow> entityRows =
+        ImmutableList.of(
+            EntityRow.newBuilder()
+                .putFields("entity1", intValue(1))
+                .putFields("entity2", strValue("a"))
+                .build(),
+            EntityRow.newBuilder()
+                .putFields("entity1", intValue(2))
+                .putFields("entity2", strValue("b"))
+                .build());
+    byte[] featureRowBytes1 = encodedFeatureRow(1).toByteArray();
+    byte[] featureRowBytes2 = encodedFeatureRow(2).toByteArray();
+
+    // each key is served by its own node, the second node failing as the slot has moved
+    Partitions partitions = new Partitions();
+    partitions.addPartition(clusterNode("node1", SlotHash.getSlot(redisKeyList[0])));
+    partitions.addPartition(clusterNode("node2", SlotHash.getSlot(redisKeyList[1])));
+    partitions.updateCache();
+    when(pipelineConnection.getPartitions()).thenReturn(partitions);
+    when(pipelineConnection.getConnection("node1")).thenReturn(nodeConnection1);
+    when(pipelineConnection.getConnection("node2")).thenReturn(nodeConnection2);
+    when(nodeConnection1.async()).thenReturn(nodeCommands1);
+    when(nodeConnection2.async()).thenReturn(nodeCommands2);
+    RedisFuture<byte[]> value1 = redisFuture(CompletableFuture.completedFuture(featureRowBytes1));
+    CompletableFuture<byte[]> movedValue = new CompletableFuture<>();
+    movedValue.completeExceptionally(new RedisCommandExecutionException("MOVED"));
+    RedisFuture<byte[]> value2 = redisFuture(movedValue);
+    when(nodeCommands1.get(redisKeyList[0])).thenReturn(value1);
+    when(nodeCommands2.get(redisKeyList[1])).thenReturn(value2);
+    RedisFuture<List<KeyValue<byte[], byte[]>>> retriedValues =
+        redisFuture(
+            CompletableFuture.completedFuture(
+                ImmutableList.of(KeyValue.just(redisKeyList[1], featureRowBytes2))));
+    when(asyncCommands.mget(redisKeyList[1])).thenReturn(retriedValues);
+    when(connection.async()).thenReturn(asyncCommands);
+    redisClusterOnlineRetriever =
+        RedisClusterOnlineRetriever.create(connection, () -> pipelineConnection, 2);
+
+    List<Optional<FeatureRow>> actual =
+        redisClusterOnlineRetriever.getOnlineFeatures(entityRows, featureSetRequest);
+
+    assertThat(
+        actual,
+        equalTo(
+            ImmutableList.of(
+                Optional.of(decodedFeatureRow(1)), Optional.of(decodedFeatureRow(2)))));
+    verify(pipelineConnection).setAutoFlushCommands(false);
+    verify(nodeConnection1).flushCommands();
+    verify(nodeConnection2).flushCommands();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldReadWithClusterMgetWhenAllPipelineConnectionsAreLeased() {
+    FeatureSetRequest featureSetRequest = pipelinedFeatureSetRequest();
+    List<EntityRow> entityRows = pipelinedEntityRows();
+    stubPipelinedValues();
+    RedisFuture<List<KeyValue<byte[], byte[]>>> values =
+        redisFuture(
+            CompletableFuture.completedFuture(
+                ImmutableList.of(
+                    KeyValue.just(redisKeyList[0], encodedFeatureRow(1).toByteArray()),
+                    KeyValue.just(redisKeyList[1], encodedFeatureRow(2).toByteArray()))));
+    when(asyncCommands.mget(redisKeyList[0], redisKeyList[1])).thenReturn(values);
+    when(connection.async()).thenReturn(asyncCommands);
+    OnlineRetriever[] retriever = new OnlineRetriever[1];
+    List<List<Optional<FeatureRow>>> concurrentFeatureRows = new ArrayList<>();
+    retriever[0] =
+        RedisClusterOnlineRetriever.create(
+            connection,
+            () -> {
+              // lookup while the only pipeline connection is leased to open it
+              concurrentFeatureRows.add(
+                  retriever[0].getOnlineFeatures(entityRows, featureSetRequest));
+              return pipelineConnection;
+            },
+            1);
+
+    List<Optional<FeatureRow>> actual =
+        retriever[0].getOnlineFeatures(entityRows, featureSetRequest);
+
+    List<Optional<FeatureRow>> expected =
+        ImmutableList.of(Optional.of(decodedFeatureRow(1)), Optional.of(decodedFeatureRow(2)));
+    assertThat(actual, equalTo(expected));
+    assertThat(concurrentFeatureRows, equalTo(ImmutableList.of(expected)));
+    verify(asyncCommands).mget(redisKeyList[0], redisKeyList[1]);
+    verify(nodeConnection1).flushCommands();
+  }
+
+  @Test
+  public void shouldClosePipelineConnectionsOnClose() {
+    stubPipelinedValues();
+    when(connection.async()).thenReturn(asyncCommands);
+    redisClusterOnlineRetriever =
+        RedisClusterOnlineRetriever.create(connection, () -> pipelineConnection, 1);
+    redisClusterOnlineRetriever.getOnlineFeatures(
+        pipelinedEntityRows(), pipelinedFeatureSetRequest());
+
+    redisClusterOnlineRetriever.close();
+
+    verify(pipelineConnection).close();
+    verify(connection).close();
+  }
+
+  private FeatureSetRequest pipelinedFeatureSetRequest() {
+    return FeatureSetRequest.newBuilder()
+        .setSpec(getFeatureSetSpec())
+        .addFeatureReference(
+            FeatureReference.newBuilder().setName("feature1").setProject("project").build())
+        .build();
+  }
+
+  private List<EntityRow> pipelinedEntityRows() {
+    return ImmutableList.of(
+        EntityRow.newBuilder()
+            .putFields("entity1", intValue(1))
+            .putFields("entity2", strValue("a"))
+            .build(),
+        EntityRow.newBuilder()
+            .putFields("entity1", intValue(2))
+            .putFields("entity2", strValue("b"))
+            .build());
+  }
+
+  /** Stub the pipeline connection with a single node serving the feature rows of both keys. */
+  private void stubPipelinedValues() {
+    Partitions partitions = new Partitions();
+    RedisClusterNode node = clusterNode("node1", SlotHash.getSlot(redisKeyList[0]));
+    node.setSlots(
+        ImmutableList.of(SlotHash.getSlot(redisKeyList[0]), SlotHash.getSlot(redisKeyList[1])));
+    partitions.addPartition(node);
+    partitions.updateCache();
+    when(pipelineConnection.getPartitions()).thenReturn(partitions);
+    when(pipelineConnection.getConnection("node1")).thenReturn(nodeConnection1);
+    when(nodeConnection1.async()).thenReturn(nodeCommands1);
+    RedisFuture<byte[]> value1 =
+        redisFuture(CompletableFuture.completedFuture(encodedFeatureRow(1).toByteArray()));
+    RedisFuture<byte[]> value2 =
+        redisFuture(CompletableFuture.completedFuture(encodedFeatureRow(2).toByteArray()));
+    when(nodeCommands1.get(redisKeyList[0])).thenReturn(value1);
+    when(nodeCommands1.get(redisKeyList[1])).thenReturn(value2);
+  }
+
+  private FeatureRow encodedFeatureRow(int val) {
+    return FeatureRow.newBuilder()
+        .setEventTimestamp(Timestamp.newBuilder().setSeconds(100))
+        .addFields(Field.newBuilder().setValue(intValue(val)))
+        .addFields(Field.newBuilder().setValue(intValue(val)))
+        .build();
+  }
+
+  private FeatureRow decodedFeatureRow(int val) {
+    return FeatureRow.newBuilder()
+        .setEventTimestamp(Timestamp.newBuilder().setSeconds(100))
+        .setFeatureSet("project/featureSet")
+        .addFields(Field.newBuilder().setName("feature1").setValue(intValue(val)))
+        .build();
+  }
+
+  private RedisClusterNode clusterNode(String nodeId, int slot) {
+    RedisClusterNode node = new RedisClusterNode();
+    node.setNodeId(nodeId);
+    node.setSlots(ImmutableList.of(slot));
+    return node;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> RedisFuture<T> redisFuture(CompletableFuture<T> future) {
+    RedisFuture<T> redisFuture = mock(RedisFuture.class);
+    when(redisFuture.toCompletableFuture()).thenReturn(future);
+    return redisFuture;
+  }
+
   private Value intValue(int val) {
     return Value.newBuilder().setInt64Val(val).build();
   }
@@ -0,0 +1,94 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.retriever;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class RedisConnectionPoolTest {
+
+  @Mock StatefulRedisConnection<byte[], byte[]> connection1;
+
+  @Mock StatefulRedisConnection<byte[], byte[]> connection2;
+
+  @Mock RedisAsyncCommands<byte[], byte[]> asyncCommands1;
+
+  @Mock RedisAsyncCommands<byte[], byte[]> asyncCommands2;
+
+  @Mock RedisFuture<String> ping1;
+
+  @Mock RedisFuture<String> ping2;
+
+  private RedisConnectionPool pool;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    when(connection1.isOpen()).thenReturn(true);
+    when(connection2.isOpen()).thenReturn(true);
+    when(connection1.async()).thenReturn(asyncCommands1);
+    when(connection2.async()).thenReturn(asyncCommands2);
+    when(asyncCommands1.ping()).thenReturn(ping1);
+    when(asyncCommands2.ping()).thenReturn(ping2);
+    pool = new RedisConnectionPool(Arrays.asList(connection1, connection2), 1000);
+  }
+
+  @Test
+  public void shouldSpreadLookupsOverConnections() {
+    assertThat(pool.next(), sameInstance(connection1));
+    assertThat(pool.next(), sameInstance(connection2));
+    assertThat(pool.next(), sameInstance(connection1));
+  }
+
+  @Test
+  public void shouldSkipConnectionsFailingHealthCheckUntilTheyRecover() {
+    when(ping1.toCompletableFuture()).thenReturn(CompletableFuture.completedFuture("PONG"));
+    CompletableFuture<String> failedPing = new CompletableFuture<>();
+    failedPing.completeExceptionally(new RedisConnectionException("down"));
+    when(ping2.toCompletableFuture())
+        .thenReturn(failedPing)
+        .thenReturn(CompletableFuture.completedFuture("PONG"));
+
+    pool.checkHealth();
+    assertThat(pool.next(), sameInstance(connection1));
+    assertThat(pool.next(), sameInstance(connection1));
+
+    pool.checkHealth();
+    assertThat(pool.next(), sameInstance(connection1));
+    assertThat(pool.next(), sameInstance(connection2));
+  }
+
+  @Test
+  public void shouldSkipClosedConnections() {
+    when(connection1.isOpen()).thenReturn(false);
+
+    assertThat(pool.next(), sameInstance(connection2));
+    assertThat(pool.next(), sameInstance(connection2));
+  }
+}
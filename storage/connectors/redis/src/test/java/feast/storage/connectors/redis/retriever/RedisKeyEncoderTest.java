@@ -0,0 +1,99 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.retriever;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.storage.RedisProto.RedisKey;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import org.junit.Test;
+
+public class RedisKeyEncoderTest {
+
+  private final FeatureSetSpec spec =
+      FeatureSetSpec.newBuilder()
+          .setProject("project")
+          .setName("featureSet")
+          .addEntities(EntitySpec.newBuilder().setName("entity2"))
+          .addEntities(EntitySpec.newBuilder().setName("entity1"))
+          .build();
+
+  @Test
+  public void shouldEncodeKeysIdenticallyToRedisKeyProto() {
+    RedisKeyEncoder encoder = new RedisKeyEncoder("project/featureSet", spec);
+    EntityRow entityRow1 =
+        EntityRow.newBuilder()
+            .putFields("entity1", Value.newBuilder().setInt64Val(1).build())
+            .putFields("entity2", Value.newBuilder().setStringVal("a").build())
+            .putFields("other", Value.newBuilder().setInt64Val(3).build())
+            .build();
+    EntityRow entityRow2 =
+        EntityRow.newBuilder()
+            .putFields("entity2", Value.newBuilder().setStringVal(Strings.repeat("b", 200)).build())
+            .putFields("entity1", Value.getDefaultInstance())
+            .build();
+
+    byte[][] keys = encoder.encode(ImmutableList.of(entityRow1, entityRow2));
+
+    assertThat(
+        keys[0],
+        equalTo(
+            RedisKey.newBuilder()
+                .setFeatureSet("project/featureSet")
+                .addEntities(
+                    Field.newBuilder()
+                        .setName("entity1")
+                        .setValue(Value.newBuilder().setInt64Val(1)))
+                .addEntities(
+                    Field.newBuilder()
+                        .setName("entity2")
+                        .setValue(Value.newBuilder().setStringVal("a")))
+                .build()
+                .toByteArray()));
+    assertThat(
+        keys[1],
+        equalTo(
+            RedisKey.newBuilder()
+                .setFeatureSet("project/featureSet")
+                .addEntities(
+                    Field.newBuilder().setName("entity1").setValue(Value.getDefaultInstance()))
+                .addEntities(
+                    Field.newBuilder()
+                        .setName("entity2")
+                        .setValue(Value.newBuilder().setStringVal(Strings.repeat("b", 200))))
+                .build()
+                .toByteArray()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowIfEntityIsMissing() {
+    RedisKeyEncoder encoder = new RedisKeyEncoder("project/featureSet", spec);
+    EntityRow entityRow =
+        EntityRow.newBuilder()
+            .putFields("entity1", Value.newBuilder().setInt64Val(1).build())
+            .build();
+
+    encoder.encode(ImmutableList.of(entityRow));
+  }
+}
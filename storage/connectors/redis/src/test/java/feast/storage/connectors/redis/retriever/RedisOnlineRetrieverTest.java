@@ -37,11 +37,15 @@ import feast.proto.types.FieldProto.Field;
 import feast.proto.types.ValueProto.Value;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.OnlineRetriever;
+import feast.storage.connectors.redis.writer.RedisHashLayout;
 import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
@@ -53,6 +57,14 @@ public class RedisOnlineRetrieverTest {
 
   @Mock RedisCommands<byte[], byte[]> syncCommands;
 
+  @Mock RedisAsyncCommands<byte[], byte[]> asyncCommands;
+
+  @Mock RedisFuture<List<KeyValue<byte[], byte[]>>> mgetFuture;
+
+  @Mock RedisFuture<List<KeyValue<byte[], byte[]>>> hmgetFuture1;
+
+  @Mock RedisFuture<List<KeyValue<byte[], byte[]>>> hmgetFuture2;
+
   private OnlineRetriever redisOnlineRetriever;
   private byte[][] redisKeyList;
 
@@ -60,6 +72,7 @@ public class RedisOnlineRetrieverTest {
   public void setUp() {
     initMocks(this);
     when(connection.sync()).thenReturn(syncCommands);
+    when(connection.async()).thenReturn(asyncCommands);
     redisOnlineRetriever = RedisOnlineRetriever.create(connection);
     redisKeyList =
         Lists.newArrayList(
@@ -218,6 +231,159 @@ public class RedisOnlineRetrieverTest {
     assertThat(actual, equalTo(expected));
   }
 
+  @Test
+  public void shouldReturnResponseWithValuesAsynchronously() throws Exception {
+    FeatureSetRequest featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .setSpec(getFeatureSetSpec())
+            .addFeatureReference(
+                FeatureReference.newBuilder().setName("feature1").setProject("project").build())
+            .addFeatureReference(
+                FeatureReference.newBuilder().setName("feature2").setProject("project").build())
+            .build();
+    List<EntityRow> entityRows =
+        ImmutableList.of(
+            EntityRow.newBuilder()
+                .setEntityTimestamp(Timestamp.newBuilder().setSeconds(100))
+                .putFields("entity1", intValue(1))
+                .putFields("entity2", strValue("a"))
+                .build(),
+            EntityRow.newBuilder()
+                .setEntityTimestamp(Timestamp.newBuilder().setSeconds(100))
+                .putFields("entity1", intValue(2))
+                .putFields("entity2", strValue("b"))
+                .build());
+
+    FeatureRow featureRow =
+        FeatureRow.newBuilder()
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(100))
+            .addAllFields(
+                Lists.newArrayList(
+                    Field.newBuilder().setValue(intValue(1)).build(),
+                    Field.newBuilder().setValue(intValue(1)).build()))
+            .build();
+    List<KeyValue<byte[], byte[]>> featureRowBytes =
+        Lists.newArrayList(KeyValue.from(new byte[1], Optional.of(featureRow.toByteArray())), null);
+
+    redisOnlineRetriever = RedisOnlineRetriever.create(connection);
+    when(asyncCommands.mget(redisKeyList)).thenReturn(mgetFuture);
+    when(mgetFuture.toCompletableFuture())
+        .thenReturn(CompletableFuture.completedFuture(featureRowBytes));
+
+    List<Optional<FeatureRow>> expected =
+        Lists.newArrayList(
+            Optional.of(
+                FeatureRow.newBuilder()
+                    .setEventTimestamp(Timestamp.newBuilder().setSeconds(100))
+                    .setFeatureSet("project/featureSet")
+                    .addAllFields(
+                        Lists.newArrayList(
+                            Field.newBuilder().setName("feature1").setValue(intValue(1)).build(),
+                            Field.newBuilder().setName("feature2").setValue(intValue(1)).build()))
+                    .build()),
+            Optional.empty());
+    List<Optional<FeatureRow>> actual =
+        redisOnlineRetriever.getOnlineFeaturesAsync(entityRows, featureSetRequest).get();
+    assertThat(actual, equalTo(expected));
+  }
+
+  @Test
+  public void shouldReadOnlyRequestedFieldsOfHashes() throws Exception {
+    FeatureSetRequest featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .setSpec(getFeatureSetSpec())
+            .addFeatureReference(
+                FeatureReference.newBuilder().setName("feature2").setProject("project").build())
+            .build();
+    List<EntityRow> entityRows =
+        ImmutableList.of(
+            EntityRow.newBuilder()
+                .putFields("entity1", intValue(1))
+                .putFields("entity2", strValue("a"))
+                .build(),
+            EntityRow.newBuilder()
+                .putFields("entity1", intValue(2))
+                .putFields("entity2", strValue("b"))
+                .build());
+    byte[] field2 = RedisHashLayout.fieldName("feature2");
+
+    redisOnlineRetriever = RedisOnlineRetriever.create(connection, true);
+    when(asyncCommands.hmget(redisKeyList[0], field2)).thenReturn(hmgetFuture1);
+    when(hmgetFuture1.toCompletableFuture())
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                ImmutableList.of(
+                    KeyValue.just(
+                        field2,
+                        RedisHashLayout.encodeField(
+                            Timestamp.newBuilder().setSeconds(100).build(), intValue(1))))));
+    when(asyncCommands.hmget(redisKeyList[1], field2)).thenReturn(hmgetFuture2);
+    when(hmgetFuture2.toCompletableFuture())
+        .thenReturn(CompletableFuture.completedFuture(ImmutableList.of(KeyValue.empty(field2))));
+
+    List<Optional<FeatureRow>> expected =
+        Lists.newArrayList(
+            Optional.of(
+                FeatureRow.newBuilder()
+                    .setEventTimestamp(Timestamp.newBuilder().setSeconds(100))
+                    .setFeatureSet("project/featureSet")
+                    .addFields(Field.newBuilder().setName("feature2").setValue(intValue(1)))
+                    .build()),
+            Optional.empty());
+    List<Optional<FeatureRow>> actual =
+        redisOnlineRetriever.getOnlineFeaturesAsync(entityRows, featureSetRequest).get();
+    assertThat(actual, equalTo(expected));
+  }
+
+  @Test
+  public void shouldUseOldestFieldTimestampOfHashesWithMixedFieldAges() throws Exception {
+    FeatureSetRequest featureSetRequest =
+        FeatureSetRequest.newBuilder()
+            .setSpec(getFeatureSetSpec())
+            .addFeatureReference(
+                FeatureReference.newBuilder().setName("feature1").setProject("project").build())
+            .addFeatureReference(
+                FeatureReference.newBuilder().setName("feature2").setProject("project").build())
+            .build();
+    List<EntityRow> entityRows =
+        ImmutableList.of(
+            EntityRow.newBuilder()
+                .putFields("entity1", intValue(1))
+                .putFields("entity2", strValue("a"))
+                .build());
+    byte[] field1 = RedisHashLayout.fieldName("feature1");
+    byte[] field2 = RedisHashLayout.fieldName("feature2");
+
+    // feature1 was written long before feature2, so the row is as old as feature1
+    redisOnlineRetriever = RedisOnlineRetriever.create(connection, true);
+    when(asyncCommands.hmget(redisKeyList[0], field1, field2)).thenReturn(hmgetFuture1);
+    when(hmgetFuture1.toCompletableFuture())
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                ImmutableList.of(
+                    KeyValue.just(
+                        field1,
+                        RedisHashLayout.encodeField(
+                            Timestamp.newBuilder().setSeconds(100).build(), intValue(1))),
+                    KeyValue.just(
+                        field2,
+                        RedisHashLayout.encodeField(
+                            Timestamp.newBuilder().setSeconds(200).build(), intValue(2))))));
+
+    List<Optional<FeatureRow>> expected =
+        Lists.newArrayList(
+            Optional.of(
+                FeatureRow.newBuilder()
+                    .setEventTimestamp(Timestamp.newBuilder().setSeconds(100))
+                    .setFeatureSet("project/featureSet")
+                    .addFields(Field.newBuilder().setName("feature1").setValue(intValue(1)))
+                    .addFields(Field.newBuilder().setName("feature2").setValue(intValue(2)))
+                    .build()));
+    List<Optional<FeatureRow>> actual =
+        redisOnlineRetriever.getOnlineFeaturesAsync(entityRows, featureSetRequest).get();
+    assertThat(actual, equalTo(expected));
+  }
+
   private Value intValue(int val) {
     return Value.newBuilder().setInt64Val(val).build();
   }
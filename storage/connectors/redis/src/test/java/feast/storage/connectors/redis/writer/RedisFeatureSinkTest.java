@@ -19,6 +19,7 @@ package feast.storage.connectors.redis.writer;
 import static feast.storage.common.testing.TestUtil.field;
 import static feast.storage.common.testing.TestUtil.hash;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 
@@ -39,11 +40,13 @@ import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.proto.types.FieldProto.Field;
 import feast.proto.types.ValueProto.Value;
 import feast.proto.types.ValueProto.ValueType.Enum;
+import feast.storage.connectors.redis.retriever.FeatureRowDecoder;
 import io.lettuce.core.AbstractRedisClient;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.sync.RedisStringCommands;
 import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
 import io.lettuce.core.codec.ByteArrayCodec;
 import java.util.*;
 import java.util.concurrent.ScheduledFuture;
@@ -55,6 +58,7 @@ import net.ishiis.redis.unit.Redis;
 import net.ishiis.redis.unit.RedisCluster;
 import net.ishiis.redis.unit.RedisServer;
 import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.options.PipelineOptions.CheckEnabled;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.testing.TestStream;
@@ -74,6 +78,7 @@ public class RedisFeatureSinkTest {
   private static Integer[] REDIS_CLUSTER_PORTS = {6380, 6381, 6382};
 
   private RedisStringCommands<byte[], byte[]> sync;
+  private RedisClusterCommands<byte[], byte[]> commands;
   private RedisFeatureSink redisFeatureSink;
   private Map<FeatureSetReference, FeatureSetSpec> specMap;
 
@@ -122,10 +127,11 @@ public class RedisFeatureSinkTest {
     redisServer.start();
 
     if (redisClient instanceof RedisClient) {
-      sync = ((RedisClient) redisClient).connect(new ByteArrayCodec()).sync();
+      commands = ((RedisClient) redisClient).connect(new ByteArrayCodec()).sync();
     } else {
-      sync = ((RedisClusterClient) redisClient).connect(new ByteArrayCodec()).sync();
+      commands = ((RedisClusterClient) redisClient).connect(new ByteArrayCodec()).sync();
     }
+    sync = commands;
 
     FeatureSetSpec spec1 =
         FeatureSetSpec.newBuilder()
@@ -154,6 +160,7 @@ public class RedisFeatureSinkTest {
                 FeatureSpec.newBuilder().setName("feature_1").setValueType(Enum.STRING).build())
             .addFeatures(
                 FeatureSpec.newBuilder().setName("feature_2").setValueType(Enum.INT64).build())
+            .setMaxAge(com.google.protobuf.Duration.newBuilder().setSeconds(3600))
             .build();
 
     specMap =
@@ -593,6 +600,408 @@ public class RedisFeatureSinkTest {
         equalTo(createFeatureRow("", Timestamp.newBuilder().setSeconds(10).build()).toByteArray()));
   }
 
+  private RedisFeatureSink createSink(
+      boolean serverSideCompareAndSet, boolean bufferedWrites, boolean compactValueEncoding) {
+    return createSink(serverSideCompareAndSet, bufferedWrites, compactValueEncoding, false);
+  }
+
+  private RedisFeatureSink createSink(
+      boolean serverSideCompareAndSet,
+      boolean bufferedWrites,
+      boolean compactValueEncoding,
+      boolean hashLayout) {
+    RedisFeatureSink.Builder builder = RedisFeatureSink.builder();
+    if (redisConfig instanceof RedisConfig) {
+      builder.setRedisConfig(
+          ((RedisConfig) redisConfig)
+              .toBuilder()
+              .setServerSideCompareAndSet(serverSideCompareAndSet)
+              .setBufferedWrites(bufferedWrites)
+              .setCompactValueEncoding(compactValueEncoding)
+              .setHashLayout(hashLayout)
+              .build());
+    } else {
+      builder.setRedisClusterConfig(
+          ((RedisClusterConfig) redisConfig)
+              .toBuilder()
+              .setServerSideCompareAndSet(serverSideCompareAndSet)
+              .setBufferedWrites(bufferedWrites)
+              .setCompactValueEncoding(compactValueEncoding)
+              .setHashLayout(hashLayout)
+              .build());
+    }
+    RedisFeatureSink sink = builder.build();
+    // the sink of the test is prepared in the same pipeline as the sink prepared by setUp
+    p.getOptions().setStableUniqueNames(CheckEnabled.OFF);
+    sink.prepareWrite(p.apply("Specs-2", Create.of(specMap)));
+    return sink;
+  }
+
+  @Test
+  public void shouldWriteWithBufferedWrites() {
+    RedisFeatureSink bufferedSink = createSink(false, true, false);
+    FeatureRow latestRowA =
+        createFeatureRow(
+            "myproject/feature_set",
+            Timestamp.newBuilder().setSeconds(20).build(),
+            field("entity_id_primary", 1, Enum.INT32),
+            field("entity_id_secondary", "a", Enum.STRING),
+            field("feature_2", 111, Enum.INT32));
+    FeatureRow rowB =
+        createFeatureRow(
+            "myproject/fs",
+            Timestamp.newBuilder().setSeconds(10).build(),
+            field("entity", 1, Enum.INT64),
+            field("feature", "one", Enum.STRING));
+    List<FeatureRow> featureRows =
+        ImmutableList.of(
+            latestRowA,
+            createFeatureRow(
+                "myproject/feature_set",
+                Timestamp.newBuilder().setSeconds(10).build(),
+                field("entity_id_primary", 1, Enum.INT32),
+                field("entity_id_secondary", "a", Enum.STRING),
+                field("feature_2", 222, Enum.INT32)),
+            rowB);
+
+    // rows are only deduplicated within a bundle, so the older row of key A may also be written
+    // when the runner puts it in an earlier bundle
+    PCollection<FeatureRow> writtenRows =
+        p.apply(Create.of(featureRows)).apply(bufferedSink.writer()).getSuccessfulInserts();
+    PAssert.that(writtenRows)
+        .satisfies(
+            rows -> {
+              assertThat(rows, hasItems(latestRowA, rowB));
+              return null;
+            });
+    p.run();
+
+    RedisKey keyA =
+        createRedisKey(
+            "myproject/feature_set",
+            field("entity_id_primary", 1, Enum.INT32),
+            field("entity_id_secondary", "a", Enum.STRING));
+    RedisKey keyB = createRedisKey("myproject/fs", field("entity", 1, Enum.INT64));
+    assertThat(
+        sync.get(keyA.toByteArray()),
+        equalTo(
+            createFeatureRow(
+                    "",
+                    Timestamp.newBuilder().setSeconds(20).build(),
+                    Field.newBuilder()
+                        .setName(hash("feature_1"))
+                        .setValue(Value.getDefaultInstance())
+                        .build(),
+                    field(hash("feature_2"), 111, Enum.INT32))
+                .toByteArray()));
+    assertThat(
+        sync.get(keyB.toByteArray()),
+        equalTo(
+            createFeatureRow(
+                    "",
+                    Timestamp.newBuilder().setSeconds(10).build(),
+                    field(hash("feature"), "one", Enum.STRING))
+                .toByteArray()));
+  }
+
+  @Test
+  public void shouldWriteWithCompactValueEncoding() throws Exception {
+    RedisFeatureSink compactSink = createSink(true, false, true);
+    FeatureSetSpec spec = specMap.get(FeatureSetReference.of("myproject", "feature_set", 1));
+    CompactFeatureRowEncoder encoder = new CompactFeatureRowEncoder(spec);
+    FeatureRowDecoder decoder = new FeatureRowDecoder("myproject/feature_set", spec);
+
+    FeatureRow rowA =
+        createFeatureRow(
+            "myproject/feature_set",
+            Timestamp.newBuilder().setSeconds(20).build(),
+            field("entity_id_primary", 1, Enum.INT32),
+            field("entity_id_secondary", "a", Enum.STRING),
+            field("feature_1", "one", Enum.STRING),
+            field("feature_2", 111, Enum.INT64));
+    FeatureRow rowB =
+        createFeatureRow(
+            "myproject/feature_set",
+            Timestamp.newBuilder().setSeconds(20).build(),
+            field("entity_id_primary", 2, Enum.INT32),
+            field("entity_id_secondary", "b", Enum.STRING),
+            field("feature_2", 222, Enum.INT64));
+    RedisKey keyA =
+        createRedisKey(
+            "myproject/feature_set",
+            field("entity_id_primary", 1, Enum.INT32),
+            field("entity_id_secondary", "a", Enum.STRING));
+    RedisKey keyB =
+        createRedisKey(
+            "myproject/feature_set",
+            field("entity_id_primary", 2, Enum.INT32),
+            field("entity_id_secondary", "b", Enum.STRING));
+
+    // a more recent row in the compact encoding is not replaced
+    byte[] currentValueB =
+        encoder.encode(
+            rowB.toBuilder().setEventTimestamp(Timestamp.newBuilder().setSeconds(30)).build());
+    sync.set(keyB.toByteArray(), currentValueB);
+
+    p.apply(Create.of(rowA, rowB)).apply(compactSink.writer());
+    p.run();
+
+    byte[] valueA = sync.get(keyA.toByteArray());
+    assertThat(valueA, equalTo(encoder.encode(rowA)));
+    assertThat(
+        decoder.decode(valueA, decoder.project(ImmutableList.of("feature_1", "feature_2"))),
+        equalTo(
+            createFeatureRow(
+                "myproject/feature_set",
+                Timestamp.newBuilder().setSeconds(20).build(),
+                field("feature_1", "one", Enum.STRING),
+                field("feature_2", 111, Enum.INT64))));
+    assertThat(sync.get(keyB.toByteArray()), equalTo(currentValueB));
+  }
+
+  @Test
+  public void shouldWriteNewerFieldsWithHashLayout() throws Exception {
+    RedisFeatureSink hashSink = createSink(false, false, false, true);
+    RedisKey keyA =
+        createRedisKey(
+            "myproject/feature_set",
+            field("entity_id_primary", 1, Enum.INT32),
+            field("entity_id_secondary", "a", Enum.STRING));
+    byte[] feature1 = RedisHashLayout.fieldName("feature_1");
+    byte[] feature2 = RedisHashLayout.fieldName("feature_2");
+    // feature_1 was written from a more recent row than the written row
+    byte[] currentFeature1 =
+        RedisHashLayout.encodeField(
+            Timestamp.newBuilder().setSeconds(30).build(),
+            Value.newBuilder().setStringVal("newer").build());
+    commands.hset(keyA.toByteArray(), feature1, currentFeature1);
+
+    FeatureRow row =
+        createFeatureRow(
+            "myproject/feature_set",
+            Timestamp.newBuilder().setSeconds(20).build(),
+            field("entity_id_primary", 1, Enum.INT32),
+            field("entity_id_secondary", "a", Enum.STRING),
+            field("feature_1", "one", Enum.STRING),
+            field("feature_2", 111, Enum.INT64));
+    p.apply(Create.of(row)).apply(hashSink.writer());
+    p.run();
+
+    assertThat(commands.hget(keyA.toByteArray(), feature1), equalTo(currentFeature1));
+    assertThat(
+        commands.hget(keyA.toByteArray(), feature2),
+        equalTo(
+            RedisHashLayout.encodeField(
+                Timestamp.newBuilder().setSeconds(20).build(),
+                Value.newBuilder().setInt64Val(111).build())));
+    assertThat(
+        RedisHashLayout.decode(
+            "myproject/feature_set",
+            ImmutableList.of("feature_1", "feature_2"),
+            commands.hmget(keyA.toByteArray(), feature1, feature2).stream()
+                .map(keyValue -> keyValue.getValueOrElse(null))
+                .collect(Collectors.toList())),
+        equalTo(
+            Optional.of(
+                createFeatureRow(
+                    "myproject/feature_set",
+                    Timestamp.newBuilder().setSeconds(20).build(),
+                    field("feature_1", "newer", Enum.STRING),
+                    field("feature_2", 111, Enum.INT64)))));
+  }
+
+  @Test
+  public void shouldExpireKeysAfterMaxAge() {
+    RedisFeatureSink expiringSink = createExpiringSink();
+
+    long nowSeconds = System.currentTimeMillis() / 1000;
+    List<FeatureRow> featureRows =
+        ImmutableList.of(
+            createFeatureRow(
+                "myproject/feature_set",
+                Timestamp.newBuilder().setSeconds(nowSeconds).build(),
+                field("entity_id_primary", 1, Enum.INT32),
+                field("entity_id_secondary", "a", Enum.STRING),
+                field("feature_2", 111, Enum.INT64)),
+            createFeatureRow(
+                "myproject/fs",
+                Timestamp.newBuilder().setSeconds(nowSeconds).build(),
+                field("entity", 1, Enum.INT64),
+                field("feature", "one", Enum.STRING)));
+    p.apply(Create.of(featureRows)).apply(expiringSink.writer());
+    p.run();
+
+    RedisKey keyA =
+        createRedisKey(
+            "myproject/feature_set",
+            field("entity_id_primary", 1, Enum.INT32),
+            field("entity_id_secondary", "a", Enum.STRING));
+    RedisKey keyB = createRedisKey("myproject/fs", field("entity", 1, Enum.INT64));
+    // expires at the event time plus the max age of 3600s and the slack of 60s
+    long ttlSeconds = commands.ttl(keyA.toByteArray());
+    assertThat(ttlSeconds > 3600 && ttlSeconds <= 3660, equalTo(true));
+    // feature sets without max age do not expire
+    assertThat(commands.ttl(keyB.toByteArray()), equalTo(-1L));
+  }
+
+  @Test
+  public void shouldNotWriteRowsPastTheirExpiry() {
+    RedisFeatureSink expiringSink = createExpiringSink();
+
+    // older than the max age of 3600s and the slack of 60s
+    long eventSeconds = System.currentTimeMillis() / 1000 - 7200;
+    List<FeatureRow> featureRows =
+        ImmutableList.of(
+            createFeatureRow(
+                "myproject/feature_set",
+                Timestamp.newBuilder().setSeconds(eventSeconds).build(),
+                field("entity_id_primary", 1, Enum.INT32),
+                field("entity_id_secondary", "a", Enum.STRING),
+                field("feature_2", 111, Enum.INT64)));
+    p.apply(Create.of(featureRows)).apply(expiringSink.writer());
+    p.run();
+
+    RedisKey key =
+        createRedisKey(
+            "myproject/feature_set",
+            field("entity_id_primary", 1, Enum.INT32),
+            field("entity_id_secondary", "a", Enum.STRING));
+    assertThat(commands.get(key.toByteArray()), equalTo(null));
+  }
+
+  private RedisFeatureSink createExpiringSink() {
+    RedisFeatureSink.Builder builder = RedisFeatureSink.builder();
+    if (redisConfig instanceof RedisConfig) {
+      builder.setRedisConfig(
+          ((RedisConfig) redisConfig)
+              .toBuilder()
+              .setExpireAfterMaxAge(true)
+              .setExpirySlackSeconds(60)
+              .build());
+    } else {
+      builder.setRedisClusterConfig(
+          ((RedisClusterConfig) redisConfig)
+              .toBuilder()
+              .setExpireAfterMaxAge(true)
+              .setExpirySlackSeconds(60)
+              .build());
+    }
+    RedisFeatureSink expiringSink = builder.build();
+    p.getOptions().setStableUniqueNames(CheckEnabled.OFF);
+    expiringSink.prepareWrite(p.apply("Specs-2", Create.of(specMap)));
+    return expiringSink;
+  }
+
+  @Test
+  public void shouldWriteWithLatterTimestampWithServerSideCompareAndSet() {
+    RedisFeatureSink compareAndSetSink = createSink(true, false, false);
+
+    FeatureRow rowA =
+        createFeatureRow(
+            "myproject/feature_set",
+            Timestamp.newBuilder().setSeconds(20).build(),
+            field("entity_id_primary", 1, Enum.INT32),
+            field("entity_id_secondary", "a", Enum.STRING),
+            field("feature_2", 111, Enum.INT32));
+    FeatureRow rowB =
+        createFeatureRow(
+            "myproject/feature_set",
+            Timestamp.newBuilder().setSeconds(20).build(),
+            field("entity_id_primary", 2, Enum.INT32),
+            field("entity_id_secondary", "b", Enum.STRING),
+            field("feature_2", 222, Enum.INT32));
+    FeatureRow rowC =
+        createFeatureRow(
+            "myproject/feature_set",
+            Timestamp.newBuilder().setSeconds(10).build(),
+            field("entity_id_primary", 3, Enum.INT32),
+            field("entity_id_secondary", "c", Enum.STRING),
+            field("feature_2", 333, Enum.INT32));
+    FeatureRow rowD =
+        createFeatureRow(
+            "myproject/feature_set",
+            Timestamp.newBuilder().setSeconds(10).build(),
+            field("entity_id_primary", 4, Enum.INT32),
+            field("entity_id_secondary", "d", Enum.STRING),
+            field("feature_2", 444, Enum.INT32));
+    TestStream<FeatureRow> featureRowTestStream =
+        TestStream.create(ProtoCoder.of(FeatureRow.class))
+            .addElements(rowA)
+            .addElements(rowB)
+            .addElements(rowC)
+            .addElements(rowD)
+            .advanceWatermarkToInfinity();
+
+    RedisKey keyA =
+        createRedisKey(
+            "myproject/feature_set",
+            field("entity_id_primary", 1, Enum.INT32),
+            field("entity_id_secondary", "a", Enum.STRING));
+    RedisKey keyB =
+        createRedisKey(
+            "myproject/feature_set",
+            field("entity_id_primary", 2, Enum.INT32),
+            field("entity_id_secondary", "b", Enum.STRING));
+    RedisKey keyC =
+        createRedisKey(
+            "myproject/feature_set",
+            field("entity_id_primary", 3, Enum.INT32),
+            field("entity_id_secondary", "c", Enum.STRING));
+    RedisKey keyD =
+        createRedisKey(
+            "myproject/feature_set",
+            field("entity_id_primary", 4, Enum.INT32),
+            field("entity_id_secondary", "d", Enum.STRING));
+
+    FeatureRow currentRowA =
+        createFeatureRow(
+            "",
+            Timestamp.newBuilder().setSeconds(30).build(),
+            field(hash("feature_2"), 1, Enum.INT32));
+    sync.set(keyA.toByteArray(), currentRowA.toByteArray());
+    sync.set(
+        keyB.toByteArray(),
+        createFeatureRow("", Timestamp.newBuilder().setSeconds(10).build()).toByteArray());
+    sync.set(
+        keyC.toByteArray(),
+        createFeatureRow("", Timestamp.newBuilder().setSeconds(10).build()).toByteArray());
+    sync.set(keyD.toByteArray(), "some-invalid-data".getBytes());
+
+    PCollection<FeatureRow> writtenRows =
+        p.apply(featureRowTestStream).apply(compareAndSetSink.writer()).getSuccessfulInserts();
+    PAssert.that(writtenRows).containsInAnyOrder(rowB, rowD);
+    p.run();
+
+    assertThat(sync.get(keyA.toByteArray()), equalTo(currentRowA.toByteArray()));
+    assertThat(
+        sync.get(keyB.toByteArray()),
+        equalTo(
+            createFeatureRow(
+                    "",
+                    Timestamp.newBuilder().setSeconds(20).build(),
+                    Field.newBuilder()
+                        .setName(hash("feature_1"))
+                        .setValue(Value.getDefaultInstance())
+                        .build(),
+                    field(hash("feature_2"), 222, Enum.INT32))
+                .toByteArray()));
+    assertThat(
+        sync.get(keyC.toByteArray()),
+        equalTo(createFeatureRow("", Timestamp.newBuilder().setSeconds(10).build()).toByteArray()));
+    assertThat(
+        sync.get(keyD.toByteArray()),
+        equalTo(
+            createFeatureRow(
+                    "",
+                    Timestamp.newBuilder().setSeconds(10).build(),
+                    Field.newBuilder()
+                        .setName(hash("feature_1"))
+                        .setValue(Value.getDefaultInstance())
+                        .build(),
+                    field(hash("feature_2"), 444, Enum.INT32))
+                .toByteArray()));
+  }
+
   @Test
   public void shouldOverwriteInvalidRows() {
     TestStream<FeatureRow> featureRowTestStream =
@@ -0,0 +1,118 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.storage.RedisProto.RedisKey;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class RedisRowEncoderTest {
+
+  private final FeatureSetSpec spec =
+      FeatureSetSpec.newBuilder()
+          .setProject("project")
+          .setName("fs")
+          .addEntities(EntitySpec.newBuilder().setName("entity"))
+          .addFeatures(FeatureSpec.newBuilder().setName("feature_2"))
+          .addFeatures(FeatureSpec.newBuilder().setName("feature_1"))
+          .addFeatures(FeatureSpec.newBuilder().setName("feature_3"))
+          .build();
+  private final RedisRowEncoder encoder = new RedisRowEncoder("project/fs", spec);
+
+  @Test
+  public void shouldEncodeKeyAndValueIdenticallyToProtos() {
+    String longValue = Strings.repeat("a", 200);
+    FeatureRow row =
+        FeatureRow.newBuilder()
+            .setFeatureSet("project/fs")
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(100).setNanos(5))
+            .addFields(field("feature_2", Value.newBuilder().setStringVal(longValue)))
+            .addFields(field("entity", Value.newBuilder().setInt64Val(1)))
+            .addFields(field("entity", Value.newBuilder().setInt64Val(2)))
+            .addFields(field("feature_1", Value.newBuilder().setInt64Val(10)))
+            .addFields(field("feature_1", Value.newBuilder().setInt64Val(10)))
+            .addFields(field("other", Value.newBuilder().setInt64Val(3)))
+            .build();
+
+    assertThat(
+        encoder.encodeKey(row).getBytes(),
+        equalTo(
+            RedisKey.newBuilder()
+                .setFeatureSet("project/fs")
+                .addEntities(field("entity", Value.newBuilder().setInt64Val(1)))
+                .build()
+                .toByteArray()));
+    assertThat(
+        encoder.encodeValue(row),
+        equalTo(
+            FeatureRow.newBuilder()
+                .setEventTimestamp(row.getEventTimestamp())
+                .addFields(field(hash("feature_1"), Value.newBuilder().setInt64Val(10)))
+                .addFields(field(hash("feature_2"), Value.newBuilder().setStringVal(longValue)))
+                .addFields(field(hash("feature_3"), Value.newBuilder()))
+                .build()
+                .toByteArray()));
+  }
+
+  @Test
+  public void shouldEncodeEmptyEventTimestampIdenticallyToProtos() {
+    FeatureRow row =
+        FeatureRow.newBuilder()
+            .addFields(field("entity", Value.newBuilder().setInt64Val(1)))
+            .build();
+
+    assertThat(
+        encoder.encodeValue(row),
+        equalTo(
+            FeatureRow.newBuilder()
+                .setEventTimestamp(Timestamp.getDefaultInstance())
+                .addFields(field(hash("feature_1"), Value.newBuilder()))
+                .addFields(field(hash("feature_2"), Value.newBuilder()))
+                .addFields(field(hash("feature_3"), Value.newBuilder()))
+                .build()
+                .toByteArray()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowIfFeatureHasDifferentValues() {
+    encoder.encodeValue(
+        FeatureRow.newBuilder()
+            .addFields(field("feature_1", Value.newBuilder().setInt64Val(1)))
+            .addFields(field("feature_1", Value.newBuilder().setInt64Val(2)))
+            .build());
+  }
+
+  private static Field field(String name, Value.Builder value) {
+    return Field.newBuilder().setName(name).setValue(value).build();
+  }
+
+  private static String hash(String featureName) {
+    return Hashing.murmur3_32().hashString(featureName, StandardCharsets.UTF_8).toString();
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+import com.google.common.base.Strings;
+import com.google.protobuf.InvalidProtocolBufferException;
+import feast.proto.core.StoreProto.Store.RedisValueCompression;
+import feast.proto.core.StoreProto.Store.RedisValueCompression.Codec;
+import feast.storage.connectors.redis.retriever.ValueDecompressor;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ValueCompressorTest {
+
+  private final Map<String, byte[]> redis = new ConcurrentHashMap<>();
+  private final AtomicInteger dictionaryLoadCount = new AtomicInteger();
+  private final ValueDecompressor decompressor =
+      new ValueDecompressor(
+          key -> {
+            dictionaryLoadCount.incrementAndGet();
+            return CompletableFuture.completedFuture(
+                redis.get(new String(key, StandardCharsets.UTF_8)));
+          });
+
+  @Test
+  public void shouldDecompressValuesCompressedWithLz4AndZstd() throws Exception {
+    for (Codec codec : Arrays.asList(Codec.LZ4, Codec.ZSTD)) {
+      ValueCompressor compressor =
+          new ValueCompressor(RedisValueCompression.newBuilder().setCodec(codec).build());
+      byte[] value = value(1);
+
+      byte[] compressed = compressor.compress("project/fs", value, 100);
+
+      assertThat(compressed.length, lessThan(value.length));
+      assertThat(ValueDecompressor.isCompressed(compressed), equalTo(true));
+      assertThat(ValueDecompressor.readEventTimestampSeconds(compressed), equalTo(100L));
+      assertThat(decompressor.decompress("project/fs", compressed), equalTo(value));
+    }
+  }
+
+  @Test
+  public void shouldCompressWithDictionaryOnceWrittenToRedis() throws Exception {
+    ValueCompressor compressor = trainedDictionaryCompressor(0);
+    // values are compressed without the trained dictionary until it is written to Redis
+    byte[] compressed = compressor.compress("project/fs", value(1000), 100);
+    assertThat(compressed[0], equalTo(ValueDecompressor.ZSTD));
+
+    writeAndActivatePendingDictionaries(compressor);
+    byte[] compressedWithDictionary = compressor.compress("project/fs", value(1001), 100);
+
+    assertThat(compressedWithDictionary[0], equalTo(ValueDecompressor.ZSTD_DICTIONARY));
+    assertThat(
+        ValueDecompressor.readEventTimestampSeconds(compressedWithDictionary), equalTo(100L));
+    decompressor
+        .loadDictionaries("project/fs", Collections.singletonList(compressedWithDictionary))
+        .join();
+    assertThat(
+        decompressor.decompress("project/fs", compressedWithDictionary), equalTo(value(1001)));
+  }
+
+  @Test
+  public void shouldCompressWithFirstDictionaryWrittenToRedisByAnyCompressor() throws Exception {
+    ValueCompressor compressor1 = trainedDictionaryCompressor(0);
+    ValueCompressor compressor2 = trainedDictionaryCompressor(5000);
+
+    writeAndActivatePendingDictionaries(compressor1);
+    writeAndActivatePendingDictionaries(compressor2);
+    byte[] compressed1 = compressor1.compress("project/fs", value(1001), 100);
+    byte[] compressed2 = compressor2.compress("project/fs", value(1002), 100);
+
+    assertThat(redis.size(), equalTo(1));
+    assertThat(
+        Arrays.copyOfRange(compressed2, 0, 5), equalTo(Arrays.copyOfRange(compressed1, 0, 5)));
+    decompressor.loadDictionaries("project/fs", Arrays.asList(compressed1, compressed2)).join();
+    assertThat(decompressor.decompress("project/fs", compressed1), equalTo(value(1001)));
+    assertThat(decompressor.decompress("project/fs", compressed2), equalTo(value(1002)));
+    assertThat(dictionaryLoadCount.get(), equalTo(1));
+  }
+
+  @Test
+  public void shouldNotLoadMissingDictionaryAgainRightAway() throws Exception {
+    byte[] compressed = {ValueDecompressor.ZSTD_DICTIONARY, 1, 2, 3, 4, 100, 0};
+
+    decompressor.loadDictionaries("project/fs", Collections.singletonList(compressed)).join();
+    decompressor.loadDictionaries("project/fs", Collections.singletonList(compressed)).join();
+
+    assertThat(dictionaryLoadCount.get(), equalTo(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowIfDictionaryIsNotLoaded() throws Exception {
+    byte[] compressed = {ValueDecompressor.ZSTD_DICTIONARY, 1, 2, 3, 4, 100, 0};
+
+    decompressor.decompress("project/fs", compressed);
+  }
+
+  @Test(expected = InvalidProtocolBufferException.class)
+  public void shouldThrowIfCompressedFeatureRowIsTruncated() throws Exception {
+    ValueCompressor compressor =
+        new ValueCompressor(RedisValueCompression.newBuilder().setCodec(Codec.LZ4).build());
+    byte[] compressed = compressor.compress("project/fs", value(1), 100);
+
+    decompressor.decompress("project/fs", Arrays.copyOf(compressed, compressed.length - 10));
+  }
+
+  @Test(expected = InvalidProtocolBufferException.class)
+  public void shouldThrowIfEventTimestampIsTruncated() throws Exception {
+    byte[] truncated = {ValueDecompressor.ZSTD, (byte) 0x80};
+
+    ValueDecompressor.readEventTimestampSeconds(truncated);
+  }
+
+  @Test(expected = InvalidProtocolBufferException.class)
+  public void shouldThrowIfHeaderIsTruncated() throws Exception {
+    byte[] truncated = {ValueDecompressor.ZSTD_DICTIONARY, 1, 2};
+
+    ValueDecompressor.readEventTimestampSeconds(truncated);
+  }
+
+  /** Create a compressor with a pending dictionary trained from 1000 values from the given one. */
+  private static ValueCompressor trainedDictionaryCompressor(int firstValue) {
+    ValueCompressor compressor =
+        new ValueCompressor(
+            RedisValueCompression.newBuilder()
+                .setCodec(Codec.ZSTD)
+                .setDictionarySampleCount(1000)
+                .build());
+    for (int i = firstValue; i < firstValue + 1000; i++) {
+      compressor.compress("project/fs", value(i), 100);
+    }
+    assertThat(compressor.getPendingDictionaries().size(), equalTo(1));
+    return compressor;
+  }
+
+  /** Write the pending dictionaries of the compressor unless present, as the Redis sink does. */
+  private void writeAndActivatePendingDictionaries(ValueCompressor compressor) {
+    compressor
+        .getPendingDictionaries()
+        .forEach(
+            (featureSetRef, dictionary) -> {
+              String key =
+                  new String(
+                      ValueDecompressor.dictionaryKey(featureSetRef), StandardCharsets.UTF_8);
+              redis.putIfAbsent(key, dictionary);
+              compressor.activateDictionary(featureSetRef, redis.get(key));
+            });
+  }
+
+  private static byte[] value(int i) {
+    String row =
+        String.format(
+            "{\"entity\": %d, \"feature_1\": \"value %d\", \"feature_2\": %d, \"feature_3\": %s}",
+            i, i % 17, i * 31, i % 2 == 0);
+    return Strings.repeat(row, 4).getBytes(StandardCharsets.UTF_8);
+  }
+}